@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the throughput and the hit rate of the cache eviction policies on a skewed key distribution, mimicking
+ * many search threads hitting the query, request and field data caches. The hit rate is reported through the
+ * <code>hits</code> and <code>misses</code> counters.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int TRACE_LENGTH = 1 << 20;
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"LRU", "TINY_LFU"})
+    public Cache.EvictionPolicy evictionPolicy;
+
+    @Param({"1000"})
+    public int maximumSize;
+
+    @Param({"100000"})
+    public int numberOfKeys;
+
+    // the skew of the zipf distribution of the keys
+    @Param({"0.9"})
+    public double skew;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    private Cache<Integer, Integer> cache;
+    private int[] trace;
+
+    @Setup
+    public void setUp() {
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(maximumSize)
+            .setEvictionPolicy(evictionPolicy)
+            .build();
+        Random random = new Random(seed);
+        double[] cdf = new double[numberOfKeys];
+        double sum = 0;
+        for (int i = 0; i < numberOfKeys; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        trace = new int[TRACE_LENGTH];
+        for (int i = 0; i < trace.length; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            trace[i] = rank < 0 ? Math.min(-1 - rank, numberOfKeys - 1) : rank;
+        }
+        for (int key : trace) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long hits;
+        public long misses;
+        private int position;
+
+        @Setup(Level.Iteration)
+        public void setUp(CacheBenchmark benchmark) {
+            hits = 0;
+            misses = 0;
+            // every thread replays the trace from a different position
+            position = benchmark.threads.getAndIncrement() * (TRACE_LENGTH / 64);
+        }
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer getOrPut(Counters counters) {
+        final int key = trace[counters.position++ & (TRACE_LENGTH - 1)];
+        Integer value = cache.get(key);
+        if (value == null) {
+            counters.misses++;
+            cache.put(key, key);
+            return key;
+        }
+        counters.hits++;
+        return value;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer getOrPutSingleThreaded(Counters counters) {
+        return getOrPut(counters);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.io.stream;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the primitives used by the transport layer to (de)serialize requests and responses.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StreamBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"1000"})
+    public int numValues;
+
+    private long[] longs;
+    private int[] ints;
+    private String[] strings;
+    private BytesReference source;
+
+    private BytesReference serializedVLongs;
+    private BytesReference serializedStrings;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(seed);
+        longs = new long[numValues];
+        ints = new int[numValues];
+        strings = new String[numValues];
+        for (int i = 0; i < numValues; i++) {
+            // skew towards small values like doc counts and lengths, but keep some large ones around
+            longs[i] = random.nextBoolean() ? random.nextInt(1 << 14) : random.nextLong() & Long.MAX_VALUE;
+            ints[i] = random.nextInt(1 << 20);
+            strings[i] = randomString(random, 1 + random.nextInt(32));
+        }
+        byte[] sourceBytes = new byte[16 * 1024];
+        random.nextBytes(sourceBytes);
+        source = new BytesArray(sourceBytes);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (long value : longs) {
+            out.writeVLong(value);
+        }
+        serializedVLongs = out.bytes();
+        out = new BytesStreamOutput();
+        for (String value : strings) {
+            out.writeString(value);
+        }
+        serializedStrings = out.bytes();
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // mostly ascii with the occasional multi-byte character
+            builder.append(random.nextInt(10) == 0 ? (char) (0x80 + random.nextInt(0x700)) : (char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public BytesReference writeVInt() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int value : ints) {
+            out.writeVInt(value);
+        }
+        return out.bytes();
+    }
+
+    @Benchmark
+    public BytesReference writeVLong() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (long value : longs) {
+            out.writeVLong(value);
+        }
+        return out.bytes();
+    }
+
+    @Benchmark
+    public BytesReference writeString() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String value : strings) {
+            out.writeString(value);
+        }
+        return out.bytes();
+    }
+
+    @Benchmark
+    public BytesReference writeBytesReference() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(source);
+        return out.bytes();
+    }
+
+    @Benchmark
+    public void readVLong(Blackhole bh) throws IOException {
+        StreamInput in = StreamInput.wrap(serializedVLongs);
+        for (int i = 0; i < numValues; i++) {
+            bh.consume(in.readVLong());
+        }
+    }
+
+    @Benchmark
+    public void readString(Blackhole bh) throws IOException {
+        StreamInput in = StreamInput.wrap(serializedStrings);
+        for (int i = 0; i < numValues; i++) {
+            bh.consume(in.readString());
+        }
+    }
+}
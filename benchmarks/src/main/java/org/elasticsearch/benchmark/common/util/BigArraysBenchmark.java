@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures growing and randomly accessing paged arrays, the storage behind most aggregators.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BigArraysBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private final BigArrays bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+
+    private long[] indices;
+    private LongArray array;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(seed);
+        indices = new long[Math.min(size, 100000)];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = random.nextInt(size);
+        }
+        array = bigArrays.newLongArray(size);
+    }
+
+    @Benchmark
+    public long growByOne() {
+        // mimics bucket ordinals being handed out one at a time
+        LongArray array = bigArrays.newLongArray(1, false);
+        try {
+            for (long i = 0; i < size; i++) {
+                array = bigArrays.grow(array, i + 1);
+                array.set(i, i);
+            }
+            return array.size();
+        } finally {
+            array.close();
+        }
+    }
+
+    @Benchmark
+    public long randomIncrement() {
+        long sum = 0;
+        for (long index : indices) {
+            sum += array.increment(index, 1);
+        }
+        return sum;
+    }
+}
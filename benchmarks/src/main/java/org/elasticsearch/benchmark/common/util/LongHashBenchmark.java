@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures inserting and looking up longs, as done by the terms and histogram aggregations to assign bucket ordinals.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LongHashBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"10000"})
+    public int numKeys;
+
+    @Param({"100", "10000"})
+    public int cardinality;
+
+    private long[] keys;
+    private LongHash populated;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(seed);
+        long[] uniqueKeys = new long[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            uniqueKeys[i] = random.nextLong();
+        }
+        keys = new long[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = uniqueKeys[random.nextInt(cardinality)];
+        }
+        populated = new LongHash(cardinality, BigArrays.NON_RECYCLING_INSTANCE);
+        for (long key : uniqueKeys) {
+            populated.add(key);
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        try (LongHash hash = new LongHash(1, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (long key : keys) {
+                hash.add(key);
+            }
+            return hash.size();
+        }
+    }
+
+    @Benchmark
+    public long find() {
+        long sum = 0;
+        for (long key : keys) {
+            sum += populated.find(key);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.xcontent;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing documents into maps and back, as done for source filtering, updates and ingest.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class XContentHelperBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"json", "smile"})
+    public String contentType;
+
+    @Param({"10", "100"})
+    public int numFields;
+
+    private BytesReference source;
+    private Map<String, Object> sourceAsMap;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(seed);
+        XContentBuilder builder = XContentFactory.contentBuilder(XContentType.fromRestContentType(contentType));
+        builder.startObject();
+        for (int i = 0; i < numFields; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.field("long_" + i, random.nextLong());
+                    break;
+                case 1:
+                    builder.field("double_" + i, random.nextDouble());
+                    break;
+                case 2:
+                    builder.startObject("object_" + i).field("name", "value_" + random.nextInt(100)).field("flag", random.nextBoolean()).endObject();
+                    break;
+                default:
+                    builder.field("text_" + i, "some text with a random number " + random.nextInt());
+                    break;
+            }
+        }
+        builder.endObject();
+        source = builder.bytes();
+        sourceAsMap = XContentHelper.convertToMap(source, false).v2();
+    }
+
+    @Benchmark
+    public Tuple<XContentType, Map<String, Object>> convertToMap() {
+        return XContentHelper.convertToMap(source, false);
+    }
+
+    @Benchmark
+    public Tuple<XContentType, Map<String, Object>> convertToOrderedMap() {
+        return XContentHelper.convertToMap(source, true);
+    }
+
+    @Benchmark
+    public String convertToJson() throws IOException {
+        return XContentHelper.convertToJson(source, true);
+    }
+
+    @Benchmark
+    public BytesReference mapToXContent() throws IOException {
+        return XContentFactory.contentBuilder(XContentType.fromRestContentType(contentType)).map(sourceAsMap).bytes();
+    }
+}
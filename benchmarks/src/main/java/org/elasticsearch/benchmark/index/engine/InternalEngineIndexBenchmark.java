@@ -0,0 +1,191 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index.engine;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.env.ShardLock;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.codec.CodecService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.mapper.ParseContext;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.TranslogRecoveryPerformer;
+import org.elasticsearch.index.store.DirectoryService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link InternalEngine#index(Engine.Index)} on a real file system, including the version map,
+ * the version lookup for updates and the translog write. Documents are pre-parsed so mapping is not part
+ * of the measurement.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class InternalEngineIndexBenchmark {
+
+    private static final String TYPE = "type";
+
+    @Param({"42"})
+    public long seed;
+
+    /** The number of distinct ids updates are picked from. */
+    @Param({"100000"})
+    public int numIds;
+
+    private final ShardId shardId = new ShardId(new Index("index"), 0);
+    private final ESLogger logger = Loggers.getLogger(InternalEngineIndexBenchmark.class);
+
+    private Path dataPath;
+    private ThreadPool threadPool;
+    private Store store;
+    private InternalEngine engine;
+    private Random random;
+    private BytesReference source;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        random = new Random(seed);
+        dataPath = Files.createTempDirectory("engine-benchmark");
+        threadPool = new ThreadPool("engine-benchmark");
+        IndexSettings indexSettings = new IndexSettings(IndexMetaData.builder(shardId.index().getName())
+                .settings(Settings.builder()
+                        .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+                        .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                        .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0))
+                .build(), Settings.EMPTY, Collections.emptyList());
+        final Directory directory = FSDirectory.open(dataPath.resolve("index"));
+        DirectoryService directoryService = new DirectoryService(shardId, indexSettings) {
+            @Override
+            public Directory newDirectory() throws IOException {
+                return directory;
+            }
+
+            @Override
+            public long throttleTimeInNanos() {
+                return 0;
+            }
+        };
+        store = new Store(shardId, indexSettings, directoryService, new ShardLock(shardId) {
+            @Override
+            protected void closeInternal() {
+            }
+        });
+        TranslogConfig translogConfig = new TranslogConfig(shardId, dataPath.resolve("translog"), indexSettings, BigArrays.NON_RECYCLING_INSTANCE);
+        EngineConfig config = new EngineConfig(shardId, threadPool, indexSettings, null, store,
+                new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy()), new TieredMergePolicy(),
+                Lucene.STANDARD_ANALYZER, new BM25Similarity(), new CodecService(null, logger), new Engine.EventListener() {},
+                new TranslogRecoveryPerformer(shardId, null, logger) {}, IndexSearcher.getDefaultQueryCache(),
+                IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig, TimeValue.timeValueMinutes(5));
+        config.setCreate(true);
+        engine = new InternalEngine(config, false);
+
+        byte[] sourceBytes = ("{\"message\":\"the quick brown fox jumps over the lazy dog\",\"value\":" + seed + "}").getBytes("UTF-8");
+        source = new BytesArray(sourceBytes);
+        // seed the index with all ids so that updates always hit an existing document
+        for (int i = 0; i < numIds; i++) {
+            engine.index(newIndex(Integer.toString(i)));
+        }
+        engine.refresh("benchmark");
+        nextId = numIds;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        IOUtils.close(engine, store);
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        IOUtils.rm(dataPath);
+    }
+
+    private Engine.Index newIndex(String id) {
+        ParseContext.Document document = new ParseContext.Document();
+        Field uidField = new Field(UidFieldMapper.NAME, Uid.createUid(TYPE, id), UidFieldMapper.Defaults.FIELD_TYPE);
+        Field versionField = new NumericDocValuesField("_version", 0);
+        document.add(uidField);
+        document.add(versionField);
+        document.add(new TextField("message", "the quick brown fox jumps over the lazy dog", Field.Store.NO));
+        document.add(new SortedNumericDocValuesField("value", random.nextLong()));
+        ParsedDocument doc = new ParsedDocument(uidField, versionField, id, TYPE, null, -1, -1, Collections.singletonList(document), source, null);
+        return new Engine.Index(new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(TYPE, id)), doc);
+    }
+
+    @Benchmark
+    public boolean indexNewDocument() {
+        return engine.index(newIndex(Long.toString(nextId++)));
+    }
+
+    @Benchmark
+    public boolean updateExistingDocument() {
+        return engine.index(newIndex(Integer.toString(random.nextInt(numIds))));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations.metrics.cardinality;
+
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collection, merging and estimation of the cardinality aggregation sketch, both in the linear counting
+ * and in the hyperloglog regime depending on the number of distinct values per bucket.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HyperLogLogPlusPlusBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"14"})
+    public int precision;
+
+    @Param({"1", "100"})
+    public int numBuckets;
+
+    @Param({"100", "100000"})
+    public int numValues;
+
+    private long[] hashes;
+    private HyperLogLogPlusPlus collected;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(seed);
+        hashes = new long[numValues];
+        MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        for (int i = 0; i < numValues; i++) {
+            hashes[i] = MurmurHash3.hash128(longToBytes(random.nextLong()), 0, 8, 0, hash).h1;
+        }
+        collected = collect();
+    }
+
+    private static byte[] longToBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (value >>> (i * 8));
+        }
+        return bytes;
+    }
+
+    private HyperLogLogPlusPlus collect() {
+        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, numBuckets);
+        for (int i = 0; i < hashes.length; i++) {
+            counts.collect(i % numBuckets, hashes[i]);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public HyperLogLogPlusPlus collectAll() {
+        HyperLogLogPlusPlus counts = collect();
+        counts.close();
+        return counts;
+    }
+
+    @Benchmark
+    public long merge() {
+        try (HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (long bucket = 0; bucket < numBuckets; bucket++) {
+                merged.merge(0, collected, bucket);
+            }
+            return merged.cardinality(0);
+        }
+    }
+
+    @Benchmark
+    public long cardinality() {
+        long sum = 0;
+        for (long bucket = 0; bucket < numBuckets; bucket++) {
+            sum += collected.cardinality(bucket);
+        }
+        return sum;
+    }
+}
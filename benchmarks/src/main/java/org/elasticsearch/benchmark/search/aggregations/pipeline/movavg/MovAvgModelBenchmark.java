@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations.pipeline.movavg;
+
+import org.elasticsearch.common.collect.EvictingQueue;
+import org.elasticsearch.search.aggregations.pipeline.movavg.models.EwmaModel;
+import org.elasticsearch.search.aggregations.pipeline.movavg.models.HoltLinearModel;
+import org.elasticsearch.search.aggregations.pipeline.movavg.models.LinearModel;
+import org.elasticsearch.search.aggregations.pipeline.movavg.models.MovAvgModel;
+import org.elasticsearch.search.aggregations.pipeline.movavg.models.SimpleModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the computation of a moving average over a series of buckets, as done by the moving_avg pipeline
+ * aggregation, through the window of the model and by re-evaluating the model over an evicting queue at every bucket.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MovAvgModelBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"simple", "linear", "ewma", "holt"})
+    public String model;
+
+    @Param({"10000"})
+    public int numBuckets;
+
+    @Param({"5", "100"})
+    public int window;
+
+    private double[] values;
+    private MovAvgModel movAvgModel;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(seed);
+        values = new double[numBuckets];
+        for (int i = 0; i < numBuckets; i++) {
+            values[i] = random.nextDouble() * 1000;
+        }
+        switch (model) {
+            case "simple":
+                movAvgModel = new SimpleModel();
+                break;
+            case "linear":
+                movAvgModel = new LinearModel();
+                break;
+            case "ewma":
+                movAvgModel = new EwmaModel(0.3);
+                break;
+            case "holt":
+                movAvgModel = new HoltLinearModel(0.3, 0.1);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown model [" + model + "]");
+        }
+    }
+
+    @Benchmark
+    public double window() {
+        MovAvgModel.Window window = movAvgModel.newWindow(this.window);
+        double sum = 0;
+        for (double value : values) {
+            if (movAvgModel.hasValue(window.size())) {
+                sum += window.next();
+            }
+            window.offer(value);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double evictingQueue() {
+        EvictingQueue<Double> window = new EvictingQueue<>(this.window);
+        double sum = 0;
+        for (double value : values) {
+            if (movAvgModel.hasValue(window.size())) {
+                sum += movAvgModel.next(window);
+            }
+            window.offer(value);
+        }
+        return sum;
+    }
+}
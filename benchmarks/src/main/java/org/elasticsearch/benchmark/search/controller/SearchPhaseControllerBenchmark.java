@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.controller;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.ContextAndHeaderHolder;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.InternalTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
+import org.elasticsearch.search.controller.SearchPhaseController;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work done on the coordinating node once all shards responded: merging the shard top docs and
+ * merging hits, aggregations and the rest of the shard responses into the final search response.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SearchPhaseControllerBenchmark {
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"5", "100", "1000"})
+    public int numShards;
+
+    @Param({"10"})
+    public int size;
+
+    @Param({"score", "field"})
+    public String sort;
+
+    @Param({"100"})
+    public int numTermsBuckets;
+
+    private SearchPhaseController controller;
+    private AtomicArray<QuerySearchResult> queryResults;
+    private AtomicArray<FetchSearchResult> fetchResults;
+    private ScoreDoc[] sortedDocs;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(seed);
+        // disable the single shard optimization so that we always measure the merge
+        controller = new SearchPhaseController(Settings.builder().put(SearchPhaseController.SEARCH_CONTROLLER_OPTIMIZE_SINGLE_SHARD_KEY, false).build(),
+                BigArrays.NON_RECYCLING_INSTANCE, null);
+        queryResults = new AtomicArray<>(numShards);
+        fetchResults = new AtomicArray<>(numShards);
+        SortField[] sortFields = new SortField[] { new SortField("field", SortField.Type.LONG, true) };
+        for (int shard = 0; shard < numShards; shard++) {
+            SearchShardTarget target = new SearchShardTarget("node", "index", shard);
+            QuerySearchResult queryResult = new QuerySearchResult(shard, target);
+            ScoreDoc[] docs = new ScoreDoc[size];
+            float maxScore = 0;
+            long value = random.nextInt(1000000);
+            float score = random.nextFloat() * 10;
+            for (int i = 0; i < size; i++) {
+                if ("field".equals(sort)) {
+                    value -= random.nextInt(100);
+                    docs[i] = new FieldDoc(i, Float.NaN, new Object[] { value });
+                } else {
+                    score -= random.nextFloat() / size;
+                    maxScore = Math.max(maxScore, score);
+                    docs[i] = new ScoreDoc(i, score);
+                }
+            }
+            int totalHits = size + random.nextInt(10000);
+            TopDocs topDocs = "field".equals(sort) ? new TopFieldDocs(totalHits, docs, sortFields, Float.NaN) : new TopDocs(totalHits, docs, maxScore);
+            queryResult.topDocs(topDocs);
+            queryResult.size(size);
+            queryResult.from(0);
+            queryResult.aggregations(randomAggregations(random));
+            queryResults.set(shard, queryResult);
+
+            FetchSearchResult fetchResult = new FetchSearchResult(shard, target);
+            InternalSearchHit[] hits = new InternalSearchHit[size];
+            for (int i = 0; i < size; i++) {
+                hits[i] = new InternalSearchHit(i, Integer.toString(i), new Text("type"), Collections.emptyMap());
+            }
+            fetchResult.hits(new InternalSearchHits(hits, totalHits, maxScore));
+            fetchResults.set(shard, fetchResult);
+        }
+        sortedDocs = controller.sortDocs(false, queryResults);
+    }
+
+    private InternalAggregations randomAggregations(Random random) {
+        List<InternalTerms.Bucket> buckets = new ArrayList<>(numTermsBuckets);
+        long docCount = 100000;
+        for (int i = 0; i < numTermsBuckets; i++) {
+            docCount -= random.nextInt(100);
+            BytesRef term = new BytesRef("term_" + random.nextInt(numTermsBuckets * 10));
+            buckets.add(new StringTerms.Bucket(term, docCount, InternalAggregations.EMPTY, false, 0));
+        }
+        List<InternalAggregation> aggregations = new ArrayList<>();
+        aggregations.add(new StringTerms("terms", Terms.Order.count(false), numTermsBuckets, numTermsBuckets, 1,
+                buckets, false, 0, 0, Collections.emptyList(), Collections.emptyMap()));
+        aggregations.add(new InternalMax("max", random.nextDouble(), ValueFormatter.RAW, Collections.emptyList(), Collections.emptyMap()));
+        return new InternalAggregations(aggregations);
+    }
+
+    @Benchmark
+    public ScoreDoc[] sortDocs() throws IOException {
+        return controller.sortDocs(false, queryResults);
+    }
+
+    @Benchmark
+    public InternalSearchResponse merge() {
+        return controller.merge(sortedDocs, queryResults, fetchResults, new ContextAndHeaderHolder());
+    }
+}
@@ -40,6 +40,10 @@ import org.elasticsearch.action.admin.cluster.repositories.verify.TransportVerif
 import org.elasticsearch.action.admin.cluster.repositories.verify.VerifyRepositoryAction;
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteAction;
 import org.elasticsearch.action.admin.cluster.reroute.TransportClusterRerouteAction;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobAction;
+import org.elasticsearch.action.admin.cluster.rollup.delete.TransportDeleteRollupJobAction;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobAction;
+import org.elasticsearch.action.admin.cluster.rollup.put.TransportPutRollupJobAction;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsAction;
 import org.elasticsearch.action.admin.cluster.settings.TransportClusterUpdateSettingsAction;
 import org.elasticsearch.action.admin.cluster.shards.ClusterSearchShardsAction;
@@ -264,6 +268,8 @@ public class ActionModule extends AbstractModule {
         registerAction(GetRepositoriesAction.INSTANCE, TransportGetRepositoriesAction.class);
         registerAction(DeleteRepositoryAction.INSTANCE, TransportDeleteRepositoryAction.class);
         registerAction(VerifyRepositoryAction.INSTANCE, TransportVerifyRepositoryAction.class);
+        registerAction(PutRollupJobAction.INSTANCE, TransportPutRollupJobAction.class);
+        registerAction(DeleteRollupJobAction.INSTANCE, TransportDeleteRollupJobAction.class);
         registerAction(GetSnapshotsAction.INSTANCE, TransportGetSnapshotsAction.class);
         registerAction(DeleteSnapshotAction.INSTANCE, TransportDeleteSnapshotAction.class);
         registerAction(CreateSnapshotAction.INSTANCE, TransportCreateSnapshotAction.class);
@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.rollup.delete;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.AcknowledgedRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * Delete rollup job request.
+ * <p>
+ * Removes a rollup job from the cluster state. The documents it already wrote are kept.
+ */
+public class DeleteRollupJobRequest extends AcknowledgedRequest<DeleteRollupJobRequest> {
+
+    private String id;
+
+    public DeleteRollupJobRequest() {
+    }
+
+    /**
+     * Constructs a new delete rollup job request with the provided id.
+     */
+    public DeleteRollupJobRequest(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (id == null) {
+            validationException = addValidationError("id is missing", validationException);
+        }
+        return validationException;
+    }
+
+    /**
+     * Sets the id of the job to delete.
+     */
+    public DeleteRollupJobRequest id(String id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * The id of the job to delete.
+     */
+    public String id() {
+        return this.id;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        id = in.readString();
+        readTimeout(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(id);
+        writeTimeout(out);
+    }
+}
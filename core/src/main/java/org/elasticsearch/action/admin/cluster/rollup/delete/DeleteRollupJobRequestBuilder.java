@@ -0,0 +1,44 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.rollup.delete;
+
+import org.elasticsearch.action.support.master.AcknowledgedRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+
+/**
+ * Delete rollup job request builder
+ */
+public class DeleteRollupJobRequestBuilder extends AcknowledgedRequestBuilder<DeleteRollupJobRequest, DeleteRollupJobResponse, DeleteRollupJobRequestBuilder> {
+
+    public DeleteRollupJobRequestBuilder(ElasticsearchClient client, DeleteRollupJobAction action) {
+        super(client, action, new DeleteRollupJobRequest());
+    }
+
+    public DeleteRollupJobRequestBuilder(ElasticsearchClient client, DeleteRollupJobAction action, String id) {
+        super(client, action, new DeleteRollupJobRequest(id));
+    }
+
+    /**
+     * Sets the id of the job to delete
+     */
+    public DeleteRollupJobRequestBuilder setId(String id) {
+        request.id(id);
+        return this;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.rollup.put;
+
+import org.elasticsearch.ElasticsearchGenerationException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.AcknowledgedRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsException;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.indices.rollup.RollupJobConfig;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+import static org.elasticsearch.common.settings.Settings.Builder.EMPTY_SETTINGS;
+import static org.elasticsearch.common.settings.Settings.readSettingsFromStream;
+import static org.elasticsearch.common.settings.Settings.writeSettingsToStream;
+
+/**
+ * Put rollup job request.
+ * <p>
+ * Stores a rollup job with the given id and definition in the cluster state. If a job with the same id already
+ * exists with a different definition, the new job replaces it and starts over from the oldest documents.
+ */
+public class PutRollupJobRequest extends AcknowledgedRequest<PutRollupJobRequest> {
+
+    private String id;
+
+    private Settings settings = EMPTY_SETTINGS;
+
+    public PutRollupJobRequest() {
+    }
+
+    /**
+     * Constructs a new put rollup job request with the provided id.
+     */
+    public PutRollupJobRequest(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (id == null) {
+            validationException = addValidationError("id is missing", validationException);
+        } else {
+            try {
+                RollupJobConfig.parse(id, settings);
+            } catch (SettingsException e) {
+                validationException = addValidationError(e.getMessage(), validationException);
+            }
+        }
+        return validationException;
+    }
+
+    /**
+     * Sets the id of the job.
+     */
+    public PutRollupJobRequest id(String id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * The id of the job.
+     */
+    public String id() {
+        return this.id;
+    }
+
+    /**
+     * Sets the definition of the job, see {@link RollupJobConfig#parse(String, Settings)}.
+     */
+    public PutRollupJobRequest settings(Settings settings) {
+        this.settings = settings;
+        return this;
+    }
+
+    /**
+     * Sets the definition of the job, see {@link RollupJobConfig#parse(String, Settings)}.
+     */
+    public PutRollupJobRequest settings(Settings.Builder settings) {
+        this.settings = settings.build();
+        return this;
+    }
+
+    /**
+     * The definition of the job.
+     */
+    public Settings settings() {
+        return this.settings;
+    }
+
+    /**
+     * Sets the definition of the job.
+     */
+    public PutRollupJobRequest source(Map<String, Object> source) {
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
+            builder.map(source);
+            this.settings = Settings.settingsBuilder().loadFromSource(builder.string()).build();
+        } catch (IOException e) {
+            throw new ElasticsearchGenerationException("Failed to generate [" + source + "]", e);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the definition of the job.
+     * JSON, Smile and YAML formats are supported
+     */
+    public PutRollupJobRequest source(BytesReference source) {
+        try (XContentParser parser = XContentFactory.xContent(source).createParser(source)) {
+            return source(parser.mapOrdered());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("failed to parse rollup job source", e);
+        }
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        id = in.readString();
+        settings = readSettingsFromStream(in);
+        readTimeout(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(id);
+        writeSettingsToStream(settings, out);
+        writeTimeout(out);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.cluster.rollup.put;
+
+import org.elasticsearch.action.support.master.AcknowledgedRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Put rollup job request builder
+ */
+public class PutRollupJobRequestBuilder extends AcknowledgedRequestBuilder<PutRollupJobRequest, PutRollupJobResponse, PutRollupJobRequestBuilder> {
+
+    public PutRollupJobRequestBuilder(ElasticsearchClient client, PutRollupJobAction action) {
+        super(client, action, new PutRollupJobRequest());
+    }
+
+    public PutRollupJobRequestBuilder(ElasticsearchClient client, PutRollupJobAction action, String id) {
+        super(client, action, new PutRollupJobRequest(id));
+    }
+
+    /**
+     * Sets the id of the job
+     */
+    public PutRollupJobRequestBuilder setId(String id) {
+        request.id(id);
+        return this;
+    }
+
+    /**
+     * Sets the definition of the job
+     */
+    public PutRollupJobRequestBuilder setSettings(Settings settings) {
+        request.settings(settings);
+        return this;
+    }
+
+    /**
+     * Sets the definition of the job
+     */
+    public PutRollupJobRequestBuilder setSettings(Settings.Builder settings) {
+        request.settings(settings);
+        return this;
+    }
+}
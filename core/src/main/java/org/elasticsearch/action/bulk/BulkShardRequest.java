@@ -96,4 +96,13 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
     public String toString() {
         return "shard bulk {" + super.toString() + "}";
     }
+
+    @Override
+    public void onRetry() {
+        for (BulkItemRequest item : items) {
+            if (item != null && item.request() instanceof ReplicationRequest) {
+                ((ReplicationRequest) item.request()).onRetry();
+            }
+        }
+    }
 }
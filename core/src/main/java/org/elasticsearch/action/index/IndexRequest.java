@@ -155,6 +155,16 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
 
     private XContentType contentType = Requests.INDEX_CONTENT_TYPE;
 
+    /**
+     * Value for {@link #getAutoGeneratedTimestamp()} if the document has an external
+     * provided ID.
+     */
+    public static final long UNSET_AUTO_GENERATED_TIMESTAMP = -1L;
+
+    private long autoGeneratedTimestamp = UNSET_AUTO_GENERATED_TIMESTAMP;
+
+    private boolean isRetry = false;
+
     public IndexRequest() {
     }
 
@@ -184,6 +194,8 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         this.version = indexRequest.version;
         this.versionType = indexRequest.versionType;
         this.contentType = indexRequest.contentType;
+        this.autoGeneratedTimestamp = indexRequest.autoGeneratedTimestamp;
+        this.isRetry = indexRequest.isRetry;
     }
 
     /**
@@ -620,6 +632,9 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         // generate id if not already provided and id generation is allowed
         if (allowIdGeneration) {
             if (id == null) {
+                assert autoGeneratedTimestamp == UNSET_AUTO_GENERATED_TIMESTAMP : "timestamp has already been generated!";
+                // never go negative, the engine relies on non-negative timestamps to tell auto generated ids apart
+                autoGeneratedTimestamp = Math.max(0, System.currentTimeMillis());
                 id(Strings.base64UUID());
             }
         }
@@ -658,6 +673,10 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         refresh = in.readBoolean();
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            autoGeneratedTimestamp = in.readLong();
+            isRetry = in.readBoolean();
+        }
     }
 
     @Override
@@ -679,6 +698,30 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         out.writeBoolean(refresh);
         out.writeLong(version);
         out.writeByte(versionType.getValue());
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeLong(autoGeneratedTimestamp);
+            out.writeBoolean(isRetry);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this request has been sent to a shard copy more than once.
+     */
+    public boolean isRetry() {
+        return isRetry;
+    }
+
+    @Override
+    public void onRetry() {
+        isRetry = true;
+    }
+
+    /**
+     * Returns the timestamp the auto generated ID was created or {@value #UNSET_AUTO_GENERATED_TIMESTAMP} if the
+     * document has no auto generated ID.
+     */
+    public long getAutoGeneratedTimestamp() {
+        return autoGeneratedTimestamp;
     }
 
     @Override
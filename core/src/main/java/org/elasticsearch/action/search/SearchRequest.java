@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.IndicesRequest;
@@ -65,6 +66,10 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
 
     private Scroll scroll;
 
+    private int batchedReduceSize = 512;
+
+    private int preFilterShardSize = 128;
+
     private String[] types = Strings.EMPTY_ARRAY;
 
     public static final IndicesOptions DEFAULT_INDICES_OPTIONS = IndicesOptions.strictExpandOpenAndForbidClosed();
@@ -90,6 +95,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         this.source = searchRequest.source;
         this.requestCache = searchRequest.requestCache;
         this.scroll = searchRequest.scroll;
+        this.batchedReduceSize = searchRequest.batchedReduceSize;
+        this.preFilterShardSize = searchRequest.preFilterShardSize;
         this.types = searchRequest.types;
         this.indicesOptions = searchRequest.indicesOptions;
     }
@@ -322,6 +329,47 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         return this.requestCache;
     }
 
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. This value should be used as a
+     * protection mechanism to reduce the memory overhead per search request if the potential number of shards in the request can
+     * be large. Defaults to <tt>512</tt>.
+     */
+    public SearchRequest setBatchedReduceSize(int batchedReduceSize) {
+        if (batchedReduceSize <= 1) {
+            throw new IllegalArgumentException("batchedReduceSize must be >= 2");
+        }
+        this.batchedReduceSize = batchedReduceSize;
+        return this;
+    }
+
+    /**
+     * Returns the number of shard results that should be reduced at once on the coordinating node.
+     */
+    public int getBatchedReduceSize() {
+        return batchedReduceSize;
+    }
+
+    /**
+     * Sets a threshold that enforces a pre-filter roundtrip to pre-filter search shards based on query rewriting if the
+     * number of shards the search request expands to exceeds the threshold. This filter roundtrip can limit the number of
+     * shards significantly if for instance a shard can not match any documents based on its min and max values of a range
+     * query. Defaults to <tt>128</tt>.
+     */
+    public SearchRequest setPreFilterShardSize(int preFilterShardSize) {
+        if (preFilterShardSize < 1) {
+            throw new IllegalArgumentException("preFilterShardSize must be >= 1");
+        }
+        this.preFilterShardSize = preFilterShardSize;
+        return this;
+    }
+
+    /**
+     * Returns the number of shards the search request has to expand to before the shards are pre-filtered.
+     */
+    public int getPreFilterShardSize() {
+        return preFilterShardSize;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -347,6 +395,10 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
 
         requestCache = in.readOptionalBoolean();
         template = in.readOptionalStreamable(Template::new);
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            batchedReduceSize = in.readVInt();
+            preFilterShardSize = in.readVInt();
+        }
     }
 
     @Override
@@ -378,5 +430,9 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         indicesOptions.writeIndicesOptions(out);
         out.writeOptionalBoolean(requestCache);
         out.writeOptionalStreamable(template);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVInt(batchedReduceSize);
+            out.writeVInt(preFilterShardSize);
+        }
     }
 }
@@ -36,6 +36,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
+import org.elasticsearch.search.controller.QueryPhaseResultConsumer;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -72,12 +73,14 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
         final AtomicArray<QuerySearchResult> queryResults;
         final AtomicArray<FetchSearchResult> fetchResults;
         final AtomicArray<IntArrayList> docIdsToLoad;
+        final QueryPhaseResultConsumer aggregationsConsumer;
 
         private AsyncAction(SearchRequest request, ActionListener<SearchResponse> listener) {
             super(request, listener);
             queryResults = new AtomicArray<>(firstResults.length());
             fetchResults = new AtomicArray<>(firstResults.length());
             docIdsToLoad = new AtomicArray<>(firstResults.length());
+            aggregationsConsumer = searchPhaseController.newQueryPhaseResultConsumer(request, firstResults.length());
         }
 
         @Override
@@ -107,6 +110,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
                 @Override
                 public void onResponse(QuerySearchResult result) {
                     result.shardTarget(dfsResult.shardTarget());
+                    aggregationsConsumer.consume(result);
                     queryResults.set(shardIndex, result);
                     if (counter.decrementAndGet() == 0) {
                         executeFetchPhase();
@@ -211,7 +215,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
                 @Override
                 public void doRun() throws IOException {
                     final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryResults,
-                            fetchResults, request);
+                            fetchResults, aggregationsConsumer, request);
                     String scrollId = null;
                     if (request.scroll() != null) {
                         scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
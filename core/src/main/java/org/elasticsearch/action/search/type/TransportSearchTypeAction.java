@@ -40,6 +40,7 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
@@ -48,6 +49,7 @@ import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
@@ -141,9 +143,92 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 listener.onResponse(new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, buildTookInMillis(), ShardSearchFailure.EMPTY_ARRAY));
                 return;
             }
+            if (shouldPreFilterSearchShards()) {
+                preFilterSearchShards();
+            } else {
+                performFirstPhases(null);
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if the shards should be asked whether they can match the request at all before the first
+         * phase is executed. Skipped shards don't contribute anything to the response, so requests with aggregations or
+         * suggestions are never pre-filtered.
+         */
+        private boolean shouldPreFilterSearchShards() {
+            SearchSourceBuilder source = request.source();
+            return shardsIts.size() > request.getPreFilterShardSize() && request.template() == null && source != null
+                    && source.query() != null && source.aggregations() == null && source.suggest() == null;
+        }
+
+        /**
+         * Sends a lightweight can match request to one copy of each shard and executes the first phase on the shards that
+         * might match. A shard that fails to answer is searched.
+         */
+        private void preFilterSearchShards() {
+            final boolean[] skip = new boolean[shardsIts.size()];
+            final AtomicInteger counter = new AtomicInteger(skip.length);
+            int shardIndex = -1;
+            for (final ShardIterator shardIt : shardsIts) {
+                final int index = ++shardIndex;
+                final ShardRouting shard = shardIt.nextOrNull();
+                final DiscoveryNode node = shard == null ? null : nodes.get(shard.currentNodeId());
+                if (node == null) {
+                    if (counter.decrementAndGet() == 0) {
+                        onPreFilterDone(skip);
+                    }
+                    continue;
+                }
+                String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState, shard.index(), request.indices());
+                searchService.sendCanMatch(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime()),
+                        new ActionListener<SearchServiceTransportAction.CanMatchResponse>() {
+                    @Override
+                    public void onResponse(SearchServiceTransportAction.CanMatchResponse response) {
+                        skip[index] = response.canMatch() == false;
+                        if (counter.decrementAndGet() == 0) {
+                            onPreFilterDone(skip);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("{}: failed to execute can match phase", t, shard.shortSummary());
+                        }
+                        if (counter.decrementAndGet() == 0) {
+                            onPreFilterDone(skip);
+                        }
+                    }
+                });
+            }
+        }
+
+        private void onPreFilterDone(boolean[] skip) {
+            boolean allSkipped = true;
+            for (boolean skipShard : skip) {
+                if (skipShard == false) {
+                    allSkipped = false;
+                    break;
+                }
+            }
+            if (allSkipped) {
+                // we still search one shard so the response is built by the regular phases
+                skip[0] = false;
+            }
+            for (ShardIterator shardIt : shardsIts) {
+                shardIt.reset();
+            }
+            performFirstPhases(skip);
+        }
+
+        private void performFirstPhases(@Nullable boolean[] skip) {
             int shardIndex = -1;
             for (final ShardIterator shardIt : shardsIts) {
                 shardIndex++;
+                if (skip != null && skip[shardIndex]) {
+                    onFirstPhaseSkipped(shardIt);
+                    continue;
+                }
                 final ShardRouting shard = shardIt.nextOrNull();
                 if (shard != null) {
                     performFirstPhase(shardIndex, shardIt, shard);
@@ -164,14 +249,25 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                     onFirstPhaseResult(shardIndex, shard, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
                 } else {
                     String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState, shard.index(), request.indices());
+                    final ResponseCollectorService responseCollector = clusterService.operationRouting().responseCollectorService();
+                    final long sendTime = System.nanoTime();
+                    responseCollector.onRequestSent(node.id());
                     sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime()), new ActionListener<FirstResult>() {
                         @Override
                         public void onResponse(FirstResult result) {
+                            if (result instanceof QuerySearchResultProvider) {
+                                QuerySearchResult queryResult = ((QuerySearchResultProvider) result).queryResult();
+                                responseCollector.onResponse(node.id(), queryResult.nodeQueueSize(), System.nanoTime() - sendTime,
+                                    queryResult.serviceTimeEWMA());
+                            } else {
+                                responseCollector.onRequestCompleted(node.id());
+                            }
                             onFirstPhaseResult(shardIndex, shard, result, shardIt);
                         }
 
                         @Override
                         public void onFailure(Throwable t) {
+                            responseCollector.onRequestCompleted(node.id());
                             onFirstPhaseResult(shardIndex, shard, node.id(), shardIt, t);
                         }
                     });
@@ -182,13 +278,27 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         void onFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result, ShardIterator shardIt) {
             result.shardTarget(new SearchShardTarget(shard.currentNodeId(), shard.index(), shard.id()));
             processFirstPhaseResult(shardIndex, result);
+            onShardSuccess(shardIt, shardIt.remaining() + 1);
+        }
+
+        /**
+         * A shard that was skipped by the pre-filter phase counts as successful without a result.
+         */
+        void onFirstPhaseSkipped(ShardIterator shardIt) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("{}: skipped, it can't match [{}]", shardIt.shardId(), request);
+            }
+            onShardSuccess(shardIt, shardIt.remaining());
+        }
+
+        private void onShardSuccess(ShardIterator shardIt, int shardOps) {
             // we need to increment successful ops first before we compare the exit condition otherwise if we
             // are fast we could concurrently update totalOps but then preempt one of the threads which can
             // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
             successfulOps.incrementAndGet();
             // increment all the "future" shards to update the total ops since we some may work and some may not...
             // and when that happens, we break on total ops, so we must maintain them
-            final int xTotalOps = totalOps.addAndGet(shardIt.remaining() + 1);
+            final int xTotalOps = totalOps.addAndGet(shardOps);
             if (xTotalOps == expectedTotalOps) {
                 try {
                     innerMoveToSecondPhase();
@@ -361,7 +471,14 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
         protected abstract void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchTransportRequest request, ActionListener<FirstResult> listener);
 
+        /**
+         * Called for every successful first phase result before it is stored, allows to consume parts of the result eagerly.
+         */
+        protected void consumeFirstPhaseResult(int shardIndex, FirstResult result) {
+        }
+
         protected final void processFirstPhaseResult(int shardIndex, FirstResult result) {
+            consumeFirstPhaseResult(shardIndex, result);
             firstResults.set(shardIndex, result);
 
             if (logger.isTraceEnabled()) {
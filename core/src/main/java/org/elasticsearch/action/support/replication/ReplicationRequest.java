@@ -201,6 +201,14 @@ public class ReplicationRequest<Request extends ReplicationRequest<Request>> ext
         return (Request) this;
     }
 
+    /**
+     * This method is called before this replication request is retried
+     * the first time.
+     */
+    public void onRetry() {
+        // nothing by default
+    }
+
     @Override
     public String toString() {
         if (shardId != null) {
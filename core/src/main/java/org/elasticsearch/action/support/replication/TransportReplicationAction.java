@@ -515,6 +515,8 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                 finishAsFailed(failure);
                 return;
             }
+            // the request might have been executed already, let it know so it can't be optimized as a first attempt
+            request.onRetry();
             observer.waitForNextChange(new ClusterStateObserver.Listener() {
                 @Override
                 public void onNewClusterState(ClusterState state) {
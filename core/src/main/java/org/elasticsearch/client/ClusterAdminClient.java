@@ -51,6 +51,12 @@ import org.elasticsearch.action.admin.cluster.repositories.verify.VerifyReposito
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteRequest;
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteRequestBuilder;
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteResponse;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobRequest;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobRequestBuilder;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobResponse;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobRequest;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobRequestBuilder;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobResponse;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsRequest;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsRequestBuilder;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsResponse;
@@ -355,6 +361,36 @@ public interface ClusterAdminClient extends ElasticsearchClient {
      */
     VerifyRepositoryRequestBuilder prepareVerifyRepository(String name);
 
+    /**
+     * Stores a rollup job.
+     */
+    ActionFuture<PutRollupJobResponse> putRollupJob(PutRollupJobRequest request);
+
+    /**
+     * Stores a rollup job.
+     */
+    void putRollupJob(PutRollupJobRequest request, ActionListener<PutRollupJobResponse> listener);
+
+    /**
+     * Stores a rollup job.
+     */
+    PutRollupJobRequestBuilder preparePutRollupJob(String id);
+
+    /**
+     * Deletes a rollup job.
+     */
+    ActionFuture<DeleteRollupJobResponse> deleteRollupJob(DeleteRollupJobRequest request);
+
+    /**
+     * Deletes a rollup job.
+     */
+    void deleteRollupJob(DeleteRollupJobRequest request, ActionListener<DeleteRollupJobResponse> listener);
+
+    /**
+     * Deletes a rollup job.
+     */
+    DeleteRollupJobRequestBuilder prepareDeleteRollupJob(String id);
+
     /**
      * Creates a new snapshot.
      */
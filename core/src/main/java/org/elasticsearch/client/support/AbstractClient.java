@@ -65,6 +65,14 @@ import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteAction;
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteRequest;
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteRequestBuilder;
 import org.elasticsearch.action.admin.cluster.reroute.ClusterRerouteResponse;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobAction;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobRequest;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobRequestBuilder;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobResponse;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobAction;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobRequest;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobRequestBuilder;
+import org.elasticsearch.action.admin.cluster.rollup.put.PutRollupJobResponse;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsAction;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsRequest;
 import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsRequestBuilder;
@@ -1102,6 +1110,36 @@ public abstract class AbstractClient extends AbstractComponent implements Client
             return new VerifyRepositoryRequestBuilder(this, VerifyRepositoryAction.INSTANCE, name);
         }
 
+        @Override
+        public ActionFuture<PutRollupJobResponse> putRollupJob(PutRollupJobRequest request) {
+            return execute(PutRollupJobAction.INSTANCE, request);
+        }
+
+        @Override
+        public void putRollupJob(PutRollupJobRequest request, ActionListener<PutRollupJobResponse> listener) {
+            execute(PutRollupJobAction.INSTANCE, request, listener);
+        }
+
+        @Override
+        public PutRollupJobRequestBuilder preparePutRollupJob(String id) {
+            return new PutRollupJobRequestBuilder(this, PutRollupJobAction.INSTANCE, id);
+        }
+
+        @Override
+        public ActionFuture<DeleteRollupJobResponse> deleteRollupJob(DeleteRollupJobRequest request) {
+            return execute(DeleteRollupJobAction.INSTANCE, request);
+        }
+
+        @Override
+        public void deleteRollupJob(DeleteRollupJobRequest request, ActionListener<DeleteRollupJobResponse> listener) {
+            execute(DeleteRollupJobAction.INSTANCE, request, listener);
+        }
+
+        @Override
+        public DeleteRollupJobRequestBuilder prepareDeleteRollupJob(String id) {
+            return new DeleteRollupJobRequestBuilder(this, DeleteRollupJobAction.INSTANCE, id);
+        }
+
         @Override
         public ActionFuture<GetRepositoriesResponse> getRepositories(GetRepositoriesRequest request) {
             return execute(GetRepositoriesAction.INSTANCE, request);
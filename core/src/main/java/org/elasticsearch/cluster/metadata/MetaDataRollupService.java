@@ -0,0 +1,145 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.AckedClusterStateUpdateTask;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateTaskListener;
+import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.ack.AckedRequest;
+import org.elasticsearch.cluster.ack.ClusterStateUpdateResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Service responsible for submitting updates of the rollup jobs stored in the {@link RollupMetaData}
+ */
+public class MetaDataRollupService extends AbstractComponent {
+
+    private final ClusterService clusterService;
+
+    @Inject
+    public MetaDataRollupService(Settings settings, ClusterService clusterService) {
+        super(settings);
+        this.clusterService = clusterService;
+    }
+
+    /**
+     * Adds a rollup job, or replaces the job with the same id. A job that is replaced with a different definition
+     * starts over from the oldest documents.
+     */
+    public void putJob(final String id, final Settings jobSettings, AckedRequest request, ActionListener<ClusterStateUpdateResponse> listener) {
+        clusterService.submitStateUpdateTask("put_rollup_job [" + id + "]", new AckedClusterStateUpdateTask<ClusterStateUpdateResponse>(request, listener) {
+            @Override
+            protected ClusterStateUpdateResponse newResponse(boolean acknowledged) {
+                return new ClusterStateUpdateResponse(acknowledged);
+            }
+
+            @Override
+            public ClusterState execute(ClusterState currentState) {
+                RollupMetaData rollup = currentState.metaData().custom(RollupMetaData.TYPE);
+                if (rollup == null) {
+                    rollup = new RollupMetaData();
+                }
+                RollupJobMetaData existing = rollup.job(id);
+                if (existing != null && existing.settings().equals(jobSettings)) {
+                    return currentState;
+                }
+                logger.info("{} rollup job [{}]", existing == null ? "put" : "update", id);
+                rollup = rollup.put(new RollupJobMetaData(id, jobSettings, RollupJobMetaData.NO_CHECKPOINT));
+                MetaData.Builder mdBuilder = MetaData.builder(currentState.metaData()).putCustom(RollupMetaData.TYPE, rollup);
+                return ClusterState.builder(currentState).metaData(mdBuilder).build();
+            }
+
+            @Override
+            public boolean mustAck(DiscoveryNode discoveryNode) {
+                // jobs only run on the master
+                return discoveryNode.masterNode();
+            }
+        });
+    }
+
+    /**
+     * Removes a rollup job. The documents it already wrote are kept.
+     */
+    public void deleteJob(final String id, AckedRequest request, ActionListener<ClusterStateUpdateResponse> listener) {
+        clusterService.submitStateUpdateTask("delete_rollup_job [" + id + "]", new AckedClusterStateUpdateTask<ClusterStateUpdateResponse>(request, listener) {
+            @Override
+            protected ClusterStateUpdateResponse newResponse(boolean acknowledged) {
+                return new ClusterStateUpdateResponse(acknowledged);
+            }
+
+            @Override
+            public ClusterState execute(ClusterState currentState) {
+                RollupMetaData rollup = currentState.metaData().custom(RollupMetaData.TYPE);
+                if (rollup == null || rollup.job(id) == null) {
+                    throw new ResourceNotFoundException("rollup job [{}] missing", id);
+                }
+                logger.info("delete rollup job [{}]", id);
+                MetaData.Builder mdBuilder = MetaData.builder(currentState.metaData()).putCustom(RollupMetaData.TYPE, rollup.remove(id));
+                return ClusterState.builder(currentState).metaData(mdBuilder).build();
+            }
+
+            @Override
+            public boolean mustAck(DiscoveryNode discoveryNode) {
+                return discoveryNode.masterNode();
+            }
+        });
+    }
+
+    /**
+     * Moves the checkpoint of a rollup job forward. Nothing changes if the job was deleted or redefined in the meantime,
+     * since the documents it summarized don't match its current definition.
+     */
+    public void updateCheckpoint(final String id, final Settings jobSettings, final long checkpoint, final ClusterStateTaskListener listener) {
+        clusterService.submitStateUpdateTask("update_rollup_checkpoint [" + id + "]", new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) {
+                RollupMetaData rollup = currentState.metaData().custom(RollupMetaData.TYPE);
+                RollupJobMetaData job = rollup == null ? null : rollup.job(id);
+                if (job == null || job.settings().equals(jobSettings) == false || job.checkpoint() >= checkpoint) {
+                    return currentState;
+                }
+                rollup = rollup.put(new RollupJobMetaData(id, jobSettings, checkpoint));
+                MetaData.Builder mdBuilder = MetaData.builder(currentState.metaData()).putCustom(RollupMetaData.TYPE, rollup);
+                return ClusterState.builder(currentState).metaData(mdBuilder).build();
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                listener.onFailure(source, t);
+            }
+
+            @Override
+            public void onNoLongerMaster(String source) {
+                listener.onNoLongerMaster(source);
+            }
+
+            @Override
+            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                listener.clusterStateProcessed(source, oldState, newState);
+            }
+        });
+    }
+}
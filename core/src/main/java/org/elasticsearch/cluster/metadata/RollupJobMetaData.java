@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+
+import java.io.IOException;
+
+/**
+ * Metadata about a rollup job: its definition and how far it got
+ */
+public class RollupJobMetaData {
+
+    /**
+     * The checkpoint of a job that hasn't summarized anything yet
+     */
+    public static final long NO_CHECKPOINT = Long.MIN_VALUE;
+
+    private final String id;
+    private final Settings settings;
+    private final long checkpoint;
+
+    /**
+     * Constructs new rollup job metadata
+     *
+     * @param id         job id
+     * @param settings   job definition
+     * @param checkpoint the start of the first time bucket that hasn't been summarized yet
+     */
+    public RollupJobMetaData(String id, Settings settings, long checkpoint) {
+        this.id = id;
+        this.settings = settings;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Returns the job id
+     */
+    public String id() {
+        return this.id;
+    }
+
+    /**
+     * Returns the job definition, see {@link org.elasticsearch.indices.rollup.RollupJobConfig#parse(String, Settings)}
+     */
+    public Settings settings() {
+        return this.settings;
+    }
+
+    /**
+     * Returns the start of the first time bucket that hasn't been summarized yet, or {@link #NO_CHECKPOINT}
+     */
+    public long checkpoint() {
+        return this.checkpoint;
+    }
+
+    /**
+     * Reads rollup job metadata from stream input
+     *
+     * @param in stream input
+     * @return rollup job metadata
+     */
+    public static RollupJobMetaData readFrom(StreamInput in) throws IOException {
+        String id = in.readString();
+        Settings settings = Settings.readSettingsFromStream(in);
+        long checkpoint = in.readLong();
+        return new RollupJobMetaData(id, settings, checkpoint);
+    }
+
+    /**
+     * Writes rollup job metadata to stream output
+     *
+     * @param out stream output
+     */
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(id);
+        Settings.writeSettingsToStream(settings, out);
+        out.writeLong(checkpoint);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RollupJobMetaData that = (RollupJobMetaData) o;
+
+        if (checkpoint != that.checkpoint) return false;
+        if (!id.equals(that.id)) return false;
+        return settings.equals(that.settings);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id.hashCode();
+        result = 31 * result + settings.hashCode();
+        result = 31 * result + Long.hashCode(checkpoint);
+        return result;
+    }
+}
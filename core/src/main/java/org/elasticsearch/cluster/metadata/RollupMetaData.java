@@ -0,0 +1,214 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.cluster.AbstractDiffable;
+import org.elasticsearch.cluster.metadata.MetaData.Custom;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.loader.SettingsLoader;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Contains metadata about the rollup jobs of the cluster, see {@link org.elasticsearch.indices.rollup.IndicesRollupService}
+ */
+public class RollupMetaData extends AbstractDiffable<Custom> implements MetaData.Custom {
+
+    public static final String TYPE = "rollup";
+
+    public static final RollupMetaData PROTO = new RollupMetaData();
+
+    private final List<RollupJobMetaData> jobs;
+
+    /**
+     * Constructs new rollup metadata
+     *
+     * @param jobs list of rollup jobs
+     */
+    public RollupMetaData(RollupJobMetaData... jobs) {
+        this.jobs = Arrays.asList(jobs);
+    }
+
+    /**
+     * Returns list of rollup jobs
+     *
+     * @return list of rollup jobs
+     */
+    public List<RollupJobMetaData> jobs() {
+        return this.jobs;
+    }
+
+    /**
+     * Returns the rollup job with the given id or null if such job doesn't exist
+     *
+     * @param id id of the job
+     * @return rollup job metadata
+     */
+    public RollupJobMetaData job(String id) {
+        for (RollupJobMetaData job : jobs) {
+            if (id.equals(job.id())) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a copy of this metadata where the given job replaces the job with the same id, if there is one
+     */
+    public RollupMetaData put(RollupJobMetaData job) {
+        List<RollupJobMetaData> newJobs = new ArrayList<>(jobs.size() + 1);
+        boolean found = false;
+        for (RollupJobMetaData existing : jobs) {
+            if (existing.id().equals(job.id())) {
+                found = true;
+                newJobs.add(job);
+            } else {
+                newJobs.add(existing);
+            }
+        }
+        if (found == false) {
+            newJobs.add(job);
+        }
+        return new RollupMetaData(newJobs.toArray(new RollupJobMetaData[newJobs.size()]));
+    }
+
+    /**
+     * Returns a copy of this metadata without the job with the given id
+     */
+    public RollupMetaData remove(String id) {
+        List<RollupJobMetaData> newJobs = new ArrayList<>(jobs.size());
+        for (RollupJobMetaData existing : jobs) {
+            if (existing.id().equals(id) == false) {
+                newJobs.add(existing);
+            }
+        }
+        return new RollupMetaData(newJobs.toArray(new RollupJobMetaData[newJobs.size()]));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RollupMetaData that = (RollupMetaData) o;
+
+        return jobs.equals(that.jobs);
+    }
+
+    @Override
+    public int hashCode() {
+        return jobs.hashCode();
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public Custom readFrom(StreamInput in) throws IOException {
+        RollupJobMetaData[] jobs = new RollupJobMetaData[in.readVInt()];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = RollupJobMetaData.readFrom(in);
+        }
+        return new RollupMetaData(jobs);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(jobs.size());
+        for (RollupJobMetaData job : jobs) {
+            job.writeTo(out);
+        }
+    }
+
+    @Override
+    public RollupMetaData fromXContent(XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        List<RollupJobMetaData> jobs = new ArrayList<>();
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                String id = parser.currentName();
+                if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                    throw new ElasticsearchParseException("failed to parse rollup job [{}], expected object", id);
+                }
+                Settings settings = null;
+                long checkpoint = RollupJobMetaData.NO_CHECKPOINT;
+                while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                    if (token == XContentParser.Token.FIELD_NAME) {
+                        String currentFieldName = parser.currentName();
+                        if ("settings".equals(currentFieldName)) {
+                            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                                throw new ElasticsearchParseException("failed to parse rollup job [{}], incompatible params", id);
+                            }
+                            settings = Settings.settingsBuilder().put(SettingsLoader.Helper.loadNestedFromMap(parser.mapOrdered())).build();
+                        } else if ("checkpoint".equals(currentFieldName)) {
+                            if (parser.nextToken() != XContentParser.Token.VALUE_NUMBER) {
+                                throw new ElasticsearchParseException("failed to parse rollup job [{}], checkpoint isn't a number", id);
+                            }
+                            checkpoint = parser.longValue();
+                        } else {
+                            throw new ElasticsearchParseException("failed to parse rollup job [{}], unknown field [{}]", id, currentFieldName);
+                        }
+                    } else {
+                        throw new ElasticsearchParseException("failed to parse rollup job [{}]", id);
+                    }
+                }
+                if (settings == null) {
+                    throw new ElasticsearchParseException("failed to parse rollup job [{}], missing settings", id);
+                }
+                jobs.add(new RollupJobMetaData(id, settings, checkpoint));
+            } else {
+                throw new ElasticsearchParseException("failed to parse rollup jobs");
+            }
+        }
+        return new RollupMetaData(jobs.toArray(new RollupJobMetaData[jobs.size()]));
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
+        for (RollupJobMetaData job : jobs) {
+            builder.startObject(job.id(), XContentBuilder.FieldCaseConversion.NONE);
+            builder.startObject("settings");
+            job.settings().toXContent(builder, params);
+            builder.endObject();
+            if (job.checkpoint() != RollupJobMetaData.NO_CHECKPOINT) {
+                builder.field("checkpoint", job.checkpoint());
+            }
+            builder.endObject();
+        }
+        return builder;
+    }
+
+    @Override
+    public EnumSet<MetaData.XContentContext> context() {
+        return MetaData.API_AND_GATEWAY;
+    }
+}
@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -277,6 +278,30 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordering the active shards by the rank of their node
+     * as computed by the given {@link ResponseCollectorService}. Shards on nodes without statistics come first so they
+     * get probed, ties are broken randomly, and initializing shards are the last to iterate through.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector) {
+        final List<ShardRouting> shuffled = shuffler.shuffle(activeShards);
+        final ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        if (shuffled.size() > 1) {
+            final Map<String, Double> ranks = new HashMap<>(shuffled.size());
+            for (ShardRouting shard : shuffled) {
+                Double rank = collector.rank(shard.currentNodeId());
+                ranks.put(shard.currentNodeId(), rank == null ? Double.NEGATIVE_INFINITY : rank);
+            }
+            ordered.addAll(shuffled);
+            // the sort is stable, so equally ranked shards keep their random order
+            ordered.sort((a, b) -> Double.compare(ranks.get(a.currentNodeId()), ranks.get(b.currentNodeId())));
+        } else {
+            ordered.addAll(shuffled);
+        }
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
@@ -28,6 +28,8 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.math.MathUtils;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.shard.ShardId;
@@ -44,13 +46,39 @@ import java.util.Set;
  */
 public class OperationRouting extends AbstractComponent {
 
+    /**
+     * If enabled, search requests without a preference are routed to the shard copy on the node with the best rank
+     * according to the response times and queue sizes observed by this node, see {@link ResponseCollectorService}.
+     */
+    public static final Setting<Boolean> USE_ADAPTIVE_REPLICA_SELECTION_SETTING = Setting.boolSetting("cluster.routing.use_adaptive_replica_selection", false, true, Setting.Scope.CLUSTER);
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
-    @Inject
+    private final ResponseCollectorService responseCollectorService = new ResponseCollectorService();
+
+    private volatile boolean useAdaptiveReplicaSelection;
+
     public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider) {
+        this(settings, awarenessAllocationDecider, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    @Inject
+    public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider, ClusterSettings clusterSettings) {
         super(settings);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.useAdaptiveReplicaSelection = USE_ADAPTIVE_REPLICA_SELECTION_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(USE_ADAPTIVE_REPLICA_SELECTION_SETTING, this::setUseAdaptiveReplicaSelection);
+    }
+
+    private void setUseAdaptiveReplicaSelection(boolean useAdaptiveReplicaSelection) {
+        this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
+    }
+
+    /**
+     * Returns the statistics of the search responses received by this node, which must be fed by the search actions.
+     */
+    public ResponseCollectorService responseCollectorService() {
+        return responseCollectorService;
     }
 
     public ShardIterator indexShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing) {
@@ -78,8 +106,18 @@ public class OperationRouting extends AbstractComponent {
     public GroupShardsIterator searchShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing, @Nullable String preference) {
         final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
         final Set<ShardIterator> set = new HashSet<>(shards.size());
+        final boolean rankShards = useAdaptiveReplicaSelection && (preference == null || preference.isEmpty())
+            && awarenessAllocationDecider.awarenessAttributes().length == 0;
+        if (rankShards) {
+            responseCollectorService.retainNodes(clusterState.nodes());
+        }
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            final ShardIterator iterator;
+            if (rankShards) {
+                iterator = shard.activeInitializingShardsRankedIt(responseCollectorService);
+            } else {
+                iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            }
             if (iterator != null) {
                 set.add(iterator);
             }
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing;
+
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects statistics about the search responses of other nodes on the coordinating node, which are used by
+ * {@link OperationRouting} to rank shard copies when adaptive replica selection is enabled.
+ *
+ * For every node an exponentially weighted moving average of the response time observed by the coordinating node,
+ * of the search queue size and of the service time reported by the node is kept, together with the number of
+ * requests that are currently outstanding to that node. The rank of a node follows the C3 formula
+ * <code>R - 1/mu + q^3/mu</code> where <code>R</code> is the response time, <code>1/mu</code> the service time and
+ * <code>q</code> the estimated queue size, so that nodes with long queues are penalized more than linearly.
+ */
+public final class ResponseCollectorService {
+
+    /**
+     * The smoothing constant of the moving averages, picked so that roughly the last ten responses dominate the average.
+     */
+    public static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeStats = ConcurrentCollections.newConcurrentMap();
+
+    /**
+     * Called before a search request is sent to the given node.
+     */
+    public void onRequestSent(String nodeId) {
+        nodeStatistics(nodeId).outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * Called when a search request to the given node failed or returned a response without statistics, only releases
+     * the outstanding request.
+     */
+    public void onRequestCompleted(String nodeId) {
+        nodeStatistics(nodeId).outstandingRequests.decrementAndGet();
+    }
+
+    /**
+     * Called when a search response was received from the given node.
+     *
+     * @param queueSize          the size of the search queue on the node when the response was sent
+     * @param responseTimeNanos  the time between sending the request and receiving the response on the coordinating node
+     * @param serviceTimeNanos   the moving average of the time it takes the node to execute a request, as reported by the node
+     */
+    public void onResponse(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+        NodeStatistics stats = nodeStatistics(nodeId);
+        stats.outstandingRequests.decrementAndGet();
+        stats.addResponse(queueSize, responseTimeNanos, serviceTimeNanos);
+    }
+
+    /**
+     * Returns the rank of the given node, lower is better, or <code>null</code> if no response was received from it yet.
+     */
+    public Double rank(String nodeId) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null) {
+            return null;
+        }
+        return stats.rank();
+    }
+
+    /**
+     * Drops the statistics of all nodes that are no longer part of the cluster.
+     */
+    public void retainNodes(DiscoveryNodes nodes) {
+        if (nodeStats.size() > nodes.size()) {
+            nodeStats.keySet().removeIf(nodeId -> nodes.nodeExists(nodeId) == false);
+        }
+    }
+
+    int numberOfNodes() {
+        return nodeStats.size();
+    }
+
+    private NodeStatistics nodeStatistics(String nodeId) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null) {
+            NodeStatistics newStats = new NodeStatistics();
+            stats = nodeStats.putIfAbsent(nodeId, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
+    private static final class NodeStatistics {
+
+        final AtomicInteger outstandingRequests = new AtomicInteger();
+        final ExponentiallyWeightedMovingAverage queueSize = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+        final ExponentiallyWeightedMovingAverage responseTime = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+        final ExponentiallyWeightedMovingAverage serviceTime = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
+        volatile boolean hasResponse;
+
+        void addResponse(int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+            if (queueSize >= 0) {
+                this.queueSize.addValue(queueSize);
+            }
+            this.responseTime.addValue(responseTimeNanos);
+            if (serviceTimeNanos >= 0) {
+                this.serviceTime.addValue(serviceTimeNanos);
+            }
+            hasResponse = true;
+        }
+
+        Double rank() {
+            if (hasResponse == false) {
+                return null;
+            }
+            final double serviceTime = this.serviceTime.getAverage();
+            // the requests this coordinating node has in flight will be queued on the node as well
+            final double estimatedQueueSize = 1 + Math.max(0, outstandingRequests.get()) + queueSize.getAverage();
+            return responseTime.getAverage() - serviceTime + Math.pow(estimatedQueueSize, 3) * serviceTime;
+        }
+    }
+}
@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -61,6 +63,13 @@ import java.util.function.ToLongBiFunction;
  * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
  * invalidation) or an explicit call to {@link #refresh()}.
+ * <p>
+ * With the {@link EvictionPolicy#TINY_LFU} eviction policy reads don't take the LRU lock. Instead, the entries that
+ * were read are recorded in striped, lossy ring buffers which are drained into the LRU list by whichever thread holds
+ * the LRU lock next, or by a reader that filled a buffer and manages to acquire the lock without waiting. The LRU order
+ * is therefore approximate. Reads are also counted in a {@link FrequencySketch}, and when an insertion exceeds the
+ * maximum weight the new entry only replaces the least recently used entry if its key was requested more often,
+ * which keeps one-hit wonders from flushing frequently used entries out of the cache.
  *
  * @param <K> The type of the keys
  * @param <V> The type of the values
@@ -94,6 +103,15 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // the eviction policy
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+    // the popularity of keys, only used with EvictionPolicy.TINY_LFU and protected by the LRU lock
+    private FrequencySketch sketch;
+
+    // the buffers recording reads, only used with EvictionPolicy.TINY_LFU
+    private ReadBuffer<K, V>[] readBuffers;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -131,6 +149,37 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    @SuppressWarnings("unchecked")
+    void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        Objects.requireNonNull(evictionPolicy);
+        this.evictionPolicy = evictionPolicy;
+        if (evictionPolicy == EvictionPolicy.TINY_LFU) {
+            sketch = new FrequencySketch();
+            readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+            for (int i = 0; i < readBuffers.length; i++) {
+                readBuffers[i] = new ReadBuffer<>();
+            }
+        } else {
+            sketch = null;
+            readBuffers = null;
+        }
+    }
+
+    /**
+     * The policy deciding which entries are evicted when the cache exceeds its maximum weight.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evicts the least recently used entry, every read promotes the entry under the LRU lock.
+         */
+        LRU,
+        /**
+         * Approximates LRU with reads that are recorded in lock-free buffers, and only admits a new entry into a full
+         * cache if its key is estimated to be requested more often than the key of the least recently used entry.
+         */
+        TINY_LFU
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -295,6 +344,38 @@ public class Cache<K, V> {
         }
     }
 
+    private static final int READ_BUFFER_STRIPES = 16;
+    private static final int READ_BUFFER_SIZE = 32;
+
+    /**
+     * A lossy ring buffer of entries that were read. Slots that were not drained yet are overwritten, which only
+     * loses the promotion of the overwritten entry.
+     */
+    private static class ReadBuffer<K, V> {
+        private final AtomicReferenceArray<Entry<K, V>> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicInteger writes = new AtomicInteger();
+
+        /**
+         * Records a read of the given entry.
+         *
+         * @return true if the buffer wrapped around and should be drained
+         */
+        boolean offer(Entry<K, V> entry) {
+            final int index = writes.getAndIncrement() & (READ_BUFFER_SIZE - 1);
+            slots.lazySet(index, entry);
+            return index == READ_BUFFER_SIZE - 1;
+        }
+
+        void drain(Cache<K, V> cache) {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                Entry<K, V> entry = slots.getAndSet(i, null);
+                if (entry != null) {
+                    cache.onRead(entry);
+                }
+            }
+        }
+    }
+
     public static final int NUMBER_OF_SEGMENTS = 256;
     @SuppressWarnings("unchecked") private final CacheSegment<K, V>[] segments = new CacheSegment[NUMBER_OF_SEGMENTS];
 
@@ -325,12 +406,48 @@ public class Cache<K, V> {
         Entry<K, V> entry = segment.get(key, now);
         if (entry == null || isExpired(entry, now)) {
             return null;
+        } else if (readBuffers != null) {
+            recordRead(entry, now);
+            return entry.value;
         } else {
             promote(entry, now);
             return entry.value;
         }
     }
 
+    private void recordRead(Entry<K, V> entry, long now) {
+        final ReadBuffer<K, V> buffer = readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+        if (buffer.offer(entry)) {
+            // don't wait for the lock, the thread holding it or the next writer will drain the buffers
+            try (ReleasableLock locked = lruLock.tryAcquire()) {
+                if (locked != null) {
+                    drainReadBuffers();
+                    evict(null, now);
+                }
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+
+        if (readBuffers != null) {
+            for (ReadBuffer<K, V> buffer : readBuffers) {
+                buffer.drain(this);
+            }
+        }
+    }
+
+    private void onRead(Entry<K, V> entry) {
+        assert lruLock.isHeldByCurrentThread();
+
+        // entries that are not linked yet are promoted by the thread that inserts them
+        if (entry.state == State.EXISTING) {
+            sketch.increment(entry.key.hashCode());
+            relinkAtHead(entry);
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -496,7 +613,8 @@ public class Cache<K, V> {
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
-            evict(now);
+            drainReadBuffers();
+            evict(null, now);
         }
     }
 
@@ -648,6 +766,8 @@ public class Cache<K, V> {
     private boolean promote(Entry<K, V> entry, long now) {
         boolean promoted = true;
         try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
+            Entry<K, V> candidate = null;
             switch (entry.state) {
                 case DELETED:
                     promoted = false;
@@ -657,23 +777,42 @@ public class Cache<K, V> {
                     break;
                 case NEW:
                     linkAtHead(entry);
+                    if (sketch != null) {
+                        sketch.increment(entry.key.hashCode());
+                        candidate = entry;
+                    }
                     break;
             }
             if (promoted) {
-                evict(now);
+                evict(candidate, now);
             }
         }
         return promoted;
     }
 
-    private void evict(long now) {
+    /**
+     * Evicts expired entries and least recently used entries until the cache no longer exceeds its maximum weight.
+     *
+     * @param candidate the entry that was just inserted if it has to compete with the least recently used entry for
+     *                  admission, otherwise null
+     * @param now       the current relative time
+     */
+    private void evict(Entry<K, V> candidate, long now) {
         assert lruLock.isHeldByCurrentThread();
 
         while (tail != null && shouldPrune(tail, now)) {
-            CacheSegment<K, V> segment = getCacheSegment(tail.key);
             Entry<K, V> entry = tail;
+            if (candidate != null) {
+                if (candidate != entry && candidate.state == State.EXISTING && isExpired(entry, now) == false
+                        && sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(entry.key.hashCode())) {
+                    // the new entry is not more popular than the one it would replace, reject it instead
+                    entry = candidate;
+                }
+                candidate = null;
+            }
+            CacheSegment<K, V> segment = getCacheSegment(entry.key);
             if (segment != null) {
-                segment.remove(tail.key);
+                segment.remove(entry.key);
             }
             delete(entry, RemovalNotification.RemovalReason.EVICTED);
         }
@@ -758,6 +897,9 @@ public class Cache<K, V> {
         count++;
         weight += weigher.applyAsLong(entry.key, entry.value);
         entry.state = State.EXISTING;
+        if (sketch != null && count > sketch.tableSize()) {
+            sketch.ensureCapacity(count);
+        }
     }
 
     private void relinkAtHead(Entry<K, V> entry) {
@@ -23,6 +23,7 @@ import org.apache.lucene.store.IndexInput;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.compress.deflate.DeflateCompressor;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -41,7 +42,8 @@ public class CompressorFactory {
 
     static {
         compressors = new Compressor[] {
-                new DeflateCompressor()
+                new DeflateCompressor(),
+                new LZ4Compressor()
         };
         defaultCompressor = new DeflateCompressor();
     }
@@ -0,0 +1,301 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedIndexInput;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm, as implemented by the
+ * {@link CompressionMode#FAST} compression mode of Lucene. It is much cheaper in CPU than
+ * {@link org.elasticsearch.common.compress.deflate.DeflateCompressor}, at the cost of a lower compression ratio.
+ *
+ * Data is compressed by independent blocks of at most {@link #BLOCK_SIZE} bytes, each of them being prefixed with its
+ * uncompressed length, and the stream ends with an empty block.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+    // large enough to find matches in big messages while not wasting memory on small ones
+    static final int BLOCK_SIZE = 1 << 16;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCompressed(ChannelBuffer buffer) {
+        if (buffer.readableBytes() < HEADER.length) {
+            return false;
+        }
+        final int offset = buffer.readerIndex();
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (buffer.getByte(offset + i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new LZ4StreamInput(in);
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new LZ4StreamOutput(out);
+    }
+
+    @Override
+    public boolean isCompressed(IndexInput in) throws IOException {
+        return false;
+    }
+
+    @Override
+    public CompressedIndexInput indexInput(IndexInput in) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    private static class LZ4StreamOutput extends StreamOutput {
+
+        private final StreamOutput out;
+        private final DataOutput dataOut;
+        private final org.apache.lucene.codecs.compressing.Compressor compressor = CompressionMode.FAST.newCompressor();
+        // grows up to BLOCK_SIZE so that small messages don't need to allocate a full block
+        private byte[] buffer = BytesRef.EMPTY_BYTES;
+        private int length = 0;
+        private boolean closed = false;
+
+        LZ4StreamOutput(StreamOutput out) {
+            this.out = out;
+            this.dataOut = new DataOutput() {
+                @Override
+                public void writeByte(byte b) throws IOException {
+                    out.writeByte(b);
+                }
+
+                @Override
+                public void writeBytes(byte[] b, int offset, int length) throws IOException {
+                    out.writeBytes(b, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public void writeByte(byte b) throws IOException {
+            if (length == BLOCK_SIZE) {
+                flushBlock();
+            }
+            if (length == buffer.length) {
+                buffer = ArrayUtil.grow(buffer, length + 1);
+            }
+            buffer[length++] = b;
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int len) throws IOException {
+            while (len > 0) {
+                if (length == BLOCK_SIZE) {
+                    flushBlock();
+                }
+                final int chunk = Math.min(len, BLOCK_SIZE - length);
+                if (length + chunk > buffer.length) {
+                    buffer = ArrayUtil.grow(buffer, length + chunk);
+                }
+                System.arraycopy(b, offset, buffer, length, chunk);
+                length += chunk;
+                offset += chunk;
+                len -= chunk;
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (length > 0) {
+                out.writeVInt(length);
+                compressor.compress(buffer, 0, length, dataOut);
+                length = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                try {
+                    flushBlock();
+                    // an empty block marks the end of the stream
+                    out.writeVInt(0);
+                } finally {
+                    out.close();
+                }
+            }
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class LZ4StreamInput extends StreamInput {
+
+        private final StreamInput in;
+        private final DataInput dataIn;
+        private final Decompressor decompressor = CompressionMode.FAST.newDecompressor();
+        private final BytesRef block = new BytesRef();
+        private int position = 0;
+        private boolean eof = false;
+
+        LZ4StreamInput(StreamInput in) {
+            this.in = in;
+            this.dataIn = new DataInput() {
+                @Override
+                public byte readByte() throws IOException {
+                    return in.readByte();
+                }
+
+                @Override
+                public void readBytes(byte[] b, int offset, int len) throws IOException {
+                    in.readBytes(b, offset, len);
+                }
+            };
+        }
+
+        /**
+         * Makes sure there are bytes left to read in the current block, decompressing the next block if needed,
+         * and returns false if the end of the stream has been reached.
+         */
+        private boolean fill() throws IOException {
+            if (position < block.length) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            final int length = in.readVInt();
+            if (length == 0) {
+                eof = true;
+                return false;
+            }
+            if (length < 0 || length > BLOCK_SIZE) {
+                throw new IllegalStateException("Invalid LZ4 block length [" + length + "]");
+            }
+            decompressor.decompress(dataIn, length, 0, length, block);
+            position = 0;
+            return true;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (fill() == false) {
+                throw new EOFException();
+            }
+            return block.bytes[block.offset + position++];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            if (read(b, offset, len) != len) {
+                throw new EOFException();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fill() == false) {
+                return -1;
+            }
+            return block.bytes[block.offset + position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < len && fill()) {
+                final int chunk = Math.min(len - read, block.length - position);
+                System.arraycopy(block.bytes, block.offset + position, b, offset + read, chunk);
+                position += chunk;
+                read += chunk;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -42,6 +42,8 @@ import org.elasticsearch.rest.action.admin.cluster.repositories.get.RestGetRepos
 import org.elasticsearch.rest.action.admin.cluster.repositories.put.RestPutRepositoryAction;
 import org.elasticsearch.rest.action.admin.cluster.repositories.verify.RestVerifyRepositoryAction;
 import org.elasticsearch.rest.action.admin.cluster.reroute.RestClusterRerouteAction;
+import org.elasticsearch.rest.action.admin.cluster.rollup.delete.RestDeleteRollupJobAction;
+import org.elasticsearch.rest.action.admin.cluster.rollup.put.RestPutRollupJobAction;
 import org.elasticsearch.rest.action.admin.cluster.settings.RestClusterGetSettingsAction;
 import org.elasticsearch.rest.action.admin.cluster.settings.RestClusterUpdateSettingsAction;
 import org.elasticsearch.rest.action.admin.cluster.shards.RestClusterSearchShardsAction;
@@ -170,6 +172,8 @@ public class NetworkModule extends AbstractModule {
         RestGetRepositoriesAction.class,
         RestDeleteRepositoryAction.class,
         RestVerifyRepositoryAction.class,
+        RestPutRollupJobAction.class,
+        RestDeleteRollupJobAction.class,
         RestGetSnapshotsAction.class,
         RestCreateSnapshotAction.class,
         RestRestoreSnapshotAction.class,
@@ -61,6 +61,32 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * Returns a rounding that computes the same keys as {@link #roundKey(long)} but that may be faster for values that are
+     * between the given bounds, for instance by precomputing the keys of that range. Values outside of the bounds are
+     * still rounded correctly, only more slowly. Implementations may skip the preparation when it would cost more than
+     * it saves on the expected number of values.
+     *
+     * @param minValue  the minimum value that is expected to be rounded
+     * @param maxValue  the maximum value that is expected to be rounded
+     * @param numValues an estimate of the number of values that are expected to be rounded
+     */
+    public Prepared prepare(long minValue, long maxValue, long numValues) {
+        return this::roundKey;
+    }
+
+    /**
+     * A rounding that is optimized for a known range of values, see {@link #prepare(long, long, long)}.
+     */
+    @FunctionalInterface
+    public interface Prepared {
+
+        /**
+         * Same as {@link Rounding#roundKey(long)}.
+         */
+        long roundKey(long value);
+    }
+
     /**
      * Rounding strategy which is based on an interval
      *
@@ -203,6 +229,12 @@ public abstract class Rounding implements Streamable {
             return rounding.roundKey(value - offset);
         }
 
+        @Override
+        public Prepared prepare(long minValue, long maxValue, long numValues) {
+            final Prepared prepared = rounding.prepare(minValue - offset, maxValue - offset, numValues);
+            return value -> prepared.roundKey(value - offset);
+        }
+
         @Override
         public long valueForKey(long key) {
             return offset + rounding.valueForKey(key);
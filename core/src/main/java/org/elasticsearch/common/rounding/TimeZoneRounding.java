@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.rounding;
 
+import org.apache.lucene.util.ArrayUtil;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
@@ -27,11 +28,81 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.DurationField;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  */
 public abstract class TimeZoneRounding extends Rounding {
 
+    /**
+     * The maximum number of buckets that a prepared rounding precomputes, ranges that span more buckets are rounded
+     * value by value.
+     */
+    static final int MAX_PREPARED_BOUNDARIES = 1 << 13;
+
+    /**
+     * Precomputing a bucket costs about as much as rounding this many values value by value.
+     */
+    static final int PREPARE_COST_PER_BOUNDARY = 4;
+
+    /**
+     * Returns the approximate width of the buckets of this rounding, in milliseconds.
+     */
+    abstract long estimatedIntervalMillis();
+
+    /**
+     * Returns <code>true</code> if precomputing the given number of buckets is cheaper than rounding the given number of
+     * values one by one.
+     */
+    static boolean shouldPrepare(long estimatedBuckets, long numValues) {
+        return estimatedBuckets <= MAX_PREPARED_BOUNDARIES && estimatedBuckets * PREPARE_COST_PER_BOUNDARY <= numValues;
+    }
+
+    /**
+     * Precomputes the keys of all buckets between the bounds so that rounding a value is a binary search rather than
+     * time zone conversions. The buckets are only precomputed if there are few of them compared to the number of values.
+     */
+    @Override
+    public Prepared prepare(long minUtcMillis, long maxUtcMillis, long numValues) {
+        if (minUtcMillis > maxUtcMillis) {
+            return super.prepare(minUtcMillis, maxUtcMillis, numValues);
+        }
+        final long range = maxUtcMillis - minUtcMillis;
+        // a negative range means that the subtraction overflowed, the range is way too wide anyway
+        if (range < 0 || shouldPrepare(range / estimatedIntervalMillis() + 1, numValues) == false) {
+            return super.prepare(minUtcMillis, maxUtcMillis, numValues);
+        }
+        long[] boundaries = new long[16];
+        int count = 0;
+        long boundary = roundKey(minUtcMillis);
+        while (true) {
+            if (count == MAX_PREPARED_BOUNDARIES || roundKey(boundary) != boundary) {
+                return super.prepare(minUtcMillis, maxUtcMillis, numValues);
+            }
+            boundaries = ArrayUtil.grow(boundaries, count + 1);
+            boundaries[count++] = boundary;
+            final long next = nextRoundingValue(boundary);
+            // rounding is monotonic, so checking the last value of the bucket is enough to know that the whole bucket
+            // rounds to its boundary, this protects against time zone transitions that nextRoundingValue might not honor
+            if (next <= boundary || roundKey(next - 1) != boundary) {
+                return super.prepare(minUtcMillis, maxUtcMillis, numValues);
+            }
+            if (next > maxUtcMillis) {
+                break;
+            }
+            boundary = next;
+        }
+        final long[] keys = boundaries;
+        final int numKeys = count;
+        return value -> {
+            if (value < keys[0] || value > maxUtcMillis) {
+                return roundKey(value);
+            }
+            final int index = Arrays.binarySearch(keys, 0, numKeys, value);
+            return keys[index >= 0 ? index : -2 - index];
+        };
+    }
+
     public static Builder builder(DateTimeUnit unit) {
         return new Builder(unit);
     }
@@ -130,6 +201,11 @@ public abstract class TimeZoneRounding extends Rounding {
             return timeZone.convertLocalToUTC(rounded, false, utcMillis);
         }
 
+        @Override
+        long estimatedIntervalMillis() {
+            return durationField.getUnitMillis();
+        }
+
         @Override
         public long valueForKey(long time) {
             assert roundKey(time) == time;
@@ -189,6 +265,22 @@ public abstract class TimeZoneRounding extends Rounding {
             return timeZone.convertLocalToUTC(rounded, false);
         }
 
+        @Override
+        long estimatedIntervalMillis() {
+            return interval;
+        }
+
+        @Override
+        public Prepared prepare(long minUtcMillis, long maxUtcMillis, long numValues) {
+            if (timeZone.isFixed()) {
+                // the offset never changes, so rounding is plain arithmetic
+                final long offset = timeZone.getOffset(0L);
+                final long interval = this.interval;
+                return value -> Rounding.Interval.roundValue(Rounding.Interval.roundKey(value + offset, interval), interval) - offset;
+            }
+            return super.prepare(minUtcMillis, maxUtcMillis, numValues);
+        }
+
         @Override
         public long valueForKey(long time) {
             assert roundKey(time) == time;
@@ -56,6 +56,13 @@ abstract class AbstractHash extends AbstractPagedHashMap {
         return id(bucket) >= 0;
     }
 
+    /**
+     * Return the number of bytes used by the arrays backing this hash.
+     */
+    public long ramBytesUsed() {
+        return ids.ramBytesUsed();
+    }
+
     @Override
     public void close() {
         Releasables.close(ids);
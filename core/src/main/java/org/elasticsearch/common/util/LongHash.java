@@ -118,6 +118,11 @@ public final class LongHash extends AbstractHash {
         reset(key, id);
     }
 
+    @Override
+    public long ramBytesUsed() {
+        return super.ramBytesUsed() + keys.ramBytesUsed();
+    }
+
     @Override
     public void close() {
         try (Releasable releasable = keys) {
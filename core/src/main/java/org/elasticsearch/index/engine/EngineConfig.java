@@ -61,6 +61,8 @@ public final class EngineConfig {
     private final CodecService codecService;
     private final Engine.EventListener eventListener;
     private final boolean forceNewTranslog;
+    private final boolean pagedVersionMap;
+    private final boolean optimizeAutoGeneratedIds;
     private final QueryCache queryCache;
     private final QueryCachingPolicy queryCachingPolicy;
 
@@ -73,6 +75,19 @@ public final class EngineConfig {
     /** if set to true the engine will start even if the translog id in the commit point can not be found */
     public static final String INDEX_FORCE_NEW_TRANSLOG = "index.engine.force_new_translog";
 
+    /**
+     * Index setting to keep the live version map in paged arrays that are accounted against the circuit breaker instead of on-heap
+     * maps. This setting is <b>not</b> realtime updateable.
+     */
+    public static final String INDEX_PAGED_VERSION_MAP_SETTING = "index.engine.paged_version_map";
+
+    /**
+     * Index setting to add documents with auto generated ids straight to the index without version lookups and without
+     * version map entries, unless their request was retried. Such documents are only visible to realtime get, update and
+     * delete by id once the shard was refreshed. This setting is <b>not</b> realtime updateable.
+     */
+    public static final String INDEX_OPTIMIZE_AUTO_GENERATED_ID_SETTING = "index.engine.optimize_auto_generated_id";
+
     private static final String DEFAULT_CODEC_NAME = "default";
     private TranslogConfig translogConfig;
     private boolean create = false;
@@ -104,6 +119,8 @@ public final class EngineConfig {
         indexingBufferSize = new ByteSizeValue(256, ByteSizeUnit.MB);
         this.translogRecoveryPerformer = translogRecoveryPerformer;
         this.forceNewTranslog = settings.getAsBoolean(INDEX_FORCE_NEW_TRANSLOG, false);
+        this.pagedVersionMap = settings.getAsBoolean(INDEX_PAGED_VERSION_MAP_SETTING, false);
+        this.optimizeAutoGeneratedIds = settings.getAsBoolean(INDEX_OPTIMIZE_AUTO_GENERATED_ID_SETTING, false);
         this.queryCache = queryCache;
         this.queryCachingPolicy = queryCachingPolicy;
         this.translogConfig = translogConfig;
@@ -115,6 +132,16 @@ public final class EngineConfig {
         return forceNewTranslog;
     }
 
+    /** if true the live version map is kept in paged arrays that are accounted against the circuit breaker */
+    public boolean isPagedVersionMap() {
+        return pagedVersionMap;
+    }
+
+    /** if true documents with auto generated ids are appended to the index without version lookups unless their request was retried */
+    public boolean isOptimizeAutoGeneratedIds() {
+        return optimizeAutoGeneratedIds;
+    }
+
     /**
      * Enables / disables gc deletes
      *
@@ -45,6 +45,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.routing.Murmur3HashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
@@ -59,6 +60,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.merge.OnGoingMerge;
@@ -80,6 +82,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -113,6 +116,10 @@ public class InternalEngine extends Engine {
 
     private final AtomicBoolean versionMapRefreshPending = new AtomicBoolean();
 
+    // the highest auto generated id timestamp of a retried request, append only requests with a timestamp up to this one
+    // might have been indexed already and must not take the append only path
+    private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(-1);
+
     private volatile SegmentInfos lastCommittedSegmentInfos;
 
     private final IndexThrottle throttle;
@@ -124,7 +131,11 @@ public class InternalEngine extends Engine {
 
     public InternalEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery) throws EngineException {
         super(engineConfig);
-        this.versionMap = new LiveVersionMap();
+        if (engineConfig.isPagedVersionMap()) {
+            this.versionMap = new PagedLiveVersionMap(engineConfig.getTranslogConfig().getBigArrays());
+        } else {
+            this.versionMap = new LiveVersionMap();
+        }
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -357,7 +368,87 @@ public class InternalEngine extends Engine {
         return created;
     }
 
+    private boolean canOptimizeAddDocument(Index index) {
+        if (engineConfig.isOptimizeAutoGeneratedIds() && index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP) {
+            switch (index.origin()) {
+                case PRIMARY:
+                    return index.versionType() == VersionType.INTERNAL && index.version() == Versions.MATCH_ANY;
+                case REPLICA:
+                    return index.versionType() == VersionType.EXTERNAL && index.version() == 1;
+                case RECOVERY:
+                    return false; // the operation might have been applied already, see innerIndex
+                default:
+                    throw new IllegalArgumentException("unknown origin " + index.origin());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if the given append only operation might have been indexed before. This is the case for retried
+     * requests and for all requests whose id was generated no later than the one of a retried request.
+     */
+    private boolean mayHaveBeenIndexedBefore(Index index) {
+        final long autoGeneratedIdTimestamp = index.getAutoGeneratedIdTimestamp();
+        if (index.isRetry()) {
+            updateMaxUnsafeAutoIdTimestamp(autoGeneratedIdTimestamp);
+            return true;
+        }
+        return autoGeneratedIdTimestamp <= maxUnsafeAutoIdTimestamp.get();
+    }
+
+    /**
+     * Makes sure that append only operations whose id was generated no later than the given timestamp are never added
+     * without replacing a previous copy.
+     */
+    private void updateMaxUnsafeAutoIdTimestamp(long autoGeneratedIdTimestamp) {
+        long deOptimizeTimestamp;
+        do {
+            deOptimizeTimestamp = maxUnsafeAutoIdTimestamp.get();
+            if (deOptimizeTimestamp >= autoGeneratedIdTimestamp) {
+                break;
+            }
+        } while (maxUnsafeAutoIdTimestamp.compareAndSet(deOptimizeTimestamp, autoGeneratedIdTimestamp) == false);
+    }
+
+    /**
+     * Adds a document with an auto generated id that can't have been indexed before. The id is unique so there is nothing
+     * to look up and nothing to replace: the document is added without taking the uid lock and without an entry in the
+     * version map.
+     */
+    private boolean innerAppendOnly(Index index) throws IOException {
+        lastWriteNanos = index.startTime();
+        final long updatedVersion = index.versionType().updateVersion(Versions.NOT_FOUND, index.version());
+        index.updateVersion(updatedVersion);
+        if (index.docs().size() > 1) {
+            indexWriter.addDocuments(index.docs());
+        } else {
+            indexWriter.addDocument(index.docs().get(0));
+        }
+        Translog.Location translogLocation = translog.add(new Translog.Index(index));
+        index.setTranslogLocation(translogLocation);
+        return true;
+    }
+
     private boolean innerIndex(Index index) throws IOException {
+        final boolean forceUpdateDocument;
+        if (canOptimizeAddDocument(index)) {
+            if (mayHaveBeenIndexedBefore(index) == false) {
+                return innerAppendOnly(index);
+            }
+            // a previous attempt might have been added without a version map entry and might not be visible to the searcher
+            // yet, so we can't trust a version lookup that doesn't find it and always replace the document instead
+            forceUpdateDocument = true;
+        } else if (index.origin() == Operation.Origin.RECOVERY
+                && index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP) {
+            // the document might have been appended already, by replication while the shard was recovering or before the
+            // translog was replayed, without a version map entry and without being visible to the searcher. We have to replace
+            // it and so must any later copy of the same request that comes in through replication.
+            updateMaxUnsafeAutoIdTimestamp(index.getAutoGeneratedIdTimestamp());
+            forceUpdateDocument = true;
+        } else {
+            forceUpdateDocument = false;
+        }
         synchronized (dirtyLock(index.uid())) {
             lastWriteNanos = index.startTime();
             final long currentVersion;
@@ -389,7 +480,7 @@ public class InternalEngine extends Engine {
             final boolean created;
             index.updateVersion(updatedVersion);
 
-            if (currentVersion == Versions.NOT_FOUND) {
+            if (currentVersion == Versions.NOT_FOUND && forceUpdateDocument == false) {
                 // document does not exists, we can optimize for create
                 created = true;
                 if (index.docs().size() > 1) {
@@ -401,7 +492,7 @@ public class InternalEngine extends Engine {
                 if (versionValue != null) {
                     created = versionValue.delete(); // we have a delete which is not GC'ed...
                 } else {
-                    created = false;
+                    created = currentVersion == Versions.NOT_FOUND;
                 }
                 if (index.docs().size() > 1) {
                     indexWriter.updateDocuments(index.uid(), index.docs());
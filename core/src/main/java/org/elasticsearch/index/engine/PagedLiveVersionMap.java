@@ -0,0 +1,384 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link LiveVersionMap} that keeps uids and their versions in paged arrays allocated from {@link BigArrays} instead
+ * of concurrent hash maps of {@link BytesRef} to {@link VersionValue}. Uids are hashed with open addressing into a
+ * {@link BytesRefHash} and versions, delete timestamps and translog locations are stored as primitives, so update heavy
+ * shards don't retain millions of small objects between refreshes. The memory is accounted against the circuit breaker
+ * of the given {@link BigArrays}.
+ *
+ * Each of the current, old and tombstones maps is split into segments that are locked independently. Lookups return
+ * a new {@link VersionValue} that is not backed by the map.
+ */
+final class PagedLiveVersionMap extends LiveVersionMap {
+
+    private static final int NUM_SEGMENTS = 16;
+
+    private final BigArrays bigArrays;
+
+    // All writes (adds and deletes) go into current, old holds adds/deletes while a refresh is running:
+    private volatile VersionTable[] current;
+    private volatile VersionTable[] old;
+
+    // All deletes also go here, and delete "tombstones" are retained after refresh:
+    private final VersionTable[] tombstones;
+
+    private volatile boolean closed;
+
+    PagedLiveVersionMap(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        this.current = newTables();
+        this.old = newTables();
+        this.tombstones = newTables();
+    }
+
+    private VersionTable[] newTables() {
+        VersionTable[] tables = new VersionTable[NUM_SEGMENTS];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = new VersionTable(bigArrays);
+        }
+        return tables;
+    }
+
+    private static int segment(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return (hash ^ (hash >>> 16)) & (NUM_SEGMENTS - 1);
+    }
+
+    @Override
+    synchronized void setManager(ReferenceManager newMgr) {
+        super.setManager(newMgr);
+        // all deletes are visible through the new manager, caller holds the writeLock so no adds/deletes can happen concurrently:
+        VersionTable[] prevCurrent = current;
+        VersionTable[] prevOld = old;
+        current = newTables();
+        old = newTables();
+        Releasables.close(prevCurrent);
+        Releasables.close(prevOld);
+    }
+
+    @Override
+    public synchronized void beforeRefresh() throws IOException {
+        if (closed) {
+            return;
+        }
+        // Start sending all updates after this point to new tables. While reopen is running, any lookup will first
+        // try the new tables, then fallback to old, then to the current searcher:
+        VersionTable[] prevOld = old;
+        old = current;
+        current = newTables();
+        // old is usually empty here, unless the previous refresh failed before afterRefresh
+        Releasables.close(prevOld);
+    }
+
+    @Override
+    public synchronized void afterRefresh(boolean didRefresh) throws IOException {
+        if (closed) {
+            return;
+        }
+        // We can now drop old because these operations are now visible via the newly opened searcher, see
+        // LiveVersionMap#afterRefresh. Concurrent lookups that still see the released tables treat them as empty.
+        VersionTable[] prevOld = old;
+        old = newTables();
+        Releasables.close(prevOld);
+    }
+
+    @Override
+    VersionValue getUnderLock(BytesRef uid) {
+        final int segment = segment(uid);
+        VersionValue value = current[segment].get(uid);
+        if (value != null) {
+            return value;
+        }
+        value = old[segment].get(uid);
+        if (value != null) {
+            return value;
+        }
+        return tombstones[segment].get(uid);
+    }
+
+    @Override
+    void putUnderLock(BytesRef uid, VersionValue version) {
+        final int segment = segment(uid);
+        if (current[segment].put(uid, version) == false) {
+            // a concurrent refresh released the tables we read. Tables are only swapped and released under this map's
+            // monitor and current is never released by a refresh, so the tables we read under it accept the write
+            synchronized (this) {
+                if (closed == false) {
+                    final boolean added = current[segment].put(uid, version);
+                    assert added : "current tables were released while holding the map's monitor";
+                }
+            }
+        }
+        if (version.delete()) {
+            tombstones[segment].put(uid, version);
+        } else {
+            // UID came back to life so we remove the tombstone:
+            tombstones[segment].remove(uid);
+        }
+    }
+
+    @Override
+    void removeTombstoneUnderLock(BytesRef uid) {
+        tombstones[segment(uid)].remove(uid);
+    }
+
+    @Override
+    VersionValue getTombstoneUnderLock(BytesRef uid) {
+        return tombstones[segment(uid)].get(uid);
+    }
+
+    /** Returns a point in time copy of all tombstones, the returned entries are not backed by this map. */
+    @Override
+    Iterable<Map.Entry<BytesRef, VersionValue>> getAllTombstones() {
+        List<Map.Entry<BytesRef, VersionValue>> entries = new ArrayList<>();
+        for (VersionTable table : tombstones) {
+            table.collect(entries);
+        }
+        return entries;
+    }
+
+    /** Called when this index is closed, releases all memory held by this map. The map behaves as if empty afterwards. */
+    @Override
+    synchronized void clear() {
+        super.clear();
+        closed = true;
+        Releasables.close(current);
+        Releasables.close(old);
+        Releasables.close(tombstones);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsedForRefresh() + ramBytesUsed(tombstones);
+    }
+
+    @Override
+    long ramBytesUsedForRefresh() {
+        return ramBytesUsed(current) + ramBytesUsed(old);
+    }
+
+    private static long ramBytesUsed(VersionTable[] tables) {
+        long bytes = 0;
+        for (VersionTable table : tables) {
+            bytes += table.ramBytesUsed();
+        }
+        return bytes;
+    }
+
+    /**
+     * A single segment of the map. Entries are never removed from the underlying hash, a removed entry is marked as
+     * {@link #ABSENT} and the table is rebuilt once more than half of its entries are absent.
+     */
+    static final class VersionTable implements Releasable {
+
+        private static final byte ABSENT = 0;
+        private static final byte INDEX = 1;
+        private static final byte DELETE = 2;
+
+        private static final int INITIAL_CAPACITY = 16;
+        private static final long NO_TRANSLOG_LOCATION = -1;
+
+        private final BigArrays bigArrays;
+        private final BytesRef spare = new BytesRef();
+        private BytesRefHash uids;
+        private ByteArray states;
+        private LongArray versions;
+        private LongArray times;
+        private LongArray translogGenerations;
+        private LongArray translogOffsets;
+        private IntArray translogSizes;
+        private long absent;
+        private boolean closed;
+
+        VersionTable(BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+            allocate();
+        }
+
+        private void allocate() {
+            boolean success = false;
+            try {
+                uids = new BytesRefHash(INITIAL_CAPACITY, bigArrays);
+                states = bigArrays.newByteArray(INITIAL_CAPACITY, false);
+                versions = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                times = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogGenerations = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogOffsets = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogSizes = bigArrays.newIntArray(INITIAL_CAPACITY, false);
+                absent = 0;
+                success = true;
+            } finally {
+                if (success == false) {
+                    release();
+                }
+            }
+        }
+
+        synchronized VersionValue get(BytesRef uid) {
+            if (closed) {
+                return null;
+            }
+            final long id = uids.find(uid);
+            if (id < 0 || states.get(id) == ABSENT) {
+                return null;
+            }
+            return read(id);
+        }
+
+        /** Adds or replaces the version of the given uid, returns <code>false</code> if this table was released. */
+        synchronized boolean put(BytesRef uid, VersionValue version) {
+            if (closed) {
+                return false;
+            }
+            long id = uids.add(uid);
+            if (id < 0) {
+                id = -1 - id;
+                if (states.get(id) == ABSENT) {
+                    absent--;
+                }
+            } else {
+                final long size = id + 1;
+                states = bigArrays.grow(states, size);
+                versions = bigArrays.grow(versions, size);
+                times = bigArrays.grow(times, size);
+                translogGenerations = bigArrays.grow(translogGenerations, size);
+                translogOffsets = bigArrays.grow(translogOffsets, size);
+                translogSizes = bigArrays.grow(translogSizes, size);
+            }
+            write(id, version);
+            return true;
+        }
+
+        synchronized void remove(BytesRef uid) {
+            if (closed) {
+                return;
+            }
+            final long id = uids.find(uid);
+            if (id >= 0 && states.get(id) != ABSENT) {
+                states.set(id, ABSENT);
+                absent++;
+                if (absent > INITIAL_CAPACITY && absent > uids.size() / 2) {
+                    compact();
+                }
+            }
+        }
+
+        synchronized void collect(List<Map.Entry<BytesRef, VersionValue>> entries) {
+            if (closed) {
+                return;
+            }
+            for (long id = 0; id < uids.size(); id++) {
+                if (states.get(id) != ABSENT) {
+                    BytesRef uid = BytesRef.deepCopyOf(uids.get(id, spare));
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(uid, read(id)));
+                }
+            }
+        }
+
+        synchronized long ramBytesUsed() {
+            if (closed) {
+                return 0;
+            }
+            return uids.ramBytesUsed() + states.ramBytesUsed() + versions.ramBytesUsed() + times.ramBytesUsed()
+                + translogGenerations.ramBytesUsed() + translogOffsets.ramBytesUsed() + translogSizes.ramBytesUsed();
+        }
+
+        private VersionValue read(long id) {
+            final long generation = translogGenerations.get(id);
+            final Translog.Location location = generation == NO_TRANSLOG_LOCATION ? null
+                : new Translog.Location(generation, translogOffsets.get(id), translogSizes.get(id));
+            if (states.get(id) == DELETE) {
+                return new DeleteVersionValue(versions.get(id), times.get(id), location);
+            }
+            return new VersionValue(versions.get(id), location);
+        }
+
+        private void write(long id, VersionValue version) {
+            versions.set(id, version.version());
+            final Translog.Location location = version.translogLocation();
+            if (location == null) {
+                translogGenerations.set(id, NO_TRANSLOG_LOCATION);
+            } else {
+                translogGenerations.set(id, location.generation);
+                translogOffsets.set(id, location.translogLocation);
+                translogSizes.set(id, location.size);
+            }
+            if (version.delete()) {
+                states.set(id, DELETE);
+                times.set(id, version.time());
+            } else {
+                states.set(id, INDEX);
+            }
+        }
+
+        /** rebuilds the table without the absent entries */
+        private void compact() {
+            List<Map.Entry<BytesRef, VersionValue>> entries = new ArrayList<>();
+            collect(entries);
+            release();
+            allocate();
+            for (Map.Entry<BytesRef, VersionValue> entry : entries) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private void release() {
+            try {
+                Releasables.close(uids, states, versions, times, translogGenerations, translogOffsets, translogSizes);
+            } finally {
+                uids = null;
+                states = null;
+                versions = null;
+                times = null;
+                translogGenerations = null;
+                translogOffsets = null;
+                translogSizes = null;
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed == false) {
+                closed = true;
+                release();
+            }
+        }
+    }
+}
@@ -21,7 +21,9 @@ package org.elasticsearch.index.fielddata.ordinals;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.LongValues;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
@@ -38,7 +40,7 @@ import java.util.Collections;
 /**
  * {@link IndexFieldData} base class for concrete global ordinals implementations.
  */
-public abstract class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent implements IndexOrdinalsFieldData, Accountable {
+public abstract class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent implements IndexOrdinalsFieldData, Accountable, Releasable {
 
     private final String fieldName;
     private final FieldDataType fieldDataType;
@@ -86,6 +88,26 @@ public abstract class GlobalOrdinalsIndexFieldData extends AbstractIndexComponen
         // no need to clear, because this is cached and cleared in AbstractBytesIndexFieldData
     }
 
+    /**
+     * Return the MurmurHash3 hashes of the terms of this field, indexed by global ordinal. Hashes are computed the
+     * first time they are requested and then shared by all consumers of these global ordinals.
+     */
+    public abstract LongValues ordinalHashes();
+
+    /**
+     * Called once these global ordinals are put in the fielddata cache. Resources that are only kept while they are
+     * cached, like the {@link #ordinalHashes()}, are released by {@link #close()} once they are removed from it.
+     */
+    public void onCached() {
+    }
+
+    /**
+     * Called once these global ordinals are removed from the fielddata cache.
+     */
+    @Override
+    public void close() {
+    }
+
     @Override
     public long ramBytesUsed() {
         return memorySizeInBytes;
@@ -22,11 +22,19 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiDocValues.OrdinalMap;
 import org.apache.lucene.index.RandomAccessOrds;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.plain.AbstractAtomicOrdinalsFieldData;
 import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.util.Collection;
 
@@ -36,9 +44,24 @@ import java.util.Collection;
 final class InternalGlobalOrdinalsIndexFieldData extends GlobalOrdinalsIndexFieldData {
 
     private final Atomic[] atomicReaders;
+    private final OrdinalMap ordinalMap;
+    @Nullable
+    private final CircuitBreakerService breakerService;
+    private volatile long[] ordinalHashes;
+    // guarded by this
+    private long ordinalHashesBytes;
+    // guarded by this
+    private boolean cached;
 
     InternalGlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, FieldDataType fieldDataType, AtomicOrdinalsFieldData[] segmentAfd, OrdinalMap ordinalMap, long memorySizeInBytes) {
+        this(indexSettings, fieldName, fieldDataType, segmentAfd, ordinalMap, memorySizeInBytes, null);
+    }
+
+    InternalGlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, FieldDataType fieldDataType, AtomicOrdinalsFieldData[] segmentAfd, OrdinalMap ordinalMap, long memorySizeInBytes,
+                                         @Nullable CircuitBreakerService breakerService) {
         super(indexSettings, fieldName, fieldDataType, memorySizeInBytes);
+        this.ordinalMap = ordinalMap;
+        this.breakerService = breakerService;
         this.atomicReaders = new Atomic[segmentAfd.length];
         for (int i = 0; i < segmentAfd.length; i++) {
             atomicReaders[i] = new Atomic(segmentAfd[i], ordinalMap, i);
@@ -50,6 +73,91 @@ final class InternalGlobalOrdinalsIndexFieldData extends GlobalOrdinalsIndexFiel
         return atomicReaders[context.ord];
     }
 
+    @Override
+    public LongValues ordinalHashes() {
+        long[] hashes = ordinalHashes;
+        if (hashes == null) {
+            synchronized (this) {
+                hashes = ordinalHashes;
+                if (hashes == null) {
+                    if (cached == false) {
+                        // these global ordinals aren't cached, the hashes only live as long as the caller uses them
+                        hashes = computeOrdinalHashes();
+                    } else {
+                        chargeOrdinalHashes();
+                        boolean success = false;
+                        try {
+                            ordinalHashes = hashes = computeOrdinalHashes();
+                            success = true;
+                        } finally {
+                            if (success == false) {
+                                releaseOrdinalHashes();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        final long[] cached = hashes;
+        return new LongValues() {
+            @Override
+            public long get(long index) {
+                return cached[(int) index];
+            }
+        };
+    }
+
+    /**
+     * Charges the cached hashes to the fielddata circuit breaker. The charge is released by {@link #close()} once these
+     * global ordinals are removed from the fielddata cache.
+     */
+    private void chargeOrdinalHashes() {
+        assert Thread.holdsLock(this);
+        if (breakerService != null) {
+            final long sizeInBytes = RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + ordinalMap.getValueCount() * RamUsageEstimator.NUM_BYTES_LONG;
+            breakerService.getBreaker(CircuitBreaker.FIELDDATA).addEstimateBytesAndMaybeBreak(sizeInBytes, getFieldName() + " ordinal hashes");
+            ordinalHashesBytes = sizeInBytes;
+        }
+    }
+
+    private void releaseOrdinalHashes() {
+        assert Thread.holdsLock(this);
+        if (ordinalHashesBytes != 0) {
+            breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(-ordinalHashesBytes);
+            ordinalHashesBytes = 0;
+        }
+    }
+
+    @Override
+    public synchronized void onCached() {
+        cached = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        cached = false;
+        ordinalHashes = null;
+        releaseOrdinalHashes();
+    }
+
+    private long[] computeOrdinalHashes() {
+        final long valueCount = ordinalMap.getValueCount();
+        if (valueCount > ArrayUtil.MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Cannot hash more than [" + ArrayUtil.MAX_ARRAY_LENGTH + "] terms, got [" + valueCount + "]");
+        }
+        final long[] hashes = new long[(int) valueCount];
+        if (atomicReaders.length > 0) {
+            final RandomAccessOrds values = atomicReaders[0].getOrdinalsValues();
+            final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+            for (int ord = 0; ord < hashes.length; ++ord) {
+                final BytesRef value = values.lookupOrd(ord);
+                MurmurHash3.hash128(value.bytes, value.offset, value.length, 0, hash);
+                hashes[ord] = hash.h1;
+            }
+        }
+        return hashes;
+    }
+
     private final class Atomic extends AbstractAtomicOrdinalsFieldData {
 
         private final AtomicOrdinalsFieldData afd;
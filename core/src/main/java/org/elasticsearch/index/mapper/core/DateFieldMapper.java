@@ -420,6 +420,15 @@ public class DateFieldMapper extends NumberFieldMapper {
         }
 
         public long parseToMilliseconds(Object value, boolean inclusive, @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser) {
+            return parseToMilliseconds(value, inclusive, zone, forcedDateParser, now());
+        }
+
+        /**
+         * Same as {@link #parseToMilliseconds(Object, boolean, DateTimeZone, DateMathParser)} but resolves <code>now</code>
+         * with the given callable instead of the current search context.
+         */
+        public long parseToMilliseconds(Object value, boolean inclusive, @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser,
+                                        Callable<Long> now) {
             DateMathParser dateParser = dateMathParser();
             if (forcedDateParser != null) {
                 dateParser = forcedDateParser;
@@ -430,7 +439,7 @@ public class DateFieldMapper extends NumberFieldMapper {
             } else {
                 strValue = value.toString();
             }
-            return dateParser.parse(strValue, now(), inclusive, zone);
+            return dateParser.parse(strValue, now, inclusive, zone);
         }
     }
 
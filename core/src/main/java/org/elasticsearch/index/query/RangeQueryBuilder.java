@@ -19,9 +19,15 @@
 
 package org.elasticsearch.index.query;
 
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -285,6 +291,83 @@ public class RangeQueryBuilder extends AbstractQueryBuilder<RangeQueryBuilder> i
         return query;
     }
 
+    /**
+     * Returns <code>false</code> if this range can't match any document of the given reader, based on the min and max
+     * values of the field as exposed by {@link MappedFieldType#stats(Terms, int)}. Date math is resolved against the given
+     * <code>nowInMillis</code>, like the query phase does. Returns <code>true</code> if in doubt.
+     */
+    public boolean canMatch(QueryShardContext context, IndexReader reader, long nowInMillis) throws IOException {
+        MappedFieldType mapper = context.fieldMapper(this.fieldName);
+        Terms terms = MultiFields.getTerms(reader, mapper == null ? this.fieldName : mapper.name());
+        if (terms == null) {
+            // no document has a value for this field
+            return false;
+        }
+        if (mapper == null) {
+            return intersects(BytesRefs.toBytesRef(from), includeLower, BytesRefs.toBytesRef(to), includeUpper, terms.getMin(), terms.getMax());
+        }
+        FieldStats<?> stats = mapper.stats(terms, reader.maxDoc());
+        if (mapper instanceof DateFieldMapper.DateFieldType) {
+            DateFieldMapper.DateFieldType dateFieldType = (DateFieldMapper.DateFieldType) mapper;
+            DateMathParser forcedDateParser = this.format == null ? null : new DateMathParser(this.format);
+            Long lower = from == null ? null : dateFieldType.parseToMilliseconds(from, !includeLower, timeZone, forcedDateParser, () -> nowInMillis);
+            Long upper = to == null ? null : dateFieldType.parseToMilliseconds(to, includeUpper, timeZone, forcedDateParser, () -> nowInMillis);
+            FieldStats.Long longStats = (FieldStats.Long) stats;
+            return intersects(lower, includeLower, upper, includeUpper, longStats.getMinValue(), longStats.getMaxValue());
+        }
+        Query query = mapper.rangeQuery(from, to, includeLower, includeUpper);
+        while (query instanceof BoostQuery) {
+            query = ((BoostQuery) query).getQuery();
+        }
+        if (query instanceof NumericRangeQuery) {
+            NumericRangeQuery<?> rangeQuery = (NumericRangeQuery<?>) query;
+            Number min = rangeQuery.getMin();
+            Number max = rangeQuery.getMax();
+            if (stats instanceof FieldStats.Long) {
+                FieldStats.Long longStats = (FieldStats.Long) stats;
+                return intersects(min == null ? null : min.longValue(), rangeQuery.includesMin(), max == null ? null : max.longValue(),
+                        rangeQuery.includesMax(), longStats.getMinValue(), longStats.getMaxValue());
+            } else if (stats instanceof FieldStats.Double) {
+                FieldStats.Double doubleStats = (FieldStats.Double) stats;
+                return intersects(min == null ? null : min.doubleValue(), rangeQuery.includesMin(), max == null ? null : max.doubleValue(),
+                        rangeQuery.includesMax(), doubleStats.getMinValue(), doubleStats.getMaxValue());
+            } else if (stats instanceof FieldStats.Float) {
+                FieldStats.Float floatStats = (FieldStats.Float) stats;
+                return intersects(min == null ? null : min.doubleValue(), rangeQuery.includesMin(), max == null ? null : max.doubleValue(),
+                        rangeQuery.includesMax(), floatStats.getMinValue().doubleValue(), floatStats.getMaxValue().doubleValue());
+            }
+        } else if (query instanceof TermRangeQuery && stats instanceof FieldStats.Text) {
+            TermRangeQuery rangeQuery = (TermRangeQuery) query;
+            FieldStats.Text textStats = (FieldStats.Text) stats;
+            return intersects(rangeQuery.getLowerTerm(), rangeQuery.includesLower(), rangeQuery.getUpperTerm(), rangeQuery.includesUpper(),
+                    textStats.getMinValue(), textStats.getMaxValue());
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the range from <code>lower</code> to <code>upper</code> intersects with the range of
+     * values from <code>min</code> to <code>max</code>, a <code>null</code> bound is unbounded.
+     */
+    private static <T extends Comparable<T>> boolean intersects(T lower, boolean includeLower, T upper, boolean includeUpper, T min, T max) {
+        if (min == null || max == null) {
+            return true;
+        }
+        if (lower != null) {
+            int cmp = lower.compareTo(max);
+            if (cmp > 0 || (cmp == 0 && includeLower == false)) {
+                return false;
+            }
+        }
+        if (upper != null) {
+            int cmp = upper.compareTo(min);
+            if (cmp < 0 || (cmp == 0 && includeUpper == false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     protected RangeQueryBuilder doReadFrom(StreamInput in) throws IOException {
         RangeQueryBuilder rangeQueryBuilder = new RangeQueryBuilder(in.readString());
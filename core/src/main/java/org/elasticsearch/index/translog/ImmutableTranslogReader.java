@@ -19,17 +19,28 @@
 
 package org.elasticsearch.index.translog;
 
+import org.apache.lucene.util.Constants;
 import org.elasticsearch.common.io.Channels;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * a translog reader which is fixed in length
  */
 public class ImmutableTranslogReader extends TranslogReader {
 
+    /**
+     * Snapshots of immutable readers memory-map the file and read operations straight from the mapping. Mappings are
+     * never unmapped explicitly, which on windows prevents the file from being deleted until the mapping is GCed.
+     */
+    static final boolean MMAP_SNAPSHOTS = Constants.WINDOWS == false;
+    /* the maximum size of a single mapping, larger files are mapped in consecutive windows */
+    static final int MAX_MAP_SIZE = 1 << 30;
+
     private final int totalOperations;
     protected final long length;
 
@@ -84,6 +95,64 @@ public class ImmutableTranslogReader extends TranslogReader {
         Channels.readFromFileChannelWithEofException(channel, position, buffer);
     }
 
+    @Override
+    protected Translog.Snapshot newReaderSnapshot(int totalOperations, ByteBuffer reusableBuffer) {
+        if (MMAP_SNAPSHOTS) {
+            return new MMapReaderSnapshot(totalOperations, reusableBuffer);
+        }
+        return super.newReaderSnapshot(totalOperations, reusableBuffer);
+    }
+
+    /**
+     * A snapshot that reads operations from a read-only mapping of the file. Operations are neither copied into an
+     * intermediate buffer nor is their source copied onto the heap, the source of index operations references the
+     * mapping directly.
+     */
+    final class MMapReaderSnapshot extends ReaderSnapshot {
+        private MappedByteBuffer window;
+        private long windowOffset;
+
+        MMapReaderSnapshot(int totalOperations, ByteBuffer reusableBuffer) {
+            super(totalOperations, reusableBuffer);
+        }
+
+        @Override
+        public Translog.Operation next() throws IOException {
+            if (readOperations < estimatedTotalOperations()) {
+                map(position, 4);
+                // Add an extra 4 to account for the operation size integer itself
+                final int opSize = window.getInt((int) (position - windowOffset)) + 4;
+                final long maxSize = length - position;
+                if (opSize < 0 || opSize > maxSize) {
+                    throw new TranslogCorruptedException("operation size is corrupted must be [0.." + maxSize + "] but was: " + opSize);
+                }
+                map(position, opSize);
+                final ByteBuffer buffer = window.duplicate();
+                final int start = (int) (position - windowOffset);
+                buffer.limit(start + opSize);
+                buffer.position(start);
+                final Translog.Operation op = Translog.readOperation(buffer.slice());
+                position += opSize;
+                readOperations++;
+                return op;
+            } else {
+                return null;
+            }
+        }
+
+        /** makes sure the current window covers <code>size</code> bytes starting at <code>offset</code> */
+        private void map(long offset, int size) throws IOException {
+            if (offset + size > length) {
+                throw new EOFException("read requested past EOF. pos [" + offset + "] size [" + size + "] end: [" + length + "]");
+            }
+            if (window == null || offset < windowOffset || offset + size > windowOffset + window.limit()) {
+                final long mapSize = Math.min(length - offset, Math.max(size, MAX_MAP_SIZE));
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset, mapSize);
+                windowOffset = offset;
+            }
+        }
+    }
+
     public Checkpoint getInfo() {
         return new Checkpoint(length, totalOperations, getGeneration());
     }
@@ -26,10 +26,13 @@ import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -37,6 +40,8 @@ import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.Callback;
@@ -47,6 +52,7 @@ import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.IndexShardComponent;
+import org.jboss.netty.buffer.ChannelBuffers;
 
 import java.io.Closeable;
 import java.io.EOFException;
@@ -64,11 +70,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 /**
  * A Translog is a per index shard component that records all non-committed index operations in a durable manner.
@@ -127,6 +135,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final AtomicBoolean closed = new AtomicBoolean();
     private final TranslogConfig config;
     private final String translogUUID;
+    // shared by all writers so the stats survive translog generation rolls
+    private final MeanMetric syncMetric = new MeanMetric();
+    private final CounterMetric coalescedSyncMetric = new CounterMetric();
     private Callback<View> onViewClose = new Callback<View>() {
         @Override
         public void handle(View view) {
@@ -383,7 +394,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     TranslogWriter createWriter(long fileGeneration) throws IOException {
         TranslogWriter newFile;
         try {
-            newFile = TranslogWriter.create(shardId, translogUUID, fileGeneration, location.resolve(getFilename(fileGeneration)), new OnCloseRunnable(), getChannelFactory(), config.getBufferSize());
+            newFile = TranslogWriter.create(shardId, translogUUID, fileGeneration, location.resolve(getFilename(fileGeneration)), new OnCloseRunnable(), getChannelFactory(), config.getBufferSize(),
+                    syncMetric, coalescedSyncMetric);
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         }
@@ -592,7 +604,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public TranslogStats stats() {
         // acquire lock to make the two numbers roughly consistent (no file change half way)
         try (ReleasableLock lock = readLock.acquire()) {
-            return new TranslogStats(totalOperations(), sizeInBytes());
+            return new TranslogStats(totalOperations(), sizeInBytes(), syncMetric.count(),
+                TimeUnit.NANOSECONDS.toMillis(syncMetric.sum()), coalescedSyncMetric.count());
         }
     }
 
@@ -755,7 +768,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public final long translogLocation;
         public final int size;
 
-        Location(long generation, long translogLocation, int size) {
+        public Location(long generation, long translogLocation, int size) {
             this.generation = generation;
             this.translogLocation = translogLocation;
             this.size = size;
@@ -891,7 +904,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static class Index implements Operation {
-        public static final int SERIALIZATION_FORMAT = 6;
+        public static final int SERIALIZATION_FORMAT = 7;
 
         private String id;
         private String type;
@@ -902,6 +915,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         private String parent;
         private long timestamp;
         private long ttl;
+        private long autoGeneratedIdTimestamp = IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP;
 
         public Index() {
         }
@@ -916,6 +930,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             this.timestamp = index.timestamp();
             this.ttl = index.ttl();
             this.versionType = index.versionType();
+            this.autoGeneratedIdTimestamp = index.getAutoGeneratedIdTimestamp();
         }
 
         public Index(String type, String id, byte[] source) {
@@ -970,6 +985,14 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return versionType;
         }
 
+        /**
+         * Returns the timestamp the auto generated ID of this document was created or
+         * {@value IndexRequest#UNSET_AUTO_GENERATED_TIMESTAMP} if the document has no auto generated ID.
+         */
+        public long getAutoGeneratedIdTimestamp() {
+            return autoGeneratedIdTimestamp;
+        }
+
         @Override
         public Source getSource() {
             return new Source(source, routing, parent, timestamp, ttl);
@@ -1004,6 +1027,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 if (version >= 6) {
                     this.versionType = VersionType.fromValue(in.readByte());
                 }
+                if (version >= 7) {
+                    this.autoGeneratedIdTimestamp = in.readLong();
+                }
             } catch (Exception e) {
                 throw new ElasticsearchException("failed to read [" + type + "][" + id + "]", e);
             }
@@ -1033,6 +1059,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             out.writeLong(timestamp);
             out.writeLong(ttl);
             out.writeByte(versionType.getValue());
+            out.writeLong(autoGeneratedIdTimestamp);
         }
 
         @Override
@@ -1049,6 +1076,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             if (version != index.version ||
                     timestamp != index.timestamp ||
                     ttl != index.ttl ||
+                    autoGeneratedIdTimestamp != index.autoGeneratedIdTimestamp ||
                     id.equals(index.id) == false ||
                     type.equals(index.type) == false ||
                     versionType != index.versionType ||
@@ -1073,6 +1101,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             result = 31 * result + (parent != null ? parent.hashCode() : 0);
             result = 31 * result + Long.hashCode(timestamp);
             result = 31 * result + Long.hashCode(ttl);
+            result = 31 * result + Long.hashCode(autoGeneratedIdTimestamp);
             return result;
         }
 
@@ -1259,6 +1288,73 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         return operation;
     }
 
+    /**
+     * Reads a single operation from the given buffer which must hold exactly one serialized operation including
+     * its size and checksum. Unlike {@link #readOperation(BufferedChecksumStreamInput)} the checksum is verified
+     * in bulk on the buffer and the source of index operations is a slice of the buffer rather than a copy, so the
+     * buffer must not be modified as long as the returned operation is in use.
+     */
+    static Translog.Operation readOperation(ByteBuffer buffer) throws IOException {
+        Translog.Operation operation;
+        try {
+            final int opSize = buffer.getInt(buffer.position());
+            if (opSize < 4) { // 4byte for the checksum
+                throw new AssertionError("operation size must be at least 4 but was: " + opSize);
+            }
+            if (buffer.remaining() != opSize + 4) {
+                throw new EOFException("expected [" + (opSize + 4) + "] bytes but buffer holds [" + buffer.remaining() + "]");
+            }
+            final ByteBuffer payload = buffer.duplicate();
+            payload.position(buffer.position() + 4); // size is not part of the checksum!
+            payload.limit(buffer.limit() - 4);
+            final CRC32 digest = new CRC32();
+            digest.update(payload.duplicate());
+            final long readChecksum = buffer.getInt(buffer.limit() - 4) & 0xFFFF_FFFFL;
+            if (readChecksum != digest.getValue()) {
+                throw new TranslogCorruptedException("translog stream is corrupted, expected: 0x" +
+                        Long.toHexString(digest.getValue()) + ", got: 0x" + Long.toHexString(readChecksum));
+            }
+            final StreamInput in = new SlicingByteBufferStreamInput(payload);
+            Translog.Operation.Type type = Translog.Operation.Type.fromId(in.readByte());
+            operation = newOperationFromType(type);
+            operation.readFrom(in);
+            if (payload.hasRemaining()) {
+                throw new AssertionError("operation did not consume all bytes, [" + payload.remaining() + "] left");
+            }
+        } catch (EOFException e) {
+            throw new TruncatedTranslogException("reached premature end of file, translog is truncated", e);
+        } catch (AssertionError | Exception e) {
+            throw new TranslogCorruptedException("translog corruption while reading from stream", e);
+        }
+        return operation;
+    }
+
+    /**
+     * A stream input that returns slices of the underlying buffer from {@link #readBytesReference(int)} instead of copies.
+     */
+    private static final class SlicingByteBufferStreamInput extends ByteBufferStreamInput {
+        private final ByteBuffer buffer;
+
+        SlicingByteBufferStreamInput(ByteBuffer buffer) {
+            super(buffer);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public BytesReference readBytesReference(int length) throws IOException {
+            if (length == 0) {
+                return BytesArray.EMPTY;
+            }
+            if (buffer.remaining() < length) {
+                throw new EOFException();
+            }
+            final ByteBuffer slice = buffer.slice();
+            slice.limit(length);
+            buffer.position(buffer.position() + length);
+            return new ChannelBufferBytesReference(ChannelBuffers.wrappedBuffer(slice));
+        }
+    }
+
     /**
      * Writes all operations in the given iterable to the given output stream including the size of the array
      * use {@link #readOperations(StreamInput)} to read it back.
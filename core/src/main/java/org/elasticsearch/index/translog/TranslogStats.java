@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.support.ToXContentToBytes;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -34,11 +35,18 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
     private long translogSizeInBytes;
     private int numberOfOperations;
+    private long syncCount;
+    private long syncTimeInMillis;
+    private long coalescedSyncCount;
 
     public TranslogStats() {
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes) {
+        this(numberOfOperations, translogSizeInBytes, 0, 0, 0);
+    }
+
+    public TranslogStats(int numberOfOperations, long translogSizeInBytes, long syncCount, long syncTimeInMillis, long coalescedSyncCount) {
         if (numberOfOperations < 0) {
             throw new IllegalArgumentException("numberOfOperations must be >= 0");
         }
@@ -48,6 +56,9 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         assert translogSizeInBytes >= 0 : "translogSizeInBytes must be >= 0, got [" + translogSizeInBytes + "]";
         this.numberOfOperations = numberOfOperations;
         this.translogSizeInBytes = translogSizeInBytes;
+        this.syncCount = syncCount;
+        this.syncTimeInMillis = syncTimeInMillis;
+        this.coalescedSyncCount = coalescedSyncCount;
     }
 
     public void add(TranslogStats translogStats) {
@@ -57,6 +68,9 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
         this.numberOfOperations += translogStats.numberOfOperations;
         this.translogSizeInBytes += translogStats.translogSizeInBytes;
+        this.syncCount += translogStats.syncCount;
+        this.syncTimeInMillis += translogStats.syncTimeInMillis;
+        this.coalescedSyncCount += translogStats.coalescedSyncCount;
     }
 
     public long getTranslogSizeInBytes() {
@@ -67,11 +81,38 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         return numberOfOperations;
     }
 
+    /**
+     * The total number of fsyncs executed on the translog.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * The total time spent in translog fsyncs (in milliseconds).
+     */
+    public long getSyncTimeInMillis() {
+        return syncTimeInMillis;
+    }
+
+    /**
+     * The number of requests for durability that were satisfied by an fsync issued by a concurrent request.
+     * The average number of requests per fsync is therefore <code>(syncCount + coalescedSyncCount) / syncCount</code>.
+     */
+    public long getCoalescedSyncCount() {
+        return coalescedSyncCount;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSLOG);
         builder.field(Fields.OPERATIONS, numberOfOperations);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, translogSizeInBytes);
+        builder.startObject(Fields.SYNC);
+        builder.field(Fields.TOTAL, syncCount);
+        builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, syncTimeInMillis);
+        builder.field(Fields.COALESCED, coalescedSyncCount);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -81,17 +122,32 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
         static final XContentBuilderString SIZE = new XContentBuilderString("size");
         static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString SYNC = new XContentBuilderString("sync");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
+        static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
+        static final XContentBuilderString COALESCED = new XContentBuilderString("coalesced");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         numberOfOperations = in.readVInt();
         translogSizeInBytes = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            syncCount = in.readVLong();
+            syncTimeInMillis = in.readVLong();
+            coalescedSyncCount = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(numberOfOperations);
         out.writeVLong(translogSizeInBytes);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVLong(syncCount);
+            out.writeVLong(syncTimeInMillis);
+            out.writeVLong(coalescedSyncCount);
+        }
     }
 }
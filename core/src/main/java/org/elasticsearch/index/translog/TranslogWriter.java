@@ -28,6 +28,8 @@ import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.Callback;
 import org.elasticsearch.index.shard.ShardId;
@@ -60,10 +62,23 @@ public class TranslogWriter extends TranslogReader {
     private final OutputStream outputStream;
     /* the total offset of this file including the bytes written to the file as well as into the buffer */
     private volatile long totalOffset;
+    /* serializes fsyncs such that concurrent callers waiting for durability are covered by a single fsync */
+    private final Object syncLock = new Object();
+    /* the number and the time in nanos of the fsyncs executed */
+    private final MeanMetric syncMetric;
+    /* the number of sync requests that were covered by an fsync issued by another caller */
+    private final CounterMetric coalescedSyncMetric;
 
     public TranslogWriter(ShardId shardId, long generation, ChannelReference channelReference, ByteSizeValue bufferSize) throws IOException {
+        this(shardId, generation, channelReference, bufferSize, new MeanMetric(), new CounterMetric());
+    }
+
+    public TranslogWriter(ShardId shardId, long generation, ChannelReference channelReference, ByteSizeValue bufferSize,
+                          MeanMetric syncMetric, CounterMetric coalescedSyncMetric) throws IOException {
         super(generation, channelReference, channelReference.getChannel().position());
         this.shardId = shardId;
+        this.syncMetric = syncMetric;
+        this.coalescedSyncMetric = coalescedSyncMetric;
         this.outputStream = new BufferedChannelOutputStream(java.nio.channels.Channels.newOutputStream(channelReference.getChannel()), bufferSize.bytesAsInt());
         this.lastSyncedOffset = channelReference.getChannel().position();
         totalOffset = lastSyncedOffset;
@@ -78,6 +93,11 @@ public class TranslogWriter extends TranslogReader {
     }
 
     public static TranslogWriter create(ShardId shardId, String translogUUID, long fileGeneration, Path file, Callback<ChannelReference> onClose, ChannelFactory channelFactory, ByteSizeValue bufferSize) throws IOException {
+        return create(shardId, translogUUID, fileGeneration, file, onClose, channelFactory, bufferSize, new MeanMetric(), new CounterMetric());
+    }
+
+    public static TranslogWriter create(ShardId shardId, String translogUUID, long fileGeneration, Path file, Callback<ChannelReference> onClose, ChannelFactory channelFactory, ByteSizeValue bufferSize,
+                                        MeanMetric syncMetric, CounterMetric coalescedSyncMetric) throws IOException {
         final BytesRef ref = new BytesRef(translogUUID);
         final int headerLength = getHeaderLength(ref.length);
         final FileChannel channel = channelFactory.open(file);
@@ -90,7 +110,8 @@ public class TranslogWriter extends TranslogReader {
             out.writeBytes(ref.bytes, ref.offset, ref.length);
             channel.force(true);
             writeCheckpoint(headerLength, 0, file.getParent(), fileGeneration, StandardOpenOption.WRITE);
-            final TranslogWriter writer = new TranslogWriter(shardId, fileGeneration, new ChannelReference(file, fileGeneration, channel, onClose), bufferSize);
+            final TranslogWriter writer = new TranslogWriter(shardId, fileGeneration, new ChannelReference(file, fileGeneration, channel, onClose), bufferSize,
+                    syncMetric, coalescedSyncMetric);
             return writer;
         } catch (Throwable throwable) {
             // if we fail to bake the file-generation into the checkpoint we stick with the file and once we recover and that
@@ -137,28 +158,7 @@ public class TranslogWriter extends TranslogReader {
      * write all buffered ops to disk and fsync file
      */
     public void sync() throws IOException {
-        if (syncNeeded()) {
-            synchronized (this) {
-                ensureOpen(); // this call gives a better exception that the incRef if we are closed by a tragic event
-                channelReference.incRef();
-                try {
-                    final long offsetToSync;
-                    final int opsCounter;
-                    outputStream.flush();
-                    offsetToSync = totalOffset;
-                    opsCounter = operationCounter;
-                    try {
-                        checkpoint(offsetToSync, opsCounter, channelReference);
-                    } catch (Throwable ex) {
-                        closeWithTragicEvent(ex);
-                        throw ex;
-                    }
-                    lastSyncedOffset = offsetToSync;
-                } finally {
-                    channelReference.decRef();
-                }
-            }
-        }
+        syncUpTo(Long.MAX_VALUE);
     }
 
     /**
@@ -250,14 +250,44 @@ public class TranslogWriter extends TranslogReader {
     }
 
     /**
-     * Syncs the translog up to at least the given offset unless already synced
+     * Syncs the translog up to at least the given offset unless already synced. Concurrent callers are group-committed:
+     * only one fsync runs at a time and it covers everything written up to the moment it starts, so callers that
+     * wait for it and whose offset is covered return without issuing another fsync. Writes are not blocked while
+     * the fsync is in progress.
      *
      * @return <code>true</code> if this call caused an actual sync operation
      */
     public boolean syncUpTo(long offset) throws IOException {
-        if (lastSyncedOffset < offset) {
-            sync();
-            return true;
+        if (lastSyncedOffset < offset && syncNeeded()) {
+            synchronized (syncLock) {
+                // double checked locking - now that we have the lock another caller might have fsynced far enough already
+                if (lastSyncedOffset < offset && syncNeeded()) {
+                    final long offsetToSync;
+                    final int opsCounter;
+                    synchronized (this) {
+                        ensureOpen(); // this call gives a better exception that the incRef if we are closed by a tragic event
+                        outputStream.flush();
+                        offsetToSync = totalOffset;
+                        opsCounter = operationCounter;
+                        channelReference.incRef();
+                    }
+                    // the fsync happens outside of the monitor so that writers can keep adding to the buffer
+                    try {
+                        final long startTime = System.nanoTime();
+                        checkpoint(offsetToSync, opsCounter, channelReference);
+                        syncMetric.inc(System.nanoTime() - startTime);
+                    } catch (Throwable ex) {
+                        closeWithTragicEvent(ex);
+                        throw ex;
+                    } finally {
+                        channelReference.decRef();
+                    }
+                    lastSyncedOffset = offsetToSync;
+                    return true;
+                } else if (offset != Long.MAX_VALUE) {
+                    coalescedSyncMetric.inc();
+                }
+            }
         }
         return false;
     }
@@ -280,7 +310,7 @@ public class TranslogWriter extends TranslogReader {
         Channels.readFromFileChannelWithEofException(channel, position, targetBuffer);
     }
 
-    private synchronized void checkpoint(long lastSyncPosition, int operationCounter, ChannelReference channelReference) throws IOException {
+    private void checkpoint(long lastSyncPosition, int operationCounter, ChannelReference channelReference) throws IOException {
         channelReference.getChannel().force(false);
         writeCheckpoint(lastSyncPosition, operationCounter, channelReference.getPath().getParent(), channelReference.getGeneration(), StandardOpenOption.WRITE);
     }
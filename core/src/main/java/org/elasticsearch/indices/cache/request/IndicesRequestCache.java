@@ -66,8 +66,10 @@ import java.util.concurrent.TimeUnit;
  * eviction to evict old reader associated cache entries as well as scheduler reaper to clean readers that
  * are no longer used or closed shards.
  * <p>
- * Currently, the cache is only enabled for count requests, and can only be opted in on an index
- * level setting that can be dynamically changed and defaults to false.
+ * The cache stores the whole shard level query result, top docs and aggregations, of requests that don't use
+ * <code>now</code> and aren't scrolls. It can only be opted in on an index level setting that can be dynamically
+ * changed and defaults to false, or per request. Since the reader version is part of the key, the doc ids of cached
+ * top docs are valid for the fetch phase that runs against the same reader.
  * <p>
  * There are still several TODOs left in this class, some easily addressable, some more complex, but the support
  * is functional.
@@ -163,8 +165,13 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
             return false;
         }
 
-        // for now, only enable it for requests with no hits
-        if (context.size() != 0) {
+        // the search context of a scroll outlives the reader version the cache key was built with
+        if (context.scrollContext() != null) {
+            return false;
+        }
+
+        // profile results describe a single execution of the query and must not be served from the cache
+        if (context.getProfilers() != null) {
             return false;
         }
 
@@ -443,8 +450,8 @@ public class IndicesRequestCache extends AbstractComponent implements RemovalLis
     }
 
     private static Key buildKey(ShardSearchRequest request, SearchContext context) throws Exception {
-        // TODO: for now, this will create different keys for different JSON order
-        // TODO: tricky to get around this, need to parse and order all, which can be expensive
+        // the query is serialized from its parsed builders, the sections of the source that are kept as raw json are
+        // normalized by the cache key so semantically identical requests with different json key order share entries
         return new Key(context.indexShard(),
                 ((DirectoryReader) context.searcher().getIndexReader()).getVersion(),
                 request.cacheKey());
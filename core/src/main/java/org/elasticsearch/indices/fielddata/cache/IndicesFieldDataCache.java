@@ -41,6 +41,7 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -112,6 +113,10 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                 logger.error("Failed to call listener on field data cache unloading", e);
             }
         }
+        if (value instanceof GlobalOrdinalsIndexFieldData) {
+            // releases what global ordinals only keep while they are cached
+            ((GlobalOrdinalsIndexFieldData) value).close();
+        }
     }
 
     public static class FieldDataWeigher implements ToLongBiFunction<Key, Accountable> {
@@ -177,6 +182,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                     k.listeners.add(listener);
                 }
                 final Accountable ifd = (Accountable) indexFieldData.localGlobalDirect(indexReader);
+                if (ifd instanceof GlobalOrdinalsIndexFieldData) {
+                    ((GlobalOrdinalsIndexFieldData) ifd).onCached();
+                }
                 for (Listener listener : k.listeners) {
                     try {
                         listener.onCache(shardId, fieldName, fieldDataType, ifd);
@@ -0,0 +1,199 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.rollup;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.ClusterStateTaskListener;
+import org.elasticsearch.cluster.metadata.MetaDataRollupService;
+import org.elasticsearch.cluster.metadata.RollupJobMetaData;
+import org.elasticsearch.cluster.metadata.RollupMetaData;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsException;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A node level service that runs the rollup jobs stored in the {@link RollupMetaData} of the cluster state. Jobs are only
+ * scheduled on the elected master node, run on the generic thread pool, and a job never runs concurrently with itself.
+ * Each run resumes from the checkpoint stored with the job, and stores the new checkpoint once it's done, so that the
+ * next master picks up where the previous one stopped.
+ */
+public class IndicesRollupService extends AbstractLifecycleComponent<IndicesRollupService> implements ClusterStateListener {
+
+    private final ClusterService clusterService;
+    private final ThreadPool threadPool;
+    private final Client client;
+    private final MetaDataRollupService metaDataRollupService;
+    private final Map<String, ScheduledJob> jobs = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public IndicesRollupService(Settings settings, ClusterService clusterService, ThreadPool threadPool, Client client,
+                                MetaDataRollupService metaDataRollupService) {
+        super(settings);
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.client = client;
+        this.metaDataRollupService = metaDataRollupService;
+    }
+
+    @Override
+    protected void doStart() {
+        clusterService.add(this);
+    }
+
+    @Override
+    protected void doStop() {
+        clusterService.remove(this);
+        cancelJobs(null);
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.localNodeMaster() == false) {
+            cancelJobs(null);
+            return;
+        }
+        final RollupMetaData rollup = event.state().metaData().custom(RollupMetaData.TYPE);
+        cancelJobs(rollup);
+        if (rollup == null) {
+            return;
+        }
+        for (RollupJobMetaData jobMetaData : rollup.jobs()) {
+            if (jobs.containsKey(jobMetaData.id())) {
+                continue;
+            }
+            final RollupJobConfig config;
+            try {
+                config = RollupJobConfig.parse(jobMetaData.id(), jobMetaData.settings());
+            } catch (SettingsException e) {
+                logger.warn("failed to schedule rollup job [{}]", e, jobMetaData.id());
+                continue;
+            }
+            final ScheduledJob job = new ScheduledJob(new RollupJob(config, client), jobMetaData.settings());
+            job.future = threadPool.scheduleWithFixedDelay(job, config.frequency());
+            jobs.put(jobMetaData.id(), job);
+        }
+    }
+
+    /**
+     * Cancels the scheduled jobs that were deleted or redefined in the given metadata, or all of them if it's null.
+     */
+    private void cancelJobs(RollupMetaData rollup) {
+        for (Iterator<ScheduledJob> it = jobs.values().iterator(); it.hasNext(); ) {
+            final ScheduledJob job = it.next();
+            final RollupJobMetaData jobMetaData = rollup == null ? null : rollup.job(job.job.config().id());
+            if (jobMetaData == null || jobMetaData.settings().equals(job.settings) == false) {
+                FutureUtils.cancel(job.future);
+                it.remove();
+            }
+        }
+    }
+
+    private class ScheduledJob implements Runnable {
+
+        private final RollupJob job;
+        // the definition the job was built from, runs are skipped as soon as it's no longer the stored one
+        private final Settings settings;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile ScheduledFuture<?> future;
+
+        ScheduledJob(RollupJob job, Settings settings) {
+            this.job = job;
+            this.settings = settings;
+        }
+
+        @Override
+        public void run() {
+            if (running.compareAndSet(false, true) == false) {
+                // the previous run is still going
+                return;
+            }
+            threadPool.generic().execute(new AbstractRunnable() {
+                @Override
+                protected void doRun() throws Exception {
+                    final String id = job.config().id();
+                    final ClusterState state = clusterService.state();
+                    final RollupMetaData rollup = state.metaData().custom(RollupMetaData.TYPE);
+                    final RollupJobMetaData jobMetaData = rollup == null ? null : rollup.job(id);
+                    if (state.nodes().localNodeMaster() == false || jobMetaData == null
+                            || jobMetaData.settings().equals(settings) == false) {
+                        running.set(false);
+                        return;
+                    }
+                    final long checkpoint = job.run(threadPool.estimatedTimeInMillis(), jobMetaData.checkpoint());
+                    if (checkpoint == jobMetaData.checkpoint()) {
+                        running.set(false);
+                        return;
+                    }
+                    // the next run only starts once the new checkpoint is in the cluster state
+                    metaDataRollupService.updateCheckpoint(id, settings, checkpoint, new ClusterStateTaskListener() {
+                        @Override
+                        public void onFailure(String source, Throwable t) {
+                            running.set(false);
+                            logger.warn("failed to store the checkpoint of rollup job [{}]", t, id);
+                        }
+
+                        @Override
+                        public void onNoLongerMaster(String source) {
+                            // the next master summarizes these time buckets again
+                            running.set(false);
+                            logger.debug("rollup job [{}] stopped, the local node is no longer master", id);
+                        }
+
+                        @Override
+                        public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                            running.set(false);
+                            logger.debug("rollup job [{}] summarized documents up to [{}]", id, checkpoint);
+                        }
+                    });
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    running.set(false);
+                    logger.warn("failed to run rollup job [{}]", t, job.config().id());
+                }
+
+                @Override
+                public void onRejection(Throwable t) {
+                    // the node is shutting down
+                    running.set(false);
+                    logger.debug("rollup job [{}] was rejected", t, job.config().id());
+                }
+            });
+        }
+    }
+}
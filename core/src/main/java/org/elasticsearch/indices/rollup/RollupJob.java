@@ -0,0 +1,187 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.rollup;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.RollupJobMetaData;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.min.Min;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Summarizes the documents of the source indices of a {@link RollupJobConfig} into its rollup index. The documents are
+ * grouped with a composite aggregation by time bucket and by the terms of the group fields. Each group is written as a
+ * summary document that holds the key of the group, the min, max, sum and value count of every metric field and the
+ * number of documents of the group in the <code>doc_count_field</code>.
+ * <p>
+ * Only time buckets that are complete are summarized, and each of them only once: every run starts at the checkpoint
+ * that the previous one returned. The ids of the summary documents are derived from the job id and the key of the group,
+ * so summarizing a time bucket again, for instance when the master failed before it stored the checkpoint, replaces the
+ * summary documents instead of duplicating them.
+ */
+public class RollupJob {
+
+    static final String COMPOSITE_NAME = "rollup";
+
+    private final RollupJobConfig config;
+    private final Client client;
+
+    public RollupJob(RollupJobConfig config, Client client) {
+        this.config = config;
+        this.client = client;
+    }
+
+    public RollupJobConfig config() {
+        return config;
+    }
+
+    /**
+     * Summarizes the time buckets that start at or after the given checkpoint and that ended no later than the given
+     * time, and returns the new checkpoint: the start of the first time bucket that hasn't been summarized yet.
+     *
+     * @param checkpoint the checkpoint returned by the previous run, or {@link RollupJobMetaData#NO_CHECKPOINT}
+     */
+    public long run(long nowInMillis, long checkpoint) throws IOException {
+        final long interval = config.interval().millis();
+        final long end = Math.floorDiv(nowInMillis, interval) * interval;
+        if (end <= checkpoint) {
+            return checkpoint;
+        }
+        final RangeQueryBuilder range = QueryBuilders.rangeQuery(config.timestampField()).lt(end);
+        if (checkpoint != RollupJobMetaData.NO_CHECKPOINT) {
+            range.gte(checkpoint);
+        }
+        Map<String, Object> after = null;
+        while (true) {
+            final CompositeAggregationBuilder composite = compositeAggregation();
+            if (after != null) {
+                composite.aggregateAfter(after);
+            }
+            final SearchRequest searchRequest = new SearchRequest(config.indices())
+                    .source(new SearchSourceBuilder().size(0).query(range).aggregation(composite));
+            final SearchResponse searchResponse = client.search(searchRequest).actionGet();
+            if (searchResponse.getFailedShards() > 0) {
+                // don't move the checkpoint past documents that we didn't see
+                throw new ElasticsearchException("rollup job [{}] failed to search [{}] shards", config.id(),
+                        searchResponse.getFailedShards());
+            }
+            final CompositeAggregation result = searchResponse.getAggregations().get(COMPOSITE_NAME);
+            if (result.getBuckets().isEmpty()) {
+                break;
+            }
+            final BulkRequest bulkRequest = new BulkRequest();
+            for (CompositeAggregation.Bucket bucket : result.getBuckets()) {
+                bulkRequest.add(summary(bucket));
+            }
+            final BulkResponse bulkResponse = client.bulk(bulkRequest).actionGet();
+            if (bulkResponse.hasFailures()) {
+                throw new ElasticsearchException("rollup job [{}] failed to index summary documents: {}", config.id(),
+                        bulkResponse.buildFailureMessage());
+            }
+            if (result.getBuckets().size() < config.pageSize()) {
+                break;
+            }
+            after = result.afterKey();
+        }
+        return end;
+    }
+
+    CompositeAggregationBuilder compositeAggregation() {
+        final CompositeAggregationBuilder composite = AggregationBuilders.composite(COMPOSITE_NAME).size(config.pageSize());
+        composite.source(CompositeValuesSourceBuilder.histogram(config.timestampField(), config.interval().millis())
+                .field(config.timestampField()));
+        for (String group : config.groups()) {
+            // documents without a value for a group are summarized too, otherwise the checkpoint would skip them for good
+            composite.source(CompositeValuesSourceBuilder.terms(group).field(group).missingBucket(true));
+        }
+        for (int i = 0; i < config.metrics().size(); i++) {
+            final String metric = config.metrics().get(i);
+            composite.subAggregation(AggregationBuilders.min("min_" + i).field(metric));
+            composite.subAggregation(AggregationBuilders.max("max_" + i).field(metric));
+            composite.subAggregation(AggregationBuilders.sum("sum_" + i).field(metric));
+            composite.subAggregation(AggregationBuilders.count("value_count_" + i).field(metric));
+        }
+        return composite;
+    }
+
+    IndexRequest summary(CompositeAggregation.Bucket bucket) throws IOException {
+        final Map<String, Object> key = bucket.getKey();
+        final XContentBuilder source = XContentFactory.jsonBuilder().startObject();
+        for (Map.Entry<String, Object> entry : key.entrySet()) {
+            // the summary of the documents that have no value for a group doesn't have that field either
+            if (entry.getValue() != null) {
+                source.field(entry.getKey(), entry.getValue());
+            }
+        }
+        final Aggregations aggregations = bucket.getAggregations();
+        for (int i = 0; i < config.metrics().size(); i++) {
+            final long valueCount = aggregations.<ValueCount>get("value_count_" + i).getValue();
+            source.startObject(config.metrics().get(i));
+            source.field("value_count", valueCount);
+            if (valueCount > 0) {
+                source.field("min", aggregations.<Min>get("min_" + i).getValue());
+                source.field("max", aggregations.<Max>get("max_" + i).getValue());
+                source.field("sum", aggregations.<Sum>get("sum_" + i).getValue());
+            }
+            source.endObject();
+        }
+        source.field(config.docCountField(), bucket.getDocCount());
+        source.endObject();
+        return new IndexRequest(config.rollupIndex(), config.rollupType(), summaryId(key)).source(source);
+    }
+
+    /**
+     * Returns the id of the summary document of the group with the given key: the id of the job followed by a hash of
+     * the key.
+     */
+    String summaryId(Map<String, Object> key) throws IOException {
+        final BytesRef bytes;
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            for (Object value : key.values()) {
+                out.writeGenericValue(value);
+            }
+            bytes = out.bytes().toBytesRef();
+        }
+        final MurmurHash3.Hash128 hash = MurmurHash3.hash128(bytes.bytes, bytes.offset, bytes.length, 0, new MurmurHash3.Hash128());
+        return config.id() + "-" + Long.toHexString(hash.h1) + Long.toHexString(hash.h2);
+    }
+}
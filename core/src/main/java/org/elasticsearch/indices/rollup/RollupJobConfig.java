@@ -0,0 +1,203 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.rollup;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsException;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The definition of a rollup job, parsed from the settings of a {@link org.elasticsearch.cluster.metadata.RollupJobMetaData}.
+ */
+public class RollupJobConfig {
+
+    public static final String DEFAULT_TYPE = "rollup";
+    public static final String DEFAULT_DOC_COUNT_FIELD = "doc_count";
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private final String id;
+    private final String[] indices;
+    private final String rollupIndex;
+    private final String rollupType;
+    private final String timestampField;
+    private final TimeValue interval;
+    private final TimeValue frequency;
+    private final List<String> groups;
+    private final List<String> metrics;
+    private final String docCountField;
+    private final int pageSize;
+
+    public RollupJobConfig(String id, String[] indices, String rollupIndex, String rollupType, String timestampField, TimeValue interval,
+                           TimeValue frequency, List<String> groups, List<String> metrics, String docCountField, int pageSize) {
+        this.id = id;
+        this.indices = indices;
+        this.rollupIndex = rollupIndex;
+        this.rollupType = rollupType;
+        this.timestampField = timestampField;
+        this.interval = interval;
+        this.frequency = frequency;
+        this.groups = Collections.unmodifiableList(groups);
+        this.metrics = Collections.unmodifiableList(metrics);
+        this.docCountField = docCountField;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Reads the definition of the job with the given id from the settings of this job, as they were passed to the put
+     * rollup job API.
+     */
+    public static RollupJobConfig parse(String id, Settings settings) {
+        final String[] indices = settings.getAsArray("index");
+        if (indices.length == 0) {
+            throw new SettingsException("rollup job [" + id + "] requires [index]");
+        }
+        final String rollupIndex = required(id, settings, "rollup_index");
+        for (String index : indices) {
+            if (Regex.simpleMatch(index, rollupIndex)) {
+                throw new SettingsException("rollup job [" + id + "] can't read from its rollup index [" + rollupIndex + "]");
+            }
+        }
+        final String timestampField = required(id, settings, "timestamp_field");
+        final TimeValue interval = settings.getAsTime("interval", null);
+        if (interval == null || interval.millis() <= 0) {
+            throw new SettingsException("rollup job [" + id + "] requires a positive [interval]");
+        }
+        final TimeValue frequency = settings.getAsTime("frequency", interval);
+        if (frequency.millis() <= 0) {
+            throw new SettingsException("rollup job [" + id + "] requires a positive [frequency]");
+        }
+        final List<String> groups = Arrays.asList(settings.getAsArray("groups"));
+        final List<String> metrics = Arrays.asList(settings.getAsArray("metrics"));
+        final String docCountField = settings.get("doc_count_field", DEFAULT_DOC_COUNT_FIELD);
+        final int pageSize = settings.getAsInt("page_size", DEFAULT_PAGE_SIZE);
+        if (pageSize <= 0) {
+            throw new SettingsException("rollup job [" + id + "] requires a positive [page_size]");
+        }
+        // all of these are fields of the summary documents
+        final Set<String> fields = new HashSet<>();
+        fields.add(timestampField);
+        fields.add(docCountField);
+        for (String field : groups) {
+            if (fields.add(field) == false) {
+                throw new SettingsException("rollup job [" + id + "] uses field [" + field + "] more than once");
+            }
+        }
+        for (String field : metrics) {
+            if (fields.add(field) == false) {
+                throw new SettingsException("rollup job [" + id + "] uses field [" + field + "] more than once");
+            }
+        }
+        return new RollupJobConfig(id, indices, rollupIndex, settings.get("rollup_type", DEFAULT_TYPE), timestampField, interval,
+                frequency, groups, metrics, docCountField, pageSize);
+    }
+
+    private static String required(String id, Settings settings, String key) {
+        final String value = settings.get(key);
+        if (Strings.hasText(value) == false) {
+            throw new SettingsException("rollup job [" + id + "] requires [" + key + "]");
+        }
+        return value;
+    }
+
+    /**
+     * The id of this job, also the prefix of the ids of the documents it writes.
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * The indices to summarize, may contain wildcards.
+     */
+    public String[] indices() {
+        return indices;
+    }
+
+    /**
+     * The index the summary documents are written to.
+     */
+    public String rollupIndex() {
+        return rollupIndex;
+    }
+
+    /**
+     * The type of the summary documents.
+     */
+    public String rollupType() {
+        return rollupType;
+    }
+
+    /**
+     * The date field that the documents are grouped by, at {@link #interval()} granularity.
+     */
+    public String timestampField() {
+        return timestampField;
+    }
+
+    /**
+     * The width of the time buckets each summary document covers.
+     */
+    public TimeValue interval() {
+        return interval;
+    }
+
+    /**
+     * How often the job checks for new complete time buckets.
+     */
+    public TimeValue frequency() {
+        return frequency;
+    }
+
+    /**
+     * The fields whose terms the documents are grouped by, in addition to the time bucket.
+     */
+    public List<String> groups() {
+        return groups;
+    }
+
+    /**
+     * The numeric fields whose min, max, sum and value count are stored in the summary documents.
+     */
+    public List<String> metrics() {
+        return metrics;
+    }
+
+    /**
+     * The field of the summary documents that holds the number of documents they summarize, see the
+     * <code>doc_count_field</code> option of the histogram aggregations.
+     */
+    public String docCountField() {
+        return docCountField;
+    }
+
+    /**
+     * The number of summary documents to compute per search request.
+     */
+    public int pageSize() {
+        return pageSize;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.rest.action.admin.cluster.rollup.delete;
+
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobRequest;
+import org.elasticsearch.action.admin.cluster.rollup.delete.DeleteRollupJobResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.support.AcknowledgedRestListener;
+
+import static org.elasticsearch.rest.RestRequest.Method.DELETE;
+
+/**
+ * Deletes a rollup job
+ */
+public class RestDeleteRollupJobAction extends BaseRestHandler {
+
+    @Inject
+    public RestDeleteRollupJobAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(DELETE, "/_rollup/job/{id}", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        DeleteRollupJobRequest deleteRollupJobRequest = new DeleteRollupJobRequest(request.param("id"));
+        deleteRollupJobRequest.masterNodeTimeout(request.paramAsTime("master_timeout", deleteRollupJobRequest.masterNodeTimeout()));
+        deleteRollupJobRequest.timeout(request.paramAsTime("timeout", deleteRollupJobRequest.timeout()));
+        client.admin().cluster().deleteRollupJob(deleteRollupJobRequest, new AcknowledgedRestListener<DeleteRollupJobResponse>(channel));
+    }
+}
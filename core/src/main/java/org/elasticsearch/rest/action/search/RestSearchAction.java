@@ -133,6 +133,10 @@ public class RestSearchAction extends BaseRestHandler {
             searchRequest.source(builder);
         }
         searchRequest.requestCache(request.paramAsBoolean("request_cache", null));
+        final int batchedReduceSize = request.paramAsInt("batched_reduce_size", searchRequest.getBatchedReduceSize());
+        searchRequest.setBatchedReduceSize(batchedReduceSize);
+        final int preFilterShardSize = request.paramAsInt("pre_filter_shard_size", searchRequest.getPreFilterShardSize());
+        searchRequest.setPreFilterShardSize(preFilterShardSize);
 
         String scroll = request.param("scroll");
         if (scroll != null) {
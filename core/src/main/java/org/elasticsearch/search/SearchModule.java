@@ -32,6 +32,8 @@ import org.elasticsearch.search.aggregations.bucket.children.ChildrenParser;
 import org.elasticsearch.search.aggregations.bucket.children.InternalChildren;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterParser;
 import org.elasticsearch.search.aggregations.bucket.filter.InternalFilter;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationParser;
+import org.elasticsearch.search.aggregations.bucket.composite.InternalComposite;
 import org.elasticsearch.search.aggregations.bucket.filters.FiltersParser;
 import org.elasticsearch.search.aggregations.bucket.filters.InternalFilters;
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoHashGridParser;
@@ -87,6 +89,7 @@ import org.elasticsearch.search.aggregations.metrics.percentiles.hdr.InternalHDR
 import org.elasticsearch.search.aggregations.metrics.percentiles.hdr.InternalHDRPercentiles;
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentileRanks;
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentiles;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestSketchCache;
 import org.elasticsearch.search.aggregations.metrics.scripted.InternalScriptedMetric;
 import org.elasticsearch.search.aggregations.metrics.scripted.ScriptedMetricParser;
 import org.elasticsearch.search.aggregations.metrics.stats.InternalStats;
@@ -263,6 +266,7 @@ public class SearchModule extends AbstractModule {
         multibinderAggParser.addBinding().to(MissingParser.class);
         multibinderAggParser.addBinding().to(FilterParser.class);
         multibinderAggParser.addBinding().to(FiltersParser.class);
+        multibinderAggParser.addBinding().to(CompositeAggregationParser.class);
         multibinderAggParser.addBinding().to(SamplerParser.class);
         multibinderAggParser.addBinding().to(TermsParser.class);
         multibinderAggParser.addBinding().to(SignificantTermsParser.class);
@@ -304,6 +308,7 @@ public class SearchModule extends AbstractModule {
         bind(AggregatorParsers.class).asEagerSingleton();
         bind(AggregationParseElement.class).asEagerSingleton();
         bind(AggregationPhase.class).asEagerSingleton();
+        bind(TDigestSketchCache.class).asEagerSingleton();
 
         Multibinder<SignificanceHeuristicParser> heuristicParserMultibinder = Multibinder.newSetBinder(binder(), SignificanceHeuristicParser.class);
         for (Class<? extends SignificanceHeuristicParser> clazz : heuristicParsers) {
@@ -353,6 +358,7 @@ public class SearchModule extends AbstractModule {
         InternalGlobal.registerStreams();
         InternalFilter.registerStreams();
         InternalFilters.registerStream();
+        InternalComposite.registerStreams();
         InternalSampler.registerStreams();
         UnmappedSampler.registerStreams();
         InternalMissing.registerStreams();
@@ -24,6 +24,7 @@ import com.carrotsearch.hppc.ObjectHashSet;
 import com.carrotsearch.hppc.ObjectSet;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.TopDocs;
@@ -31,12 +32,14 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.ResponseCollectorService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -61,8 +64,12 @@ import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MappedFieldType.Loading;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryParseContext;
 import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.index.search.stats.ShardSearchStats;
 import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.shard.IndexEventListener;
@@ -110,6 +117,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Collections.unmodifiableMap;
@@ -127,6 +135,13 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING = Setting.timeSetting("search.default_search_timeout", NO_TIMEOUT, true, Setting.Scope.CLUSTER);
+    /**
+     * Enables collecting the top docs of a shard concurrently over slices of its segments on the
+     * {@link ThreadPool.Names#SEARCH_WORKER} thread pool
+     */
+    public static final Setting<Boolean> CONCURRENT_SEGMENT_SEARCH_SETTING = Setting.boolSetting("search.concurrent_segment_search", false, true, Setting.Scope.CLUSTER);
+    /** Slices of the segments of a shard are only searched concurrently if they hold at least this number of documents */
+    public static final int MIN_DOCS_PER_SLICE = 250_000;
 
 
     private final ThreadPool threadPool;
@@ -155,6 +170,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private volatile TimeValue defaultSearchTimeout;
 
+    private volatile boolean concurrentSegmentSearch;
+
     private final ScheduledFuture<?> keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
@@ -165,6 +182,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private final ParseFieldMatcher parseFieldMatcher;
 
+    private final ExponentiallyWeightedMovingAverage queryPhaseTimeEWMA = new ExponentiallyWeightedMovingAverage(ResponseCollectorService.ALPHA, 0);
+
     @Inject
     public SearchService(Settings settings, ClusterSettings clusterSettings, ClusterService clusterService, IndicesService indicesService, IndicesWarmer indicesWarmer, ThreadPool threadPool,
                          ScriptService scriptService, PageCacheRecycler pageCacheRecycler, BigArrays bigArrays, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase,
@@ -201,12 +220,18 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
         defaultSearchTimeout = DEFAULT_SEARCH_TIMEOUT_SETTING.get(settings);
         clusterSettings.addSettingsUpdateConsumer(DEFAULT_SEARCH_TIMEOUT_SETTING, this::setDefaultSearchTimeout);
+        concurrentSegmentSearch = CONCURRENT_SEGMENT_SEARCH_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearch);
     }
 
     private void setDefaultSearchTimeout(TimeValue defaultSearchTimeout) {
         this.defaultSearchTimeout = defaultSearchTimeout;
     }
 
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
     @Override
     public void afterIndexClosed(Index index, Settings indexSettings) {
         // once an index is closed we can just clean up all the pending search context information
@@ -269,6 +294,54 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
+    /**
+     * Returns <code>false</code> if the given request can't match any document on its shard. This is a lightweight check
+     * that doesn't create a search context: it only compares the range queries that all hits must match with the min and
+     * max values of their fields on this shard. Returns <code>true</code> if in doubt.
+     */
+    public boolean canMatch(ShardSearchRequest request) throws IOException {
+        final SearchSourceBuilder source = request.source();
+        if (request.template() != null || source == null || source.query() == null) {
+            return true;
+        }
+        IndexService indexService = indicesService.indexServiceSafe(request.index());
+        IndexShard indexShard = indexService.getShard(request.shardId());
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("can_match")) {
+            return canMatch(source.query(), indexShard.getQueryShardContext(), searcher.reader(), request.nowInMillis());
+        }
+    }
+
+    static boolean canMatch(QueryBuilder<?> query, QueryShardContext context, IndexReader reader, long nowInMillis) throws IOException {
+        if (query instanceof RangeQueryBuilder) {
+            return ((RangeQueryBuilder) query).canMatch(context, reader, nowInMillis);
+        } else if (query instanceof ConstantScoreQueryBuilder) {
+            return canMatch(((ConstantScoreQueryBuilder) query).innerQuery(), context, reader, nowInMillis);
+        } else if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder boolQuery = (BoolQueryBuilder) query;
+            for (QueryBuilder<?> clause : boolQuery.must()) {
+                if (canMatch(clause, context, reader, nowInMillis) == false) {
+                    return false;
+                }
+            }
+            for (QueryBuilder<?> clause : boolQuery.filter()) {
+                if (canMatch(clause, context, reader, nowInMillis) == false) {
+                    return false;
+                }
+            }
+            // should clauses are only required if there are no other required clauses and no minimum_should_match
+            if (boolQuery.should().isEmpty() == false && boolQuery.must().isEmpty() && boolQuery.filter().isEmpty()
+                    && boolQuery.minimumShouldMatch() == null) {
+                for (QueryBuilder<?> clause : boolQuery.should()) {
+                    if (canMatch(clause, context, reader, nowInMillis)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Try to load the query results from the cache or execute the query phase directly if the cache cannot be used.
      */
@@ -297,7 +370,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             } else {
                 contextProcessedSuccessfully(context);
             }
-            shardSearchStats.onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            shardSearchStats.onQueryPhase(context, took);
+            addNodeStats(context.queryResult(), took);
 
             return context.queryResult();
         } catch (Throwable e) {
@@ -364,6 +439,19 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
+    /**
+     * Piggybacks the search queue size and the average query phase time of this node on the result of the first
+     * query phase, so the coordinating node can rank the shard copies of later requests.
+     */
+    private void addNodeStats(QuerySearchResult result, long queryPhaseTookInNanos) {
+        queryPhaseTimeEWMA.addValue(queryPhaseTookInNanos);
+        result.serviceTimeEWMA((long) queryPhaseTimeEWMA.getAverage());
+        Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            result.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
     private boolean fetchPhaseShouldFreeContext(SearchContext context) {
         if (context.scrollContext() == null) {
             // simple search, no scroll
@@ -389,6 +477,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
             long time2 = System.nanoTime();
             shardSearchStats.onQueryPhase(context, time2 - time);
+            addNodeStats(context.queryResult(), time2 - time);
             shardSearchStats.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -559,6 +648,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
         DefaultSearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher, indexService, indexShard, scriptService, pageCacheRecycler, bigArrays, threadPool.estimatedTimeInMillisCounter(), parseFieldMatcher, defaultSearchTimeout);
         SearchContext.setCurrent(context);
+        if (concurrentSegmentSearch) {
+            context.searcher().setExecutor(threadPool.executor(ThreadPool.Names.SEARCH_WORKER),
+                    threadPool.info(ThreadPool.Names.SEARCH_WORKER).getMax(), MIN_DOCS_PER_SLICE);
+        }
 
         try {
             if (request.scroll() != null) {
@@ -165,6 +165,11 @@ public class AggregationPhase implements SearchPhase {
             }
         }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
+        Collector aggregationCollector = context.queryCollectors().get(AggregationPhase.class);
+        if (aggregationCollector instanceof InternalProfileCollector) {
+            ((InternalProfileCollector) aggregationCollector).setEarlyTerminatedBuckets(
+                    context.aggregations().aggregationContext().earlyTerminatedBuckets());
+        }
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
             List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
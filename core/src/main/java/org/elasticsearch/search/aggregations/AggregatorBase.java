@@ -165,7 +165,7 @@ public abstract class AggregatorBase extends Aggregator {
     public DeferringBucketCollector getDeferringCollector() {
         // Default impl is a collector that selects the best buckets
         // but an alternative defer policy may be based on best docs.
-        return new BestBucketsDeferringCollector();
+        return new BestBucketsDeferringCollector(context.bigArrays());
     }
 
     /**
@@ -245,7 +245,14 @@ public abstract class AggregatorBase extends Aggregator {
     /** Called upon release of the aggregator. */
     @Override
     public void close() {
-        doClose();
+        try {
+            doClose();
+        } finally {
+            // custom deferring collectors are released by the aggregators that create them
+            if (recordingWrapper instanceof BestBucketsDeferringCollector) {
+                ((BestBucketsDeferringCollector) recordingWrapper).close();
+            }
+        }
     }
 
     /** Release instance-specific data. */
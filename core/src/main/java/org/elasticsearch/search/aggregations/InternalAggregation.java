@@ -18,14 +18,17 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.DelegatingHasContextAndHeaders;
 import org.elasticsearch.common.HasContextAndHeaders;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -39,6 +42,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 /**
  * An internal implementation of {@link Aggregation}. Serves as a base class for all aggregation implementations.
@@ -96,11 +106,52 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
 
         private final BigArrays bigArrays;
         private ScriptService scriptService;
+        private final boolean isFinalReduce;
+        private final Executor executor;
+        private final int maxParallelism;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, HasContextAndHeaders headersContext) {
+            this(bigArrays, scriptService, headersContext, true);
+        }
+
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, HasContextAndHeaders headersContext,
+                             boolean isFinalReduce) {
+            this(bigArrays, scriptService, headersContext, isFinalReduce, null, 1);
+        }
+
+        /**
+         * @param executor       the executor to run independent reductions on in parallel, or <code>null</code> to reduce
+         *                       sequentially on the calling thread
+         * @param maxParallelism the maximum number of tasks to fork on the executor for a single reduction
+         */
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, HasContextAndHeaders headersContext,
+                             boolean isFinalReduce, @Nullable Executor executor, int maxParallelism) {
             super(headersContext);
+            if (executor != null && maxParallelism < 1) {
+                throw new IllegalArgumentException("maxParallelism must be >= 1");
+            }
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
+            this.isFinalReduce = isFinalReduce;
+            this.executor = executor;
+            this.maxParallelism = maxParallelism;
+        }
+
+        /**
+         * Returns <code>true</code> iff the current reduce phase is the final reduce phase. This indicates if operations like
+         * pipeline aggregations should be applied or if specific features like <tt>minDocCount</tt> should be taken into account.
+         * Operations that are potentially losing information can only be applied during the final reduce phase, partial
+         * reduce phases must keep everything that a later reduce phase might need.
+         */
+        public boolean isFinalReduce() {
+            return isFinalReduce;
+        }
+
+        /**
+         * Returns <code>true</code> if {@link #reduceAll(int, BiFunction)} may run reductions in parallel.
+         */
+        public boolean isParallel() {
+            return executor != null;
         }
 
         public BigArrays bigArrays() {
@@ -110,6 +161,96 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
         public ScriptService scriptService() {
             return scriptService;
         }
+
+        /**
+         * Computes <code>reducer.apply(i, context)</code> for every <code>i</code> in <code>[0, count)</code> and returns the
+         * results in that order. If this context has an executor the reductions are shared between the calling thread and up
+         * to <code>maxParallelism</code> tasks on the executor. The calling thread never waits for a task that didn't start
+         * yet, so a busy executor just makes the reduction sequential, but it always waits for tasks that started so that
+         * every result is computed before this method returns. The reducers are passed a context without executor,
+         * so nested reductions don't fork again.
+         */
+        public <T> List<T> reduceAll(int count, BiFunction<Integer, ReduceContext, T> reducer) {
+            if (executor == null || count <= 1) {
+                List<T> results = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    results.add(reducer.apply(i, this));
+                }
+                return results;
+            }
+            final ReduceContext sequentialContext = new ReduceContext(bigArrays, scriptService, this, isFinalReduce);
+            final Object[] results = new Object[count];
+            final AtomicInteger next = new AtomicInteger();
+            final Runnable worker = () -> {
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                    results[i] = reducer.apply(i, sequentialContext);
+                }
+            };
+            final int numTasks = Math.min(maxParallelism, count - 1);
+            final List<AtomicBoolean> claimed = new ArrayList<>(numTasks);
+            final List<FutureTask<Void>> tasks = new ArrayList<>(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                final AtomicBoolean started = new AtomicBoolean();
+                FutureTask<Void> task = new FutureTask<>(() -> {
+                    // the calling thread claims tasks that didn't start once it ran out of work
+                    if (started.compareAndSet(false, true)) {
+                        worker.run();
+                    }
+                }, null);
+                try {
+                    executor.execute(task);
+                } catch (EsRejectedExecutionException | RejectedExecutionException e) {
+                    // the calling thread picks up the work instead
+                    break;
+                }
+                claimed.add(started);
+                tasks.add(task);
+            }
+            Throwable failure = null;
+            try {
+                worker.run();
+            } catch (Throwable t) {
+                failure = t;
+                // make the tasks stop picking up work
+                next.set(count);
+            }
+            boolean interrupted = false;
+            for (int i = 0; i < tasks.size(); i++) {
+                if (claimed.get(i).compareAndSet(false, true)) {
+                    // the task didn't start and won't run the worker anymore, there is nothing to wait for
+                    continue;
+                }
+                // the task is running the worker and may still be writing a result, so we have to wait for it
+                while (true) {
+                    try {
+                        tasks.get(i).get();
+                        break;
+                    } catch (ExecutionException e) {
+                        failure = ExceptionsHelper.useOrSuppress(failure, e.getCause());
+                        next.set(count);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw ExceptionsHelper.convertToRuntime(failure);
+            }
+            List<T> list = new ArrayList<>(count);
+            for (Object result : results) {
+                @SuppressWarnings("unchecked")
+                T t = (T) result;
+                list.add(t);
+            }
+            return list;
+        }
     }
 
 
@@ -147,12 +288,14 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
      * Reduces the given addAggregation to a single one and returns it. In <b>most</b> cases, the assumption will be the all given
      * addAggregation are of the same type (the same type as this aggregation). For best efficiency, when implementing,
      * try reusing an existing get instance (typically the first in the given list) to save on redundant object
-     * construction.
+     * construction. Pipeline aggregators are only applied during the final reduce phase.
      */
     public final InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         InternalAggregation aggResult = doReduce(aggregations, reduceContext);
-        for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
-            aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
+        if (reduceContext.isFinalReduce()) {
+            for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
+                aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
+            }
         }
         return aggResult;
     }
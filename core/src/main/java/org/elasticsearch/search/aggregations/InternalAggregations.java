@@ -153,12 +153,13 @@ public class InternalAggregations implements Aggregations, ToXContent, Streamabl
 
         // now we can use the first aggregation of each list to handle the reduce of its list
 
-        List<InternalAggregation> reducedAggregations = new ArrayList<>();
-        for (Map.Entry<String, List<InternalAggregation>> entry : aggByName.entrySet()) {
-            List<InternalAggregation> aggregations = entry.getValue();
+        // sibling aggregations are independent of each other so they may be reduced in parallel
+        final List<List<InternalAggregation>> aggsToReduce = new ArrayList<>(aggByName.values());
+        List<InternalAggregation> reducedAggregations = context.reduceAll(aggsToReduce.size(), (i, reduceContext) -> {
+            List<InternalAggregation> aggregations = aggsToReduce.get(i);
             InternalAggregation first = aggregations.get(0); // the list can't be empty as it's created on demand
-            reducedAggregations.add(first.reduce(aggregations, context));
-        }
+            return first.reduce(aggregations, reduceContext);
+        });
         return new InternalAggregations(reducedAggregations);
     }
 
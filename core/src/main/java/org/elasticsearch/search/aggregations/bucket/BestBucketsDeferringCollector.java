@@ -22,6 +22,7 @@ package org.elasticsearch.search.aggregations.bucket;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.LongHash;
@@ -40,8 +41,16 @@ import java.util.List;
  * matches and then is able to replay a given subset of buckets which represent
  * the survivors from a pruning process performed by the aggregator that owns
  * this collector.
+ *
+ * The memory used to buffer doc ids and buckets is accounted on the request
+ * circuit breaker while they are collected, and released as soon as they have
+ * been replayed.
  */
-public class BestBucketsDeferringCollector extends DeferringBucketCollector {
+public class BestBucketsDeferringCollector extends DeferringBucketCollector implements Releasable {
+
+    // how often to update the circuit breaker while collecting a segment
+    private static final int BREAKER_UPDATE_INTERVAL_MASK = (1 << 12) - 1;
+
     private static class Entry {
         final LeafReaderContext context;
         final PackedLongValues docDeltas;
@@ -55,6 +64,7 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     }
 
     final List<Entry> entries = new ArrayList<>();
+    final BigArrays bigArrays;
     BucketCollector collector;
     LeafReaderContext context;
     PackedLongValues.Builder docDeltas;
@@ -62,9 +72,12 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     long maxBucket = -1;
     boolean finished = false;
     LongHash selectedBuckets;
+    long entriesBytes = 0;
+    long accountedBytes = 0;
 
     /** Sole constructor. */
-    public BestBucketsDeferringCollector() {
+    public BestBucketsDeferringCollector(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
     }
 
     @Override
@@ -82,11 +95,21 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
 
     private void finishLeaf() {
         if (context != null) {
-            entries.add(new Entry(context, docDeltas.build(), buckets.build()));
+            final Entry entry = new Entry(context, docDeltas.build(), buckets.build());
+            entries.add(entry);
+            entriesBytes += entry.docDeltas.ramBytesUsed() + entry.buckets.ramBytesUsed();
         }
         context = null;
         docDeltas = null;
         buckets = null;
+        updateBreaker(entriesBytes);
+    }
+
+    private void updateBreaker(long bytes) {
+        final long delta = bytes - accountedBytes;
+        // the breaker is adjusted even if it trips, so the bytes are always accounted
+        accountedBytes = bytes;
+        bigArrays.adjustBreaker(delta);
     }
 
     @Override
@@ -95,7 +118,8 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
 
         context = ctx;
         docDeltas = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
-        buckets = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        // only the range of bucket ordinals of each page needs to be stored
+        buckets = PackedLongValues.deltaPackedBuilder(PackedInts.DEFAULT);
 
         return new LeafBucketCollector() {
             int lastDoc = 0;
@@ -106,6 +130,9 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
                 buckets.add(bucket);
                 lastDoc = doc;
                 maxBucket = Math.max(maxBucket, bucket);
+                if ((docDeltas.size() & BREAKER_UPDATE_INTERVAL_MASK) == 0) {
+                    updateBreaker(entriesBytes + docDeltas.ramBytesUsed() + buckets.ramBytesUsed());
+                }
             }
         };
     }
@@ -161,6 +188,16 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
         }
 
         collector.postCollection();
+
+        // buffered doc ids and buckets can't be replayed twice, release them
+        entries.clear();
+        entriesBytes = 0;
+        updateBreaker(0);
+    }
+
+    @Override
+    public void close() {
+        updateBreaker(0);
     }
 
     /**
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Helpers to serialize the buckets of multi-bucket aggregations column by column rather than bucket by bucket: all keys
+ * first, then all doc counts and finally all sub-aggregations. Keys and doc counts are written as zig-zag encoded deltas to
+ * the previous value, which keeps them to one or two bytes for the sorted keys of histograms and the sorted doc counts
+ * of terms aggregations instead of a fixed eight bytes per bucket. Sub-aggregations are skipped entirely if none of the
+ * buckets has any, and all read buckets then share {@link InternalAggregations#EMPTY}.
+ */
+public final class BucketColumns {
+
+    private BucketColumns() {
+    }
+
+    /**
+     * Writes the given values as zig-zag encoded deltas to their previous value.
+     */
+    public static void writeDeltas(long[] values, StreamOutput out) throws IOException {
+        long previous = 0;
+        for (long value : values) {
+            out.writeZLong(value - previous);
+            previous = value;
+        }
+    }
+
+    /**
+     * Reads <code>size</code> values written by {@link #writeDeltas(long[], StreamOutput)}.
+     */
+    public static long[] readDeltas(int size, StreamInput in) throws IOException {
+        long[] values = new long[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += in.readZLong();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    /**
+     * Writes the lengths of the given terms followed by their concatenated bytes.
+     */
+    public static void writeTerms(BytesRef[] terms, StreamOutput out) throws IOException {
+        int totalLength = 0;
+        for (BytesRef term : terms) {
+            out.writeVInt(term.length);
+            totalLength += term.length;
+        }
+        out.writeVInt(totalLength);
+        for (BytesRef term : terms) {
+            out.writeBytes(term.bytes, term.offset, term.length);
+        }
+    }
+
+    /**
+     * Reads <code>size</code> terms written by {@link #writeTerms(BytesRef[], StreamOutput)}. All terms share a single
+     * byte array.
+     */
+    public static BytesRef[] readTerms(int size, StreamInput in) throws IOException {
+        int[] lengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            lengths[i] = in.readVInt();
+        }
+        byte[] bytes = new byte[in.readVInt()];
+        in.readBytes(bytes, 0, bytes.length);
+        BytesRef[] terms = new BytesRef[size];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            terms[i] = new BytesRef(bytes, offset, lengths[i]);
+            offset += lengths[i];
+        }
+        return terms;
+    }
+
+    /**
+     * Writes the sub-aggregations of all buckets, or just a marker if none of the buckets has sub-aggregations.
+     */
+    public static void writeAggregations(InternalAggregations[] aggregations, StreamOutput out) throws IOException {
+        boolean hasSubAggregations = false;
+        for (InternalAggregations aggs : aggregations) {
+            if (aggs.iterator().hasNext()) {
+                hasSubAggregations = true;
+                break;
+            }
+        }
+        out.writeBoolean(hasSubAggregations);
+        if (hasSubAggregations) {
+            for (InternalAggregations aggs : aggregations) {
+                aggs.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Reads the sub-aggregations of <code>size</code> buckets written by
+     * {@link #writeAggregations(InternalAggregations[], StreamOutput)}.
+     */
+    public static InternalAggregations[] readAggregations(int size, StreamInput in) throws IOException {
+        InternalAggregations[] aggregations = new InternalAggregations[size];
+        if (in.readBoolean()) {
+            for (int i = 0; i < size; i++) {
+                aggregations[i] = InternalAggregations.readAggregations(in);
+            }
+        } else {
+            Arrays.fill(aggregations, InternalAggregations.EMPTY);
+        }
+        return aggregations;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multi bucket aggregation that creates a bucket per combination of the values of its sources, sorted by key and
+ * paginated: the buckets that follow the last bucket of a response are retrieved by passing its key as the
+ * {@code after} key of the next request.
+ */
+public interface CompositeAggregation extends MultiBucketsAggregation {
+
+    /**
+     * A bucket associated with a combination of source values, keyed by source name.
+     */
+    public static interface Bucket extends MultiBucketsAggregation.Bucket {
+
+        @Override
+        Map<String, Object> getKey();
+    }
+
+    /**
+     * The buckets of this page, sorted by key.
+     */
+    @Override
+    List<? extends Bucket> getBuckets();
+
+    /**
+     * The key of the last bucket of this page, to be used as the {@code after} key of the next request, or
+     * {@code null} if this page is empty.
+     */
+    Map<String, Object> afterKey();
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builder for the {@link CompositeAggregation}.
+ */
+public class CompositeAggregationBuilder extends AggregationBuilder<CompositeAggregationBuilder> {
+
+    private final List<CompositeValuesSourceBuilder> sources = new ArrayList<>();
+    private Integer size;
+    private Map<String, Object> after;
+
+    /**
+     * Sole constructor.
+     */
+    public CompositeAggregationBuilder(String name) {
+        super(name, InternalComposite.TYPE.name());
+    }
+
+    /**
+     * Add a source, the order of the sources defines the order of the keys.
+     */
+    public CompositeAggregationBuilder source(CompositeValuesSourceBuilder source) {
+        sources.add(source);
+        return this;
+    }
+
+    /**
+     * Set the number of buckets to return per page.
+     */
+    public CompositeAggregationBuilder size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Only return buckets whose key sorts after the given key, usually the {@link CompositeAggregation#afterKey()}
+     * of the previous page.
+     */
+    public CompositeAggregationBuilder aggregateAfter(Map<String, Object> after) {
+        this.after = after;
+        return this;
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        if (sources.isEmpty()) {
+            throw new SearchSourceBuilderException("At least one source must be set on composite aggregation [" + getName() + "]");
+        }
+        builder.startObject();
+        if (size != null) {
+            builder.field("size", size);
+        }
+        builder.startArray("sources");
+        for (CompositeValuesSourceBuilder source : sources) {
+            source.toXContent(builder, params);
+        }
+        builder.endArray();
+        if (after != null) {
+            builder.field("after", after);
+        }
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.support.ValueType;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceParser;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses the composite aggregation request
+ */
+public class CompositeAggregationParser implements Aggregator.Parser {
+
+    @Override
+    public String type() {
+        return InternalComposite.TYPE.name();
+    }
+
+    @Override
+    public AggregatorFactory parse(String aggregationName, XContentParser parser, SearchContext context) throws IOException {
+
+        int size = 10;
+        List<CompositeValuesSourceConfig> sources = null;
+        Map<String, Object> after = null;
+
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("size".equals(currentFieldName)) {
+                    size = parser.intValue();
+                } else {
+                    throw new SearchParseException(context, "Unknown key for a " + token + " in aggregation [" + aggregationName + "]: ["
+                            + currentFieldName + "].", parser.getTokenLocation());
+                }
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if ("sources".equals(currentFieldName)) {
+                    sources = new ArrayList<>();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        if (token != XContentParser.Token.START_OBJECT) {
+                            throw new SearchParseException(context, "Expected an object for each source of aggregation [" + aggregationName
+                                    + "] but got " + token + ".", parser.getTokenLocation());
+                        }
+                        sources.add(parseSource(aggregationName, parser, context));
+                    }
+                } else {
+                    throw new SearchParseException(context, "Unknown key for a " + token + " in aggregation [" + aggregationName + "]: ["
+                            + currentFieldName + "].", parser.getTokenLocation());
+                }
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if ("after".equals(currentFieldName)) {
+                    after = parser.map();
+                } else {
+                    throw new SearchParseException(context, "Unknown key for a " + token + " in aggregation [" + aggregationName + "]: ["
+                            + currentFieldName + "].", parser.getTokenLocation());
+                }
+            } else {
+                throw new SearchParseException(context, "Unexpected token " + token + " in aggregation [" + aggregationName + "].",
+                        parser.getTokenLocation());
+            }
+        }
+
+        if (sources == null || sources.isEmpty()) {
+            throw new SearchParseException(context, "Missing required field [sources] for composite aggregation [" + aggregationName + "]",
+                    parser.getTokenLocation());
+        }
+        if (size <= 0) {
+            throw new SearchParseException(context, "[size] must be greater than 0 in composite aggregation [" + aggregationName + "]",
+                    parser.getTokenLocation());
+        }
+        Set<String> names = new HashSet<>();
+        for (CompositeValuesSourceConfig source : sources) {
+            if (names.add(source.name) == false) {
+                throw new SearchParseException(context, "Duplicate source [" + source.name + "] in composite aggregation ["
+                        + aggregationName + "]", parser.getTokenLocation());
+            }
+        }
+        if (after != null) {
+            if (after.size() != names.size() || names.containsAll(after.keySet()) == false) {
+                throw new SearchParseException(context, "[after] key " + after.keySet() + " must contain a value for each source "
+                        + names + " of composite aggregation [" + aggregationName + "]", parser.getTokenLocation());
+            }
+            for (CompositeValuesSourceConfig source : sources) {
+                if (after.get(source.name) == null && source.missingBucket == false) {
+                    throw new SearchParseException(context, "[after] value of source [" + source.name + "] of composite aggregation ["
+                            + aggregationName + "] must not be null unless [missing_bucket] is set", parser.getTokenLocation());
+                }
+            }
+        }
+
+        return new CompositeAggregatorFactory(aggregationName, sources, size, after);
+    }
+
+    /**
+     * Parses a single source, for instance <code>{ "product": { "terms": { "field": "product" } } }</code>.
+     */
+    private static CompositeValuesSourceConfig parseSource(String aggregationName, XContentParser parser, SearchContext context)
+            throws IOException {
+        XContentParser.Token token = parser.nextToken();
+        if (token != XContentParser.Token.FIELD_NAME) {
+            throw new SearchParseException(context, "Expected the name of a source in aggregation [" + aggregationName + "] but got "
+                    + token + ".", parser.getTokenLocation());
+        }
+        final String sourceName = parser.currentName();
+        if (parser.nextToken() != XContentParser.Token.START_OBJECT || parser.nextToken() != XContentParser.Token.FIELD_NAME) {
+            throw new SearchParseException(context, "Expected the type of source [" + sourceName + "] in aggregation ["
+                    + aggregationName + "].", parser.getTokenLocation());
+        }
+        final String type = parser.currentName();
+        final ValuesSourceParser<?> vsParser;
+        if (CompositeValuesSourceConfig.TERMS.equals(type)) {
+            vsParser = ValuesSourceParser.any(aggregationName, InternalComposite.TYPE, context).build();
+        } else if (CompositeValuesSourceConfig.HISTOGRAM.equals(type)) {
+            vsParser = ValuesSourceParser.numeric(aggregationName, InternalComposite.TYPE, context)
+                    .targetValueType(ValueType.NUMERIC)
+                    .build();
+        } else {
+            throw new SearchParseException(context, "Unknown type [" + type + "] for source [" + sourceName + "] in aggregation ["
+                    + aggregationName + "], should be either [" + CompositeValuesSourceConfig.TERMS + "] or ["
+                    + CompositeValuesSourceConfig.HISTOGRAM + "]", parser.getTokenLocation());
+        }
+        if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+            throw new SearchParseException(context, "Expected an object for source [" + sourceName + "] in aggregation ["
+                    + aggregationName + "].", parser.getTokenLocation());
+        }
+
+        boolean asc = true;
+        boolean missingBucket = false;
+        long interval = -1;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (vsParser.token(currentFieldName, token, parser)) {
+                continue;
+            } else if (token.isValue() && "order".equals(currentFieldName)) {
+                String dir = parser.text();
+                asc = "asc".equals(dir);
+                if (!asc && !"desc".equals(dir)) {
+                    throw new SearchParseException(context, "Unknown order direction [" + dir + "] for source [" + sourceName
+                            + "] in aggregation [" + aggregationName + "]. Should be either [asc] or [desc]", parser.getTokenLocation());
+                }
+            } else if (token == XContentParser.Token.VALUE_BOOLEAN && "missing_bucket".equals(currentFieldName)) {
+                missingBucket = parser.booleanValue();
+            } else if (token.isValue() && "interval".equals(currentFieldName) && CompositeValuesSourceConfig.HISTOGRAM.equals(type)) {
+                interval = parser.longValue();
+            } else {
+                throw new SearchParseException(context, "Unknown key for a " + token + " for source [" + sourceName + "] in aggregation ["
+                        + aggregationName + "]: [" + currentFieldName + "].", parser.getTokenLocation());
+            }
+        }
+        // close the source type and the source name objects
+        if (parser.nextToken() != XContentParser.Token.END_OBJECT || parser.nextToken() != XContentParser.Token.END_OBJECT) {
+            throw new SearchParseException(context, "Expected a single type for source [" + sourceName + "] in aggregation ["
+                    + aggregationName + "].", parser.getTokenLocation());
+        }
+        if (CompositeValuesSourceConfig.HISTOGRAM.equals(type) && interval < 1) {
+            throw new SearchParseException(context, "Missing required field [interval] for source [" + sourceName
+                    + "] in aggregation [" + aggregationName + "]", parser.getTokenLocation());
+        }
+        final ValuesSourceConfig<?> config = vsParser.config();
+        if (missingBucket && config.missing() != null) {
+            throw new SearchParseException(context, "[missing] and [missing_bucket] can't be used together on source [" + sourceName
+                    + "] in aggregation [" + aggregationName + "]", parser.getTokenLocation());
+        }
+        return new CompositeValuesSourceConfig(sourceName, type, config, asc, missingBucket, interval);
+    }
+}
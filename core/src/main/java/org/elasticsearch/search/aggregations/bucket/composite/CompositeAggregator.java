@@ -0,0 +1,275 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the {@code size} smallest composite keys that sort after the {@code after} key. Only the
+ * competitive keys are kept in memory, so that all buckets can be retrieved page by page.
+ * Sub-aggregations are collected in a second pass, once the keys of the page are known.
+ */
+public class CompositeAggregator extends BucketsAggregator {
+
+    private static final class Entry {
+        long docCount;
+        int slot = -1;
+    }
+
+    private static final class RecordedLeaf {
+        final LeafReaderContext context;
+        final PackedLongValues docDeltas;
+
+        RecordedLeaf(LeafReaderContext context, PackedLongValues docDeltas) {
+            this.context = context;
+            this.docDeltas = docDeltas;
+        }
+    }
+
+    private final CompositeValuesSource[] sources;
+    private final List<String> sourceNames;
+    private final int[] reverseMuls;
+    private final int size;
+    private final CompositeKey afterKey;
+    private final Comparator<CompositeKey> comparator;
+    private final TreeMap<CompositeKey, Entry> queue;
+
+    private final List<RecordedLeaf> recordedLeaves = new ArrayList<>();
+    private LeafReaderContext currentContext;
+    private PackedLongValues.Builder currentDocDeltas;
+
+    public CompositeAggregator(String name, AggregatorFactories factories, CompositeValuesSource[] sources, int size,
+            Map<String, Object> after, AggregationContext aggregationContext, Aggregator parent,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        this.sources = sources;
+        this.size = size;
+        this.sourceNames = new ArrayList<>(sources.length);
+        this.reverseMuls = new int[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            sourceNames.add(sources[i].name);
+            reverseMuls[i] = sources[i].reverseMul;
+        }
+        this.comparator = CompositeKey.comparator(reverseMuls);
+        this.queue = new TreeMap<>(comparator);
+        if (after != null) {
+            Comparable<?>[] values = new Comparable<?>[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                values[i] = sources[i].parseAfter(after.get(sources[i].name));
+            }
+            this.afterKey = new CompositeKey(values);
+        } else {
+            this.afterKey = null;
+        }
+        for (Aggregator subAggregator : subAggregators) {
+            if (subAggregator.needsScores()) {
+                throw new AggregationExecutionException("Sub-aggregation [" + subAggregator.name() + "] of composite aggregation ["
+                        + name + "] requires scores, which cannot be replayed");
+            }
+        }
+    }
+
+    @Override
+    public boolean needsScores() {
+        // sub-aggregations are replayed without scores
+        return false;
+    }
+
+    @Override
+    protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        finishLeaf();
+        final boolean record = subAggregators.length > 0;
+        if (record) {
+            currentContext = ctx;
+            currentDocDeltas = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        }
+        final CompositeValuesSource.Values[] values = leafValues(ctx);
+        final int[] counts = new int[values.length];
+        final int[] positions = new int[values.length];
+        final CompositeKey scratch = new CompositeKey(new Comparable<?>[values.length]);
+        return new LeafBucketCollector() {
+            int lastDoc = 0;
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                if (setDocument(values, counts, doc) == false) {
+                    return;
+                }
+                if (record) {
+                    currentDocDeltas.add(doc - lastDoc);
+                    lastDoc = doc;
+                }
+                do {
+                    for (int i = 0; i < values.length; i++) {
+                        scratch.values[i] = values[i].valueAt(positions[i]);
+                    }
+                    collectKey(scratch);
+                } while (next(positions, counts));
+            }
+        };
+    }
+
+    private void collectKey(CompositeKey key) {
+        if (afterKey != null && comparator.compare(key, afterKey) <= 0) {
+            return;
+        }
+        final boolean full = queue.size() >= size;
+        if (full && comparator.compare(key, queue.lastKey()) > 0) {
+            return;
+        }
+        Entry entry = queue.get(key);
+        if (entry != null) {
+            entry.docCount++;
+            return;
+        }
+        if (full) {
+            // evicted keys can never become competitive again since the last key of the queue only decreases
+            queue.pollLastEntry();
+        }
+        Comparable<?>[] values = new Comparable<?>[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            values[i] = sources[i].copy(key.values[i]);
+        }
+        entry = new Entry();
+        entry.docCount = 1;
+        queue.put(new CompositeKey(values), entry);
+    }
+
+    private CompositeValuesSource.Values[] leafValues(LeafReaderContext ctx) throws IOException {
+        final CompositeValuesSource.Values[] values = new CompositeValuesSource.Values[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            values[i] = sources[i].values(ctx);
+        }
+        return values;
+    }
+
+    /**
+     * Positions all sources on the given document, returns {@code false} if any of them has no value.
+     */
+    private static boolean setDocument(CompositeValuesSource.Values[] values, int[] counts, int doc) {
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = values[i].setDocument(doc);
+            if (counts[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Advances to the next combination of values, returns {@code false} once all combinations have been visited
+     * and leaves the positions ready for the next document.
+     */
+    private static boolean next(int[] positions, int[] counts) {
+        for (int i = positions.length - 1; i >= 0; i--) {
+            if (++positions[i] < counts[i]) {
+                return true;
+            }
+            positions[i] = 0;
+        }
+        return false;
+    }
+
+    private void finishLeaf() {
+        if (currentContext != null) {
+            recordedLeaves.add(new RecordedLeaf(currentContext, currentDocDeltas.build()));
+        }
+        currentContext = null;
+        currentDocDeltas = null;
+    }
+
+    @Override
+    protected void doPostCollection() throws IOException {
+        finishLeaf();
+        if (subAggregators.length == 0) {
+            return;
+        }
+        int slot = 0;
+        for (Entry entry : queue.values()) {
+            entry.slot = slot++;
+        }
+        // replay the matching documents into the sub-aggregations, each competitive key being collected in its own bucket
+        for (RecordedLeaf leaf : recordedLeaves) {
+            final LeafBucketCollector subCollector = collectableSubAggregators.getLeafCollector(leaf.context);
+            subCollector.setScorer(Lucene.illegalScorer("Scores cannot be accessed by sub-aggregations of a composite aggregation"));
+            final CompositeValuesSource.Values[] values = leafValues(leaf.context);
+            final int[] counts = new int[values.length];
+            final int[] positions = new int[values.length];
+            final CompositeKey scratch = new CompositeKey(new Comparable<?>[values.length]);
+            final PackedLongValues.Iterator docDeltaIterator = leaf.docDeltas.iterator();
+            int doc = 0;
+            for (long i = 0, end = leaf.docDeltas.size(); i < end; ++i) {
+                doc += docDeltaIterator.next();
+                setDocument(values, counts, doc);
+                do {
+                    for (int j = 0; j < values.length; j++) {
+                        scratch.values[j] = values[j].valueAt(positions[j]);
+                    }
+                    final Entry entry = queue.get(scratch);
+                    if (entry != null) {
+                        collectBucket(subCollector, doc, entry.slot);
+                    }
+                } while (next(positions, counts));
+            }
+        }
+        recordedLeaves.clear();
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>(queue.size());
+        for (Map.Entry<CompositeKey, Entry> e : queue.entrySet()) {
+            final Entry entry = e.getValue();
+            final InternalAggregations aggregations = subAggregators.length == 0 ? InternalAggregations.EMPTY
+                    : bucketAggregations(entry.slot);
+            buckets.add(new InternalComposite.InternalBucket(sourceNames, e.getKey(), entry.docCount, aggregations));
+        }
+        return new InternalComposite(name, size, sourceNames, reverseMuls, buckets, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalComposite(name, size, sourceNames, reverseMuls,
+                Collections.<InternalComposite.InternalBucket>emptyList(), pipelineAggregators(), metaData());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ */
+public class CompositeAggregatorFactory extends AggregatorFactory {
+
+    private final List<CompositeValuesSourceConfig> sources;
+    private final int size;
+    private final Map<String, Object> after;
+
+    CompositeAggregatorFactory(String name, List<CompositeValuesSourceConfig> sources, int size, Map<String, Object> after) {
+        super(name, InternalComposite.TYPE.name());
+        this.sources = sources;
+        this.size = size;
+        this.after = after;
+    }
+
+    @Override
+    public Aggregator createInternal(AggregationContext context, Aggregator parent, boolean collectsFromSingleBucket,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        if (collectsFromSingleBucket == false) {
+            return asMultiBucketAggregator(this, context, parent);
+        }
+        CompositeValuesSource[] valuesSources = new CompositeValuesSource[sources.size()];
+        for (int i = 0; i < valuesSources.length; i++) {
+            valuesSources[i] = sources.get(i).resolve(context);
+        }
+        return new CompositeAggregator(name, factories, valuesSources, size, after, context, parent, pipelineAggregators, metaData);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The key of a composite bucket: one value per source, in source order.
+ */
+final class CompositeKey {
+
+    final Comparable<?>[] values;
+
+    CompositeKey(Comparable<?>... values) {
+        this.values = values;
+    }
+
+    CompositeKey(StreamInput in) throws IOException {
+        values = new Comparable<?>[in.readVInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (Comparable<?>) in.readGenericValue();
+        }
+    }
+
+    void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(values.length);
+        for (Comparable<?> value : values) {
+            out.writeGenericValue(value);
+        }
+    }
+
+    /**
+     * Returns the values of this key keyed by source name, with terms converted to strings.
+     */
+    Map<String, Object> asMap(List<String> sourceNames) {
+        Map<String, Object> map = new LinkedHashMap<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof BytesRef) {
+                value = ((BytesRef) value).utf8ToString();
+            }
+            map.put(sourceNames.get(i), value);
+        }
+        return map;
+    }
+
+    /**
+     * Returns true if every value of this key has the same type as the value of the other key for the same source.
+     * Keys of different types cannot be compared with each other.
+     */
+    boolean hasSameTypes(CompositeKey other) {
+        if (values.length != other.values.length) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            // missing buckets have a null value, which is comparable with any type
+            if (values[i] != null && other.values[i] != null && values[i].getClass() != other.values[i].getClass()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a comparator that orders keys source by source, each source being sorted according
+     * to its multiplier ({@code 1} for ascending order, {@code -1} for descending order). The {@code null}
+     * value of missing buckets sorts before all other values in ascending order.
+     */
+    static Comparator<CompositeKey> comparator(final int[] reverseMuls) {
+        return new Comparator<CompositeKey>() {
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public int compare(CompositeKey o1, CompositeKey o2) {
+                for (int i = 0; i < reverseMuls.length; i++) {
+                    final Comparable v1 = o1.values[i];
+                    final Comparable v2 = o2.values[i];
+                    final int cmp;
+                    if (v1 == null) {
+                        cmp = v2 == null ? 0 : -1;
+                    } else if (v2 == null) {
+                        cmp = 1;
+                    } else {
+                        cmp = v1.compareTo(v2);
+                    }
+                    if (cmp != 0) {
+                        return cmp * reverseMuls[i];
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return Arrays.equals(values, ((CompositeKey) obj).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
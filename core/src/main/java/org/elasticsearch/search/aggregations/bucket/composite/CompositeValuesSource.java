@@ -0,0 +1,332 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A source of values for one component of the composite key. Each source exposes, per document, the
+ * distinct values of the document in ascending order.
+ */
+abstract class CompositeValuesSource {
+
+    final String name;
+    final int reverseMul;
+
+    CompositeValuesSource(String name, boolean asc) {
+        this.name = name;
+        this.reverseMul = asc ? 1 : -1;
+    }
+
+    /**
+     * Returns the values of this source for the given segment.
+     */
+    abstract Values values(LeafReaderContext context) throws IOException;
+
+    /**
+     * Converts a value of the {@code after} key, as provided in the request, to the type of the values of this source.
+     */
+    abstract Comparable<?> parseAfter(Object value);
+
+    /**
+     * Returns a copy of the given value that is safe to keep once the current document has been processed.
+     */
+    Comparable<?> copy(Comparable<?> value) {
+        return value;
+    }
+
+    /**
+     * Per-segment values of a source.
+     */
+    interface Values {
+
+        /**
+         * Positions on the given document and returns its number of distinct values.
+         */
+        int setDocument(int doc);
+
+        /**
+         * Returns the value at the given index, only valid until the next call to {@link #setDocument(int)}.
+         */
+        Comparable<?> valueAt(int index);
+    }
+
+    static class Unmapped extends CompositeValuesSource {
+
+        private static final Values EMPTY = new Values() {
+            @Override
+            public int setDocument(int doc) {
+                return 0;
+            }
+
+            @Override
+            public Comparable<?> valueAt(int index) {
+                throw new IndexOutOfBoundsException();
+            }
+        };
+
+        Unmapped(String name, boolean asc) {
+            super(name, asc);
+        }
+
+        @Override
+        Values values(LeafReaderContext context) {
+            return EMPTY;
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            // no document can produce a key for this source, so the after key is never compared
+            return null;
+        }
+    }
+
+    /**
+     * Wraps a source so that documents without values get a single {@code null} value, which keys the missing bucket.
+     */
+    static class MissingBucket extends CompositeValuesSource {
+
+        private final CompositeValuesSource delegate;
+
+        MissingBucket(CompositeValuesSource delegate) {
+            super(delegate.name, delegate.reverseMul == 1);
+            this.delegate = delegate;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            final Values values = delegate.values(context);
+            return new Values() {
+
+                boolean missing;
+
+                @Override
+                public int setDocument(int doc) {
+                    final int count = values.setDocument(doc);
+                    missing = count == 0;
+                    return missing ? 1 : count;
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return missing ? null : values.valueAt(index);
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            return value == null ? null : delegate.parseAfter(value);
+        }
+
+        @Override
+        Comparable<?> copy(Comparable<?> value) {
+            return value == null ? null : delegate.copy(value);
+        }
+    }
+
+    static class Bytes extends CompositeValuesSource {
+
+        private final ValuesSource valuesSource;
+
+        Bytes(String name, boolean asc, ValuesSource valuesSource) {
+            super(name, asc);
+            this.valuesSource = valuesSource;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            final SortedBinaryDocValues values = valuesSource.bytesValues(context);
+            return new Values() {
+
+                // doc values may reuse the returned BytesRef, so distinct values are copied into these slots
+                BytesRefBuilder[] slots = new BytesRefBuilder[0];
+
+                @Override
+                public int setDocument(int doc) {
+                    values.setDocument(doc);
+                    final int valueCount = values.count();
+                    if (slots.length < valueCount) {
+                        final int previousLength = slots.length;
+                        slots = Arrays.copyOf(slots, ArrayUtil.oversize(valueCount, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+                        for (int i = previousLength; i < slots.length; i++) {
+                            slots[i] = new BytesRefBuilder();
+                        }
+                    }
+                    int count = 0;
+                    for (int i = 0; i < valueCount; i++) {
+                        final BytesRef value = values.valueAt(i);
+                        if (count == 0 || slots[count - 1].get().equals(value) == false) {
+                            slots[count++].copyBytes(value);
+                        }
+                    }
+                    return count;
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return slots[index].get();
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (value instanceof BytesRef) {
+                return (BytesRef) value;
+            }
+            return new BytesRef(value.toString());
+        }
+
+        @Override
+        Comparable<?> copy(Comparable<?> value) {
+            return BytesRef.deepCopyOf((BytesRef) value);
+        }
+    }
+
+    static class Longs extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+
+        Longs(String name, boolean asc, ValuesSource.Numeric valuesSource) {
+            super(name, asc);
+            this.valuesSource = valuesSource;
+        }
+
+        /**
+         * Hook to transform the values before they are deduplicated, values must remain sorted.
+         */
+        long transform(long value) {
+            return value;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            final SortedNumericDocValues values = valuesSource.longValues(context);
+            return new Values() {
+
+                long[] buffer = new long[1];
+
+                @Override
+                public int setDocument(int doc) {
+                    values.setDocument(doc);
+                    final int valueCount = values.count();
+                    buffer = ArrayUtil.grow(buffer, valueCount);
+                    int count = 0;
+                    for (int i = 0; i < valueCount; i++) {
+                        final long value = transform(values.valueAt(i));
+                        if (count == 0 || buffer[count - 1] != value) {
+                            buffer[count++] = value;
+                        }
+                    }
+                    return count;
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return buffer[index];
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            return Long.parseLong(value.toString());
+        }
+    }
+
+    static class Histogram extends Longs {
+
+        private final Rounding rounding;
+
+        Histogram(String name, boolean asc, ValuesSource.Numeric valuesSource, long interval) {
+            super(name, asc, valuesSource);
+            this.rounding = new Rounding.Interval(interval);
+        }
+
+        @Override
+        long transform(long value) {
+            return rounding.round(value);
+        }
+    }
+
+    static class Doubles extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+
+        Doubles(String name, boolean asc, ValuesSource.Numeric valuesSource) {
+            super(name, asc);
+            this.valuesSource = valuesSource;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            final SortedNumericDoubleValues values = valuesSource.doubleValues(context);
+            return new Values() {
+
+                double[] buffer = new double[1];
+
+                @Override
+                public int setDocument(int doc) {
+                    values.setDocument(doc);
+                    final int valueCount = values.count();
+                    buffer = ArrayUtil.grow(buffer, valueCount);
+                    int count = 0;
+                    for (int i = 0; i < valueCount; i++) {
+                        final double value = values.valueAt(i);
+                        if (count == 0 || Double.compare(buffer[count - 1], value) != 0) {
+                            buffer[count++] = value;
+                        }
+                    }
+                    return count;
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return buffer[index];
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return Double.parseDouble(value.toString());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+
+/**
+ * Builder for a source of the {@link CompositeAggregation}.
+ */
+public class CompositeValuesSourceBuilder implements ToXContent {
+
+    private final String name;
+    private final String type;
+    private String field;
+    private Object missing;
+    private boolean missingBucket;
+    private SortOrder order;
+    private long interval = -1;
+
+    private CompositeValuesSourceBuilder(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Create a source that creates a key per term of the field.
+     */
+    public static CompositeValuesSourceBuilder terms(String name) {
+        return new CompositeValuesSourceBuilder(name, CompositeValuesSourceConfig.TERMS);
+    }
+
+    /**
+     * Create a source that creates a key per interval of the numeric field.
+     */
+    public static CompositeValuesSourceBuilder histogram(String name, long interval) {
+        CompositeValuesSourceBuilder builder = new CompositeValuesSourceBuilder(name, CompositeValuesSourceConfig.HISTOGRAM);
+        builder.interval = interval;
+        return builder;
+    }
+
+    /**
+     * Set the field to read values from.
+     */
+    public CompositeValuesSourceBuilder field(String field) {
+        this.field = field;
+        return this;
+    }
+
+    /**
+     * Set the value to use when a document has no value for the field.
+     */
+    public CompositeValuesSourceBuilder missing(Object missing) {
+        this.missing = missing;
+        return this;
+    }
+
+    /**
+     * Set whether documents without a value for the field are collected in a bucket whose key is {@code null} for this
+     * source, instead of being ignored. Can't be combined with {@link #missing(Object)}.
+     */
+    public CompositeValuesSourceBuilder missingBucket(boolean missingBucket) {
+        this.missingBucket = missingBucket;
+        return this;
+    }
+
+    /**
+     * Set the order of the keys of this source, ascending by default.
+     */
+    public CompositeValuesSourceBuilder order(SortOrder order) {
+        this.order = order;
+        return this;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (field == null) {
+            throw new SearchSourceBuilderException("[field] must be set on source [" + name + "]");
+        }
+        builder.startObject();
+        builder.startObject(name);
+        builder.startObject(type);
+        builder.field("field", field);
+        if (missing != null) {
+            builder.field("missing", missing);
+        }
+        if (missingBucket) {
+            builder.field("missing_bucket", true);
+        }
+        if (order != null) {
+            builder.field("order", order.toString());
+        }
+        if (interval > 0) {
+            builder.field("interval", interval);
+        }
+        builder.endObject();
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+
+/**
+ * The parsed definition of a source of a composite aggregation.
+ */
+class CompositeValuesSourceConfig {
+
+    static final String TERMS = "terms";
+    static final String HISTOGRAM = "histogram";
+
+    final String name;
+    final String type;
+    final ValuesSourceConfig<?> config;
+    final boolean asc;
+    final boolean missingBucket;
+    final long interval;
+
+    CompositeValuesSourceConfig(String name, String type, ValuesSourceConfig<?> config, boolean asc, boolean missingBucket,
+                                long interval) {
+        this.name = name;
+        this.type = type;
+        this.config = config;
+        this.asc = asc;
+        this.missingBucket = missingBucket;
+        this.interval = interval;
+    }
+
+    /**
+     * Resolves the values of this source against the mappings of the shard.
+     */
+    CompositeValuesSource resolve(AggregationContext context) throws IOException {
+        CompositeValuesSource source = resolveValues(context);
+        return missingBucket ? new CompositeValuesSource.MissingBucket(source) : source;
+    }
+
+    private CompositeValuesSource resolveValues(AggregationContext context) throws IOException {
+        ValuesSource valuesSource = context.valuesSource(config, context.searchContext());
+        if (valuesSource == null) {
+            return new CompositeValuesSource.Unmapped(name, asc);
+        }
+        if (HISTOGRAM.equals(type)) {
+            return new CompositeValuesSource.Histogram(name, asc, (ValuesSource.Numeric) valuesSource, interval);
+        }
+        if (valuesSource instanceof ValuesSource.Numeric) {
+            ValuesSource.Numeric numeric = (ValuesSource.Numeric) valuesSource;
+            if (numeric.isFloatingPoint()) {
+                return new CompositeValuesSource.Doubles(name, asc, numeric);
+            }
+            return new CompositeValuesSource.Longs(name, asc, numeric);
+        }
+        return new CompositeValuesSource.Bytes(name, asc, valuesSource);
+    }
+}
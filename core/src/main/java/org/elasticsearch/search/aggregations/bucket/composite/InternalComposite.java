@@ -0,0 +1,264 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.AggregationStreams;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of a {@link CompositeAggregator}: a page of buckets sorted by composite key.
+ */
+public class InternalComposite extends InternalMultiBucketAggregation<InternalComposite, InternalComposite.InternalBucket>
+        implements CompositeAggregation {
+
+    public final static Type TYPE = new Type("composite");
+
+    private final static AggregationStreams.Stream STREAM = new AggregationStreams.Stream() {
+        @Override
+        public InternalComposite readResult(StreamInput in) throws IOException {
+            InternalComposite composite = new InternalComposite();
+            composite.readFrom(in);
+            return composite;
+        }
+    };
+
+    public static void registerStreams() {
+        AggregationStreams.registerStream(STREAM, TYPE.stream());
+    }
+
+    public static class InternalBucket extends InternalMultiBucketAggregation.InternalBucket implements CompositeAggregation.Bucket {
+
+        private final List<String> sourceNames;
+        CompositeKey key;
+        private long docCount;
+        private InternalAggregations aggregations;
+
+        InternalBucket(List<String> sourceNames) {
+            // for serialization
+            this.sourceNames = sourceNames;
+        }
+
+        InternalBucket(List<String> sourceNames, CompositeKey key, long docCount, InternalAggregations aggregations) {
+            this.sourceNames = sourceNames;
+            this.key = key;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        @Override
+        public Map<String, Object> getKey() {
+            return key.asMap(sourceNames);
+        }
+
+        @Override
+        public String getKeyAsString() {
+            return getKey().toString();
+        }
+
+        @Override
+        public long getDocCount() {
+            return docCount;
+        }
+
+        @Override
+        public Aggregations getAggregations() {
+            return aggregations;
+        }
+
+        InternalBucket reduce(List<InternalBucket> buckets, ReduceContext context) {
+            long docCount = 0;
+            List<InternalAggregations> aggregationsList = new ArrayList<>(buckets.size());
+            for (InternalBucket bucket : buckets) {
+                docCount += bucket.docCount;
+                aggregationsList.add(bucket.aggregations);
+            }
+            return new InternalBucket(sourceNames, key, docCount, InternalAggregations.reduce(aggregationsList, context));
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field(CommonFields.KEY, getKey());
+            builder.field(CommonFields.DOC_COUNT, docCount);
+            aggregations.toXContentInternal(builder, params);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            key = new CompositeKey(in);
+            docCount = in.readVLong();
+            aggregations = InternalAggregations.readAggregations(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            key.writeTo(out);
+            out.writeVLong(docCount);
+            aggregations.writeTo(out);
+        }
+    }
+
+    private int size;
+    private List<String> sourceNames;
+    private int[] reverseMuls;
+    private List<InternalBucket> buckets;
+
+    InternalComposite() {} // for serialization
+
+    public InternalComposite(String name, int size, List<String> sourceNames, int[] reverseMuls, List<InternalBucket> buckets,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = sourceNames;
+        this.reverseMuls = reverseMuls;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public Type type() {
+        return TYPE;
+    }
+
+    @Override
+    public InternalComposite create(List<InternalBucket> buckets) {
+        return new InternalComposite(name, size, sourceNames, reverseMuls, buckets, pipelineAggregators(), metaData);
+    }
+
+    @Override
+    public InternalBucket createBucket(InternalAggregations aggregations, InternalBucket prototype) {
+        return new InternalBucket(sourceNames, prototype.key, prototype.docCount, aggregations);
+    }
+
+    @Override
+    public List<InternalBucket> getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public Map<String, Object> afterKey() {
+        if (buckets.isEmpty()) {
+            return null;
+        }
+        return buckets.get(buckets.size() - 1).getKey();
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        // every shard returns its smallest keys after the same after key, so the smallest keys overall are among them
+        TreeMap<CompositeKey, List<InternalBucket>> bucketsByKey = new TreeMap<>(CompositeKey.comparator(reverseMuls));
+        CompositeKey referenceKey = null;
+        for (InternalAggregation aggregation : aggregations) {
+            for (InternalBucket bucket : ((InternalComposite) aggregation).buckets) {
+                if (referenceKey == null) {
+                    referenceKey = bucket.key;
+                } else if (referenceKey.hasSameTypes(bucket.key) == false) {
+                    // control gets here when the field of a source is of different types in different indices
+                    throw new AggregationExecutionException("Merging/Reducing the aggregations failed " +
+                                                            "when computing the aggregation [ Name: " +
+                                                            getName() + ", Type: " + type() + " ]" + " because: " +
+                                                            "the field of a source existed as two different types " +
+                                                            "in two different indices");
+                }
+                List<InternalBucket> sameKeyList = bucketsByKey.get(bucket.key);
+                if (sameKeyList == null) {
+                    sameKeyList = new ArrayList<>(aggregations.size());
+                    bucketsByKey.put(bucket.key, sameKeyList);
+                }
+                sameKeyList.add(bucket);
+            }
+        }
+        List<InternalBucket> reducedBuckets = new ArrayList<>(Math.min(size, bucketsByKey.size()));
+        for (List<InternalBucket> sameKeyList : bucketsByKey.values()) {
+            if (reducedBuckets.size() == size) {
+                break;
+            }
+            reducedBuckets.add(sameKeyList.get(0).reduce(sameKeyList, reduceContext));
+        }
+        return new InternalComposite(name, size, sourceNames, reverseMuls, reducedBuckets, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    protected void doReadFrom(StreamInput in) throws IOException {
+        size = in.readVInt();
+        int numSources = in.readVInt();
+        List<String> sourceNames = new ArrayList<>(numSources);
+        reverseMuls = new int[numSources];
+        for (int i = 0; i < numSources; i++) {
+            sourceNames.add(in.readString());
+            reverseMuls[i] = in.readBoolean() ? 1 : -1;
+        }
+        this.sourceNames = Collections.unmodifiableList(sourceNames);
+        int numBuckets = in.readVInt();
+        List<InternalBucket> buckets = new ArrayList<>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            InternalBucket bucket = new InternalBucket(this.sourceNames);
+            bucket.readFrom(in);
+            buckets.add(bucket);
+        }
+        this.buckets = buckets;
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(size);
+        out.writeVInt(sourceNames.size());
+        for (int i = 0; i < sourceNames.size(); i++) {
+            out.writeString(sourceNames.get(i));
+            out.writeBoolean(reverseMuls[i] == 1);
+        }
+        out.writeVInt(buckets.size());
+        for (InternalBucket bucket : buckets) {
+            bucket.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        Map<String, Object> afterKey = afterKey();
+        if (afterKey != null) {
+            builder.field("after_key", afterKey);
+        }
+        builder.startArray(CommonFields.BUCKETS);
+        for (InternalBucket bucket : buckets) {
+            bucket.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+}
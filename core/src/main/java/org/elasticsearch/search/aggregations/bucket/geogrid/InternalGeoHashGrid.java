@@ -218,7 +218,8 @@ public class InternalGeoHashGrid extends InternalMultiBucketAggregation<Internal
             }
         }
 
-        final int size = (int) Math.min(requiredSize, buckets.size());
+        // partial reduce phases keep all buckets, only the final reduce phase can prune the list
+        final int size = reduceContext.isFinalReduce() ? (int) Math.min(requiredSize, buckets.size()) : (int) buckets.size();
         BucketPriorityQueue ordered = new BucketPriorityQueue(size);
         for (LongObjectPagedHashMap.Cursor<List<Bucket>> cursor : buckets) {
             List<Bucket> sameCellBuckets = cursor.value;
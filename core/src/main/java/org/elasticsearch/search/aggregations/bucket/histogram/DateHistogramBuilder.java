@@ -40,6 +40,7 @@ public class DateHistogramBuilder extends ValuesSourceAggregationBuilder<DateHis
     private String timeZone;
     private String format;
     private String offset;
+    private String docCountField;
 
     /**
      * Sole constructor.
@@ -139,6 +140,15 @@ public class DateHistogramBuilder extends ValuesSourceAggregationBuilder<DateHis
         return this;
     }
 
+    /**
+     * Set the numeric field that holds the number of documents each document stands for, eg. the count of
+     * a pre-aggregated document. Documents without a value for this field count once.
+     */
+    public DateHistogramBuilder docCountField(String docCountField) {
+        this.docCountField = docCountField;
+        return this;
+    }
+
     @Override
     protected XContentBuilder doInternalXContent(XContentBuilder builder, Params params) throws IOException {
         if (interval == null) {
@@ -153,6 +163,10 @@ public class DateHistogramBuilder extends ValuesSourceAggregationBuilder<DateHis
             builder.field("min_doc_count", minDocCount);
         }
 
+        if (docCountField != null) {
+            builder.field(DateHistogramParser.DOC_COUNT_FIELD.getPreferredName(), docCountField);
+        }
+
         if (order != null) {
             builder.field("order");
             order.toXContent(builder, params);
@@ -46,6 +46,7 @@ public class DateHistogramParser implements Aggregator.Parser {
     static final ParseField EXTENDED_BOUNDS = new ParseField("extended_bounds");
     static final ParseField OFFSET = new ParseField("offset");
     static final ParseField INTERVAL = new ParseField("interval");
+    static final ParseField DOC_COUNT_FIELD = new ParseField("doc_count_field");
 
     public static final Map<String, DateTimeUnit> DATE_FIELD_UNITS;
 
@@ -90,6 +91,7 @@ public class DateHistogramParser implements Aggregator.Parser {
         InternalOrder order = (InternalOrder) Histogram.Order.KEY_ASC;
         String interval = null;
         long offset = 0;
+        String docCountField = null;
 
         XContentParser.Token token;
         String currentFieldName = null;
@@ -103,6 +105,8 @@ public class DateHistogramParser implements Aggregator.Parser {
                     offset = parseOffset(parser.text());
                 } else if (context.parseFieldMatcher().match(currentFieldName, INTERVAL)) {
                     interval = parser.text();
+                } else if (context.parseFieldMatcher().match(currentFieldName, DOC_COUNT_FIELD)) {
+                    docCountField = parser.text();
                 } else {
                     throw new SearchParseException(context, "Unknown key for a " + token + " in [" + aggregationName + "]: ["
                             + currentFieldName + "].", parser.getTokenLocation());
@@ -192,7 +196,7 @@ public class DateHistogramParser implements Aggregator.Parser {
 
         ValuesSourceConfig config = vsParser.config();
         return new HistogramAggregator.Factory(aggregationName, config, rounding, order, keyed, minDocCount, extendedBounds,
-                new InternalDateHistogram.Factory());
+                new InternalDateHistogram.Factory(), docCountField);
 
     }
 
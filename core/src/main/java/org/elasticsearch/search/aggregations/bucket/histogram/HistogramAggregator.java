@@ -18,13 +18,21 @@
  */
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.document.FieldType.NumericType;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.util.CollectionUtil;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.common.inject.internal.Nullable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -37,6 +45,7 @@ import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
+import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -58,18 +67,44 @@ public class HistogramAggregator extends BucketsAggregator {
 
     private final LongHash bucketOrds;
 
+    /**
+     * The indexed long field that the values are read from, used to find the bounds of the values of each segment,
+     * or {@code null} if values are rounded without being prepared.
+     */
+    private final String boundsField;
+
+    /**
+     * The number of documents each document stands for, or {@code null} if every document counts once.
+     */
+    private final ValuesSource.Numeric docCountSource;
+
+    /**
+     * @param fieldType the type of the field that the values are read from, or {@code null} if values do not come
+     *                  straight from a field
+     * @param docCountSource the values that documents contribute to the doc count of their buckets, typically the
+     *                  count of a pre-aggregated document, or {@code null} if every document counts once
+     */
     public HistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, InternalOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            @Nullable MappedFieldType fieldType, @Nullable ValuesSource.Numeric docCountSource, ValueFormatter formatter,
+            InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext, Aggregator parent,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        // preparing the rounding has a per-segment cost, so only do it when there is a single instance of this aggregator
+        if (fieldType != null && fieldType.numericType() == NumericType.LONG && fieldType.indexOptions() != IndexOptions.NONE
+                && Aggregator.descendsFromBucketAggregator(parent) == false) {
+            this.boundsField = fieldType.name();
+        } else {
+            this.boundsField = null;
+        }
         this.rounding = rounding;
         this.order = order;
         this.keyed = keyed;
         this.minDocCount = minDocCount;
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
+        this.docCountSource = docCountSource;
         this.formatter = formatter;
         this.histogramFactory = histogramFactory;
 
@@ -88,23 +123,36 @@ public class HistogramAggregator extends BucketsAggregator {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
+        final Rounding.Prepared preparedRounding = prepareRounding(ctx);
+        final SortedNumericDocValues docCounts = docCountSource == null ? null : docCountSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 assert bucket == 0;
+                final int docCount = docCounts == null ? 1 : docCount(docCounts, doc);
+                if (docCount == 0) {
+                    // the document stands for no documents, it must neither create a bucket nor be seen by sub-aggregations
+                    return;
+                }
                 values.setDocument(doc);
                 final int valuesCount = values.count();
 
                 long previousKey = Long.MIN_VALUE;
                 for (int i = 0; i < valuesCount; ++i) {
                     long value = values.valueAt(i);
-                    long key = rounding.roundKey(value);
+                    long key = preparedRounding.roundKey(value);
                     assert key >= previousKey;
                     if (key == previousKey) {
                         continue;
                     }
                     long bucketOrd = bucketOrds.add(key);
-                    if (bucketOrd < 0) { // already seen
+                    if (docCounts != null) {
+                        if (bucketOrd < 0) {
+                            bucketOrd = -1 - bucketOrd;
+                        }
+                        incrementBucketDocCount(bucketOrd, docCount);
+                        sub.collect(doc, bucketOrd);
+                    } else if (bucketOrd < 0) { // already seen
                         bucketOrd = -1 - bucketOrd;
                         collectExistingBucket(sub, doc, bucketOrd);
                     } else {
@@ -116,6 +164,38 @@ public class HistogramAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Returns the number of documents that the given document stands for: the first value of the doc count field, or
+     * {@code 1} if the document has no such value so that raw and pre-aggregated documents can be counted together.
+     */
+    private static int docCount(SortedNumericDocValues docCounts, int doc) {
+        docCounts.setDocument(doc);
+        if (docCounts.count() == 0) {
+            return 1;
+        }
+        final long docCount = docCounts.valueAt(0);
+        if (docCount < 0 || docCount > Integer.MAX_VALUE) {
+            throw new AggregationExecutionException("Invalid doc count [" + docCount + "] for document [" + doc + "]");
+        }
+        return (int) docCount;
+    }
+
+    /**
+     * Prepares the rounding for the range of values of the segment, as recorded by the numeric terms of the field. The
+     * number of documents that have a value tells the rounding whether preparing is worth it for this segment.
+     */
+    private Rounding.Prepared prepareRounding(LeafReaderContext ctx) throws IOException {
+        if (boundsField != null) {
+            final Terms terms = ctx.reader().terms(boundsField);
+            if (terms != null) {
+                final int docCount = terms.getDocCount();
+                final long numValues = docCount == -1 ? ctx.reader().maxDoc() : docCount;
+                return rounding.prepare(NumericUtils.getMinLong(terms), NumericUtils.getMaxLong(terms), numValues);
+            }
+        }
+        return rounding::roundKey;
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
@@ -152,12 +232,20 @@ public class HistogramAggregator extends BucketsAggregator {
         private final long minDocCount;
         private final ExtendedBounds extendedBounds;
         private final InternalHistogram.Factory<?> histogramFactory;
+        private final String docCountField;
 
         public Factory(String name, ValuesSourceConfig<ValuesSource.Numeric> config,
                        Rounding rounding, InternalOrder order, boolean keyed, long minDocCount,
                        ExtendedBounds extendedBounds, InternalHistogram.Factory<?> histogramFactory) {
+            this(name, config, rounding, order, keyed, minDocCount, extendedBounds, histogramFactory, null);
+        }
+
+        public Factory(String name, ValuesSourceConfig<ValuesSource.Numeric> config,
+                       Rounding rounding, InternalOrder order, boolean keyed, long minDocCount,
+                       ExtendedBounds extendedBounds, InternalHistogram.Factory<?> histogramFactory, @Nullable String docCountField) {
 
             super(name, histogramFactory.type(), config);
+            this.docCountField = docCountField;
             this.rounding = rounding;
             this.order = order;
             this.keyed = keyed;
@@ -173,8 +261,8 @@ public class HistogramAggregator extends BucketsAggregator {
         @Override
         protected Aggregator createUnmapped(AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
                 Map<String, Object> metaData) throws IOException {
-            return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, extendedBounds, null, config.formatter(),
-                    histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
+            return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, extendedBounds, null, null, null,
+                    config.formatter(), histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
         }
 
         @Override
@@ -192,8 +280,34 @@ public class HistogramAggregator extends BucketsAggregator {
                 extendedBounds.processAndValidate(name, aggregationContext.searchContext(), config.parser());
                 roundedBounds = extendedBounds.round(rounding);
             }
+            MappedFieldType fieldType = null;
+            if (config.fieldContext() != null && config.script() == null && config.missing() == null) {
+                fieldType = config.fieldContext().fieldType();
+            }
             return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, roundedBounds, valuesSource,
-                    config.formatter(), histogramFactory, aggregationContext, parent, pipelineAggregators, metaData);
+                    fieldType, docCountSource(aggregationContext), config.formatter(), histogramFactory, aggregationContext, parent,
+                    pipelineAggregators, metaData);
+        }
+
+        /**
+         * Resolves the values of the doc count field, or {@code null} if there is none or if it is not mapped on this
+         * shard, in which case every document counts once.
+         */
+        private ValuesSource.Numeric docCountSource(AggregationContext aggregationContext) {
+            if (docCountField == null) {
+                return null;
+            }
+            SearchContext searchContext = aggregationContext.searchContext();
+            MappedFieldType docCountFieldType = searchContext.smartNameFieldType(docCountField);
+            if (docCountFieldType == null) {
+                return null;
+            }
+            IndexFieldData<?> indexFieldData = searchContext.fieldData().getForField(docCountFieldType);
+            if (!(indexFieldData instanceof IndexNumericFieldData)) {
+                throw new AggregationExecutionException("Expected numeric type on doc count field [" + docCountField
+                        + "] of aggregation [" + name + "], but got [" + docCountFieldType.typeName() + "]");
+            }
+            return new ValuesSource.Numeric.FieldData((IndexNumericFieldData) indexFieldData);
         }
 
     }
@@ -36,6 +36,7 @@ public class HistogramBuilder extends ValuesSourceAggregationBuilder<HistogramBu
     private Long extendedBoundsMin;
     private Long extendedBoundsMax;
     private Long offset;
+    private String docCountField;
 
     /**
      * Constructs a new histogram aggregation builder.
@@ -98,6 +99,15 @@ public class HistogramBuilder extends ValuesSourceAggregationBuilder<HistogramBu
         return this;
     }
 
+    /**
+     * Set the numeric field that holds the number of documents each document stands for, eg. the count of
+     * a pre-aggregated document. Documents without a value for this field count once.
+     */
+    public HistogramBuilder docCountField(String docCountField) {
+        this.docCountField = docCountField;
+        return this;
+    }
+
     @Override
     protected XContentBuilder doInternalXContent(XContentBuilder builder, Params params) throws IOException {
         if (interval == null) {
@@ -118,6 +128,10 @@ public class HistogramBuilder extends ValuesSourceAggregationBuilder<HistogramBu
             builder.field("min_doc_count", minDocCount);
         }
 
+        if (docCountField != null) {
+            builder.field(HistogramParser.DOC_COUNT_FIELD.getPreferredName(), docCountField);
+        }
+
         if (extendedBoundsMin != null || extendedBoundsMax != null) {
             builder.startObject(HistogramParser.EXTENDED_BOUNDS.getPreferredName());
             if (extendedBoundsMin != null) {
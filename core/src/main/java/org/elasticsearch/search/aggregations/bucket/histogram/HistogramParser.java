@@ -37,6 +37,7 @@ import java.io.IOException;
 public class HistogramParser implements Aggregator.Parser {
 
     static final ParseField EXTENDED_BOUNDS = new ParseField("extended_bounds");
+    static final ParseField DOC_COUNT_FIELD = new ParseField("doc_count_field");
 
     @Override
     public String type() {
@@ -57,6 +58,7 @@ public class HistogramParser implements Aggregator.Parser {
         long interval = -1;
         ExtendedBounds extendedBounds = null;
         long offset = 0;
+        String docCountField = null;
 
         XContentParser.Token token;
         String currentFieldName = null;
@@ -74,6 +76,8 @@ public class HistogramParser implements Aggregator.Parser {
                     keyed = parser.booleanValue();
                 } else if ("offset".equals(currentFieldName)) {
                     offset = parser.longValue();
+                } else if (context.parseFieldMatcher().match(currentFieldName, DOC_COUNT_FIELD)) {
+                    docCountField = parser.text();
                 } else {
                     throw new SearchParseException(context, "Unknown key for a " + token + " in aggregation [" + aggregationName + "]: ["
                             + currentFieldName + "].", parser.getTokenLocation());
@@ -136,7 +140,7 @@ public class HistogramParser implements Aggregator.Parser {
         }
 
         return new HistogramAggregator.Factory(aggregationName, vsParser.config(), rounding, order, keyed, minDocCount, extendedBounds,
-                new InternalHistogram.Factory());
+                new InternalHistogram.Factory(), docCountField);
 
     }
 
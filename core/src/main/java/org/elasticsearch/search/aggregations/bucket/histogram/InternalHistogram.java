@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.rounding.Rounding;
@@ -31,6 +32,7 @@ import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.BucketColumns;
 import org.elasticsearch.search.aggregations.bucket.BucketStreamContext;
 import org.elasticsearch.search.aggregations.bucket.BucketStreams;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -361,7 +363,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
                 if (top.current.key != key) {
                     // the key changes, reduce what we already buffered and reset the buffer for current buckets
                     final B reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                    if (reduced.getDocCount() >= minDocCount) {
+                    if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
                         reducedBuckets.add(reduced);
                     }
                     currentBuckets.clear();
@@ -382,7 +384,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
 
             if (currentBuckets.isEmpty() == false) {
                 final B reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                if (reduced.getDocCount() >= minDocCount) {
+                if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
                     reducedBuckets.add(reduced);
                 }
             }
@@ -462,14 +464,15 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
         List<B> reducedBuckets = reduceBuckets(aggregations, reduceContext);
 
         // adding empty buckets if needed
-        if (minDocCount == 0) {
+        if (minDocCount == 0 && reduceContext.isFinalReduce()) {
             addEmptyBuckets(reducedBuckets, reduceContext);
         }
 
-        if (order == InternalOrder.KEY_ASC) {
+        if (order == InternalOrder.KEY_ASC || reduceContext.isFinalReduce() == false) {
             // nothing to do, data are already sorted since shards return
             // sorted buckets and the merge-sort performed by reduceBuckets
-            // maintains order
+            // maintains order. Partial reductions must keep this order since
+            // later reduce phases merge-sort them again
         } else if (order == InternalOrder.KEY_DESC) {
             // we just need to reverse here...
             List<B> reverse = new ArrayList<>(reducedBuckets);
@@ -496,10 +499,23 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
         keyed = in.readBoolean();
         int size = in.readVInt();
         List<B> buckets = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            B bucket = getFactory().createEmptyBucket(keyed, formatter);
-            bucket.readFrom(in);
-            buckets.add(bucket);
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            long[] keys = BucketColumns.readDeltas(size, in);
+            long[] docCounts = BucketColumns.readDeltas(size, in);
+            InternalAggregations[] aggregations = BucketColumns.readAggregations(size, in);
+            for (int i = 0; i < size; i++) {
+                B bucket = getFactory().createEmptyBucket(keyed, formatter);
+                bucket.key = keys[i];
+                bucket.docCount = docCounts[i];
+                bucket.aggregations = aggregations[i];
+                buckets.add(bucket);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                B bucket = getFactory().createEmptyBucket(keyed, formatter);
+                bucket.readFrom(in);
+                buckets.add(bucket);
+            }
         }
         this.buckets = buckets;
     }
@@ -526,8 +542,25 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
         ValueFormatterStreams.writeOptional(formatter, out);
         out.writeBoolean(keyed);
         out.writeVInt(buckets.size());
-        for (B bucket : buckets) {
-            bucket.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            // shard level buckets are sorted by key, so keys are written as small deltas to the previous key
+            final int size = buckets.size();
+            long[] keys = new long[size];
+            long[] docCounts = new long[size];
+            InternalAggregations[] aggregations = new InternalAggregations[size];
+            for (int i = 0; i < size; i++) {
+                B bucket = buckets.get(i);
+                keys[i] = bucket.key;
+                docCounts[i] = bucket.docCount;
+                aggregations[i] = bucket.aggregations;
+            }
+            BucketColumns.writeDeltas(keys, out);
+            BucketColumns.writeDeltas(docCounts, out);
+            BucketColumns.writeAggregations(aggregations, out);
+        } else {
+            for (B bucket : buckets) {
+                bucket.writeTo(out);
+            }
         }
     }
 
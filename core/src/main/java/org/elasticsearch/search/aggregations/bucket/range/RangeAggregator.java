@@ -18,8 +18,21 @@
  */
 package org.elasticsearch.search.aggregations.bucket.range;
 
+import org.apache.lucene.document.FieldType.NumericType;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -93,9 +106,26 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    /**
+     * One filter per range when buckets are counted filter by filter instead of value by value, {@code null} otherwise.
+     */
+    final Weight[] filters;
+
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
             InternalRange.Factory rangeFactory, List<Range> ranges, boolean keyed, AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, null, format, rangeFactory, ranges, keyed, aggregationContext, parent, pipelineAggregators,
+                metaData);
+    }
+
+    /**
+     * @param fieldType the type of the indexed field that the values are read from, or {@code null} if values do not come
+     *                  straight from a field, in which case buckets are always counted value by value
+     */
+    public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource,
+            @Nullable MappedFieldType fieldType, ValueFormat format, InternalRange.Factory rangeFactory, List<Range> ranges,
+            boolean keyed, AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -117,6 +147,78 @@ public class RangeAggregator extends BucketsAggregator {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
 
+        this.filters = buildFilters(fieldType, parent);
+    }
+
+    /**
+     * When a top-level range aggregation without sub-aggregations runs on an indexed numeric field and the query
+     * matches all documents (optionally filtered by a single term, like a type filter), each range can be counted by
+     * running it as a range query over the index instead of looking up every value of every document. Returns
+     * {@code null} if this optimization does not apply.
+     */
+    private Weight[] buildFilters(MappedFieldType fieldType, Aggregator parent) throws IOException {
+        if (fieldType == null || parent != null || subAggregators.length > 0
+                || fieldType.numericType() == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        Query filter = context.matchAllFilter();
+        if (filter == null) {
+            return null;
+        } else if (Queries.isConstantMatchAllQuery(filter)) {
+            filter = null;
+        }
+        final Weight[] filters = new Weight[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            Query rangeQuery = rangeQuery(fieldType, ranges[i]);
+            if (rangeQuery == null) {
+                return null;
+            }
+            if (filter != null) {
+                rangeQuery = new BooleanQuery.Builder()
+                        .add(rangeQuery, Occur.FILTER)
+                        .add(filter, Occur.FILTER)
+                        .build();
+            }
+            filters[i] = context.searchContext().searcher().createNormalizedWeight(rangeQuery, false);
+        }
+        return filters;
+    }
+
+    /**
+     * Returns a query that matches the same documents as the given range on the given field, or {@code null} if
+     * the range cannot be translated exactly.
+     */
+    static Query rangeQuery(MappedFieldType fieldType, Range range) {
+        if (Double.isNaN(range.from) || Double.isNaN(range.to)) {
+            return null;
+        }
+        final String field = fieldType.name();
+        final int precisionStep = fieldType.numericPrecisionStep();
+        final NumericType numericType = fieldType.numericType();
+        if (numericType == NumericType.DOUBLE) {
+            // values are compared as doubles, so the range translates as-is: infinite bounds exclude NaN values
+            return NumericRangeQuery.newDoubleRange(field, precisionStep, range.from, range.to, true, false);
+        }
+        if (numericType != NumericType.LONG && numericType != NumericType.INT) {
+            // float values are widened to doubles, which the float terms of the index cannot reproduce exactly
+            return null;
+        }
+        if (range.from >= 0x1p63) {
+            // no integral value can be greater than or equal to from
+            return Queries.newMatchNoDocsQuery();
+        }
+        // for integral values: value >= from <=> value >= ceil(from), and value < to <=> value < ceil(to)
+        final long min = range.from == Double.NEGATIVE_INFINITY ? Long.MIN_VALUE : (long) Math.ceil(range.from);
+        final long max = range.to == Double.POSITIVE_INFINITY ? Long.MAX_VALUE : (long) Math.ceil(range.to);
+        if (numericType == NumericType.LONG) {
+            return NumericRangeQuery.newLongRange(field, precisionStep, min == Long.MIN_VALUE ? null : min,
+                    max == Long.MAX_VALUE ? null : max, true, false);
+        }
+        if (min > Integer.MAX_VALUE || max <= Integer.MIN_VALUE) {
+            return Queries.newMatchNoDocsQuery();
+        }
+        return NumericRangeQuery.newIntRange(field, precisionStep, min <= Integer.MIN_VALUE ? null : (int) min,
+                max > Integer.MAX_VALUE ? null : (int) max, true, false);
     }
 
     @Override
@@ -127,6 +229,10 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (filters != null) {
+            countFilterByFilter(ctx);
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -190,6 +296,26 @@ public class RangeAggregator extends BucketsAggregator {
         };
     }
 
+    private void countFilterByFilter(LeafReaderContext ctx) throws IOException {
+        final Bits liveDocs = ctx.reader().getLiveDocs();
+        for (int i = 0; i < filters.length; i++) {
+            final Scorer scorer = filters[i].scorer(ctx);
+            if (scorer == null) {
+                continue;
+            }
+            final DocIdSetIterator iterator = scorer.iterator();
+            int count = 0;
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    count++;
+                }
+            }
+            if (count > 0) {
+                incrementBucketDocCount(i, count);
+            }
+        }
+    }
+
     private final long subBucketOrdinal(long owningBucketOrdinal, int rangeOrd) {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
@@ -298,7 +424,12 @@ public class RangeAggregator extends BucketsAggregator {
         @Override
         protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, AggregationContext aggregationContext, Aggregator parent,
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-            return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, aggregationContext, parent, pipelineAggregators, metaData);
+            MappedFieldType fieldType = null;
+            if (config.fieldContext() != null && config.script() == null && config.missing() == null) {
+                fieldType = config.fieldContext().fieldType();
+            }
+            return new RangeAggregator(name, factories, valuesSource, fieldType, config.format(), rangeFactory, ranges, keyed,
+                    aggregationContext, parent, pipelineAggregators, metaData);
         }
     }
 
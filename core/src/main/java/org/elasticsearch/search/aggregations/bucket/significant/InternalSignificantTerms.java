@@ -185,13 +185,14 @@ public abstract class InternalSignificantTerms<A extends InternalSignificantTerm
         }
 
         significanceHeuristic.initialize(reduceContext);
-        final int size = Math.min(requiredSize, buckets.size());
+        // partial reduce phases keep all buckets, only the final reduce phase can prune the list
+        final int size = reduceContext.isFinalReduce() ? Math.min(requiredSize, buckets.size()) : buckets.size();
         BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
         for (Map.Entry<String, List<Bucket>> entry : buckets.entrySet()) {
             List<Bucket> sameTermBuckets = entry.getValue();
             final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
             b.updateScore(significanceHeuristic);
-            if ((b.score > 0) && (b.subsetDf >= minDocCount)) {
+            if (reduceContext.isFinalReduce() == false || ((b.score > 0) && (b.subsetDf >= minDocCount))) {
                 ordered.insertWithOverflow(b);
             }
         }
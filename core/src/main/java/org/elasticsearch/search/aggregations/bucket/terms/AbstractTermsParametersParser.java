@@ -43,7 +43,7 @@ public abstract class AbstractTermsParametersParser {
 
     private String executionHint = null;
     
-    private SubAggCollectionMode collectMode = SubAggCollectionMode.DEPTH_FIRST;
+    private SubAggCollectionMode collectMode = null;
 
 
     IncludeExclude includeExclude;
@@ -24,6 +24,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.AggregationStreams;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.BucketColumns;
 import org.elasticsearch.search.aggregations.bucket.BucketStreamContext;
 import org.elasticsearch.search.aggregations.bucket.BucketStreams;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -207,10 +208,19 @@ public class DoubleTerms extends InternalTerms<DoubleTerms, DoubleTerms.Bucket>
         this.otherDocCount = in.readVLong();
         int size = in.readVInt();
         List<InternalTerms.Bucket> buckets = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            Bucket bucket = new Bucket(formatter, showTermDocCountError);
-            bucket.readFrom(in);
-            buckets.add(bucket);
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            for (int i = 0; i < size; i++) {
+                Bucket bucket = new Bucket(formatter, showTermDocCountError);
+                bucket.term = in.readDouble();
+                buckets.add(bucket);
+            }
+            readBucketColumns(buckets, in);
+        } else {
+            for (int i = 0; i < size; i++) {
+                Bucket bucket = new Bucket(formatter, showTermDocCountError);
+                bucket.readFrom(in);
+                buckets.add(bucket);
+            }
         }
         this.buckets = buckets;
         this.bucketMap = null;
@@ -229,8 +239,15 @@ public class DoubleTerms extends InternalTerms<DoubleTerms, DoubleTerms.Bucket>
         out.writeVLong(minDocCount);
         out.writeVLong(otherDocCount);
         out.writeVInt(buckets.size());
-        for (InternalTerms.Bucket bucket : buckets) {
-            bucket.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            for (InternalTerms.Bucket bucket : buckets) {
+                out.writeDouble(((Bucket) bucket).term);
+            }
+            writeBucketColumns(out);
+        } else {
+            for (InternalTerms.Bucket bucket : buckets) {
+                bucket.writeTo(out);
+            }
         }
     }
 
@@ -18,17 +18,23 @@
  */
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.BucketColumns;
 import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -44,6 +50,14 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
     protected static final String DOC_COUNT_ERROR_UPPER_BOUND_FIELD_NAME = "doc_count_error_upper_bound";
     protected static final String SUM_OF_OTHER_DOC_COUNTS = "sum_other_doc_count";
 
+    /** Estimated memory of an entry of the map that groups the buckets of the same term during the reduce phase. */
+    private static final long BYTES_PER_REDUCE_ENTRY = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+            + 6 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 2 * RamUsageEstimator.NUM_BYTES_INT
+            + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+
+    /** The minimum number of reduced buckets to spread their reduction over the executor of the reduce context. */
+    static final int MIN_BUCKETS_FOR_PARALLEL_REDUCE = 1024;
+
     public static abstract class Bucket extends Terms.Bucket {
 
         long bucketOrd;
@@ -117,6 +131,9 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
     protected long docCountError;
     protected boolean showTermDocCountError;
     protected long otherDocCount;
+    // true if this is the result of a partial reduce, whose doc count errors are already computed and must be carried
+    // as is, even if they are 0. Partially reduced results never leave the coordinating node so this is not serialized.
+    private boolean partiallyReduced;
 
     protected InternalTerms() {} // for serialization
 
@@ -163,89 +180,169 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
 
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
-
-        Map<Object, List<InternalTerms.Bucket>> buckets = new HashMap<>();
-        long sumDocCountError = 0;
-        long otherDocCount = 0;
-        InternalTerms<A, B> referenceTerms = null;
-        for (InternalAggregation aggregation : aggregations) {
-            InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
-            if (referenceTerms == null && !terms.getClass().equals(UnmappedTerms.class)) {
-                referenceTerms = (InternalTerms<A, B>) aggregation;
-            }
-            if (referenceTerms != null &&
-                    !referenceTerms.getClass().equals(terms.getClass()) &&
-                    !terms.getClass().equals(UnmappedTerms.class)) {
-                // control gets into this loop when the same field name against which the query is executed
-                // is of different types in different indices.
-                throw new AggregationExecutionException("Merging/Reducing the aggregations failed " +
-                                                        "when computing the aggregation [ Name: " +
-                                                        referenceTerms.getName() + ", Type: " +
-                                                        referenceTerms.type() + " ]" + " because: " +
-                                                        "the field you gave in the aggregation query " +
-                                                        "existed as two different types " +
-                                                        "in two different indices");
-            }
-            otherDocCount += terms.getSumOfOtherDocCounts();
-            final long thisAggDocCountError;
-            if (terms.buckets.size() < this.shardSize || this.order == InternalOrder.TERM_ASC || this.order == InternalOrder.TERM_DESC) {
-                thisAggDocCountError = 0;
-            } else if (InternalOrder.isCountDesc(this.order)) {
-                thisAggDocCountError = terms.buckets.get(terms.buckets.size() - 1).docCount;
-            } else {
-                thisAggDocCountError = -1;
-            }
-            if (sumDocCountError != -1) {
-                if (thisAggDocCountError == -1) {
-                    sumDocCountError = -1;
+        // the map that groups the buckets of each term is accounted on the request breaker while it is alive
+        final BigArrays breakingBigArrays = reduceContext.bigArrays().withCircuitBreaking();
+        long reservedBytes = 0;
+        try {
+            Map<Object, List<InternalTerms.Bucket>> buckets = new HashMap<>();
+            long sumDocCountError = 0;
+            long otherDocCount = 0;
+            InternalTerms<A, B> referenceTerms = null;
+            for (InternalAggregation aggregation : aggregations) {
+                InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
+                if (referenceTerms == null && !terms.getClass().equals(UnmappedTerms.class)) {
+                    referenceTerms = (InternalTerms<A, B>) aggregation;
+                }
+                if (referenceTerms != null &&
+                        !referenceTerms.getClass().equals(terms.getClass()) &&
+                        !terms.getClass().equals(UnmappedTerms.class)) {
+                    // control gets into this loop when the same field name against which the query is executed
+                    // is of different types in different indices.
+                    throw new AggregationExecutionException("Merging/Reducing the aggregations failed " +
+                                                            "when computing the aggregation [ Name: " +
+                                                            referenceTerms.getName() + ", Type: " +
+                                                            referenceTerms.type() + " ]" + " because: " +
+                                                            "the field you gave in the aggregation query " +
+                                                            "existed as two different types " +
+                                                            "in two different indices");
+                }
+                otherDocCount += terms.getSumOfOtherDocCounts();
+                final long thisAggDocCountError;
+                if (terms.partiallyReduced) {
+                    // a partially reduced aggregation already carries the error of the shards it was reduced from
+                    thisAggDocCountError = terms.docCountError;
+                } else if (terms.buckets.size() < this.shardSize || this.order == InternalOrder.TERM_ASC || this.order == InternalOrder.TERM_DESC) {
+                    thisAggDocCountError = 0;
+                } else if (InternalOrder.isCountDesc(this.order)) {
+                    thisAggDocCountError = terms.buckets.get(terms.buckets.size() - 1).docCount;
                 } else {
-                    sumDocCountError += thisAggDocCountError;
+                    thisAggDocCountError = -1;
                 }
-            }
-            terms.docCountError = thisAggDocCountError;
-            for (Bucket bucket : terms.buckets) {
-                bucket.docCountError = thisAggDocCountError;
-                List<Bucket> bucketList = buckets.get(bucket.getKey());
-                if (bucketList == null) {
-                    bucketList = new ArrayList<>();
-                    buckets.put(bucket.getKey(), bucketList);
+                if (sumDocCountError != -1) {
+                    if (thisAggDocCountError == -1) {
+                        sumDocCountError = -1;
+                    } else {
+                        sumDocCountError += thisAggDocCountError;
+                    }
                 }
-                bucketList.add(bucket);
+                terms.docCountError = thisAggDocCountError;
+                final int numTermsBefore = buckets.size();
+                for (Bucket bucket : terms.buckets) {
+                    if (terms.partiallyReduced == false || thisAggDocCountError == -1) {
+                        bucket.docCountError = thisAggDocCountError;
+                    } else {
+                        // the bucket already carries the error of the shards that didn't return its term, only the
+                        // other shards count as having returned it
+                        bucket.docCountError = thisAggDocCountError - bucket.docCountError;
+                    }
+                    List<Bucket> bucketList = buckets.get(bucket.getKey());
+                    if (bucketList == null) {
+                        bucketList = new ArrayList<>();
+                        buckets.put(bucket.getKey(), bucketList);
+                    }
+                    bucketList.add(bucket);
+                }
+                final long bytes = (buckets.size() - numTermsBefore) * BYTES_PER_REDUCE_ENTRY
+                        + terms.buckets.size() * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+                // adjustBreaker keeps the charge even if it trips the breaker, so it has to be released in any case
+                reservedBytes += bytes;
+                breakingBigArrays.adjustBreaker(bytes);
             }
-        }
 
-        final int size = Math.min(requiredSize, buckets.size());
-        BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
-        for (List<Bucket> sameTermBuckets : buckets.values()) {
-            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
-            if (b.docCountError != -1) {
-                if (sumDocCountError == -1) {
-                    b.docCountError = -1;
-                } else {
-                    b.docCountError = sumDocCountError - b.docCountError;
+            // the buckets of different terms are reduced independently, the reduce context may spread them over its executor
+            final List<List<Bucket>> sameTermBucketsList = new ArrayList<>(buckets.values());
+            final List<Bucket> reducedBuckets;
+            if (sameTermBucketsList.size() >= MIN_BUCKETS_FOR_PARALLEL_REDUCE) {
+                reducedBuckets = reduceContext.reduceAll(sameTermBucketsList.size(), (i, context) -> {
+                    List<Bucket> sameTermBuckets = sameTermBucketsList.get(i);
+                    return sameTermBuckets.get(0).reduce(sameTermBuckets, context);
+                });
+            } else {
+                reducedBuckets = new ArrayList<>(sameTermBucketsList.size());
+                for (List<Bucket> sameTermBuckets : sameTermBucketsList) {
+                    reducedBuckets.add(sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext));
                 }
             }
-            if (b.docCount >= minDocCount) {
-                Terms.Bucket removed = ordered.insertWithOverflow(b);
-                if (removed != null) {
-                    otherDocCount += removed.getDocCount();
+
+            // partial reduce phases keep all buckets, only the final reduce phase can prune the list
+            final int size = reduceContext.isFinalReduce() ? Math.min(requiredSize, buckets.size()) : buckets.size();
+            BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
+            for (Bucket b : reducedBuckets) {
+                if (b.docCountError != -1) {
+                    if (sumDocCountError == -1) {
+                        b.docCountError = -1;
+                    } else {
+                        b.docCountError = sumDocCountError - b.docCountError;
+                    }
+                }
+                if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
+                    Terms.Bucket removed = ordered.insertWithOverflow(b);
+                    if (removed != null) {
+                        otherDocCount += removed.getDocCount();
+                    }
                 }
             }
+            Bucket[] list = new Bucket[ordered.size()];
+            for (int i = ordered.size() - 1; i >= 0; i--) {
+                list[i] = (Bucket) ordered.pop();
+            }
+            long docCountError;
+            if (sumDocCountError == -1) {
+                docCountError = -1;
+            } else if (aggregations.size() == 1 && ((InternalTerms<A, B>) aggregations.get(0)).partiallyReduced == false) {
+                // the counts of a single shard are exact
+                docCountError = 0;
+            } else {
+                docCountError = sumDocCountError;
+            }
+            InternalTerms reduced = create(name, Arrays.asList(list), docCountError, otherDocCount, this);
+            reduced.partiallyReduced = reduceContext.isFinalReduce() == false;
+            return reduced;
+        } finally {
+            breakingBigArrays.adjustBreaker(-reservedBytes);
         }
-        Bucket[] list = new Bucket[ordered.size()];
-        for (int i = ordered.size() - 1; i >= 0; i--) {
-            list[i] = (Bucket) ordered.pop();
-        }
-        long docCountError;
-        if (sumDocCountError == -1) {
-            docCountError = -1;
-        } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
-        }
-        return create(name, Arrays.asList(list), docCountError, otherDocCount, this);
     }
 
     protected abstract A create(String name, List<InternalTerms.Bucket> buckets, long docCountError, long otherDocCount,
             InternalTerms prototype);
 
+    /**
+     * Writes the doc counts, doc count errors and sub-aggregations of the buckets column by column, see
+     * {@link BucketColumns}. Implementations write the column of keys before.
+     */
+    protected void writeBucketColumns(StreamOutput out) throws IOException {
+        final int size = buckets.size();
+        long[] docCounts = new long[size];
+        long[] docCountErrors = new long[size];
+        InternalAggregations[] aggregations = new InternalAggregations[size];
+        for (int i = 0; i < size; i++) {
+            Bucket bucket = buckets.get(i);
+            docCounts[i] = bucket.getDocCount();
+            docCountErrors[i] = bucket.docCountError;
+            aggregations[i] = bucket.aggregations;
+        }
+        BucketColumns.writeDeltas(docCounts, out);
+        if (showTermDocCountError) {
+            BucketColumns.writeDeltas(docCountErrors, out);
+        }
+        BucketColumns.writeAggregations(aggregations, out);
+    }
+
+    /**
+     * Reads the columns written by {@link #writeBucketColumns(StreamOutput)} into the given buckets, which were created
+     * from the column of keys.
+     */
+    protected void readBucketColumns(List<? extends Bucket> buckets, StreamInput in) throws IOException {
+        final int size = buckets.size();
+        long[] docCounts = BucketColumns.readDeltas(size, in);
+        long[] docCountErrors = showTermDocCountError ? BucketColumns.readDeltas(size, in) : null;
+        InternalAggregations[] aggregations = BucketColumns.readAggregations(size, in);
+        for (int i = 0; i < size; i++) {
+            Bucket bucket = buckets.get(i);
+            bucket.docCount = docCounts[i];
+            bucket.docCountError = docCountErrors == null ? -1 : docCountErrors[i];
+            bucket.aggregations = aggregations[i];
+        }
+    }
+
 }
@@ -18,11 +18,13 @@
  */
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.AggregationStreams;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.BucketColumns;
 import org.elasticsearch.search.aggregations.bucket.BucketStreamContext;
 import org.elasticsearch.search.aggregations.bucket.BucketStreams;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -201,10 +203,19 @@ public class LongTerms extends InternalTerms<LongTerms, LongTerms.Bucket> {
         this.otherDocCount = in.readVLong();
         int size = in.readVInt();
         List<InternalTerms.Bucket> buckets = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            Bucket bucket = new Bucket(formatter, showTermDocCountError);
-            bucket.readFrom(in);
-            buckets.add(bucket);
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            for (long term : BucketColumns.readDeltas(size, in)) {
+                Bucket bucket = new Bucket(formatter, showTermDocCountError);
+                bucket.term = term;
+                buckets.add(bucket);
+            }
+            readBucketColumns(buckets, in);
+        } else {
+            for (int i = 0; i < size; i++) {
+                Bucket bucket = new Bucket(formatter, showTermDocCountError);
+                bucket.readFrom(in);
+                buckets.add(bucket);
+            }
         }
         this.buckets = buckets;
         this.bucketMap = null;
@@ -221,8 +232,17 @@ public class LongTerms extends InternalTerms<LongTerms, LongTerms.Bucket> {
         out.writeVLong(minDocCount);
         out.writeVLong(otherDocCount);
         out.writeVInt(buckets.size());
-        for (InternalTerms.Bucket bucket : buckets) {
-            bucket.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            long[] terms = new long[buckets.size()];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = ((Bucket) buckets.get(i)).term;
+            }
+            BucketColumns.writeDeltas(terms, out);
+            writeBucketColumns(out);
+        } else {
+            for (InternalTerms.Bucket bucket : buckets) {
+                bucket.writeTo(out);
+            }
         }
     }
 
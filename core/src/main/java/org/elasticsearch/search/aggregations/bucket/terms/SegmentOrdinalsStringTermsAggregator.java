@@ -0,0 +1,198 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A string terms aggregator that collects segment ordinals and resolves them to terms segment by segment, so that
+ * global ordinals never need to be built. Each distinct term of a segment is looked up and hashed at most once:
+ * without sub-aggregations doc counts are accumulated per segment ordinal and merged into the term buckets when the
+ * segment is done, otherwise segment ordinals are lazily mapped to bucket ordinals.
+ */
+public class SegmentOrdinalsStringTermsAggregator extends StringTermsAggregator {
+
+    private final ValuesSource.Bytes.WithOrdinals valuesSource;
+    private final IncludeExclude.StringFilter includeExclude;
+
+    private RandomAccessOrds segmentOrds;
+    // doc counts per segment ordinal, only used when there are no sub-aggregations
+    private IntArray segmentDocCounts;
+    // 0 if not resolved yet, -1 if the term is excluded, the bucket ordinal + 1 otherwise
+    private LongArray segmentToBucketOrds;
+
+    public SegmentOrdinalsStringTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Bytes.WithOrdinals valuesSource,
+            Terms.Order order, BucketCountThresholds bucketCountThresholds, IncludeExclude.StringFilter includeExclude,
+            AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext, parent, collectionMode,
+                showTermDocCountError, pipelineAggregators, metaData);
+        this.valuesSource = valuesSource;
+        this.includeExclude = includeExclude;
+        this.segmentToBucketOrds = context.bigArrays().newLongArray(1, true);
+        if (factories == null || factories.count() == 0) {
+            this.segmentDocCounts = context.bigArrays().newIntArray(1, true);
+        }
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        finishSegment();
+        final RandomAccessOrds ords = valuesSource.ordinalsValues(ctx);
+        segmentOrds = ords;
+        segmentToBucketOrds = context.bigArrays().grow(segmentToBucketOrds, ords.getValueCount());
+        if (segmentDocCounts != null) {
+            assert sub == LeafBucketCollector.NO_OP_COLLECTOR;
+            segmentDocCounts = context.bigArrays().grow(segmentDocCounts, ords.getValueCount());
+            return newCountingCollector(ords, sub);
+        }
+        final SortedDocValues singleValues = DocValues.unwrapSingleton(ords);
+        if (singleValues != null) {
+            return new LeafBucketCollectorBase(sub, ords) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    final int ord = singleValues.getOrd(doc);
+                    if (ord >= 0) {
+                        final long bucketOrd = bucketOrd(ord);
+                        if (bucketOrd >= 0) {
+                            collectBucket(sub, doc, bucketOrd);
+                        }
+                    }
+                }
+            };
+        }
+        return new LeafBucketCollectorBase(sub, ords) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                ords.setDocument(doc);
+                final int numOrds = ords.cardinality();
+                for (int i = 0; i < numOrds; i++) {
+                    final long bucketOrd = bucketOrd(ords.ordAt(i));
+                    if (bucketOrd >= 0) {
+                        collectBucket(sub, doc, bucketOrd);
+                    }
+                }
+            }
+        };
+    }
+
+    private LeafBucketCollector newCountingCollector(final RandomAccessOrds ords, LeafBucketCollector sub) {
+        final SortedDocValues singleValues = DocValues.unwrapSingleton(ords);
+        if (singleValues != null) {
+            return new LeafBucketCollectorBase(sub, ords) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    final int ord = singleValues.getOrd(doc);
+                    if (ord >= 0) {
+                        segmentDocCounts.increment(ord, 1);
+                    }
+                }
+            };
+        }
+        return new LeafBucketCollectorBase(sub, ords) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                ords.setDocument(doc);
+                final int numOrds = ords.cardinality();
+                for (int i = 0; i < numOrds; i++) {
+                    segmentDocCounts.increment(ords.ordAt(i), 1);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the bucket ordinal of the given segment ordinal of the current segment, or a negative value if its term is excluded.
+     */
+    private long bucketOrd(long segmentOrd) {
+        long encoded = segmentToBucketOrds.get(segmentOrd);
+        if (encoded == 0) {
+            final BytesRef term = segmentOrds.lookupOrd(segmentOrd);
+            if (includeExclude != null && includeExclude.accept(term) == false) {
+                encoded = -1;
+            } else {
+                long bucketOrd = bucketOrds.add(term);
+                if (bucketOrd < 0) { // already seen in a previous segment
+                    bucketOrd = -1 - bucketOrd;
+                }
+                encoded = bucketOrd + 1;
+            }
+            segmentToBucketOrds.set(segmentOrd, encoded);
+        }
+        return encoded - 1;
+    }
+
+    private void finishSegment() {
+        if (segmentOrds == null) {
+            return;
+        }
+        final long valueCount = segmentOrds.getValueCount();
+        if (segmentDocCounts != null) {
+            for (long ord = 0; ord < valueCount; ord++) {
+                // reset the slot since counts are reused across segments
+                final int inc = segmentDocCounts.set(ord, 0);
+                if (inc == 0) {
+                    continue;
+                }
+                final long bucketOrd = bucketOrd(ord);
+                if (bucketOrd >= 0) {
+                    incrementBucketDocCount(bucketOrd, inc);
+                }
+            }
+        }
+        segmentToBucketOrds.fill(0, valueCount, 0);
+        segmentOrds = null;
+    }
+
+    @Override
+    protected void doPostCollection() {
+        finishSegment();
+    }
+
+    @Override
+    public void doClose() {
+        super.doClose();
+        Releasables.close(segmentDocCounts, segmentToBucketOrds);
+    }
+}
@@ -19,12 +19,14 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.AggregationStreams;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.BucketColumns;
 import org.elasticsearch.search.aggregations.bucket.BucketStreamContext;
 import org.elasticsearch.search.aggregations.bucket.BucketStreams;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -192,10 +194,19 @@ public class StringTerms extends InternalTerms<StringTerms, StringTerms.Bucket>
         this.otherDocCount = in.readVLong();
         int size = in.readVInt();
         List<InternalTerms.Bucket> buckets = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            Bucket bucket = new Bucket(showTermDocCountError);
-            bucket.readFrom(in);
-            buckets.add(bucket);
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            for (BytesRef term : BucketColumns.readTerms(size, in)) {
+                Bucket bucket = new Bucket(showTermDocCountError);
+                bucket.termBytes = term;
+                buckets.add(bucket);
+            }
+            readBucketColumns(buckets, in);
+        } else {
+            for (int i = 0; i < size; i++) {
+                Bucket bucket = new Bucket(showTermDocCountError);
+                bucket.readFrom(in);
+                buckets.add(bucket);
+            }
         }
         this.buckets = buckets;
         this.bucketMap = null;
@@ -211,8 +222,17 @@ public class StringTerms extends InternalTerms<StringTerms, StringTerms.Bucket>
         out.writeVLong(minDocCount);
         out.writeVLong(otherDocCount);
         out.writeVInt(buckets.size());
-        for (InternalTerms.Bucket bucket : buckets) {
-            bucket.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            BytesRef[] terms = new BytesRef[buckets.size()];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = ((Bucket) buckets.get(i)).termBytes;
+            }
+            BucketColumns.writeTerms(terms, out);
+            writeBucketColumns(out);
+        } else {
+            for (InternalTerms.Bucket bucket : buckets) {
+                bucket.writeTo(out);
+            }
         }
     }
 
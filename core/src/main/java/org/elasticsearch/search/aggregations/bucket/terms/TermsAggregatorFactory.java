@@ -19,6 +19,7 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.search.IndexSearcher;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
@@ -63,6 +64,26 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 return false;
             }
 
+        },
+        SEGMENT_ORDINALS(new ParseField("segment_ordinals")) {
+
+            @Override
+            Aggregator create(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
+                    TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude,
+                    AggregationContext aggregationContext, Aggregator parent, SubAggCollectionMode subAggCollectMode,
+                    boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
+                    throws IOException {
+                final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter();
+                return new SegmentOrdinalsStringTermsAggregator(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
+                        bucketCountThresholds, filter, aggregationContext, parent, subAggCollectMode, showTermDocCountError,
+                        pipelineAggregators, metaData);
+            }
+
+            @Override
+            boolean needsGlobalOrdinals() {
+                return false;
+            }
+
         },
         GLOBAL_ORDINALS(new ParseField("global_ordinals")) {
 
@@ -161,13 +182,14 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
     private final Terms.Order order;
     private final IncludeExclude includeExclude;
     private final String executionHint;
+    @Nullable
     private final SubAggCollectionMode collectMode;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private final boolean showTermDocCountError;
 
     public TermsAggregatorFactory(String name, ValuesSourceConfig config, Terms.Order order,
             TermsAggregator.BucketCountThresholds bucketCountThresholds, IncludeExclude includeExclude, String executionHint,
-            SubAggCollectionMode executionMode, boolean showTermDocCountError) {
+            @Nullable SubAggCollectionMode executionMode, boolean showTermDocCountError) {
         super(name, StringTerms.TYPE.name(), config);
         this.order = order;
         this.includeExclude = includeExclude;
@@ -177,6 +199,40 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         this.showTermDocCountError = showTermDocCountError;
     }
 
+    /**
+     * Return the collection mode to use for sub aggregations, which is picked based on the estimated number of terms
+     * when it has not been set explicitly.
+     *
+     * @param maxOrd the number of unique terms of the field, or <tt>-1</tt> if unknown
+     */
+    private SubAggCollectionMode collectMode(long maxOrd) {
+        if (collectMode != null) {
+            return collectMode;
+        }
+        if (factories == AggregatorFactories.EMPTY) {
+            // nothing to defer
+            return SubAggCollectionMode.DEPTH_FIRST;
+        }
+        return subAggCollectionMode(bucketCountThresholds.getShardSize(), maxOrd);
+    }
+
+    /**
+     * Every term creates a set of child buckets when collecting depth first, while breadth first only computes
+     * child aggregations for the <code>shardSize</code> terms that are returned. Breadth first is picked when the
+     * terms that would be pruned are likely to outnumber the terms that are returned, either because the field has
+     * more unique terms than <code>shardSize</code> or because the number of unique terms is unknown.
+     */
+    static SubAggCollectionMode subAggCollectionMode(int shardSize, long maxOrd) {
+        if (shardSize == Integer.MAX_VALUE) {
+            // all terms are returned so nothing would be pruned
+            return SubAggCollectionMode.DEPTH_FIRST;
+        }
+        if (maxOrd == -1 || maxOrd > shardSize) {
+            return SubAggCollectionMode.BREADTH_FIRST;
+        }
+        return SubAggCollectionMode.DEPTH_FIRST;
+    }
+
     @Override
     protected Aggregator createUnmapped(AggregationContext aggregationContext, Aggregator parent,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -248,7 +304,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             }
 
             return execution.create(name, factories, valuesSource, order, bucketCountThresholds, includeExclude, aggregationContext,
-                    parent, collectMode, showTermDocCountError, pipelineAggregators, metaData);
+                    parent, collectMode(maxOrd), showTermDocCountError, pipelineAggregators, metaData);
         }
 
         if ((includeExclude != null) && (includeExclude.isRegexBased())) {
@@ -266,14 +322,14 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                     longFilter = includeExclude.convertToDoubleFilter();
                 }
                 return new DoubleTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                        bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter,
+                        bucketCountThresholds, aggregationContext, parent, collectMode(-1), showTermDocCountError, longFilter,
                         pipelineAggregators, metaData);
             }
             if (includeExclude != null) {
                 longFilter = includeExclude.convertToLongFilter();
             }
             return new LongTermsAggregator(name, factories, (ValuesSource.Numeric) valuesSource, config.format(), order,
-                    bucketCountThresholds, aggregationContext, parent, collectMode, showTermDocCountError, longFilter, pipelineAggregators,
+                    bucketCountThresholds, aggregationContext, parent, collectMode(-1), showTermDocCountError, longFilter, pipelineAggregators,
                     metaData);
         }
 
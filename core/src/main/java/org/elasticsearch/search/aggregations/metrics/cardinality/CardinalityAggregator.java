@@ -24,8 +24,10 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomAccessOrds;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
@@ -61,6 +63,9 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
     private HyperLogLogPlusPlus counts;
 
     private Collector collector;
+    // only set when the hashes of global ordinals are cached and can be used for all segments
+    @Nullable
+    private GlobalOrdinalsCollector globalOrdinalsCollector;
     private ValueFormatter formatter;
 
     public CardinalityAggregator(String name, ValuesSource valuesSource, int precision, ValueFormatter formatter,
@@ -70,6 +75,9 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
         this.precision = precision;
         this.counts = valuesSource == null ? null : new HyperLogLogPlusPlus(precision, context.bigArrays(), 1);
         this.formatter = formatter;
+        if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals) {
+            this.globalOrdinalsCollector = pickGlobalOrdinalsCollector((ValuesSource.Bytes.WithOrdinals) valuesSource);
+        }
     }
 
     @Override
@@ -77,6 +85,24 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
         return valuesSource != null && valuesSource.needsScores();
     }
 
+    private GlobalOrdinalsCollector pickGlobalOrdinalsCollector(ValuesSource.Bytes.WithOrdinals source) {
+        final IndexSearcher searcher = context.searchContext().searcher();
+        // the sum of the number of terms of each segment is an upper bound of the number of global ordinals, use it
+        // to avoid building global ordinals for fields that have too many terms for ordinals to be worth it
+        long maxOrdUpperBound = 0;
+        for (LeafReaderContext ctx : searcher.getIndexReader().leaves()) {
+            maxOrdUpperBound += source.ordinalsValues(ctx).getValueCount();
+        }
+        if (maxOrdUpperBound == 0 || OrdinalsCollector.memoryOverhead(maxOrdUpperBound) >= HyperLogLogPlusPlus.memoryUsage(precision) / 4) {
+            return null;
+        }
+        final LongValues hashes = source.globalOrdinalsHashes(searcher);
+        if (hashes == null) {
+            return null;
+        }
+        return new GlobalOrdinalsCollector(counts, hashes, source.globalMaxOrd(searcher), context.bigArrays());
+    }
+
     private Collector pickCollector(LeafReaderContext ctx) throws IOException {
         if (valuesSource == null) {
             return new EmptyCollector();
@@ -112,6 +138,10 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
             final LeafBucketCollector sub) throws IOException {
         postCollectLastCollector();
 
+        if (globalOrdinalsCollector != null) {
+            globalOrdinalsCollector.setValues(((ValuesSource.Bytes.WithOrdinals) valuesSource).globalOrdinalsValues(ctx));
+            return globalOrdinalsCollector;
+        }
         collector = pickCollector(ctx);
         return collector;
     }
@@ -130,6 +160,9 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
     @Override
     protected void doPostCollection() {
         postCollectLastCollector();
+        if (globalOrdinalsCollector != null) {
+            globalOrdinalsCollector.postCollect();
+        }
     }
 
     @Override
@@ -156,7 +189,7 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
 
     @Override
     protected void doClose() {
-        Releasables.close(counts, collector);
+        Releasables.close(counts, collector, globalOrdinalsCollector);
     }
 
     private static abstract class Collector extends LeafBucketCollector implements Releasable {
@@ -293,6 +326,69 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
 
     }
 
+    /**
+     * Collects global ordinals for all segments and only adds the hashes of the visited ordinals to the counts once
+     * collection is over. Hashes are looked up from the cache of the global ordinals instead of being computed again
+     * on every request.
+     */
+    private static class GlobalOrdinalsCollector extends Collector {
+
+        private final BigArrays bigArrays;
+        private final LongValues hashes;
+        private final int maxOrd;
+        private final HyperLogLogPlusPlus counts;
+        private ObjectArray<FixedBitSet> visitedOrds;
+        private RandomAccessOrds values;
+
+        GlobalOrdinalsCollector(HyperLogLogPlusPlus counts, LongValues hashes, long maxOrd, BigArrays bigArrays) {
+            if (maxOrd > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException();
+            }
+            this.maxOrd = (int) maxOrd;
+            this.bigArrays = bigArrays;
+            this.counts = counts;
+            this.hashes = hashes;
+            visitedOrds = bigArrays.newObjectArray(1);
+        }
+
+        void setValues(RandomAccessOrds values) {
+            this.values = values;
+        }
+
+        @Override
+        public void collect(int doc, long bucketOrd) {
+            visitedOrds = bigArrays.grow(visitedOrds, bucketOrd + 1);
+            FixedBitSet bits = visitedOrds.get(bucketOrd);
+            if (bits == null) {
+                bits = new FixedBitSet(maxOrd);
+                visitedOrds.set(bucketOrd, bits);
+            }
+            values.setDocument(doc);
+            final int valueCount = values.cardinality();
+            for (int i = 0; i < valueCount; ++i) {
+                bits.set((int) values.ordAt(i));
+            }
+        }
+
+        @Override
+        public void postCollect() {
+            for (long bucket = visitedOrds.size() - 1; bucket >= 0; --bucket) {
+                final FixedBitSet bits = visitedOrds.get(bucket);
+                if (bits != null) {
+                    for (int ord = bits.nextSetBit(0); ord < DocIdSetIterator.NO_MORE_DOCS; ord = ord + 1 < maxOrd ? bits.nextSetBit(ord + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+                        counts.collect(bucket, hashes.get(ord));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(visitedOrds);
+        }
+
+    }
+
     /**
      * Representation of a list of hash values. There might be dups and there is no guarantee on the order.
      */
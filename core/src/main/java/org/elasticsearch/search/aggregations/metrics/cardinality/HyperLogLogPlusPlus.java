@@ -19,22 +19,21 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.ObjectArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Hyperloglog++ counter, implemented based on pseudo code from
@@ -47,6 +46,11 @@ import java.nio.ByteOrder;
  * requires more space and makes hyperloglog (which is less accurate) used sooner,
  * this is also considerably faster.
  *
+ * Memory is only allocated for what buckets actually use: hash tables for linear
+ * counting start small and grow with the number of distinct values, and the
+ * <code>2^precision</code> registers of a bucket are only allocated once its hash
+ * table would become larger than them.
+ *
  * Trying to understand what this class does whithout having read the paper is
  * considered adventurous.
  */
@@ -58,6 +62,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private static final boolean LINEAR_COUNTING = false;
     private static final boolean HYPERLOGLOG = true;
     private static final float MAX_LOAD_FACTOR = 0.75f;
+    private static final int INITIAL_HASHSET_CAPACITY = 16;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
 
@@ -74,7 +79,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     /**
-     * Return the expected per-bucket memory usage for the given precision.
+     * Return the maximum per-bucket memory usage for the given precision.
      */
     public static long memoryUsage(int precision) {
         return 1L << precision;
@@ -153,6 +158,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private final BigArrays bigArrays;
     private final OpenBitSet algorithm;
+    // maps a bucket to 1 + the slot of its registers in runLens, 0 if the bucket is still using linear counting
+    private LongArray hllSlots;
+    private long numHllSlots;
     private ByteArray runLens;
     private final Hashset hashSet;
     private final int p, m;
@@ -169,7 +177,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
         m = 1 << p;
         this.bigArrays = bigArrays;
         algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
+        hllSlots = bigArrays.newLongArray(initialBucketCount);
+        // registers are only allocated for the buckets that get upgraded to hyperloglog
+        runLens = bigArrays.newByteArray(0);
         hashSet = new Hashset(initialBucketCount);
         final double alpha;
         switch (p) {
@@ -191,11 +201,21 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return hllSlots.size();
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        hllSlots = bigArrays.grow(hllSlots, numBuckets);
+        hashSet.ensureCapacity(numBuckets);
+    }
+
+    /**
+     * Return the offset of the first register of <code>bucket</code> in <code>runLens</code>.
+     */
+    private long registersStart(long bucket) {
+        final long slot = hllSlots.get(bucket) - 1;
+        assert slot >= 0;
+        return slot << p;
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -204,25 +224,26 @@ public final class HyperLogLogPlusPlus implements Releasable {
         }
         ensureCapacity(thisBucket + 1);
         if (other.algorithm.get(otherBucket) == LINEAR_COUNTING) {
-            final IntArray values = other.hashSet.values(otherBucket);
-            try {
-                for (long i = 0; i < values.size(); ++i) {
-                    final int encoded = values.get(i);
+            final IntArray table = other.hashSet.table(otherBucket);
+            if (table != null) {
+                for (long i = 0; i < table.size(); ++i) {
+                    final int encoded = table.get(i);
+                    if (encoded == 0) {
+                        continue;
+                    }
                     if (algorithm.get(thisBucket) == LINEAR_COUNTING) {
                         collectLcEncoded(thisBucket, encoded);
                     } else {
                         collectHllEncoded(thisBucket, encoded);
                     }
                 }
-            } finally {
-                Releasables.close(values);
             }
         } else {
             if (algorithm.get(thisBucket) != HYPERLOGLOG) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final long thisStart = registersStart(thisBucket);
+            final long otherStart = other.registersStart(otherBucket);
             for (int i = 0; i < m; ++i) {
                 runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
             }
@@ -263,7 +284,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
+        final long bucketIndex = registersStart(bucket) + index;
         runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
     }
 
@@ -284,7 +305,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private long cardinalityHll(long bucket) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
+        for (long i = registersStart(bucket), end = i + m; i < end; ++i) {
             final int runLen = runLens.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
@@ -307,18 +328,24 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     void upgradeToHll(long bucket) {
+        assert algorithm.get(bucket) == LINEAR_COUNTING;
         ensureCapacity(bucket + 1);
-        final IntArray values = hashSet.values(bucket);
-        try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
-            for (long i = 0; i < values.size(); ++i) {
-                final int encoded = values.get(i);
-                collectHllEncoded(bucket, encoded);
+        final long slot = numHllSlots++;
+        runLens = bigArrays.grow(runLens, (slot + 1) << p);
+        runLens.fill(slot << p, (slot + 1) << p, (byte) 0);
+        hllSlots.set(bucket, slot + 1);
+        final IntArray table = hashSet.table(bucket);
+        if (table != null) {
+            for (long i = 0; i < table.size(); ++i) {
+                final int encoded = table.get(i);
+                if (encoded != 0) {
+                    collectHllEncoded(bucket, encoded);
+                }
             }
-            algorithm.set(bucket);
-        } finally {
-            Releasables.close(values);
         }
+        // the hash table is not needed anymore, give its memory back
+        hashSet.clear(bucket);
+        algorithm.set(bucket);
     }
 
     static long linearCounting(long m, long v) {
@@ -418,51 +445,52 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        Releasables.close(runLens, hllSlots, hashSet);
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set
-     * for linear counting.
+     * Hash sets of encoded hashes for linear counting, one per bucket. Tables start small and double in size as
+     * they fill up so that buckets that only collected a few values only use a few bytes. The largest table uses
+     * as much memory as the registers of a bucket, which is when we upgrade to hyperloglog.
      */
-    private class Hashset {
+    private class Hashset implements Releasable {
 
-        private final int capacity;
+        private final int maxCapacity;
         private final int threshold;
-        private final int mask;
+        private ObjectArray<IntArray> tables;
         private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
 
         public Hashset(long initialBucketCount) {
-            capacity = m / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
+            maxCapacity = m / 4; // because ints take 4 bytes
+            threshold = (int) (maxCapacity * MAX_LOAD_FACTOR);
+            tables = bigArrays.newObjectArray(initialBucketCount);
             sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
-        }
-
-        private long index (long bucket, int index) {
-            return (bucket << p) + (index << 2);
         }
 
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
+        void ensureCapacity(long numBuckets) {
+            tables = bigArrays.grow(tables, numBuckets);
+            sizes = bigArrays.grow(sizes, numBuckets);
         }
 
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
+        /**
+         * Return the hash table of <code>bucket</code>, where unused slots are <tt>0</tt>, or <tt>null</tt> if
+         * nothing was added to this bucket.
+         */
+        public IntArray table(long bucket) {
+            if (bucket >= tables.size()) {
+                return null;
+            }
+            return tables.get(bucket);
         }
 
         private int recomputedSize(long bucket) {
+            final IntArray table = table(bucket);
             int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
-                    ++size;
+            if (table != null) {
+                for (long i = 0; i < table.size(); ++i) {
+                    if (table.get(i) != 0) {
+                        ++size;
+                    }
                 }
             }
             return size;
@@ -482,36 +510,68 @@ public final class HyperLogLogPlusPlus implements Releasable {
          * Return <tt>-1</tt> if the value was already in the set or the new set size if it was added.
          */
         public int add(long bucket, int k) {
-            sizes = bigArrays.grow(sizes, bucket + 1);
             assert k != 0;
-            for (int i = (k & mask); ; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
+            IntArray table = tables.get(bucket);
+            if (table == null) {
+                table = bigArrays.newIntArray(Math.min(INITIAL_HASHSET_CAPACITY, maxCapacity));
+                tables.set(bucket, table);
+            } else if (sizes.get(bucket) + 1 > table.size() * MAX_LOAD_FACTOR && table.size() < maxCapacity) {
+                table = grow(bucket, table);
+            }
+            if (add(table, k)) {
+                return sizes.increment(bucket, 1);
+            } else {
+                return -1;
+            }
+        }
+
+        private boolean add(IntArray table, int k) {
+            final long mask = table.size() - 1;
+            for (long i = (k & mask); ; i = (i + 1) & mask) {
+                final int v = table.get(i);
                 if (v == 0) {
                     // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
+                    table.set(i, k);
+                    return true;
                 } else if (v == k) {
                     // k is already in the set
-                    return -1;
+                    return false;
                 }
             }
         }
 
-        public IntArray values(final long bucket) {
-            final int size = size(bucket);
-            final IntArray values = bigArrays.newIntArray(size);
-            if (size == 0) {
-                return values;
-            }
-            int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
-                if (k != 0) {
-                    values.set(i++, k);
+        private IntArray grow(long bucket, IntArray table) {
+            final IntArray newTable = bigArrays.newIntArray(table.size() << 1);
+            try {
+                for (long i = 0; i < table.size(); ++i) {
+                    final int k = table.get(i);
+                    if (k != 0) {
+                        add(newTable, k);
+                    }
                 }
+            } finally {
+                Releasables.close(table);
+            }
+            tables.set(bucket, newTable);
+            return newTable;
+        }
+
+        /**
+         * Release the hash table of <code>bucket</code>.
+         */
+        public void clear(long bucket) {
+            if (bucket < tables.size()) {
+                Releasables.close(tables.set(bucket, null));
+                sizes.set(bucket, 0);
+            }
+        }
+
+        @Override
+        public void close() {
+            for (long i = 0; i < tables.size(); ++i) {
+                Releasables.close(tables.get(i));
             }
-            assert i == values.size();
-            return values;
+            Releasables.close(tables, sizes);
         }
 
     }
@@ -520,15 +580,42 @@ public final class HyperLogLogPlusPlus implements Releasable {
         out.writeVInt(p);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
-            try (IntArray hashes = hashSet.values(bucket)) {
-                out.writeVLong(hashes.size());
-                for (long i = 0; i < hashes.size(); ++i) {
-                    out.writeInt(hashes.get(i));
+            out.writeVLong(hashSet.size(bucket));
+            final IntArray table = hashSet.table(bucket);
+            if (table != null) {
+                for (long i = 0; i < table.size(); ++i) {
+                    final int encoded = table.get(i);
+                    if (encoded != 0) {
+                        out.writeInt(encoded);
+                    }
                 }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
+            final long start = registersStart(bucket);
+            if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+                int nonZero = 0;
+                for (long i = start, end = start + m; i < end; ++i) {
+                    if (runLens.get(i) != 0) {
+                        ++nonZero;
+                    }
+                }
+                out.writeVInt(nonZero);
+                if (nonZero < m / 4) {
+                    // sparse registers: deltas between indices of non-zero registers, followed by their values
+                    int previous = 0;
+                    for (int i = 0; i < m; ++i) {
+                        final byte runLen = runLens.get(start + i);
+                        if (runLen != 0) {
+                            out.writeVInt(i - previous);
+                            out.writeByte(runLen);
+                            previous = i;
+                        }
+                    }
+                    return;
+                }
+            }
+            for (long i = start, end = start + m; i < end; ++i) {
                 out.writeByte(runLens.get(i));
             }
         }
@@ -543,12 +630,24 @@ public final class HyperLogLogPlusPlus implements Releasable {
             final long size = in.readVLong();
             for (long i = 0; i < size; ++i) {
                 final int encoded = in.readInt();
-                counts.hashSet.add(0, encoded);
+                counts.collectLcEncoded(0, encoded);
             }
         } else {
-            counts.algorithm.set(0);
+            counts.upgradeToHll(0);
+            final long start = counts.registersStart(0);
+            if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+                final int nonZero = in.readVInt();
+                if (nonZero < counts.m / 4) {
+                    int index = 0;
+                    for (int i = 0; i < nonZero; ++i) {
+                        index += in.readVInt();
+                        counts.runLens.set(start + index, in.readByte());
+                    }
+                    return counts;
+                }
+            }
             for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+                counts.runLens.set(start + i, in.readByte());
             }
         }
         return counts;
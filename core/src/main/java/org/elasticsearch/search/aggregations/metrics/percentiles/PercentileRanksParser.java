@@ -19,11 +19,13 @@
 package org.elasticsearch.search.aggregations.metrics.percentiles;
 
 import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.search.SearchParseException;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
 import org.elasticsearch.search.aggregations.metrics.percentiles.hdr.HDRPercentileRanksAggregator;
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentileRanks;
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestPercentileRanksAggregator;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestSketchCache;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.internal.SearchContext;
@@ -35,8 +37,12 @@ public class PercentileRanksParser extends AbstractPercentilesParser {
 
     public static final ParseField VALUES_FIELD = new ParseField("values");
 
-    public PercentileRanksParser() {
+    private final TDigestSketchCache sketchCache;
+
+    @Inject
+    public PercentileRanksParser(TDigestSketchCache sketchCache) {
         super(false);
+        this.sketchCache = sketchCache;
     }
 
     @Override
@@ -56,7 +62,8 @@ public class PercentileRanksParser extends AbstractPercentilesParser {
             throw new SearchParseException(context, "Missing token values in [" + aggregationName + "].", null);
         }
         if (method == PercentilesMethod.TDIGEST) {
-            return new TDigestPercentileRanksAggregator.Factory(aggregationName, valuesSourceConfig, keys, compression, keyed);
+            return new TDigestPercentileRanksAggregator.Factory(aggregationName, valuesSourceConfig, keys, compression, keyed,
+                    sketchCache);
         } else if (method == PercentilesMethod.HDR) {
             return new HDRPercentileRanksAggregator.Factory(aggregationName, valuesSourceConfig, keys, numberOfSignificantValueDigits,
                     keyed);
@@ -19,10 +19,12 @@
 package org.elasticsearch.search.aggregations.metrics.percentiles;
 
 import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
 import org.elasticsearch.search.aggregations.metrics.percentiles.hdr.HDRPercentilesAggregator;
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentiles;
 import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestPercentilesAggregator;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestSketchCache;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.internal.SearchContext;
@@ -34,8 +36,12 @@ public class PercentilesParser extends AbstractPercentilesParser {
 
     public static final ParseField PERCENTS_FIELD = new ParseField("percents");
 
-    public PercentilesParser() {
+    private final TDigestSketchCache sketchCache;
+
+    @Inject
+    public PercentilesParser(TDigestSketchCache sketchCache) {
         super(true);
+        this.sketchCache = sketchCache;
     }
 
     private final static double[] DEFAULT_PERCENTS = new double[] { 1, 5, 25, 50, 75, 95, 99 };
@@ -57,7 +63,8 @@ public class PercentilesParser extends AbstractPercentilesParser {
             keys = DEFAULT_PERCENTS;
         }
         if (method == PercentilesMethod.TDIGEST) {
-            return new TDigestPercentilesAggregator.Factory(aggregationName, valuesSourceConfig, keys, compression, keyed);
+            return new TDigestPercentilesAggregator.Factory(aggregationName, valuesSourceConfig, keys, compression, keyed,
+                    sketchCache);
         } else if (method == PercentilesMethod.HDR) {
             return new HDRPercentilesAggregator.Factory(aggregationName, valuesSourceConfig, keys, numberOfSignificantValueDigits, keyed);
         } else {
@@ -20,9 +20,11 @@
 package org.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.ArrayUtils;
-import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -32,6 +34,7 @@ import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
 
 import java.io.IOException;
@@ -51,9 +54,20 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
     protected final double compression;
     protected final boolean keyed;
 
+    private final TDigestSketchCache sketchCache;
+    private final String field;
+    /** The filter that the query applies on top of matching all documents, <code>null</code> if sketches can't be used */
+    private final Query sketchFilterQuery;
+    private final Weight sketchFilter;
+
+    /**
+     * @param sketchCache the cache of per-segment sketches, or <code>null</code> to always add values one by one
+     * @param field       the name of the field that the values come straight from, or <code>null</code> if they don't,
+     *                    in which case per-segment sketches are not used
+     */
     public AbstractTDigestPercentilesAggregator(String name, ValuesSource.Numeric valuesSource, AggregationContext context, Aggregator parent,
-            double[] keys, double compression, boolean keyed, ValueFormatter formatter,
-            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            double[] keys, double compression, boolean keyed, ValueFormatter formatter, @Nullable TDigestSketchCache sketchCache,
+            @Nullable String field, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         super(name, context, parent, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
         this.keyed = keyed;
@@ -61,6 +75,30 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
         this.states = context.bigArrays().newObjectArray(1);
         this.keys = keys;
         this.compression = compression;
+        this.sketchCache = sketchCache;
+        this.field = field;
+        // a top-level aggregation over a query that matches all documents of a segment sees all values of that segment
+        if (sketchCache != null && field != null && valuesSource != null && parent == null) {
+            this.sketchFilterQuery = context.matchAllFilter();
+        } else {
+            this.sketchFilterQuery = null;
+        }
+        if (sketchFilterQuery != null) {
+            this.sketchFilter = context.searchContext().searcher().createNormalizedWeight(sketchFilterQuery, false);
+        } else {
+            this.sketchFilter = null;
+        }
+    }
+
+    /**
+     * Returns the name of the field that the values of the given config come straight from, or <code>null</code> if they are
+     * produced by a script or replaced when missing.
+     */
+    static String sketchField(ValuesSourceConfig<ValuesSource.Numeric> config) {
+        if (config.fieldContext() == null || config.script() != null || config.missing() != null) {
+            return null;
+        }
+        return config.fieldContext().field();
     }
 
     @Override
@@ -74,19 +112,21 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
-        final BigArrays bigArrays = context.bigArrays();
+        if (sketchFilter != null) {
+            final TDigestState sketch = sketchCache.getOrLoad(ctx, field, compression, sketchFilterQuery, sketchFilter, valuesSource);
+            if (sketch != null) {
+                // the sketch holds the values of all documents of this segment that this aggregation would collect
+                if (sketch.size() > 0) {
+                    getOrCreateState(0).add(sketch);
+                }
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                states = bigArrays.grow(states, bucket + 1);
-
-                TDigestState state = states.get(bucket);
-                if (state == null) {
-                    state = new TDigestState(compression);
-                    states.set(bucket, state);
-                }
-
+                final TDigestState state = getOrCreateState(bucket);
                 values.setDocument(doc);
                 final int valueCount = values.count();
                 for (int i = 0; i < valueCount; i++) {
@@ -96,6 +136,16 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
         };
     }
 
+    private TDigestState getOrCreateState(long bucket) {
+        states = context.bigArrays().grow(states, bucket + 1);
+        TDigestState state = states.get(bucket);
+        if (state == null) {
+            state = new TDigestState(compression);
+            states.set(bucket, state);
+        }
+        return state;
+    }
+
     @Override
     public boolean hasMetric(String name) {
         return indexOfKey(keys, Double.parseDouble(name)) >= 0;
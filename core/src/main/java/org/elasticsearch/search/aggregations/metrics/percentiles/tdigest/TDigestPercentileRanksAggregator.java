@@ -38,10 +38,11 @@ import java.util.Map;
 public class TDigestPercentileRanksAggregator extends AbstractTDigestPercentilesAggregator {
 
     public TDigestPercentileRanksAggregator(String name, Numeric valuesSource, AggregationContext context, Aggregator parent, double[] percents,
-            double compression, boolean keyed, ValueFormatter formatter, List<PipelineAggregator> pipelineAggregators,
-            Map<String, Object> metaData)
+            double compression, boolean keyed, ValueFormatter formatter, TDigestSketchCache sketchCache, String field,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
-        super(name, valuesSource, context, parent, percents, compression, keyed, formatter, pipelineAggregators, metaData);
+        super(name, valuesSource, context, parent, percents, compression, keyed, formatter, sketchCache, field, pipelineAggregators,
+                metaData);
     }
 
     @Override
@@ -74,20 +75,22 @@ public class TDigestPercentileRanksAggregator extends AbstractTDigestPercentiles
         private final double[] values;
         private final double compression;
         private final boolean keyed;
+        private final TDigestSketchCache sketchCache;
 
         public Factory(String name, ValuesSourceConfig<ValuesSource.Numeric> valuesSourceConfig,
-                double[] values, double compression, boolean keyed) {
+                double[] values, double compression, boolean keyed, TDigestSketchCache sketchCache) {
             super(name, InternalTDigestPercentiles.TYPE.name(), valuesSourceConfig);
             this.values = values;
             this.compression = compression;
             this.keyed = keyed;
+            this.sketchCache = sketchCache;
         }
 
         @Override
         protected Aggregator createUnmapped(AggregationContext aggregationContext, Aggregator parent,
                 List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
             return new TDigestPercentileRanksAggregator(name, null, aggregationContext, parent, values, compression, keyed, config.formatter(),
-                    pipelineAggregators, metaData);
+                    sketchCache, null, pipelineAggregators, metaData);
         }
 
         @Override
@@ -95,7 +98,7 @@ public class TDigestPercentileRanksAggregator extends AbstractTDigestPercentiles
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
                 throws IOException {
             return new TDigestPercentileRanksAggregator(name, valuesSource, aggregationContext, parent, values, compression, keyed,
-                    config.formatter(), pipelineAggregators, metaData);
+                    config.formatter(), sketchCache, sketchField(config), pipelineAggregators, metaData);
         }
     }
 }
@@ -39,9 +39,11 @@ public class TDigestPercentilesAggregator extends AbstractTDigestPercentilesAggr
 
     public TDigestPercentilesAggregator(String name, Numeric valuesSource, AggregationContext context,
             Aggregator parent, double[] percents,
-            double compression, boolean keyed, ValueFormatter formatter, List<PipelineAggregator> pipelineAggregators,
+            double compression, boolean keyed, ValueFormatter formatter, TDigestSketchCache sketchCache,
+            String field, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
-        super(name, valuesSource, context, parent, percents, compression, keyed, formatter, pipelineAggregators, metaData);
+        super(name, valuesSource, context, parent, percents, compression, keyed, formatter, sketchCache, field,
+                pipelineAggregators, metaData);
     }
 
     @Override
@@ -74,20 +76,22 @@ public class TDigestPercentilesAggregator extends AbstractTDigestPercentilesAggr
         private final double[] percents;
         private final double compression;
         private final boolean keyed;
+        private final TDigestSketchCache sketchCache;
 
         public Factory(String name, ValuesSourceConfig<ValuesSource.Numeric> valuesSourceConfig,
-                double[] percents, double compression, boolean keyed) {
+                double[] percents, double compression, boolean keyed, TDigestSketchCache sketchCache) {
             super(name, InternalTDigestPercentiles.TYPE.name(), valuesSourceConfig);
             this.percents = percents;
             this.compression = compression;
             this.keyed = keyed;
+            this.sketchCache = sketchCache;
         }
 
         @Override
         protected Aggregator createUnmapped(AggregationContext aggregationContext, Aggregator parent,
                 List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
             return new TDigestPercentilesAggregator(name, null, aggregationContext, parent, percents, compression, keyed, config.formatter(),
-                    pipelineAggregators, metaData);
+                    sketchCache, null, pipelineAggregators, metaData);
         }
 
         @Override
@@ -95,7 +99,7 @@ public class TDigestPercentilesAggregator extends AbstractTDigestPercentilesAggr
                 boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
                 throws IOException {
             return new TDigestPercentilesAggregator(name, valuesSource, aggregationContext, parent, percents, compression, keyed,
-                    config.formatter(), pipelineAggregators, metaData);
+                    config.formatter(), sketchCache, sketchField(config), pipelineAggregators, metaData);
         }
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Node level cache of the t-digest sketches of the values of numeric fields per segment. Segments are immutable, so when the
+ * query of a percentiles aggregation matches all documents of a segment, the cached sketch of the segment can be merged
+ * instead of adding every value of the segment again. Only segments without deleted documents are cached. Sketches are
+ * evicted when the cache is full and dropped when their segment is closed.
+ */
+public class TDigestSketchCache extends AbstractComponent implements LeafReader.CoreClosedListener {
+
+    public static final String SKETCH_CACHE_SIZE = "search.aggregations.percentiles.sketch_cache.size";
+
+    /** Estimated memory of a cache entry besides the sketch */
+    private static final long BYTES_PER_ENTRY = 3 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+            + 4 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_DOUBLE;
+
+    /** <code>null</code> if the cache is disabled */
+    private final Cache<Key, TDigestState> cache;
+
+    @Inject
+    public TDigestSketchCache(Settings settings) {
+        super(settings);
+        final ByteSizeValue size = MemorySizeValue.parseBytesSizeValueOrHeapRatio(settings.get(SKETCH_CACHE_SIZE, "1%"),
+                SKETCH_CACHE_SIZE);
+        logger.debug("using percentiles sketch cache with size [{}]", size);
+        if (size.bytes() > 0) {
+            cache = CacheBuilder.<Key, TDigestState>builder()
+                    .setMaximumWeight(size.bytes())
+                    .weigher((key, sketch) -> BYTES_PER_ENTRY + sketch.byteSize())
+                    .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Returns the sketch of the values of the documents of the segment that match <code>filter</code>, loading it if it is
+     * not cached yet. The returned sketch is shared and must not be modified. Returns <code>null</code> if the sketch of this
+     * segment can't be cached, the values then need to be added one by one.
+     *
+     * @param field         the name of the field that the values source reads
+     * @param filterQuery   the query that <code>filter</code> was created from, part of the cache key
+     */
+    public TDigestState getOrLoad(LeafReaderContext ctx, String field, double compression, Query filterQuery, Weight filter,
+            ValuesSource.Numeric valuesSource) throws IOException {
+        final LeafReader reader = ctx.reader();
+        if (cache == null || reader.hasDeletions()) {
+            return null;
+        }
+        final Key key = new Key(reader.getCoreCacheKey(), field, compression, filterQuery);
+        TDigestState sketch = cache.get(key);
+        if (sketch != null) {
+            return sketch;
+        }
+        try {
+            return cache.computeIfAbsent(key, k -> {
+                reader.addCoreClosedListener(TDigestSketchCache.this);
+                return load(ctx, compression, filter, valuesSource);
+            });
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw ExceptionsHelper.convertToRuntime(cause);
+        }
+    }
+
+    private static TDigestState load(LeafReaderContext ctx, double compression, Weight filter, ValuesSource.Numeric valuesSource)
+            throws IOException {
+        final TDigestState sketch = new TDigestState(compression);
+        final Scorer scorer = filter.scorer(ctx);
+        if (scorer == null) {
+            return sketch;
+        }
+        final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final DocIdSetIterator iterator = scorer.iterator();
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            values.setDocument(doc);
+            final int valueCount = values.count();
+            for (int i = 0; i < valueCount; i++) {
+                sketch.add(values.valueAt(i));
+            }
+        }
+        return sketch;
+    }
+
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+        for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().coreCacheKey == ownerCoreCacheKey) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Returns the number of cached sketches. */
+    public int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    private static class Key {
+
+        final Object coreCacheKey;
+        final String field;
+        final double compression;
+        final Query filter;
+
+        Key(Object coreCacheKey, String field, double compression, Query filter) {
+            this.coreCacheKey = coreCacheKey;
+            this.field = field;
+            this.compression = compression;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return coreCacheKey == other.coreCacheKey
+                    && field.equals(other.field)
+                    && Double.compare(compression, other.compression) == 0
+                    && filter.equals(other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(coreCacheKey), field, compression, filter);
+        }
+    }
+}
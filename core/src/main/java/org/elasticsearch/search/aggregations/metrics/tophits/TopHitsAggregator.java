@@ -20,11 +20,13 @@
 package org.elasticsearch.search.aggregations.metrics.tophits;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
@@ -61,6 +63,12 @@ public class TopHitsAggregator extends MetricsAggregator {
     private static class TopDocsAndLeafCollector {
         final TopDocsCollector<?> topLevelCollector;
         LeafCollector leafCollector;
+        /** Number of docs collected in the current segment, or in total when sorting by doc id. */
+        int collected;
+        /** Whether the remaining docs of the current segment can't compete anymore. */
+        boolean terminated;
+        /** Number of matching docs that were not collected because the bucket terminated early. */
+        int skipped;
 
         TopDocsAndLeafCollector(TopDocsCollector<?> topLevelCollector) {
             this.topLevelCollector = topLevelCollector;
@@ -90,12 +98,42 @@ public class TopHitsAggregator extends MetricsAggregator {
         }
     }
 
+    /**
+     * Returns true if the sort is on ascending doc ids only, in which case a bucket
+     * whose queue is full can't collect competitive documents anymore.
+     */
+    private static boolean isSortedByDoc(Sort sort) {
+        SortField[] fields = sort.getSort();
+        return fields[0].getType() == SortField.Type.DOC && fields[0].getReverse() == false;
+    }
+
+    /**
+     * Returns true if buckets can stop collecting documents from this segment once
+     * they collected <code>topN</code> documents from it.
+     */
+    private boolean canTerminateEarly(LeafReaderContext ctx) {
+        Sort sort = subSearchContext.sort();
+        if (sort == null || sort.needsScores() || subSearchContext.trackScores()) {
+            return false;
+        }
+        return isSortedByDoc(sort) || SortingMergePolicy.isSorted(ctx.reader(), sort);
+    }
+
     @Override
     public LeafBucketCollector getLeafCollector(final LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
 
+        final boolean earlyTerminate = canTerminateEarly(ctx);
+        // docs of later segments have greater doc ids so a terminated bucket remains terminated
+        final boolean sortedByDoc = earlyTerminate && isSortedByDoc(subSearchContext.sort());
+        final int topN = topN();
+
         for (LongObjectPagedHashMap.Cursor<TopDocsAndLeafCollector> cursor : topDocsCollectors) {
             cursor.value.leafCollector = cursor.value.topLevelCollector.getLeafCollector(ctx);
+            if (sortedByDoc == false) {
+                cursor.value.collected = 0;
+                cursor.value.terminated = false;
+            }
         }
 
         return new LeafBucketCollectorBase(sub, null) {
@@ -116,21 +154,33 @@ public class TopHitsAggregator extends MetricsAggregator {
                 TopDocsAndLeafCollector collectors = topDocsCollectors.get(bucket);
                 if (collectors == null) {
                     Sort sort = subSearchContext.sort();
-                    int topN = subSearchContext.from() + subSearchContext.size();
-                    // In the QueryPhase we don't need this protection, because it is build into the IndexSearcher,
-                    // but here we create collectors ourselves and we need prevent OOM because of crazy an offset and size.
-                    topN = Math.min(topN, subSearchContext.searcher().getIndexReader().maxDoc());
                     TopDocsCollector<?> topLevelCollector = sort != null ? TopFieldCollector.create(sort, topN, true, subSearchContext.trackScores(), subSearchContext.trackScores()) : TopScoreDocCollector.create(topN);
                     collectors = new TopDocsAndLeafCollector(topLevelCollector);
                     collectors.leafCollector = collectors.topLevelCollector.getLeafCollector(ctx);
                     collectors.leafCollector.setScorer(scorer);
                     topDocsCollectors.put(bucket, collectors);
                 }
+                if (collectors.terminated) {
+                    if (collectors.skipped++ == 0) {
+                        context.onEarlyTermination();
+                    }
+                    return;
+                }
                 collectors.leafCollector.collect(docId);
+                if (earlyTerminate && ++collectors.collected >= topN) {
+                    collectors.terminated = true;
+                }
             }
         };
     }
 
+    private int topN() {
+        int topN = subSearchContext.from() + subSearchContext.size();
+        // In the QueryPhase we don't need this protection, because it is build into the IndexSearcher,
+        // but here we create collectors ourselves and we need prevent OOM because of crazy an offset and size.
+        return Math.min(topN, subSearchContext.searcher().getIndexReader().maxDoc());
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) {
         TopDocsAndLeafCollector topDocsCollector = topDocsCollectors.get(owningBucketOrdinal);
@@ -139,6 +189,8 @@ public class TopHitsAggregator extends MetricsAggregator {
             topHits = buildEmptyAggregation();
         } else {
             final TopDocs topDocs = topDocsCollector.topLevelCollector.topDocs();
+            // skipped docs still matched
+            topDocs.totalHits += topDocsCollector.skipped;
 
             subSearchContext.queryResult().topDocs(topDocs);
             int[] docIdsToLoad = new int[topDocs.scoreDocs.length];
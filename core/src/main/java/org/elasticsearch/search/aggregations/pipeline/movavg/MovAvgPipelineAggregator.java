@@ -37,6 +37,7 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorFactory;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorStreams;
 import org.elasticsearch.search.aggregations.pipeline.movavg.models.MovAvgModel;
 import org.elasticsearch.search.aggregations.pipeline.movavg.models.MovAvgModelStreams;
+import org.elasticsearch.search.aggregations.support.AggregationPath;
 import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
 import org.elasticsearch.search.aggregations.support.format.ValueFormatterStreams;
 import org.joda.time.DateTime;
@@ -101,7 +102,7 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
         InternalHistogram.Factory<? extends InternalHistogram.Bucket> factory = histo.getFactory();
 
         List newBuckets = new ArrayList<>();
-        EvictingQueue<Double> values = new EvictingQueue<>(this.window);
+        List<String> bucketsPath = AggregationPath.parse(bucketsPaths()[0]).getPathElementsAsStringList();
 
         long lastValidKey = 0;
         int lastValidPosition = 0;
@@ -110,11 +111,13 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
         // Do we need to fit the model parameters to the data?
         if (minimize) {
             assert (model.canBeMinimized());
-            model = minimize(buckets, histo, model);
+            model = minimize(buckets, histo, bucketsPath, model);
         }
 
+        MovAvgModel.Window values = model.newWindow(this.window);
+
         for (InternalHistogram.Bucket bucket : buckets) {
-            Double thisBucketValue = resolveBucketValue(histo, bucket, bucketsPaths()[0], gapPolicy);
+            Double thisBucketValue = resolveBucketValue(histo, bucket, bucketsPath, gapPolicy);
 
             // Default is to reuse existing bucket.  Simplifies the rest of the logic,
             // since we only change newBucket if we can add to it
@@ -124,7 +127,7 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
 
                 // Some models (e.g. HoltWinters) have certain preconditions that must be met
                 if (model.hasValue(values.size())) {
-                    double movavg = model.next(values);
+                    double movavg = values.next();
 
                     List<InternalAggregation> aggs = StreamSupport.stream(bucket.getAggregations().spliterator(), false).map((p) -> {
                         return (InternalAggregation) p;
@@ -159,7 +162,7 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
             keyed = buckets.get(0).getKeyed();
             formatter = buckets.get(0).getFormatter();
 
-            double[] predictions = model.predict(values, predict);
+            double[] predictions = model.predict(values.values(), predict);
             for (int i = 0; i < predictions.length; i++) {
 
                 List<InternalAggregation> aggs;
@@ -198,7 +201,8 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
         return factory.create(newBuckets, histo);
     }
 
-    private MovAvgModel minimize(List<? extends InternalHistogram.Bucket> buckets, InternalHistogram histo, MovAvgModel model) {
+    private MovAvgModel minimize(List<? extends InternalHistogram.Bucket> buckets, InternalHistogram histo, List<String> bucketsPath,
+            MovAvgModel model) {
 
         int counter = 0;
         EvictingQueue<Double> values = new EvictingQueue<>(this.window);
@@ -209,7 +213,7 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
         // We have to walk the iterator backwards because we don't know if/how many buckets are empty.
         while (iter.hasPrevious() && counter < window) {
 
-            Double thisBucketValue = resolveBucketValue(histo, iter.previous(), bucketsPaths()[0], gapPolicy);
+            Double thisBucketValue = resolveBucketValue(histo, iter.previous(), bucketsPath, gapPolicy);
 
             if (!(thisBucketValue == null || thisBucketValue.equals(Double.NaN))) {
                 test[window - counter - 1] = thisBucketValue;
@@ -231,7 +235,7 @@ public class MovAvgPipelineAggregator extends PipelineAggregator {
 
         while (iter.hasPrevious() && counter < window) {
 
-            Double thisBucketValue = resolveBucketValue(histo, iter.previous(), bucketsPaths()[0], gapPolicy);
+            Double thisBucketValue = resolveBucketValue(histo, iter.previous(), bucketsPath, gapPolicy);
 
             if (!(thisBucketValue == null || thisBucketValue.equals(Double.NaN))) {
                 train[window - counter - 1] = thisBucketValue;
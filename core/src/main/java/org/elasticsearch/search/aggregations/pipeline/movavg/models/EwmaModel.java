@@ -94,6 +94,43 @@ public class EwmaModel extends MovAvgModel {
         return avg;
     }
 
+    @Override
+    public Window newWindow(int size) {
+        // weight of the oldest value of a full window, which seeds the average
+        final double oldestWeight = Math.pow(1 - alpha, size - 1);
+        return new IncrementalWindow(size) {
+            private double avg = 0;
+            private boolean first = true;
+
+            @Override
+            protected void reset() {
+                avg = 0;
+                first = true;
+            }
+
+            @Override
+            protected void add(double value) {
+                if (first) {
+                    avg = value;
+                    first = false;
+                } else {
+                    avg = (value * alpha) + (avg * (1 - alpha));
+                }
+            }
+
+            @Override
+            protected void slide(double value, double evicted) {
+                // the value that now is the oldest one seeds the average in place of the evicted value
+                avg = ((avg + oldestWeight * (oldest() - evicted)) * (1 - alpha)) + (value * alpha);
+            }
+
+            @Override
+            public double next() {
+                return avg;
+            }
+        };
+    }
+
     public static final MovAvgModelStreams.Stream STREAM = new MovAvgModelStreams.Stream() {
         @Override
         public MovAvgModel readResult(StreamInput in) throws IOException {
@@ -82,6 +82,42 @@ public class LinearModel extends MovAvgModel {
         return avg / totalWeight;
     }
 
+    @Override
+    public Window newWindow(int size) {
+        return new IncrementalWindow(size) {
+            // the i-th oldest value of the window has a weight of i
+            private long count = 0;
+            private double sum = 0;
+            private double weightedSum = 0;
+
+            @Override
+            protected void reset() {
+                count = 0;
+                sum = 0;
+                weightedSum = 0;
+            }
+
+            @Override
+            protected void add(double value) {
+                count += 1;
+                sum += value;
+                weightedSum += value * count;
+            }
+
+            @Override
+            protected void slide(double value, double evicted) {
+                // every remaining value loses one unit of weight and the new value gets the highest weight
+                weightedSum += value * count - sum;
+                sum += value - evicted;
+            }
+
+            @Override
+            public double next() {
+                return weightedSum / (1 + count * (count + 1) / 2);
+            }
+        };
+    }
+
     public static final MovAvgModelStreams.Stream STREAM = new MovAvgModelStreams.Stream() {
         @Override
         public MovAvgModel readResult(StreamInput in) throws IOException {
@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations.pipeline.movavg.models;
 
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.collect.EvictingQueue;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
 import java.io.IOException;
@@ -72,6 +73,23 @@ public abstract class MovAvgModel {
      */
     public abstract <T extends Number> double next(Collection<T> values);
 
+    /**
+     * Returns a window of the last `size` values of a series that this model is evaluated over as the values are offered,
+     * one bucket at a time.  The default window calls {@link #next(Collection)} over all of its values on every step; models
+     * which can update their value as values enter and leave the window override this so that every step is constant-time.
+     *
+     * @param size  Maximum number of values in the window
+     * @return      Returns an empty window
+     */
+    public Window newWindow(int size) {
+        return new Window(size) {
+            @Override
+            public double next() {
+                return MovAvgModel.this.next(values());
+            }
+        };
+    }
+
     /**
      * Predicts the next `n` values in the series.
      *
@@ -123,6 +141,109 @@ public abstract class MovAvgModel {
      */
     public abstract MovAvgModel clone();
 
+    /**
+     * The last values of a series, over which a model computes the next value of the series
+     */
+    public abstract static class Window {
+
+        private final EvictingQueue<Double> values;
+        private final int maxSize;
+
+        protected Window(int maxSize) {
+            this.values = new EvictingQueue<>(maxSize);
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Adds a value to the window, evicting the oldest value if the window is full
+         */
+        public final void offer(double value) {
+            Double evicted = values.remainingCapacity() == 0 ? values.peek() : null;
+            values.offer(value);
+            onOffer(value, evicted);
+        }
+
+        /**
+         * Called once a value has been added to the window
+         *
+         * @param value     The value that was added
+         * @param evicted   The value that was evicted to make room for it, or null if the window was not full
+         */
+        protected void onOffer(double value, @Nullable Double evicted) {
+        }
+
+        /**
+         * Returns the next value in the series, as {@link MovAvgModel#next(Collection)} over the values of the window
+         */
+        public abstract double next();
+
+        /**
+         * Returns the values of the window, from oldest to newest
+         */
+        public final Collection<Double> values() {
+            return values;
+        }
+
+        public final int size() {
+            return values.size();
+        }
+
+        public final int maxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Returns the oldest value of the window
+         */
+        protected final double oldest() {
+            return values.peek();
+        }
+    }
+
+    /**
+     * A window which updates the state of the model as values enter and leave the window rather than walking
+     * all of its values on every step.  The state is rebuilt from the values of the window once every `maxSize`
+     * evictions so that rounding errors don't accumulate over long series.
+     */
+    protected abstract static class IncrementalWindow extends Window {
+
+        private int evictions = 0;
+
+        protected IncrementalWindow(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected final void onOffer(double value, @Nullable Double evicted) {
+            if (evicted == null) {
+                add(value);
+            } else if (++evictions >= maxSize()) {
+                evictions = 0;
+                reset();
+                for (double v : values()) {
+                    add(v);
+                }
+            } else {
+                slide(value, evicted);
+            }
+        }
+
+        /**
+         * Clears the state, as if the window was empty
+         */
+        protected abstract void reset();
+
+        /**
+         * Updates the state with a value that was added to a window that was not full
+         */
+        protected abstract void add(double value);
+
+        /**
+         * Updates the state with a value that was added to a full window, evicting its oldest value
+         */
+        protected abstract void slide(double value, double evicted);
+    }
+
     /**
      * Abstract class which also provides some concrete parsing functionality.
      */
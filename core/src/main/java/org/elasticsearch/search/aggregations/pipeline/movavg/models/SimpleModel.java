@@ -75,6 +75,33 @@ public class SimpleModel extends MovAvgModel {
         return avg / values.size();
     }
 
+    @Override
+    public Window newWindow(int size) {
+        return new IncrementalWindow(size) {
+            private double sum = 0;
+
+            @Override
+            protected void reset() {
+                sum = 0;
+            }
+
+            @Override
+            protected void add(double value) {
+                sum += value;
+            }
+
+            @Override
+            protected void slide(double value, double evicted) {
+                sum += value - evicted;
+            }
+
+            @Override
+            public double next() {
+                return sum / size();
+            }
+        };
+    }
+
     public static final MovAvgModelStreams.Stream STREAM = new MovAvgModelStreams.Stream() {
         @Override
         public MovAvgModel readResult(StreamInput in) throws IOException {
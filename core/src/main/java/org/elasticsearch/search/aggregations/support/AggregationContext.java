@@ -18,11 +18,15 @@
  */
 package org.elasticsearch.search.aggregations.support;
 
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.geo.GeoUtils;
+import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
@@ -43,6 +47,8 @@ public class AggregationContext {
 
     private final SearchContext searchContext;
 
+    private long earlyTerminatedBuckets;
+
     public AggregationContext(SearchContext searchContext) {
         this.searchContext = searchContext;
     }
@@ -59,6 +65,35 @@ public class AggregationContext {
         return searchContext.bigArrays();
     }
 
+    /** Records that a bucket stopped collecting documents because the remaining ones could not compete. */
+    public void onEarlyTermination() {
+        earlyTerminatedBuckets++;
+    }
+
+    /** The number of buckets that stopped collecting documents early on this shard. */
+    public long earlyTerminatedBuckets() {
+        return earlyTerminatedBuckets;
+    }
+
+    /**
+     * If the query of this search matches all documents, optionally filtered by a single term like the filter on types, returns
+     * a match_all query or that term query respectively. Returns {@code null} if the query is anything else or if min_score or
+     * terminate_after may exclude matching documents from collection.
+     */
+    @Nullable
+    public Query matchAllFilter() {
+        if (searchContext.minimumScore() != null || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return null;
+        }
+        final Query query = searchContext.query();
+        if (query == null || Queries.isConstantMatchAllQuery(query)) {
+            return Queries.newMatchAllQuery();
+        } else if (query instanceof ConstantScoreQuery && ((ConstantScoreQuery) query).getQuery() instanceof TermQuery) {
+            return ((ConstantScoreQuery) query).getQuery();
+        }
+        return null;
+    }
+
     /** Get a value source given its configuration. A return value of null indicates that
      *  no value source could be built. */
     @Nullable
@@ -29,6 +29,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
 import org.elasticsearch.common.lucene.ScorerAware;
 import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.AtomicParentChildFieldData;
@@ -43,6 +44,7 @@ import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortingBinaryDocValues;
 import org.elasticsearch.index.fielddata.SortingNumericDocValues;
 import org.elasticsearch.index.fielddata.SortingNumericDoubleValues;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.fielddata.plain.ParentChildIndexFieldData;
 import org.elasticsearch.script.LeafSearchScript;
 import org.elasticsearch.script.SearchScript;
@@ -114,6 +116,14 @@ public abstract class ValuesSource {
 
             public abstract RandomAccessOrds globalOrdinalsValues(LeafReaderContext context);
 
+            /**
+             * Return the MurmurHash3 hashes of the terms of this values source indexed by global ordinal, or
+             * <tt>null</tt> if they are not cached along with global ordinals.
+             */
+            public LongValues globalOrdinalsHashes(IndexSearcher indexSearcher) {
+                return null;
+            }
+
             public long globalMaxOrd(IndexSearcher indexSearcher) {
                 IndexReader indexReader = indexSearcher.getIndexReader();
                 if (indexReader.leaves().isEmpty()) {
@@ -151,6 +161,16 @@ public abstract class ValuesSource {
                     final AtomicOrdinalsFieldData atomicFieldData = global.load(context);
                     return atomicFieldData.getOrdinalsValues();
                 }
+
+                @Override
+                public LongValues globalOrdinalsHashes(IndexSearcher indexSearcher) {
+                    final IndexOrdinalsFieldData global = indexFieldData.loadGlobal((DirectoryReader) indexSearcher.getIndexReader());
+                    if (global instanceof GlobalOrdinalsIndexFieldData) {
+                        return ((GlobalOrdinalsIndexFieldData) global).ordinalHashes();
+                    }
+                    // single segment or empty readers have no global ordinals to cache hashes on
+                    return null;
+                }
             }
         }
 
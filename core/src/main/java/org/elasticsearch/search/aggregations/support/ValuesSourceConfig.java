@@ -53,6 +53,13 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
         return script;
     }
 
+    /**
+     * The value to use for documents that have no value, or {@code null} if these documents are ignored.
+     */
+    public Object missing() {
+        return missing;
+    }
+
     public boolean unmapped() {
         return unmapped;
     }
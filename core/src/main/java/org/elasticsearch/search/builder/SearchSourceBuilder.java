@@ -55,7 +55,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 /**
  * A search source builder allowing to easily build search source. Simple
@@ -1248,12 +1250,25 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        writeTo(out, false);
+    }
+
+    /**
+     * Writes a representation of this source that is the same for requests that only differ in the key order of the
+     * sections that are kept as raw json, like aggregations or suggestions. Used to build the key of the shard request
+     * cache, the output can't be read back.
+     */
+    public void writeCacheKeyTo(StreamOutput out) throws IOException {
+        writeTo(out, true);
+    }
+
+    private void writeTo(StreamOutput out, boolean asKey) throws IOException {
         boolean hasAggregations = aggregations != null;
         out.writeBoolean(hasAggregations);
         if (hasAggregations) {
             out.writeVInt(aggregations.size());
             for (BytesReference aggregation : aggregations) {
-                out.writeBytesReference(aggregation);
+                writeRawSection(out, aggregation, asKey);
             }
         }
         out.writeOptionalBoolean(explain);
@@ -1284,15 +1299,28 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         out.writeBoolean(hasIndexBoost);
         if (hasIndexBoost) {
             out.writeVInt(indexBoost.size());
-            for (ObjectCursor<String> key : indexBoost.keys()) {
-                out.writeString(key.value);
-                out.writeFloat(indexBoost.get(key.value));
+            if (asKey) {
+                // the iteration order of the map is not stable across instances
+                List<String> indices = new ArrayList<>(indexBoost.size());
+                for (ObjectCursor<String> key : indexBoost.keys()) {
+                    indices.add(key.value);
+                }
+                Collections.sort(indices);
+                for (String index : indices) {
+                    out.writeString(index);
+                    out.writeFloat(indexBoost.get(index));
+                }
+            } else {
+                for (ObjectCursor<String> key : indexBoost.keys()) {
+                    out.writeString(key.value);
+                    out.writeFloat(indexBoost.get(key.value));
+                }
             }
         }
         boolean hasInnerHitsBuilder = innerHitsBuilder != null;
         out.writeBoolean(hasInnerHitsBuilder);
         if (hasInnerHitsBuilder) {
-            out.writeBytesReference(innerHitsBuilder);
+            writeRawSection(out, innerHitsBuilder, asKey);
         }
         boolean hasMinScore = minScore != null;
         out.writeBoolean(hasMinScore);
@@ -1314,7 +1342,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         if (hasRescoreBuilders) {
             out.writeVInt(rescoreBuilders.size());
             for (BytesReference rescoreBuilder : rescoreBuilders) {
-                out.writeBytesReference(rescoreBuilder);
+                writeRawSection(out, rescoreBuilder, asKey);
             }
         }
         boolean hasScriptFields = scriptFields != null;
@@ -1345,7 +1373,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         boolean hasSuggestBuilder = suggestBuilder != null;
         out.writeBoolean(hasSuggestBuilder);
         if (hasSuggestBuilder) {
-            out.writeBytesReference(suggestBuilder);
+            writeRawSection(out, suggestBuilder, asKey);
         }
         out.writeVInt(terminateAfter);
         out.writeLong(timeoutInMillis);
@@ -1354,13 +1382,57 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         boolean hasExt = ext != null;
         out.writeBoolean(hasExt);
         if (hasExt) {
-            out.writeBytesReference(ext);
+            writeRawSection(out, ext, asKey);
         }
         if (out.getVersion().onOrAfter(Version.V_2_2_0)) {
             out.writeBoolean(profile);
         }
     }
 
+    private static void writeRawSection(StreamOutput out, BytesReference section, boolean normalize) throws IOException {
+        out.writeBytesReference(normalize ? normalizeKeyOrder(section) : section);
+    }
+
+    /**
+     * Re-serializes the given json object with the keys of all nested objects sorted, values that are not objects are
+     * returned as is. The values of <code>sort</code> fields, like the sorts of <code>top_hits</code>, <code>inner_hits</code>
+     * or <code>rescore</code>, keep their order since the order of the fields in a sort object is significant.
+     */
+    static BytesReference normalizeKeyOrder(BytesReference section) throws IOException {
+        final Map<String, Object> map;
+        try (XContentParser parser = XContentFactory.xContent(section).createParser(section)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                return section;
+            }
+            map = parser.mapOrdered();
+        }
+        XContentBuilder builder = XContentFactory.smileBuilder();
+        builder.map(sortKeys(map));
+        return builder.bytes();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T sortKeys(T value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                if (SORT_FIELD.getPreferredName().equals(entry.getKey())) {
+                    sorted.put(entry.getKey(), entry.getValue());
+                } else {
+                    sorted.put(entry.getKey(), sortKeys(entry.getValue()));
+                }
+            }
+            return (T) sorted;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<Object>) value).size());
+            for (Object element : (List<Object>) value) {
+                list.add(sortKeys(element));
+            }
+            return (T) list;
+        }
+        return value;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(aggregations, explain, fetchSourceContext, fieldDataFields, fieldNames, from,
@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.controller;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.query.QuerySearchResult;
+
+import java.util.Arrays;
+
+/**
+ * Consumes the aggregations of shard query results as they arrive on the coordinating node and partially reduces them
+ * once a batch of {@link org.elasticsearch.action.search.SearchRequest#getBatchedReduceSize()} results was buffered. The
+ * aggregations are detached from the consumed {@link QuerySearchResult}, so the coordinating node never holds more than
+ * one batch of shard level aggregation trees per search request.
+ *
+ * @see SearchPhaseController#newQueryPhaseResultConsumer(org.elasticsearch.action.search.SearchRequest, int)
+ */
+public final class QueryPhaseResultConsumer {
+
+    private final InternalAggregations[] buffer;
+    private final ReduceContext partialReduceContext;
+    private final ReduceContext finalReduceContext;
+    private int index;
+    private int numReducePhases;
+    private Throwable failure;
+
+    QueryPhaseResultConsumer(int bufferSize, ReduceContext partialReduceContext, ReduceContext finalReduceContext) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("buffer size must be >= 2");
+        }
+        this.buffer = new InternalAggregations[bufferSize];
+        this.partialReduceContext = partialReduceContext;
+        this.finalReduceContext = finalReduceContext;
+    }
+
+    /**
+     * Takes the aggregations of the given shard result, partially reducing the buffered aggregations if the buffer is full.
+     * A failure of a partial reduce is not thrown here but from {@link #reduce()}, so it fails the search request instead
+     * of the shard that happened to complete the batch.
+     */
+    public synchronized void consume(QuerySearchResult result) {
+        final InternalAggregations aggregations = (InternalAggregations) result.aggregations();
+        if (aggregations == null) {
+            return;
+        }
+        result.aggregations(null);
+        if (failure != null) {
+            return;
+        }
+        if (index == buffer.length) {
+            try {
+                InternalAggregations reduced = InternalAggregations.reduce(Arrays.asList(buffer), partialReduceContext);
+                Arrays.fill(buffer, null);
+                buffer[0] = reduced;
+                index = 1;
+                numReducePhases++;
+            } catch (Throwable t) {
+                failure = t;
+                Arrays.fill(buffer, null);
+                index = 0;
+                return;
+            }
+        }
+        buffer[index++] = aggregations;
+    }
+
+    /**
+     * Returns the final reduced aggregations of all consumed results or <code>null</code> if none of the results had
+     * aggregations. Sibling pipeline aggregators are not applied, see {@link SearchPhaseController#merge}.
+     */
+    public synchronized InternalAggregations reduce() {
+        if (failure != null) {
+            throw ExceptionsHelper.convertToElastic(failure);
+        }
+        if (index == 0) {
+            return null;
+        }
+        numReducePhases++;
+        return InternalAggregations.reduce(Arrays.asList(buffer).subList(0, index), finalReduceContext);
+    }
+
+    /**
+     * Returns the number of reduce phases executed so far, including the final one.
+     */
+    public synchronized int getNumReducePhases() {
+        return numReducePhases;
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.common.HasContextAndHeaders;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -56,6 +57,7 @@ import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -64,6 +66,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -86,17 +89,38 @@ public class SearchPhaseController extends AbstractComponent {
     public static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
     public static final String SEARCH_CONTROLLER_OPTIMIZE_SINGLE_SHARD_KEY = "search.controller.optimize_single_shard";
 
+    public static final String SEARCH_CONTROLLER_PARALLEL_REDUCE_KEY = "search.controller.parallel_reduce";
+
     private final BigArrays bigArrays;
     private final boolean optimizeSingleShard;
 
     private ScriptService scriptService;
 
-    @Inject
+    /** executor to reduce aggregations in parallel on, or <code>null</code> to reduce them on the calling thread */
+    private final Executor reduceExecutor;
+    private final int maxReduceParallelism;
+
     public SearchPhaseController(Settings settings, BigArrays bigArrays, ScriptService scriptService) {
+        this(settings, bigArrays, scriptService, null);
+    }
+
+    @Inject
+    public SearchPhaseController(Settings settings, BigArrays bigArrays, ScriptService scriptService, @Nullable ThreadPool threadPool) {
         super(settings);
         this.bigArrays = bigArrays;
         this.scriptService = scriptService;
         this.optimizeSingleShard = settings.getAsBoolean(SEARCH_CONTROLLER_OPTIMIZE_SINGLE_SHARD_KEY, true);
+        if (threadPool != null && settings.getAsBoolean(SEARCH_CONTROLLER_PARALLEL_REDUCE_KEY, true)) {
+            this.reduceExecutor = threadPool.executor(ThreadPool.Names.SEARCH_WORKER);
+            this.maxReduceParallelism = threadPool.info(ThreadPool.Names.SEARCH_WORKER).getMax();
+        } else {
+            this.reduceExecutor = null;
+            this.maxReduceParallelism = 1;
+        }
+    }
+
+    private ReduceContext newReduceContext(HasContextAndHeaders headersContext, boolean isFinalReduce) {
+        return new ReduceContext(bigArrays, scriptService, headersContext, isFinalReduce, reduceExecutor, maxReduceParallelism);
     }
 
     public boolean optimizeSingleShard() {
@@ -298,8 +322,27 @@ public class SearchPhaseController extends AbstractComponent {
         }
     }
 
+    /**
+     * Returns a new {@link QueryPhaseResultConsumer} that reduces the aggregations of the given number of shard results
+     * in batches of {@link SearchRequest#getBatchedReduceSize()}.
+     */
+    public QueryPhaseResultConsumer newQueryPhaseResultConsumer(SearchRequest request, int numShards) {
+        final int bufferSize = Math.max(2, Math.min(request.getBatchedReduceSize(), numShards));
+        return new QueryPhaseResultConsumer(bufferSize, newReduceContext(request, false), newReduceContext(request, true));
+    }
+
     public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
             AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr, HasContextAndHeaders headersContext) {
+        return merge(sortedDocs, queryResultsArr, fetchResultsArr, null, headersContext);
+    }
+
+    /**
+     * @param aggregationsConsumer if not <code>null</code> the consumer that took the aggregations of the query results,
+     *                             the aggregations are then reduced by the consumer instead of being read from the results
+     */
+    public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
+            AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr, @Nullable QueryPhaseResultConsumer aggregationsConsumer,
+            HasContextAndHeaders headersContext) {
 
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
         List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults = fetchResultsArr.asList();
@@ -401,13 +444,15 @@ public class SearchPhaseController extends AbstractComponent {
 
         // merge addAggregation
         InternalAggregations aggregations = null;
-        if (!queryResults.isEmpty()) {
+        if (aggregationsConsumer != null) {
+            aggregations = aggregationsConsumer.reduce();
+        } else if (!queryResults.isEmpty()) {
             if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
                 List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
                 for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
                     aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
                 }
-                aggregations = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService, headersContext));
+                aggregations = InternalAggregations.reduce(aggregationsList, newReduceContext(headersContext, true));
             }
         }
 
@@ -20,9 +20,12 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -30,7 +33,10 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.ProfileBreakdown;
@@ -38,6 +44,12 @@ import org.elasticsearch.search.profile.ProfileWeight;
 import org.elasticsearch.search.profile.Profiler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -56,6 +68,11 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private Profiler profiler;
 
+    /** executor used to search slices of the segments concurrently, or <code>null</code> to search segments sequentially */
+    private Executor executor;
+    private int maxSlices;
+    private int minDocsPerSlice;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
         super(searcher.reader());
@@ -74,6 +91,29 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.profiler = profiler;
     }
 
+    /**
+     * Enables searching slices of the segments concurrently on the given executor when collecting through a
+     * {@link CollectorManager}, see {@link #search(Query, CollectorManager)}. At most <code>maxSlices</code> slices are
+     * created and a slice is only split off if it holds at least <code>minDocsPerSlice</code> documents, so small shards are
+     * still searched on the calling thread. Passing a <code>null</code> executor disables concurrent search.
+     */
+    public void setExecutor(@Nullable Executor executor, int maxSlices, int minDocsPerSlice) {
+        if (executor != null && maxSlices < 1) {
+            throw new IllegalArgumentException("maxSlices must be >= 1");
+        }
+        this.executor = executor;
+        this.maxSlices = maxSlices;
+        this.minDocsPerSlice = minDocsPerSlice;
+    }
+
+    /**
+     * Returns <code>true</code> if {@link #search(Query, CollectorManager)} may search slices of the segments concurrently.
+     * This is never the case while profiling since the profilers are not thread-safe.
+     */
+    public boolean isConcurrent() {
+        return executor != null && profiler == null;
+    }
+
     public void setAggregatedDfs(AggregatedDfs aggregatedDfs) {
         this.aggregatedDfs = aggregatedDfs;
     }
@@ -130,6 +170,113 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         }
     }
 
+    /**
+     * Searches the given query with a collector per slice of the segments. Collectors are created on the calling thread in
+     * slice order, slices are made of consecutive segments and all but the first slice are searched on the executor, see
+     * {@link #setExecutor(Executor, int, int)}. Without an executor, or if the shard is too small to be sliced, a single
+     * collector searches all segments on the calling thread.
+     */
+    @Override
+    public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        final List<List<LeafReaderContext>> slices = isConcurrent()
+                ? slices(getIndexReader().leaves(), maxSlices, minDocsPerSlice) : null;
+        if (slices == null || slices.size() <= 1) {
+            final C collector = collectorManager.newCollector();
+            search(query, collector);
+            List<C> collectors = new ArrayList<>(1);
+            collectors.add(collector);
+            return collectorManager.reduce(collectors);
+        }
+        final List<C> collectors = new ArrayList<>(slices.size());
+        boolean needsScores = false;
+        for (int i = 0; i < slices.size(); i++) {
+            C collector = collectorManager.newCollector();
+            needsScores |= collector.needsScores();
+            collectors.add(collector);
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size() - 1);
+        for (int i = 1; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final C collector = collectors.get(i);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                search(leaves, weight, collector);
+                return null;
+            });
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (EsRejectedExecutionException | RejectedExecutionException e) {
+                // e.g. the executor is shutting down, search the slice on the calling thread instead
+                task.run();
+            }
+        }
+        Throwable failure = null;
+        try {
+            // the calling thread searches the first slice instead of just waiting for the others
+            search(slices.get(0), weight, collectors.get(0));
+        } catch (Throwable t) {
+            failure = t;
+        }
+        // wait for all slices, even after a failure, the searcher must not be released while slices are still searched
+        boolean interrupted = false;
+        for (FutureTask<Void> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (ExecutionException e) {
+                    failure = ExceptionsHelper.useOrSuppress(failure, e.getCause());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+        return collectorManager.reduce(collectors);
+    }
+
+    /**
+     * Splits the given segments into at most <code>maxSlices</code> slices of consecutive segments. All slices but the last
+     * one hold at least <code>minDocsPerSlice</code> documents, so a shard with fewer documents is not sliced. Keeping slices in segment
+     * order lets results that tie across slices be merged in doc id order, like a sequential search would collect them.
+     */
+    static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves, int maxSlices, int minDocsPerSlice) {
+        long totalDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        final long numSlices = Math.max(1, Math.min(Math.min(maxSlices, leaves.size()), totalDocs / Math.max(1, minDocsPerSlice)));
+        final long docsPerSlice = (totalDocs + numSlices - 1) / numSlices;
+        List<List<LeafReaderContext>> slices = new ArrayList<>();
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            if (sliceDocs >= docsPerSlice && slices.size() < numSlices - 1) {
+                slices.add(slice);
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        if (slice.isEmpty() == false) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         return in.explain(query, doc);
@@ -213,8 +213,11 @@ public class ShardSearchLocalRequest extends ContextAndHeaderHolder implements S
             out.writeBoolean(false);
         } else {
             out.writeBoolean(true);
-            source.writeTo(out);
-
+            if (asKey) {
+                source.writeCacheKeyTo(out);
+            } else {
+                source.writeTo(out);
+            }
         }
         out.writeStringArray(types);
         out.writeStringArrayNullable(filteringAliases);
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.profile;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -51,6 +52,7 @@ public class CollectorResult implements ToXContent, Writeable {
     private static final ParseField NAME = new ParseField("name");
     private static final ParseField REASON = new ParseField("reason");
     private static final ParseField TIME = new ParseField("time");
+    private static final ParseField EARLY_TERMINATED_BUCKETS = new ParseField("early_terminated_buckets");
     private static final ParseField CHILDREN = new ParseField("children");
 
     /**
@@ -68,15 +70,26 @@ public class CollectorResult implements ToXContent, Writeable {
      */
     private final Long time;
 
+    /**
+     * The number of aggregation buckets that terminated collection early
+     */
+    private final long earlyTerminatedBuckets;
+
     /**
      * A list of children collectors "embedded" inside this collector
      */
     private List<CollectorResult> children;
 
     public CollectorResult(String collectorName, String reason, Long time, List<CollectorResult> children) {
+        this(collectorName, reason, time, 0, children);
+    }
+
+    public CollectorResult(String collectorName, String reason, Long time, long earlyTerminatedBuckets,
+                           List<CollectorResult> children) {
         this.collectorName = collectorName;
         this.reason = reason;
         this.time = time;
+        this.earlyTerminatedBuckets = earlyTerminatedBuckets;
         this.children = children;
     }
 
@@ -84,6 +97,11 @@ public class CollectorResult implements ToXContent, Writeable {
         this.collectorName = in.readString();
         this.reason = in.readString();
         this.time = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            this.earlyTerminatedBuckets = in.readVLong();
+        } else {
+            this.earlyTerminatedBuckets = 0;
+        }
         int size = in.readVInt();
         this.children = new ArrayList<>(size);
         for (int i = 0; i < size; i++) {
@@ -99,6 +117,13 @@ public class CollectorResult implements ToXContent, Writeable {
         return this.time;
     }
 
+    /**
+     * @return the number of aggregation buckets that terminated collection early
+     */
+    public long getEarlyTerminatedBuckets() {
+        return this.earlyTerminatedBuckets;
+    }
+
     /**
      * @return a human readable "hint" about what this collector was used for
      */
@@ -127,6 +152,10 @@ public class CollectorResult implements ToXContent, Writeable {
                 .field(REASON.getPreferredName(), getReason())
                 .field(TIME.getPreferredName(), String.format(Locale.US, "%.10gms", (double) (getTime() / 1000000.0)));
 
+        if (earlyTerminatedBuckets > 0) {
+            builder.field(EARLY_TERMINATED_BUCKETS.getPreferredName(), earlyTerminatedBuckets);
+        }
+
         if (!children.isEmpty()) {
             builder = builder.startArray(CHILDREN.getPreferredName());
             for (CollectorResult child : children) {
@@ -143,6 +172,9 @@ public class CollectorResult implements ToXContent, Writeable {
         out.writeString(collectorName);
         out.writeString(reason);
         out.writeLong(time);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVLong(earlyTerminatedBuckets);
+        }
         out.writeVInt(children.size());
         for (CollectorResult child : children) {
             child.writeTo(out);
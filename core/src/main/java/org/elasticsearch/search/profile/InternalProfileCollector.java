@@ -56,6 +56,11 @@ public class InternalProfileCollector implements Collector {
      */
     private final List<InternalProfileCollector> children;
 
+    /**
+     * The number of buckets that terminated collection early, only set for aggregation collectors
+     */
+    private long earlyTerminatedBuckets;
+
     public InternalProfileCollector(Collector collector, String reason, List<InternalProfileCollector> children) {
         this.collector = new ProfileCollector(collector);
         this.reason = reason;
@@ -84,6 +89,20 @@ public class InternalProfileCollector implements Collector {
         return this.collectorName;
     }
 
+    /**
+     * @return the number of buckets that terminated collection early
+     */
+    public long getEarlyTerminatedBuckets() {
+        return earlyTerminatedBuckets;
+    }
+
+    /**
+     * Sets the number of buckets that terminated collection early
+     */
+    public void setEarlyTerminatedBuckets(long earlyTerminatedBuckets) {
+        this.earlyTerminatedBuckets = earlyTerminatedBuckets;
+    }
+
     /**
      * Creates a human-friendly representation of the Collector name.
      *
@@ -130,6 +149,7 @@ public class InternalProfileCollector implements Collector {
             CollectorResult result = doGetCollectorTree(child);
             childResults.add(result);
         }
-        return new CollectorResult(collector.getName(), collector.getReason(), collector.getTime(), childResults);
+        return new CollectorResult(collector.getName(), collector.getReason(), collector.getTime(),
+                collector.getEarlyTerminatedBuckets(), childResults);
     }
 }
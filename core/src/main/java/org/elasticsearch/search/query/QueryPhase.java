@@ -25,6 +25,7 @@ import org.apache.lucene.queries.MinDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
@@ -38,6 +39,7 @@ import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
@@ -50,6 +52,7 @@ import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
@@ -62,8 +65,10 @@ import org.elasticsearch.search.sort.SortParseElement;
 import org.elasticsearch.search.sort.TrackScoresParseElement;
 import org.elasticsearch.search.suggest.SuggestPhase;
 
+import java.io.IOException;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -149,6 +154,113 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Whether the top docs of the query can be collected concurrently over slices of the segments. This is only done for
+     * the plain top docs collection: aggregations and other query collectors are not thread-safe, counts have their own
+     * shortcuts, and terminate_after, scrolls and profiling rely on seeing all segments in a single collector.
+     */
+    private static boolean canSearchConcurrently(SearchContext searchContext, IndexSearcher searcher) {
+        return searcher instanceof ContextIndexSearcher
+                && ((ContextIndexSearcher) searcher).isConcurrent()
+                && searchContext.size() > 0
+                && searchContext.scrollContext() == null
+                && searchContext.getProfilers() == null
+                && searchContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                && searchContext.queryCollectors().isEmpty();
+    }
+
+    /**
+     * Collects the top docs with a collector chain per slice of the segments and merges the per-slice top docs. Slices are
+     * merged in segment order so that ties are broken by doc id, like in a sequential search.
+     *
+     * @return whether the rescoring phase should be executed
+     */
+    private static boolean searchConcurrently(SearchContext searchContext, ContextIndexSearcher searcher) throws IOException {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        final Query query = searchContext.query();
+        final Sort sort = searchContext.sort();
+        final boolean trackScores = searchContext.trackScores();
+        int numDocs = Math.min(searchContext.from() + searchContext.size(), searcher.getIndexReader().numDocs());
+        boolean rescore = false;
+        if (sort == null) {
+            rescore = !searchContext.rescore().isEmpty();
+            for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                numDocs = Math.max(rescoreContext.window(), numDocs);
+            }
+        }
+        if (numDocs == 0) {
+            // top collectors don't like a size of 0
+            numDocs = 1;
+        }
+        final int topN = numDocs;
+        final Weight filterWeight = searchContext.parsedPostFilter() == null ? null
+                : searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+        final Float minimumScore = searchContext.minimumScore();
+        final boolean timeoutSet = searchContext.timeoutInMillis() != SearchService.NO_TIMEOUT.millis();
+        final List<TopDocsCollector<?>> topDocsCollectors = new ArrayList<>();
+        final CollectorManager<Collector, TopDocs> collectorManager = new CollectorManager<Collector, TopDocs>() {
+            @Override
+            public Collector newCollector() throws IOException {
+                final TopDocsCollector<?> topDocsCollector;
+                if (sort != null) {
+                    topDocsCollector = TopFieldCollector.create(sort, topN, null, true, trackScores, trackScores);
+                } else {
+                    topDocsCollector = TopScoreDocCollector.create(topN);
+                }
+                // collectors are created in slice order on the calling thread
+                topDocsCollectors.add(topDocsCollector);
+                Collector collector = topDocsCollector;
+                if (filterWeight != null) {
+                    collector = new FilteredCollector(collector, filterWeight);
+                }
+                if (minimumScore != null) {
+                    collector = new MinimumScoreCollector(collector, minimumScore);
+                }
+                if (timeoutSet) {
+                    collector = Lucene.wrapTimeLimitingCollector(collector, searchContext.timeEstimateCounter(),
+                            searchContext.timeoutInMillis());
+                }
+                return collector;
+            }
+
+            @Override
+            public TopDocs reduce(Collection<Collector> collectors) throws IOException {
+                final TopDocs topDocs;
+                if (topDocsCollectors.size() == 1) {
+                    topDocs = topDocsCollectors.get(0).topDocs();
+                } else if (sort != null) {
+                    TopFieldDocs[] shardHits = new TopFieldDocs[topDocsCollectors.size()];
+                    for (int i = 0; i < shardHits.length; i++) {
+                        shardHits[i] = (TopFieldDocs) topDocsCollectors.get(i).topDocs();
+                    }
+                    topDocs = TopDocs.merge(sort, topN, shardHits);
+                } else {
+                    TopDocs[] shardHits = new TopDocs[topDocsCollectors.size()];
+                    for (int i = 0; i < shardHits.length; i++) {
+                        shardHits[i] = topDocsCollectors.get(i).topDocs();
+                    }
+                    topDocs = TopDocs.merge(topN, shardHits);
+                }
+                // merging sets the slice as shard index, hits of a single shard are not attributed to a shard yet
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    scoreDoc.shardIndex = -1;
+                }
+                return topDocs;
+            }
+        };
+        try {
+            queryResult.topDocs(searcher.search(query, collectorManager));
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            queryResult.searchTimedOut(true);
+            // all slices are done by now, return what they collected before timing out
+            queryResult.topDocs(collectorManager.reduce(Collections.emptyList()));
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+        return rescore;
+    }
+
     /**
      * In a package-private method so that it can be tested without having to
      * wire everything (mapperService, etc.)
@@ -165,6 +277,10 @@ public class QueryPhase implements SearchPhase {
             queryResult.from(searchContext.from());
             queryResult.size(searchContext.size());
 
+            if (canSearchConcurrently(searchContext, searcher)) {
+                return searchConcurrently(searchContext, (ContextIndexSearcher) searcher);
+            }
+
             Query query = searchContext.query();
 
             final int totalNumDocs = searcher.getIndexReader().numDocs();
@@ -57,6 +57,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
     private boolean searchTimedOut;
     private Boolean terminatedEarly = null;
     private List<ProfileShardResult> profileShardResults;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
 
     public QuerySearchResult() {
 
@@ -140,6 +142,30 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         this.profileShardResults = shardResults;
     }
 
+    /**
+     * Returns the size of the search queue of the node that executed the query when the result was created, or
+     * <code>-1</code> if unknown. Used by the coordinating node for adaptive replica selection.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+    }
+
+    /**
+     * Returns the moving average of the query phase execution time in nanoseconds of the node that executed the
+     * query, or <code>-1</code> if unknown. Used by the coordinating node for adaptive replica selection.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
     public List<SiblingPipelineAggregator> pipelineAggregators() {
         return pipelineAggregators;
     }
@@ -220,6 +246,10 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 profileShardResults.add(result);
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            nodeQueueSize = in.readInt();
+            serviceTimeEWMA = in.readLong();
+        }
     }
 
     @Override
@@ -270,5 +300,9 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 }
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeInt(nodeQueueSize);
+            out.writeLong(serviceTimeEWMA);
+        }
     }
 }
@@ -27,6 +27,7 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.ClusterSettings;
@@ -158,6 +159,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     protected void doStart() {
         adapter.rxMetric.clear();
         adapter.txMetric.clear();
+        adapter.txUncompressedMetric.clear();
+        adapter.txCompressedMetric.clear();
         transport.transportServiceAdapter(adapter);
         transport.start();
         if (transport.boundAddress() != null && logger.isInfoEnabled()) {
@@ -213,7 +216,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     }
 
     public TransportStats stats() {
-        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum());
+        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum(),
+                adapter.txUncompressedMetric.count(), adapter.txCompressedMetric.count());
     }
 
     public BoundTransportAddress boundAddress() {
@@ -439,6 +443,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         final MeanMetric rxMetric = new MeanMetric();
         final MeanMetric txMetric = new MeanMetric();
+        final CounterMetric txUncompressedMetric = new CounterMetric();
+        final CounterMetric txCompressedMetric = new CounterMetric();
 
         @Override
         public void received(long size) {
@@ -450,6 +456,12 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             txMetric.inc(size);
         }
 
+        @Override
+        public void compressed(long uncompressedSize, long compressedSize) {
+            txUncompressedMetric.inc(uncompressedSize);
+            txCompressedMetric.inc(compressedSize);
+        }
+
         @Override
         public void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options) {
             if (traceEnabled() && shouldTraceAction(action)) {
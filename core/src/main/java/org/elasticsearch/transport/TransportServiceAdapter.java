@@ -30,6 +30,9 @@ public interface TransportServiceAdapter {
 
     void sent(long size);
 
+    /** called by the {@link Transport} implementation when a message was compressed, with its size before and after compression */
+    void compressed(long uncompressedSize, long compressedSize);
+
     /** called by the {@link Transport} implementation once a request has been sent */
     void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options);
 
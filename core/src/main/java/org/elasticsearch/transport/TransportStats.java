@@ -19,6 +19,7 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -36,17 +37,26 @@ public class TransportStats implements Streamable, ToXContent {
     private long rxSize;
     private long txCount;
     private long txSize;
+    private long txUncompressedSize;
+    private long txCompressedSize;
 
     TransportStats() {
 
     }
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, 0, 0);
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, long txUncompressedSize,
+                          long txCompressedSize) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.txUncompressedSize = txUncompressedSize;
+        this.txCompressedSize = txCompressedSize;
     }
 
     public long serverOpen() {
@@ -89,6 +99,28 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * The size of the messages that were sent compressed, before compression.
+     */
+    public ByteSizeValue txUncompressedSize() {
+        return new ByteSizeValue(txUncompressedSize);
+    }
+
+    public ByteSizeValue getTxUncompressedSize() {
+        return txUncompressedSize();
+    }
+
+    /**
+     * The size of the messages that were sent compressed, after compression.
+     */
+    public ByteSizeValue txCompressedSize() {
+        return new ByteSizeValue(txCompressedSize);
+    }
+
+    public ByteSizeValue getTxCompressedSize() {
+        return txCompressedSize();
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +134,10 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_3_0_0)) {
+            txUncompressedSize = in.readVLong();
+            txCompressedSize = in.readVLong();
+        }
     }
 
     @Override
@@ -111,6 +147,10 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_3_0_0)) {
+            out.writeVLong(txUncompressedSize);
+            out.writeVLong(txCompressedSize);
+        }
     }
 
     @Override
@@ -121,6 +161,8 @@ public class TransportStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        builder.byteSizeField(Fields.TX_UNCOMPRESSED_SIZE_IN_BYTES, Fields.TX_UNCOMPRESSED_SIZE, txUncompressedSize);
+        builder.byteSizeField(Fields.TX_COMPRESSED_SIZE_IN_BYTES, Fields.TX_COMPRESSED_SIZE, txCompressedSize);
         builder.endObject();
         return builder;
     }
@@ -134,5 +176,9 @@ public class TransportStats implements Streamable, ToXContent {
         static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
         static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
         static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString TX_UNCOMPRESSED_SIZE = new XContentBuilderString("tx_uncompressed_size");
+        static final XContentBuilderString TX_UNCOMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("tx_uncompressed_size_in_bytes");
+        static final XContentBuilderString TX_COMPRESSED_SIZE = new XContentBuilderString("tx_compressed_size");
+        static final XContentBuilderString TX_COMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("tx_compressed_size_in_bytes");
     }
 }
\ No newline at end of file
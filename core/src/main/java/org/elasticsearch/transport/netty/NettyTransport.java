@@ -27,7 +27,9 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
-import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.deflate.DeflateCompressor;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
@@ -97,10 +99,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -158,6 +162,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     public static final String CONNECTIONS_PER_NODE_REG = "transport.connections_per_node.reg";
     public static final String CONNECTIONS_PER_NODE_STATE = "transport.connections_per_node.state";
     public static final String CONNECTIONS_PER_NODE_PING = "transport.connections_per_node.ping";
+    public static final String TCP_COMPRESS_TYPES = "transport.tcp.compress_types"; // the types of requests to compress
+    public static final String TCP_COMPRESSOR = "transport.tcp.compressor"; // either deflate or lz4
     public static final String PING_SCHEDULE = "transport.ping_schedule"; // the scheduled internal ping interval setting
     public static final TimeValue DEFAULT_PING_SCHEDULE = TimeValue.timeValueMillis(-1); // the default ping schedule, defaults to disabled (-1)
     public static final String DEFAULT_PORT_RANGE = "9300-9400";
@@ -171,6 +177,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     protected final ByteSizeValue maxCumulationBufferCapacity;
     protected final int maxCompositeBufferComponents;
     protected final boolean compress;
+    protected final Set<TransportRequestOptions.Type> compressTypes;
+    protected final Compressor compressor;
     protected final ReceiveBufferSizePredictorFactory receiveBufferSizePredictorFactory;
     protected final int workerCount;
     protected final ByteSizeValue receivePredictorMin;
@@ -226,6 +234,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.maxCumulationBufferCapacity = this.settings.getAsBytesSize("transport.netty.max_cumulation_buffer_capacity", null);
         this.maxCompositeBufferComponents = this.settings.getAsInt("transport.netty.max_composite_buffer_components", -1);
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressTypes = parseCompressTypes(settings.getAsArray(TCP_COMPRESS_TYPES, null), compress);
+        this.compressor = parseCompressor(settings.get(TCP_COMPRESSOR, "deflate"));
 
         this.connectionsPerNodeRecovery = this.settings.getAsInt("transport.netty.connections_per_node.recovery", settings.getAsInt(CONNECTIONS_PER_NODE_RECOVERY, 2));
         this.connectionsPerNodeBulk = this.settings.getAsInt("transport.netty.connections_per_node.bulk", settings.getAsInt(CONNECTIONS_PER_NODE_BULK, 3));
@@ -562,8 +572,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         ByteSizeValue tcpSendBufferSize = settings.getAsBytesSize("tcp_send_buffer_size", TCP_DEFAULT_SEND_BUFFER_SIZE);
         ByteSizeValue tcpReceiveBufferSize = settings.getAsBytesSize("tcp_receive_buffer_size", TCP_DEFAULT_RECEIVE_BUFFER_SIZE);
 
-        logger.debug("using profile[{}], worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], connect_timeout[{}], connections_per_node[{}/{}/{}/{}/{}], receive_predictor[{}->{}]",
-                name, workerCount, port, bindHost, publishHost, compress, connectTimeout, connectionsPerNodeRecovery, connectionsPerNodeBulk, connectionsPerNodeReg, connectionsPerNodeState, connectionsPerNodePing, receivePredictorMin, receivePredictorMax);
+        logger.debug("using profile[{}], worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], compress_types[{}], connect_timeout[{}], connections_per_node[{}/{}/{}/{}/{}], receive_predictor[{}->{}]",
+                name, workerCount, port, bindHost, publishHost, compress, compressTypes, connectTimeout, connectionsPerNodeRecovery, connectionsPerNodeBulk, connectionsPerNodeReg, connectionsPerNodeState, connectionsPerNodePing, receivePredictorMin, receivePredictorMax);
 
         final ThreadFactory bossFactory = daemonThreadFactory(this.settings, HTTP_SERVER_BOSS_THREAD_NAME_PREFIX, name);
         final ThreadFactory workerFactory = daemonThreadFactory(this.settings, HTTP_SERVER_WORKER_THREAD_NAME_PREFIX, name);
@@ -815,35 +825,75 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return local;
     }
 
+    private static Set<TransportRequestOptions.Type> parseCompressTypes(String[] types, boolean compress) {
+        if (types == null) {
+            // compress all requests or none of them, depending on transport.tcp.compress
+            return compress ? EnumSet.allOf(TransportRequestOptions.Type.class) : EnumSet.noneOf(TransportRequestOptions.Type.class);
+        }
+        Set<TransportRequestOptions.Type> compressTypes = EnumSet.noneOf(TransportRequestOptions.Type.class);
+        for (String type : types) {
+            try {
+                compressTypes.add(TransportRequestOptions.Type.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown request type [" + type + "] for [" + TCP_COMPRESS_TYPES + "], expected one of "
+                        + EnumSet.allOf(TransportRequestOptions.Type.class));
+            }
+        }
+        return compressTypes;
+    }
+
+    private static Compressor parseCompressor(String compressor) {
+        switch (compressor) {
+            case "deflate":
+                return new DeflateCompressor();
+            case "lz4":
+                return new LZ4Compressor();
+            default:
+                throw new IllegalArgumentException("unknown compressor [" + compressor + "] for [" + TCP_COMPRESSOR + "], expected one of [deflate, lz4]");
+        }
+    }
+
+    /**
+     * Returns the compressor to use for messages that are serialized with the given version: the configured one if the
+     * other node can decompress it, deflate otherwise.
+     */
+    Compressor compressor(Version version) {
+        if (compressor instanceof LZ4Compressor && version.before(Version.V_3_0_0)) {
+            return new DeflateCompressor();
+        }
+        return compressor;
+    }
+
     @Override
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
 
         Channel targetChannel = nodeChannel(node, options);
 
-        if (compress) {
+        if (compressTypes.contains(options.type())) {
             options = TransportRequestOptions.builder(options).withCompress(true).build();
         }
 
         byte status = 0;
         status = TransportStatus.setRequest(status);
 
+        // we pick the smallest of the 2, to support both backward and forward compatibility
+        // note, this is the only place we need to do this, since from here on, we use the serialized version
+        // as the version to use also when the node receiving this request will send the response with
+        Version version = Version.smallest(this.version, node.version());
+
         ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(bigArrays);
         boolean addedReleaseListener = false;
         try {
             bStream.skip(NettyHeader.HEADER_SIZE);
             StreamOutput stream = bStream;
+            CountingStreamOutput compressedStream = null;
             // only compress if asked, and, the request is not bytes, since then only
             // the header part is compressed, and the "body" can't be extracted as compressed
             if (options.compress() && (!(request instanceof BytesTransportRequest))) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+                stream = compressedStream = new CountingStreamOutput(compressor(version).streamOutput(stream));
             }
 
-            // we pick the smallest of the 2, to support both backward and forward compatibility
-            // note, this is the only place we need to do this, since from here on, we use the serialized version
-            // as the version to use also when the node receiving this request will send the response with
-            Version version = Version.smallest(this.version, node.version());
-
             stream.setVersion(version);
             stream.writeString(action);
 
@@ -866,6 +916,9 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 stream.close();
                 bytes = bStream.bytes();
                 buffer = bytes.toChannelBuffer();
+                if (compressedStream != null) {
+                    transportServiceAdapter.compressed(compressedStream.count(), bytes.length() - NettyHeader.HEADER_SIZE);
+                }
             }
             NettyHeader.writeHeader(buffer, requestId, status, version);
             ChannelFuture future = targetChannel.write(buffer);
@@ -22,7 +22,6 @@ package org.elasticsearch.transport.netty;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
-import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -92,15 +91,19 @@ public class NettyTransportChannel implements TransportChannel {
         try {
             bStream.skip(NettyHeader.HEADER_SIZE);
             StreamOutput stream = bStream;
+            CountingStreamOutput compressedStream = null;
             if (options.compress()) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+                stream = compressedStream = new CountingStreamOutput(transport.compressor(version).streamOutput(stream));
             }
             stream.setVersion(version);
             response.writeTo(stream);
             stream.close();
 
             ReleasablePagedBytesReference bytes = bStream.bytes();
+            if (compressedStream != null) {
+                transportServiceAdapter.compressed(compressedStream.count(), bytes.length() - NettyHeader.HEADER_SIZE);
+            }
             ChannelBuffer buffer = bytes.toChannelBuffer();
             NettyHeader.writeHeader(buffer, requestId, status, version);
             ChannelFuture future = channel.write(buffer);
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RollupMetaDataTests extends ESTestCase {
+
+    private static RollupMetaData randomRollupMetaData() {
+        RollupJobMetaData[] jobs = new RollupJobMetaData[randomIntBetween(0, 5)];
+        for (int i = 0; i < jobs.length; i++) {
+            Settings settings = Settings.builder()
+                    .put("index", randomAsciiOfLength(5))
+                    .put("rollup_index", randomAsciiOfLength(6))
+                    .put("interval", randomIntBetween(1, 24) + "h")
+                    .putArray("groups", randomAsciiOfLength(3), randomAsciiOfLength(4))
+                    .build();
+            long checkpoint = randomBoolean() ? RollupJobMetaData.NO_CHECKPOINT : randomLong();
+            jobs[i] = new RollupJobMetaData("job_" + i, settings, checkpoint);
+        }
+        return new RollupMetaData(jobs);
+    }
+
+    public void testSerialization() throws Exception {
+        RollupMetaData rollup = randomRollupMetaData();
+        BytesStreamOutput out = new BytesStreamOutput();
+        rollup.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        assertThat(RollupMetaData.PROTO.readFrom(in), equalTo(rollup));
+    }
+
+    public void testToAndFromXContent() throws Exception {
+        RollupMetaData rollup = randomRollupMetaData();
+        MetaData metaData = MetaData.builder().putCustom(RollupMetaData.TYPE, rollup).build();
+        String source = MetaData.Builder.toXContent(metaData);
+        MetaData parsed = MetaData.Builder.fromXContent(XContentFactory.xContent(XContentType.JSON).createParser(source));
+        assertThat(parsed.custom(RollupMetaData.TYPE), equalTo(rollup));
+    }
+
+    public void testPutAndRemove() {
+        RollupJobMetaData first = new RollupJobMetaData("first", Settings.builder().put("interval", "1h").build(), 10);
+        RollupJobMetaData second = new RollupJobMetaData("second", Settings.builder().put("interval", "1d").build(), 20);
+        RollupMetaData rollup = new RollupMetaData().put(first).put(second);
+        assertThat(rollup.jobs().size(), equalTo(2));
+        assertThat(rollup.job("first"), equalTo(first));
+
+        RollupJobMetaData updated = new RollupJobMetaData("first", first.settings(), 30);
+        rollup = rollup.put(updated);
+        assertThat(rollup.jobs().size(), equalTo(2));
+        assertThat(rollup.job("first"), equalTo(updated));
+
+        rollup = rollup.remove("first");
+        assertThat(rollup.jobs().size(), equalTo(1));
+        assertThat(rollup.job("first"), nullValue());
+        assertThat(rollup.job("second"), equalTo(second));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    public void testRank() {
+        ResponseCollectorService collector = new ResponseCollectorService();
+        assertNull(collector.rank("node_1"));
+
+        collector.onRequestSent("node_1");
+        assertNull(collector.rank("node_1"));
+        collector.onResponse("node_1", 0, 1000, 500);
+        // no outstanding requests and an empty queue: R - 1/mu + 1/mu
+        assertEquals(ResponseCollectorService.ALPHA * 1000, collector.rank("node_1"), 0.0001d);
+
+        collector.onRequestSent("node_2");
+        collector.onResponse("node_2", 10, 1000, 500);
+        assertTrue(collector.rank("node_2") > collector.rank("node_1"));
+
+        // requests in flight to a node make it less attractive
+        double rank = collector.rank("node_1");
+        collector.onRequestSent("node_1");
+        assertTrue(collector.rank("node_1") > rank);
+        collector.onRequestCompleted("node_1");
+        assertEquals(rank, collector.rank("node_1"), 0.0d);
+    }
+
+    public void testRetainNodes() {
+        ResponseCollectorService collector = new ResponseCollectorService();
+        collector.onRequestSent("node_1");
+        collector.onResponse("node_1", 0, 1000, 500);
+        collector.onRequestSent("node_2");
+        collector.onResponse("node_2", 0, 1000, 500);
+        DiscoveryNodes nodes = DiscoveryNodes.builder()
+            .put(new DiscoveryNode("node_1", DummyTransportAddress.INSTANCE, Version.CURRENT)).build();
+        collector.retainNodes(nodes);
+        assertEquals(1, collector.numberOfNodes());
+        assertNotNull(collector.rank("node_1"));
+        assertNull(collector.rank("node_2"));
+    }
+
+    public void testRankedShardIterator() {
+        ShardId shardId = new ShardId("test", 0);
+        IndexShardRoutingTable table = new IndexShardRoutingTable.Builder(shardId)
+            .addShard(TestShardRouting.newShardRouting("test", 0, "node_1", true, ShardRoutingState.STARTED, 1))
+            .addShard(TestShardRouting.newShardRouting("test", 0, "node_2", false, ShardRoutingState.STARTED, 1))
+            .addShard(TestShardRouting.newShardRouting("test", 0, "node_3", false, ShardRoutingState.STARTED, 1))
+            .addShard(TestShardRouting.newShardRouting("test", 0, "node_4", false, ShardRoutingState.INITIALIZING, 1))
+            .build();
+        ResponseCollectorService collector = new ResponseCollectorService();
+        collector.onRequestSent("node_1");
+        collector.onResponse("node_1", 50, 100000, 1000);
+        collector.onRequestSent("node_2");
+        collector.onResponse("node_2", 0, 1000, 500);
+        collector.onRequestSent("node_4");
+        collector.onResponse("node_4", 0, 10, 10);
+
+        ShardIterator iterator = table.activeInitializingShardsRankedIt(collector);
+        assertEquals(4, iterator.size());
+        // node_3 has no statistics yet so it is probed first, initializing shards always come last
+        assertEquals("node_3", iterator.nextOrNull().currentNodeId());
+        assertEquals("node_2", iterator.nextOrNull().currentNodeId());
+        assertEquals("node_1", iterator.nextOrNull().currentNodeId());
+        assertEquals("node_4", iterator.nextOrNull().currentNodeId());
+        assertNull(iterator.nextOrNull());
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.Before;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,7 +47,9 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class CacheTests extends ESTestCase {
     private int numberOfEntries;
@@ -742,4 +745,90 @@ public class CacheTests extends ESTestCase {
         cache.refresh();
         assertEquals(500, cache.count());
     }
+
+    // test that entries that are read often survive a scan of keys that are only inserted once
+    public void testTinyLfuKeepsFrequentlyUsedEntries() {
+        int maximumWeight = 100;
+        Cache<Integer, String> lru = CacheBuilder.<Integer, String>builder().setMaximumWeight(maximumWeight).build();
+        Cache<Integer, String> tinyLfu = CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(maximumWeight)
+                .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                .build();
+        for (Cache<Integer, String> cache : Arrays.asList(lru, tinyLfu)) {
+            for (int i = 0; i < maximumWeight; i++) {
+                cache.put(i, Integer.toString(i));
+            }
+            for (int j = 0; j < 5; j++) {
+                for (int i = 0; i < maximumWeight; i++) {
+                    assertEquals(Integer.toString(i), cache.get(i));
+                }
+            }
+            for (int i = maximumWeight; i < 2 * maximumWeight; i++) {
+                cache.put(i, Integer.toString(i));
+            }
+            cache.refresh();
+            assertEquals(maximumWeight, cache.count());
+        }
+        int lruHits = 0;
+        int tinyLfuHits = 0;
+        for (int i = 0; i < maximumWeight; i++) {
+            lruHits += lru.get(i) == null ? 0 : 1;
+            tinyLfuHits += tinyLfu.get(i) == null ? 0 : 1;
+        }
+        assertEquals(0, lruHits);
+        // the frequency sketch may overestimate the popularity of a few of the new keys
+        assertThat(tinyLfuHits, greaterThanOrEqualTo(90));
+    }
+
+    // test that the cache is not corrupted by concurrent reads that are recorded in the read buffers
+    public void testTinyLfuTorture() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(1000)
+                        .weigher((k, v) -> 2)
+                        .setEvictionPolicy(Cache.EvictionPolicy.TINY_LFU)
+                        .build();
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        if (random.nextBoolean()) {
+                            cache.put(key, Integer.toString(j));
+                        } else if (random.nextInt(10) == 0) {
+                            cache.invalidate(key);
+                        } else {
+                            cache.get(key);
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertThat(cache.count(), lessThanOrEqualTo(500));
+        assertEquals(2 * cache.count(), cache.weight());
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : cache.keys()) {
+            keys.add(key);
+        }
+        assertEquals(cache.count(), keys.size());
+        for (Integer key : keys) {
+            assertNotNull(cache.get(key));
+        }
+    }
 }
@@ -284,6 +284,51 @@ public class TimeZoneRoundingTests extends ESTestCase {
         }
     }
 
+    /**
+     * randomized test that prepared roundings compute the same keys as the roundings they were prepared from, including
+     * across DST transitions and for values outside of the prepared bounds
+     */
+    public void testPreparedRoundingRandom() {
+        for (int i = 0; i < 100; ++i) {
+            DateTimeZone tz = randomFrom(DateTimeZone.UTC, DateTimeZone.forOffsetHours(randomIntBetween(-23, 23)), JERUSALEM_TIMEZONE,
+                    DateTimeZone.forID("America/Sao_Paulo"), DateTimeZone.forID("Europe/Paris"));
+            final Rounding rounding;
+            if (randomBoolean()) {
+                rounding = new TimeZoneRounding.TimeUnitRounding(randomTimeUnit(), tz);
+            } else {
+                rounding = new TimeZoneRounding.TimeIntervalRounding(randomIntBetween(1, 48) * TimeUnit.MINUTES.toMillis(30), tz);
+            }
+            final long min = Math.abs(randomLong() % ((long) 10e11));
+            final long max = min + randomIntBetween(0, 400) * TimeUnit.DAYS.toMillis(1);
+            final Rounding.Prepared prepared = rounding.prepare(min, max, randomBoolean() ? Long.MAX_VALUE : randomIntBetween(0, 10000));
+            for (int j = 0; j < 100; ++j) {
+                final long value;
+                if (rarely()) {
+                    value = randomBoolean() ? min - randomIntBetween(1, 100000) : max + randomIntBetween(1, 100000);
+                } else {
+                    value = min + (long) (random().nextDouble() * (max - min));
+                }
+                assertThat(toUTCDateString(value), prepared.roundKey(value), equalTo(rounding.roundKey(value)));
+            }
+            assertThat(prepared.roundKey(min), equalTo(rounding.roundKey(min)));
+            assertThat(prepared.roundKey(max), equalTo(rounding.roundKey(max)));
+        }
+    }
+
+    public void testShouldPrepare() {
+        // few buckets for many values
+        assertTrue(TimeZoneRounding.shouldPrepare(24, 10000));
+        // a tiny segment doesn't pay for the preparation
+        assertFalse(TimeZoneRounding.shouldPrepare(24, 10));
+        // a wide range is never prepared
+        assertFalse(TimeZoneRounding.shouldPrepare(TimeZoneRounding.MAX_PREPARED_BOUNDARIES + 1, Long.MAX_VALUE));
+        // the estimate of the number of buckets comes from the width of the buckets
+        TimeZoneRounding rounding = new TimeZoneRounding.TimeUnitRounding(DateTimeUnit.HOUR_OF_DAY, DateTimeZone.forID("Europe/Paris"));
+        assertEquals(TimeUnit.HOURS.toMillis(1), rounding.estimatedIntervalMillis());
+        rounding = new TimeZoneRounding.TimeIntervalRounding(TimeUnit.MINUTES.toMillis(90), DateTimeZone.forID("Europe/Paris"));
+        assertEquals(TimeUnit.MINUTES.toMillis(90), rounding.estimatedIntervalMillis());
+    }
+
     private DateTimeUnit randomTimeUnit() {
         byte id = (byte) randomIntBetween(1, 8);
         return DateTimeUnit.resolve(id);
@@ -1223,6 +1223,74 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testAppendOnlyAutoGeneratedIds() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+                .put(defaultSettings.getSettings())
+                .put(EngineConfig.INDEX_OPTIMIZE_AUTO_GENERATED_ID_SETTING, true)
+                .build());
+        try (Store store = createStore();
+             Engine engine = createEngine(indexSettings, store, createTempDir(), newMergePolicy())) {
+            ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+            Engine.Index index = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(), 0, false);
+            assertTrue(engine.index(index));
+            assertThat(index.version(), equalTo(1l));
+            assertNotNull(index.getTranslogLocation());
+
+            // a retry might have been indexed before and must replace the document instead of adding it again
+            Engine.Index retry = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(), 0, true);
+            engine.index(retry);
+            // so must the original request if it arrives after the retry
+            Engine.Index late = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(), 0, false);
+            engine.index(late);
+
+            // a newer id is appended again
+            ParsedDocument doc2 = testParsedDocument("2", "2", "test", null, -1, -1, testDocument(), B_2, null);
+            Engine.Index index2 = new Engine.Index(newUid("2"), doc2, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(), 1, false);
+            assertTrue(engine.index(index2));
+            assertThat(index2.version(), equalTo(1l));
+
+            engine.refresh("test");
+            try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+                assertThat(searcher.reader().numDocs(), equalTo(2));
+            }
+        }
+    }
+
+    public void testRecoveryReplaysAppendOnlyDocument() throws IOException {
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
+                .put(defaultSettings.getSettings())
+                .put(EngineConfig.INDEX_OPTIMIZE_AUTO_GENERATED_ID_SETTING, true)
+                .build());
+        try (Store store = createStore();
+             Engine engine = createEngine(indexSettings, store, createTempDir(), newMergePolicy())) {
+            ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+            Engine.Index index = new Engine.Index(newUid("1"), doc, 1, VersionType.EXTERNAL, REPLICA, System.nanoTime(), 0, false);
+            assertTrue(engine.index(index));
+
+            // phase 2 replays the operation before the replica refreshed, the appended document isn't visible yet
+            Translog.Index translogIndex = new Translog.Index(index);
+            assertEquals(0, translogIndex.getAutoGeneratedIdTimestamp());
+            Engine.Index replay = new Engine.Index(newUid("1"), doc, translogIndex.version(),
+                    translogIndex.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY,
+                    System.nanoTime(), translogIndex.getAutoGeneratedIdTimestamp(), false);
+            engine.index(replay);
+
+            // a copy of the request that comes in through replication after the replay must not be added again either
+            Engine.Index late = new Engine.Index(newUid("1"), doc, 1, VersionType.EXTERNAL, REPLICA, System.nanoTime(), 0, false);
+            try {
+                engine.index(late);
+                fail("expected a version conflict");
+            } catch (VersionConflictEngineException e) {
+                // the replay left a version map entry, replicas ignore this conflict
+            }
+
+            engine.refresh("test");
+            try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+                assertThat(searcher.reader().numDocs(), equalTo(1));
+            }
+        }
+    }
+
     public void testVersioningCreateExistsException() {
         ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
         Engine.Index create = new Engine.Index(newUid("1"), doc, Versions.MATCH_DELETED, VersionType.INTERNAL, PRIMARY, 0);
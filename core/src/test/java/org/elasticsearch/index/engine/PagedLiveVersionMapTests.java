@@ -0,0 +1,156 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PagedLiveVersionMapTests extends ESTestCase {
+
+    public void testPutAndGet() {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+        BytesRef uid = new BytesRef("1");
+        assertNull(map.getUnderLock(uid));
+
+        map.putUnderLock(uid, new VersionValue(1, new Translog.Location(3, 100, 42)));
+        VersionValue value = map.getUnderLock(uid);
+        assertEquals(1, value.version());
+        assertFalse(value.delete());
+        assertEquals(new Translog.Location(3, 100, 42), value.translogLocation());
+        assertNull(map.getTombstoneUnderLock(uid));
+
+        map.putUnderLock(uid, new DeleteVersionValue(2, 1000, null));
+        value = map.getUnderLock(uid);
+        assertEquals(2, value.version());
+        assertTrue(value.delete());
+        assertEquals(1000, value.time());
+        assertNull(value.translogLocation());
+        assertEquals(2, map.getTombstoneUnderLock(uid).version());
+
+        // uid comes back to life
+        map.putUnderLock(uid, new VersionValue(3, null));
+        assertEquals(3, map.getUnderLock(uid).version());
+        assertNull(map.getTombstoneUnderLock(uid));
+        assertTrue(map.ramBytesUsed() > 0);
+
+        map.clear();
+        assertNull(map.getUnderLock(uid));
+        assertEquals(0, map.ramBytesUsed());
+    }
+
+    public void testRefresh() throws IOException {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+        BytesRef added = new BytesRef("added");
+        BytesRef deleted = new BytesRef("deleted");
+        map.putUnderLock(added, new VersionValue(1, null));
+        map.putUnderLock(deleted, new DeleteVersionValue(1, 0, null));
+
+        map.beforeRefresh();
+        // adds and deletes are still visible while the refresh is running
+        assertEquals(1, map.getUnderLock(added).version());
+        assertEquals(1, map.getUnderLock(deleted).version());
+        BytesRef addedDuringRefresh = new BytesRef("added_during_refresh");
+        map.putUnderLock(addedDuringRefresh, new VersionValue(1, null));
+
+        map.afterRefresh(true);
+        // adds are now visible through the searcher, tombstones are retained
+        assertNull(map.getUnderLock(added));
+        assertEquals(1, map.getUnderLock(deleted).version());
+        assertEquals(1, map.getUnderLock(addedDuringRefresh).version());
+
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertNull(map.getUnderLock(addedDuringRefresh));
+        assertEquals(0, map.ramBytesUsedForRefresh());
+        map.clear();
+    }
+
+    public void testPutDuringConcurrentRefreshes() throws Exception {
+        final PagedLiveVersionMap map = new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread refresher = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (stop.get() == false) {
+                        map.beforeRefresh();
+                        map.afterRefresh(true);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        refresher.start();
+        try {
+            int numDocs = randomIntBetween(1000, 10000);
+            for (int i = 0; i < numDocs; i++) {
+                map.putUnderLock(new BytesRef(Integer.toString(randomInt(100))), new VersionValue(i, null));
+            }
+        } finally {
+            stop.set(true);
+            refresher.join();
+        }
+        assertNull(failure.get());
+        // writes go to the live tables once refreshes have stopped
+        BytesRef uid = new BytesRef("last");
+        map.putUnderLock(uid, new VersionValue(42, null));
+        assertEquals(42, map.getUnderLock(uid).version());
+        map.clear();
+    }
+
+    public void testTombstones() {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+        Map<BytesRef, Long> expected = new HashMap<>();
+        int numDocs = randomIntBetween(100, 1000);
+        for (int i = 0; i < numDocs; i++) {
+            BytesRef uid = new BytesRef(Integer.toString(i));
+            map.putUnderLock(uid, new DeleteVersionValue(i, i, null));
+            expected.put(uid, (long) i);
+        }
+        // removing most tombstones rebuilds the tables, the remaining ones must survive that
+        for (int i = 0; i < numDocs; i++) {
+            if (randomInt(9) != 0) {
+                BytesRef uid = new BytesRef(Integer.toString(i));
+                map.removeTombstoneUnderLock(uid);
+                expected.remove(uid);
+            }
+        }
+        Map<BytesRef, Long> actual = new HashMap<>();
+        for (Map.Entry<BytesRef, VersionValue> entry : map.getAllTombstones()) {
+            assertTrue(entry.getValue().delete());
+            actual.put(entry.getKey(), entry.getValue().version());
+        }
+        assertEquals(expected, actual);
+        for (Map.Entry<BytesRef, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), map.getTombstoneUnderLock(entry.getKey()).version());
+        }
+        map.clear();
+    }
+}
@@ -44,8 +44,11 @@ import org.apache.lucene.search.join.ToParentBlockJoinQuery;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.util.UnicodeUtil;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.settings.Settings;
@@ -55,6 +58,7 @@ import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource.N
 import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.search.MultiValueMode;
 
 import java.io.IOException;
@@ -62,6 +66,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -594,6 +599,45 @@ public abstract class AbstractStringFieldDataTestCase extends AbstractFieldDataI
         assertThat(size, equalTo(3));
     }
 
+    public void testGlobalOrdinalHashes() throws Exception {
+        fillExtendedMvSet();
+        refreshReader();
+        FieldDataType fieldDataType = new FieldDataType("string", Settings.builder().put("global_values", "fixed"));
+        IndexOrdinalsFieldData ifd = getForField(fieldDataType, "value", hasDocValues());
+        IndexOrdinalsFieldData globalOrdinals = ifd.loadGlobal(topLevelReader);
+        assertThat(globalOrdinals, instanceOf(GlobalOrdinalsIndexFieldData.class));
+        LongValues hashes = ((GlobalOrdinalsIndexFieldData) globalOrdinals).ordinalHashes();
+        RandomAccessOrds values = globalOrdinals.load(topLevelReader.leaves().get(0)).getOrdinalsValues();
+        MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        for (long ord = 0; ord < values.getValueCount(); ++ord) {
+            BytesRef term = values.lookupOrd(ord);
+            MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, hash);
+            assertThat(hashes.get(ord), equalTo(hash.h1));
+        }
+        // hashes are cached along with global ordinals
+        LongValues cachedHashes = ((GlobalOrdinalsIndexFieldData) globalOrdinals).ordinalHashes();
+        for (long ord = 0; ord < values.getValueCount(); ++ord) {
+            assertThat(cachedHashes.get(ord), equalTo(hashes.get(ord)));
+        }
+    }
+
+    public void testGlobalOrdinalHashesReleasedOnCacheRemoval() throws Exception {
+        fillExtendedMvSet();
+        refreshReader();
+        FieldDataType fieldDataType = new FieldDataType("string", Settings.builder().put("global_values", "fixed").put("cache", "node"));
+        IndexOrdinalsFieldData ifd = getForField(fieldDataType, "value", hasDocValues());
+        CircuitBreaker breaker = getInstanceFromNode(CircuitBreakerService.class).getBreaker(CircuitBreaker.FIELDDATA);
+        final long used = breaker.getUsed();
+        // rebuilding global ordinals for the same reader must not charge the hashes again without releasing them
+        for (int i = 0; i < 3; i++) {
+            GlobalOrdinalsIndexFieldData globalOrdinals = (GlobalOrdinalsIndexFieldData) ifd.loadGlobal(topLevelReader);
+            globalOrdinals.ordinalHashes();
+            assertThat(breaker.getUsed(), greaterThan(used));
+            ifdService.clear();
+            assertThat(breaker.getUsed(), equalTo(used));
+        }
+    }
+
     public void testGlobalOrdinalsGetRemovedOnceIndexReaderCloses() throws Exception {
         fillExtendedMvSet();
         refreshReader();
@@ -84,6 +84,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 /**
  *
@@ -299,10 +300,13 @@ public class TranslogTests extends ESTestCase {
         long lastSize = stats.getTranslogSizeInBytes();
         assertThat((int) firstOperationPosition, greaterThan(CodecUtil.headerLength(TranslogWriter.TRANSLOG_CODEC)));
         assertThat(lastSize, equalTo(firstOperationPosition));
+        assertThat(stats.getSyncCount(), equalTo(0l));
         TranslogStats total = new TranslogStats();
+        // stats() syncs the translog, and the sync count of each snapshot is cumulative
         translog.add(new Translog.Index("test", "1", new byte[]{1}));
         stats = stats();
         total.add(stats);
+        assertThat(stats.getSyncCount(), equalTo(1l));
         assertThat(stats.estimatedNumberOfOperations(), equalTo(1l));
         assertThat(stats.getTranslogSizeInBytes(), greaterThan(lastSize));
         lastSize = stats.getTranslogSizeInBytes();
@@ -310,6 +314,7 @@ public class TranslogTests extends ESTestCase {
         translog.add(new Translog.Delete(newUid("2")));
         stats = stats();
         total.add(stats);
+        assertThat(stats.getSyncCount(), equalTo(2l));
         assertThat(stats.estimatedNumberOfOperations(), equalTo(2l));
         assertThat(stats.getTranslogSizeInBytes(), greaterThan(lastSize));
         lastSize = stats.getTranslogSizeInBytes();
@@ -318,16 +323,21 @@ public class TranslogTests extends ESTestCase {
         translog.prepareCommit();
         stats = stats();
         total.add(stats);
+        // preparing the commit fsyncs the unsynced delete, the new generation has nothing to sync
+        assertThat(stats.getSyncCount(), equalTo(3l));
         assertThat(stats.estimatedNumberOfOperations(), equalTo(3l));
         assertThat(stats.getTranslogSizeInBytes(), greaterThan(lastSize));
 
         translog.commit();
         stats = stats();
         total.add(stats);
+        // committing doesn't sync
+        assertThat(stats.getSyncCount(), equalTo(3l));
         assertThat(stats.estimatedNumberOfOperations(), equalTo(0l));
         assertThat(stats.getTranslogSizeInBytes(), equalTo(firstOperationPosition));
         assertEquals(6, total.estimatedNumberOfOperations());
         assertEquals(431, total.getTranslogSizeInBytes());
+        assertEquals(1 + 2 + 3 + 3, total.getSyncCount());
 
         BytesStreamOutput out = new BytesStreamOutput();
         total.writeTo(out);
@@ -336,9 +346,16 @@ public class TranslogTests extends ESTestCase {
 
         assertEquals(6, copy.estimatedNumberOfOperations());
         assertEquals(431, copy.getTranslogSizeInBytes());
+        assertEquals(9, copy.getSyncCount());
+        assertEquals(0, copy.getCoalescedSyncCount());
         assertEquals("\"translog\"{\n" +
             "  \"operations\" : 6,\n" +
-            "  \"size_in_bytes\" : 431\n" +
+            "  \"size_in_bytes\" : 431,\n" +
+            "  \"sync\" : {\n" +
+            "    \"total\" : 9,\n" +
+            "    \"total_time_in_millis\" : " + copy.getSyncTimeInMillis() + ",\n" +
+            "    \"coalesced\" : 0\n" +
+            "  }\n" +
             "}", copy.toString().trim());
 
         try {
@@ -552,6 +569,30 @@ public class TranslogTests extends ESTestCase {
         assertThat("at least one corruption was caused and caught", corruptionsCaught.get(), greaterThanOrEqualTo(1));
     }
 
+    public void testReadOperationFromByteBuffer() throws IOException {
+        Translog.Index op = new Translog.Index("test", "1", randomAsciiOfLengthBetween(1, 50).getBytes("UTF-8"));
+        BytesStreamOutput out = new BytesStreamOutput();
+        Translog.writeOperations(out, Collections.<Translog.Operation>singletonList(op));
+        byte[] bytes = out.bytes().toBytes();
+        // skip the number of operations written by writeOperations
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length - 4);
+        buffer.put(bytes, 4, bytes.length - 4);
+        buffer.flip();
+        Translog.Index read = (Translog.Index) Translog.readOperation(buffer.duplicate());
+        assertEquals(op, read);
+        assertFalse("source must not be copied onto the heap", read.source().hasArray());
+
+        // corrupt a byte after the operation size
+        int pos = randomIntBetween(4, buffer.limit() - 1);
+        buffer.put(pos, (byte) (buffer.get(pos) + 1));
+        try {
+            Translog.readOperation(buffer.duplicate());
+            fail("expected corruption");
+        } catch (TranslogCorruptedException e) {
+            // all well
+        }
+    }
+
     public void testTruncatedTranslogs() throws Exception {
         List<Translog.Location> locations = new ArrayList<>();
 
@@ -831,6 +872,44 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentSyncUpTo() throws Throwable {
+        final int threadCount = randomIntBetween(2, 8);
+        final int opsPerThread = randomIntBetween(10, 100);
+        final Thread[] threads = new Thread[threadCount];
+        final Throwable[] threadExceptions = new Throwable[threadCount];
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final int threadId = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int op = 0; op < opsPerThread; op++) {
+                            Translog.Location location = translog.add(new Translog.Index("test", threadId + "_" + op, Integer.toString(op).getBytes(Charset.forName("UTF-8"))));
+                            translog.ensureSynced(location);
+                            assertFalse("location must be synced", translog.ensureSynced(location));
+                        }
+                    } catch (Throwable t) {
+                        threadExceptions[threadId] = t;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+            if (threadExceptions[i] != null) {
+                throw threadExceptions[i];
+            }
+        }
+        assertFalse(translog.syncNeeded());
+        TranslogStats stats = translog.stats();
+        assertThat(stats.getSyncCount(), greaterThan(0L));
+        // a request either triggers an fsync, waits for a concurrent one or finds its location already synced
+        assertThat(stats.getSyncCount() + stats.getCoalescedSyncCount(), lessThanOrEqualTo((long) threadCount * opsPerThread));
+    }
+
     public void testLocationComparison() throws IOException {
         List<Translog.Location> locations = new ArrayList<>();
         int translogOperations = randomIntBetween(10, 100);
@@ -21,17 +21,22 @@ package org.elasticsearch.indices.cache.query;
 
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.indices.cache.request.IndicesRequestCache;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 
 import java.util.List;
 
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
 public class IndicesRequestCacheIT extends ESIntegTestCase {
@@ -74,4 +79,43 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         }
     }
 
+    public void testCacheHits() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index")
+                .addMapping("type", "f", "type=integer")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, true).get());
+        indexRandom(true,
+                client().prepareIndex("index", "type", "1").setSource("f", 1),
+                client().prepareIndex("index", "type", "2").setSource("f", 2),
+                client().prepareIndex("index", "type", "3").setSource("f", 3));
+        ensureSearchable("index");
+
+        final SearchResponse r1 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH)
+                .setQuery(rangeQuery("f").gte(2)).addSort("f", SortOrder.DESC).setSize(2).get();
+        assertSearchResponse(r1);
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMemorySizeInBytes(), greaterThan(0L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getHitCount(), equalTo(0L));
+
+        for (int i = 0; i < 10; ++i) {
+            final SearchResponse r2 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH)
+                    .setQuery(rangeQuery("f").gte(2)).addSort("f", SortOrder.DESC).setSize(2).get();
+            assertSearchResponse(r2);
+            assertHitCount(r2, 2);
+            assertEquals(r1.getHits().getAt(0).getId(), r2.getHits().getAt(0).getId());
+            assertEquals(r1.getHits().getAt(1).getId(), r2.getHits().getAt(1).getId());
+            assertEquals(r1.getHits().getAt(0).sourceAsString(), r2.getHits().getAt(0).sourceAsString());
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getHitCount(), greaterThan(0L));
+    }
+
+    public void testScrollIsNotCached() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED, true).get());
+        indexRandom(true, client().prepareIndex("index", "type", "1").setSource("f", 1));
+        ensureSearchable("index");
+
+        SearchResponse response = client().prepareSearch("index").setScroll(TimeValue.timeValueMinutes(1)).setSize(1).get();
+        assertSearchResponse(response);
+        client().prepareClearScroll().addScrollId(response.getScrollId()).get();
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMemorySizeInBytes(), equalTo(0L));
+    }
 }
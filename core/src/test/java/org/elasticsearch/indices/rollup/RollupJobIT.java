@@ -0,0 +1,218 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.rollup;
+
+import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.RollupJobMetaData;
+import org.elasticsearch.cluster.metadata.RollupMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsException;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+@ClusterScope(scope = Scope.TEST)
+public class RollupJobIT extends ESIntegTestCase {
+
+    private static final long HOUR = TimeValue.timeValueHours(1).millis();
+    // 2016-01-01T00:00:00Z
+    private static final long START = 1451606400000L;
+
+    private static Settings.Builder jobSettings() {
+        return Settings.builder()
+                .put("index", "metrics")
+                .put("rollup_index", "metrics_rollup")
+                .put("timestamp_field", "timestamp")
+                .put("interval", "1h")
+                .putArray("groups", "host")
+                .putArray("metrics", "cpu")
+                .put("page_size", randomIntBetween(1, 10));
+    }
+
+    private void createIndices() {
+        assertAcked(prepareCreate("metrics")
+                .addMapping("type", "timestamp", "type=date", "host", "type=string,index=not_analyzed", "cpu", "type=long"));
+        assertAcked(prepareCreate("metrics_rollup")
+                .addMapping("rollup", "timestamp", "type=date", "host", "type=string,index=not_analyzed", "doc_count", "type=long"));
+    }
+
+    private RollupJobMetaData rollupJob(String id) {
+        RollupMetaData rollup = client().admin().cluster().prepareState().get().getState().metaData().custom(RollupMetaData.TYPE);
+        return rollup == null ? null : rollup.job(id);
+    }
+
+    public void testRollup() throws Exception {
+        createIndices();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        long[] expectedCounts = new long[3];
+        long[] expectedSums = new long[3];
+        long[] expectedMax = new long[3];
+        for (int hour = 0; hour < 3; hour++) {
+            for (String host : new String[] {"a", "b"}) {
+                int numDocs = randomIntBetween(1, 5);
+                for (int i = 0; i < numDocs; i++) {
+                    long cpu = randomIntBetween(0, 100);
+                    expectedCounts[hour]++;
+                    expectedSums[hour] += cpu;
+                    expectedMax[hour] = Math.max(expectedMax[hour], cpu);
+                    docs.add(client().prepareIndex("metrics", "type").setSource("timestamp", START + hour * HOUR + randomInt(59) * 60000L,
+                            "host", host, "cpu", cpu));
+                }
+            }
+        }
+        // documents without a host are summarized in their own group
+        long noHostCpu = randomIntBetween(0, 100);
+        expectedCounts[1]++;
+        expectedSums[1] += noHostCpu;
+        expectedMax[1] = Math.max(expectedMax[1], noHostCpu);
+        docs.add(client().prepareIndex("metrics", "type").setSource("timestamp", START + HOUR, "cpu", noHostCpu));
+        // the last hour isn't complete yet and must not be summarized
+        docs.add(client().prepareIndex("metrics", "type").setSource("timestamp", START + 3 * HOUR, "host", "a", "cpu", 1));
+        indexRandom(true, docs);
+
+        RollupJob job = new RollupJob(RollupJobConfig.parse("test", jobSettings().build()), client());
+        long checkpoint = job.run(START + 3 * HOUR + HOUR / 2, RollupJobMetaData.NO_CHECKPOINT);
+        assertThat(checkpoint, equalTo(START + 3 * HOUR));
+        // nothing is left to summarize before the checkpoint
+        assertThat(job.run(START + 3 * HOUR + HOUR / 2, checkpoint), equalTo(checkpoint));
+        // starting over summarizes the same hours again, but replaces the documents the first run wrote
+        assertThat(job.run(START + 3 * HOUR + HOUR / 2, RollupJobMetaData.NO_CHECKPOINT), equalTo(START + 3 * HOUR));
+        refresh("metrics_rollup");
+        assertHitCount(client().prepareSearch("metrics_rollup").setSize(0).get(), 7);
+        assertHitCount(client().prepareSearch("metrics_rollup").setSize(0)
+                .setQuery(boolQuery().mustNot(existsQuery("host"))).get(), 1);
+
+        SearchResponse response = client().prepareSearch("metrics_rollup")
+                .addAggregation(dateHistogram("histo").field("timestamp").interval(DateHistogramInterval.HOUR).docCountField("doc_count")
+                        .subAggregation(sum("sum").field("cpu.sum"))
+                        .subAggregation(max("max").field("cpu.max")))
+                .get();
+        assertSearchResponse(response);
+        Histogram histo = response.getAggregations().get("histo");
+        assertThat(histo.getBuckets().size(), equalTo(3));
+        for (int hour = 0; hour < 3; hour++) {
+            Histogram.Bucket bucket = histo.getBuckets().get(hour);
+            assertThat(bucket.getDocCount(), equalTo(expectedCounts[hour]));
+            assertThat(((Sum) bucket.getAggregations().get("sum")).getValue(), equalTo((double) expectedSums[hour]));
+            assertThat(((Max) bucket.getAggregations().get("max")).getValue(), equalTo((double) expectedMax[hour]));
+        }
+
+        // the next run picks up where the previous one stopped
+        assertThat(job.run(START + 4 * HOUR, checkpoint), equalTo(START + 4 * HOUR));
+        refresh("metrics_rollup");
+        assertHitCount(client().prepareSearch("metrics_rollup").setSize(0).get(), 8);
+    }
+
+    public void testJobIsStoredInTheClusterState() throws Exception {
+        createIndices();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int hour = 0; hour < 2; hour++) {
+            for (String host : new String[] {"a", "b"}) {
+                docs.add(client().prepareIndex("metrics", "type").setSource("timestamp", START + hour * HOUR, "host", host, "cpu", hour));
+            }
+        }
+        indexRandom(true, docs);
+
+        Settings settings = jobSettings().put("frequency", "1s").build();
+        assertAcked(client().admin().cluster().preparePutRollupJob("test").setSettings(settings));
+        assertBusy(() -> {
+            RollupJobMetaData job = rollupJob("test");
+            assertThat(job, notNullValue());
+            assertThat(job.checkpoint(), greaterThan(START + 2 * HOUR));
+        });
+        refresh("metrics_rollup");
+        assertHitCount(client().prepareSearch("metrics_rollup").setSize(0).get(), 4);
+        long checkpoint = rollupJob("test").checkpoint();
+
+        // the definition and the checkpoint survive a restart, so the job doesn't scan the whole history again
+        internalCluster().fullRestart();
+        ensureYellow();
+        RollupJobMetaData job = rollupJob("test");
+        assertThat(job, notNullValue());
+        assertThat(job.settings(), equalTo(settings));
+        assertThat(job.checkpoint(), greaterThanOrEqualTo(checkpoint));
+
+        // putting the same definition again keeps the checkpoint
+        assertAcked(client().admin().cluster().preparePutRollupJob("test").setSettings(settings));
+        assertThat(rollupJob("test").checkpoint(), greaterThanOrEqualTo(checkpoint));
+
+        assertAcked(client().admin().cluster().prepareDeleteRollupJob("test"));
+        assertThat(rollupJob("test"), nullValue());
+        try {
+            client().admin().cluster().prepareDeleteRollupJob("test").get();
+            fail("expected a ResourceNotFoundException");
+        } catch (ResourceNotFoundException e) {
+            assertThat(e.getMessage(), containsString("rollup job [test] missing"));
+        }
+    }
+
+    public void testInvalidConfig() {
+        try {
+            RollupJobConfig.parse("test", jobSettings().put("rollup_index", "metrics").build());
+            fail("expected a SettingsException");
+        } catch (SettingsException e) {
+            assertThat(e.getMessage(), containsString("can't read from its rollup index"));
+        }
+        try {
+            RollupJobConfig.parse("test", jobSettings().putArray("metrics", "host").build());
+            fail("expected a SettingsException");
+        } catch (SettingsException e) {
+            assertThat(e.getMessage(), containsString("uses field [host] more than once"));
+        }
+        try {
+            RollupJobConfig.parse("test", jobSettings().put("interval", "0s").build());
+            fail("expected a SettingsException");
+        } catch (SettingsException e) {
+            assertThat(e.getMessage(), containsString("requires a positive [interval]"));
+        }
+        try {
+            client().admin().cluster().preparePutRollupJob("test").setSettings(jobSettings().put("interval", "0s")).get();
+            fail("expected an ActionRequestValidationException");
+        } catch (ActionRequestValidationException e) {
+            assertThat(e.getMessage(), containsString("requires a positive [interval]"));
+        }
+        assertThat(rollupJob("test"), nullValue());
+    }
+}
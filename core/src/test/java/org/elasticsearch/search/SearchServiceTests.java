@@ -20,11 +20,19 @@ package org.elasticsearch.search;
 
 
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 
@@ -70,4 +78,55 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
         assertAcked(client().admin().indices().prepareDelete("index"));
         assertEquals(0, service.getActiveContexts());
     }
+
+    public void testCanMatch() throws IOException {
+        IndexService indexService = createIndex("index", Settings.builder().put("index.number_of_shards", 1).build(), "type",
+                "date", "type=date", "number", "type=long", "text", "type=string,index=not_analyzed");
+        client().prepareIndex("index", "type", "1").setSource("date", "2016-01-01", "number", 10, "text", "b").get();
+        client().prepareIndex("index", "type", "2").setSource("date", "2016-01-31", "number", 20, "text", "d").setRefresh(true).get();
+        IndexShard indexShard = indexService.getShard(0);
+        QueryShardContext context = indexShard.getQueryShardContext();
+        long now = System.currentTimeMillis();
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("test")) {
+            assertTrue(SearchService.canMatch(QueryBuilders.rangeQuery("date").gte("2016-01-15"), context, searcher.reader(), now));
+            assertTrue(SearchService.canMatch(QueryBuilders.rangeQuery("date").lte("2016-01-01"), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.rangeQuery("date").lt("2016-01-01"), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.rangeQuery("date").gte("now-1d"), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.rangeQuery("date").gt("2016-01-31||/d"), context, searcher.reader(), now));
+            assertTrue(SearchService.canMatch(QueryBuilders.rangeQuery("number").from(15).to(25), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.rangeQuery("number").gt(20), context, searcher.reader(), now));
+            assertTrue(SearchService.canMatch(QueryBuilders.rangeQuery("text").from("a").to("c"), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.rangeQuery("text").from("e"), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.rangeQuery("unmapped").from(1), context, searcher.reader(), now));
+
+            assertFalse(SearchService.canMatch(QueryBuilders.boolQuery().must(QueryBuilders.termQuery("text", "b"))
+                    .filter(QueryBuilders.rangeQuery("number").lt(10)), context, searcher.reader(), now));
+            assertTrue(SearchService.canMatch(QueryBuilders.boolQuery().mustNot(QueryBuilders.rangeQuery("number").lt(10)),
+                    context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.boolQuery().should(QueryBuilders.rangeQuery("number").lt(10))
+                    .should(QueryBuilders.rangeQuery("number").gt(20)), context, searcher.reader(), now));
+            assertTrue(SearchService.canMatch(QueryBuilders.boolQuery().should(QueryBuilders.rangeQuery("number").lt(10))
+                    .should(QueryBuilders.termQuery("text", "b")), context, searcher.reader(), now));
+            assertFalse(SearchService.canMatch(QueryBuilders.constantScoreQuery(QueryBuilders.rangeQuery("number").gt(20)),
+                    context, searcher.reader(), now));
+        }
+    }
+
+    public void testPreFilterSearchShards() {
+        createIndex("index-2015", Settings.EMPTY, "type", "date", "type=date");
+        createIndex("index-2016", Settings.EMPTY, "type", "date", "type=date");
+        client().prepareIndex("index-2015", "type", "1").setSource("date", "2015-06-01").setRefresh(true).get();
+        client().prepareIndex("index-2016", "type", "1").setSource("date", "2016-06-01").setRefresh(true).get();
+
+        SearchResponse response = client().prepareSearch("index-*").setPreFilterShardSize(1)
+                .setQuery(QueryBuilders.rangeQuery("date").gte("2016-01-01")).get();
+        assertHitCount(response, 1);
+        assertEquals("index-2016", response.getHits().getAt(0).getIndex());
+        assertEquals(response.getTotalShards(), response.getSuccessfulShards());
+
+        response = client().prepareSearch("index-*").setPreFilterShardSize(1)
+                .setQuery(QueryBuilders.rangeQuery("date").gte("2017-01-01")).get();
+        assertHitCount(response, 0);
+        assertEquals(response.getTotalShards(), response.getSuccessfulShards());
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.InternalTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BucketColumnsTests extends ESTestCase {
+
+    public void testDeltas() throws IOException {
+        long[] values = new long[randomIntBetween(0, 100)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = randomBoolean() ? randomLong() : randomIntBetween(-10, 10);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        BucketColumns.writeDeltas(values, out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        assertArrayEquals(values, BucketColumns.readDeltas(values.length, in));
+    }
+
+    public void testSortedDeltasAreSmall() throws IOException {
+        long[] keys = new long[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 1420070400000L + i * 3600000L;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        BucketColumns.writeDeltas(keys, out);
+        // one large first key, then one small delta per bucket instead of eight bytes per key
+        assertTrue(out.bytes().length() < 8 + 4 * keys.length);
+    }
+
+    public void testTerms() throws IOException {
+        BytesRef[] terms = new BytesRef[randomIntBetween(0, 100)];
+        for (int i = 0; i < terms.length; i++) {
+            BytesRef term = new BytesRef(randomUnicodeOfLengthBetween(0, 20));
+            if (randomBoolean()) {
+                // terms may point into a larger array
+                byte[] bytes = new byte[term.length + 4];
+                System.arraycopy(term.bytes, term.offset, bytes, 2, term.length);
+                term = new BytesRef(bytes, 2, term.length);
+            }
+            terms[i] = term;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        BucketColumns.writeTerms(terms, out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        assertArrayEquals(terms, BucketColumns.readTerms(terms.length, in));
+    }
+
+    public void testStringTermsRoundTrip() throws IOException {
+        InternalMax.registerStreams();
+        boolean subAggregations = randomBoolean();
+        boolean showDocCountError = randomBoolean();
+        int numBuckets = randomIntBetween(0, 50);
+        List<InternalTerms.Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < numBuckets; i++) {
+            buckets.add(new StringTerms.Bucket(new BytesRef(randomUnicodeOfLengthBetween(0, 20)), randomIntBetween(1, 1000),
+                    subAggregations(subAggregations), showDocCountError, showDocCountError ? randomIntBetween(0, 10) : -1));
+        }
+        StringTerms terms = new StringTerms("terms", Terms.Order.count(false), 10, 10, 1, buckets, showDocCountError, 0, 0,
+                Collections.emptyList(), null);
+        StringTerms read = (StringTerms) StringTerms.STREAM.readResult(roundTrip(terms));
+        assertBuckets(terms, read, showDocCountError);
+    }
+
+    private static InternalAggregations subAggregations(boolean subAggregations) {
+        if (subAggregations == false) {
+            return InternalAggregations.EMPTY;
+        }
+        return new InternalAggregations(Collections.<InternalAggregation>singletonList(
+                new InternalMax("max", randomDouble(), null, Collections.emptyList(), null)));
+    }
+
+    private static StreamInput roundTrip(InternalAggregation aggregation) throws IOException {
+        Version version = randomBoolean() ? Version.CURRENT : VersionUtils.randomVersion(random());
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        aggregation.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        in.setVersion(version);
+        return in;
+    }
+
+    private static void assertBuckets(Terms expected, Terms actual, boolean showDocCountError) {
+        assertEquals(expected.getBuckets().size(), actual.getBuckets().size());
+        for (int i = 0; i < expected.getBuckets().size(); i++) {
+            Terms.Bucket expectedBucket = expected.getBuckets().get(i);
+            Terms.Bucket actualBucket = actual.getBuckets().get(i);
+            assertEquals(expectedBucket.getKey(), actualBucket.getKey());
+            assertEquals(expectedBucket.getDocCount(), actualBucket.getDocCount());
+            if (showDocCountError) {
+                assertEquals(expectedBucket.getDocCountError(), actualBucket.getDocCountError());
+            }
+            List<?> expectedAggs = expectedBucket.getAggregations().asList();
+            List<?> actualAggs = actualBucket.getAggregations().asList();
+            assertEquals(expectedAggs.size(), actualAggs.size());
+            for (int j = 0; j < expectedAggs.size(); j++) {
+                assertEquals(((Max) expectedAggs.get(j)).getValue(), ((Max) actualAggs.get(j)).getValue(), 0d);
+            }
+        }
+    }
+}
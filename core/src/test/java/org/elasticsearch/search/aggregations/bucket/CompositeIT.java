@@ -0,0 +1,241 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.composite;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+@ESIntegTestCase.SuiteScopeTestCase
+public class CompositeIT extends ESIntegTestCase {
+
+    private static final int INTERVAL = 5;
+
+    /** expected doc count and max of the num field, per (tag, rounded value) key sorted by tag asc and value desc */
+    private static final TreeMap<Object[], long[]> expected = new TreeMap<>(new Comparator<Object[]>() {
+        @Override
+        public int compare(Object[] o1, Object[] o2) {
+            int cmp = ((String) o1[0]).compareTo((String) o2[0]);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Long.compare((Long) o2[1], (Long) o1[1]);
+        }
+    });
+
+    /** number of documents without a value for the value field, per tag */
+    private static final TreeMap<String, Long> expectedMissing = new TreeMap<>();
+
+    private static int numDocs;
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "tag", "type=string,index=not_analyzed", "value", "type=long",
+                "num", "type=long"));
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        numDocs = randomIntBetween(50, 200);
+        for (int i = 0; i < numDocs; i++) {
+            String tag = "tag" + randomIntBetween(0, 10);
+            long[] values = new long[randomIntBetween(0, 3)];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = randomIntBetween(-20, 50);
+            }
+            long num = randomIntBetween(0, 1000);
+            builders.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource(jsonBuilder()
+                    .startObject()
+                    .field("tag", tag)
+                    .field("value", values)
+                    .field("num", num)
+                    .endObject()));
+            long[] rounded = new long[values.length];
+            for (int j = 0; j < values.length; j++) {
+                rounded[j] = Math.floorDiv(values[j], INTERVAL) * INTERVAL;
+            }
+            rounded = Arrays.stream(rounded).distinct().toArray();
+            if (rounded.length == 0) {
+                expectedMissing.merge(tag, 1L, Long::sum);
+            }
+            for (long value : rounded) {
+                Object[] key = new Object[] {tag, value};
+                long[] stats = expected.get(key);
+                if (stats == null) {
+                    stats = new long[] {0, Long.MIN_VALUE};
+                    expected.put(key, stats);
+                }
+                stats[0]++;
+                stats[1] = Math.max(stats[1], num);
+            }
+        }
+        indexRandom(true, builders);
+        ensureSearchable();
+    }
+
+    private static CompositeAggregationBuilder compositeAgg(int size) {
+        return composite("composite")
+                .source(CompositeValuesSourceBuilder.terms("tag").field("tag"))
+                .source(CompositeValuesSourceBuilder.histogram("value", INTERVAL).field("value").order(SortOrder.DESC))
+                .size(size);
+    }
+
+    public void testPagination() throws Exception {
+        final int size = randomIntBetween(1, 20);
+        List<Object[]> expectedKeys = new ArrayList<>(expected.keySet());
+        Map<String, Object> after = null;
+        int offset = 0;
+        while (true) {
+            CompositeAggregationBuilder agg = compositeAgg(size).subAggregation(max("max").field("num"));
+            if (after != null) {
+                agg.aggregateAfter(after);
+            }
+            SearchResponse response = client().prepareSearch("idx").setSize(0).addAggregation(agg).get();
+            assertSearchResponse(response);
+            CompositeAggregation composite = response.getAggregations().get("composite");
+            if (composite.getBuckets().isEmpty()) {
+                assertThat(composite.afterKey(), nullValue());
+                break;
+            }
+            assertThat(composite.getBuckets().size(), equalTo(Math.min(size, expectedKeys.size() - offset)));
+            for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+                Object[] expectedKey = expectedKeys.get(offset++);
+                assertThat(bucket.getKey().get("tag"), equalTo(expectedKey[0]));
+                assertThat(((Number) bucket.getKey().get("value")).longValue(), equalTo(expectedKey[1]));
+                long[] stats = expected.get(expectedKey);
+                assertThat(bucket.getDocCount(), equalTo(stats[0]));
+                Max max = bucket.getAggregations().get("max");
+                assertThat((long) max.getValue(), equalTo(stats[1]));
+            }
+            after = composite.afterKey();
+            assertThat(after, equalTo(composite.getBuckets().get(composite.getBuckets().size() - 1).getKey()));
+        }
+        assertThat(offset, equalTo(expectedKeys.size()));
+    }
+
+    public void testMissingBucket() throws Exception {
+        // (tag, value) keys sorted by tag asc then value asc, the missing bucket of each tag first
+        List<Object[]> expectedKeys = new ArrayList<>();
+        List<Long> expectedCounts = new ArrayList<>();
+        TreeMap<String, TreeMap<Long, Long>> countsPerTag = new TreeMap<>();
+        for (Map.Entry<Object[], long[]> entry : expected.entrySet()) {
+            countsPerTag.computeIfAbsent((String) entry.getKey()[0], k -> new TreeMap<>())
+                    .put((Long) entry.getKey()[1], entry.getValue()[0]);
+        }
+        for (String tag : expectedMissing.keySet()) {
+            countsPerTag.computeIfAbsent(tag, k -> new TreeMap<>());
+        }
+        for (Map.Entry<String, TreeMap<Long, Long>> entry : countsPerTag.entrySet()) {
+            Long missing = expectedMissing.get(entry.getKey());
+            if (missing != null) {
+                expectedKeys.add(new Object[] {entry.getKey(), null});
+                expectedCounts.add(missing);
+            }
+            for (Map.Entry<Long, Long> value : entry.getValue().entrySet()) {
+                expectedKeys.add(new Object[] {entry.getKey(), value.getKey()});
+                expectedCounts.add(value.getValue());
+            }
+        }
+
+        final int size = randomIntBetween(1, 20);
+        Map<String, Object> after = null;
+        int offset = 0;
+        while (true) {
+            CompositeAggregationBuilder agg = composite("composite")
+                    .source(CompositeValuesSourceBuilder.terms("tag").field("tag"))
+                    .source(CompositeValuesSourceBuilder.histogram("value", INTERVAL).field("value").missingBucket(true))
+                    .size(size);
+            if (after != null) {
+                agg.aggregateAfter(after);
+            }
+            SearchResponse response = client().prepareSearch("idx").setSize(0).addAggregation(agg).get();
+            assertSearchResponse(response);
+            CompositeAggregation composite = response.getAggregations().get("composite");
+            if (composite.getBuckets().isEmpty()) {
+                break;
+            }
+            for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+                Object[] expectedKey = expectedKeys.get(offset);
+                assertThat(bucket.getKey().get("tag"), equalTo(expectedKey[0]));
+                Number value = (Number) bucket.getKey().get("value");
+                assertThat(value == null ? null : value.longValue(), equalTo(expectedKey[1]));
+                assertThat(bucket.getDocCount(), equalTo(expectedCounts.get(offset)));
+                offset++;
+            }
+            after = composite.afterKey();
+        }
+        assertThat(offset, equalTo(expectedKeys.size()));
+    }
+
+    public void testUnmappedMissingBucket() throws Exception {
+        SearchResponse response = client().prepareSearch("idx").setSize(0)
+                .addAggregation(composite("composite")
+                        .source(CompositeValuesSourceBuilder.terms("unmapped").field("unmapped").missingBucket(true)))
+                .get();
+        assertSearchResponse(response);
+        CompositeAggregation composite = response.getAggregations().get("composite");
+        assertThat(composite.getBuckets().size(), equalTo(1));
+        assertThat(composite.getBuckets().get(0).getKey().get("unmapped"), nullValue());
+        assertThat(composite.getBuckets().get(0).getDocCount(), equalTo((long) numDocs));
+    }
+
+    public void testUnmapped() throws Exception {
+        SearchResponse response = client().prepareSearch("idx").setSize(0)
+                .addAggregation(composite("composite").source(CompositeValuesSourceBuilder.terms("unmapped").field("unmapped")))
+                .get();
+        assertSearchResponse(response);
+        CompositeAggregation composite = response.getAggregations().get("composite");
+        assertThat(composite.getBuckets().size(), equalTo(0));
+        assertThat(composite.afterKey(), nullValue());
+    }
+
+    public void testFieldOfDifferentTypes() throws Exception {
+        assertAcked(prepareCreate("idx_long_tag").addMapping("type", "tag", "type=long"));
+        indexRandom(true, client().prepareIndex("idx_long_tag", "type", "1").setSource("tag", 3));
+        try {
+            client().prepareSearch("idx", "idx_long_tag").setSize(0)
+                    .addAggregation(composite("composite").source(CompositeValuesSourceBuilder.terms("tag").field("tag")))
+                    .get();
+            fail("reducing string and long keys should fail");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.toString(), containsString("existed as two different types"));
+        }
+    }
+}
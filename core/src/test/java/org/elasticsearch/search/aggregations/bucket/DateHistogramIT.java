@@ -1360,6 +1360,37 @@ public class DateHistogramIT extends ESIntegTestCase {
         internalCluster().wipeIndices("test8209");
     }
 
+    public void testDocCountField() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("test_raw").addMapping("type", "d", "type=date", "value", "type=long").get());
+        assertAcked(client().admin().indices().prepareCreate("test_rollup")
+                .addMapping("type", "d", "type=date", "value", "type=long", "count", "type=long").get());
+        indexRandom(true,
+                // summaries of the raw documents of the first two days
+                client().prepareIndex("test_rollup", "type").setSource("d", "2014-01-01T00:00:00Z", "value", 7, "count", 3),
+                client().prepareIndex("test_rollup", "type").setSource("d", "2014-01-02T00:00:00Z", "value", 2, "count", 5),
+                // a summary of no documents creates no bucket
+                client().prepareIndex("test_rollup", "type").setSource("d", "2014-01-04T00:00:00Z", "value", 9, "count", 0),
+                // raw documents of the last day
+                client().prepareIndex("test_raw", "type").setSource("d", "2014-01-03T01:00:00Z", "value", 1),
+                client().prepareIndex("test_raw", "type").setSource("d", "2014-01-03T02:00:00Z", "value", 4));
+        ensureSearchable("test_raw", "test_rollup");
+        SearchResponse response = client().prepareSearch("test_raw", "test_rollup")
+                .addAggregation(dateHistogram("histo").field("d").interval(DateHistogramInterval.DAY).docCountField("count")
+                        .subAggregation(max("max").field("value")))
+                .execute().actionGet();
+        assertSearchResponse(response);
+        assertThat(response.getHits().getTotalHits(), equalTo(5L));
+        Histogram histo = response.getAggregations().get("histo");
+        assertThat(histo.getBuckets().size(), equalTo(3));
+        assertThat(histo.getBuckets().get(0).getDocCount(), equalTo(3L));
+        assertThat(((Max) histo.getBuckets().get(0).getAggregations().get("max")).getValue(), equalTo(7d));
+        assertThat(histo.getBuckets().get(1).getDocCount(), equalTo(5L));
+        assertThat(((Max) histo.getBuckets().get(1).getAggregations().get("max")).getValue(), equalTo(2d));
+        assertThat(histo.getBuckets().get(2).getDocCount(), equalTo(2L));
+        assertThat(((Max) histo.getBuckets().get(2).getAggregations().get("max")).getValue(), equalTo(4d));
+        internalCluster().wipeIndices("test_raw", "test_rollup");
+    }
+
     /**
      * see issue #9634, negative interval in date_histogram should raise exception
      */
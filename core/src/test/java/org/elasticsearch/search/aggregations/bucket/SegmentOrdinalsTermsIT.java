@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregatorFactory.ExecutionMode;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that the <code>segment_ordinals</code> execution mode returns the same buckets as <code>global_ordinals</code>
+ * on indices made of several segments, where segment ordinals differ from global ordinals.
+ */
+@ESIntegTestCase.SuiteScopeTestCase
+public class SegmentOrdinalsTermsIT extends ESIntegTestCase {
+
+    private static final int MAX_NUM = 100;
+
+    private static int numTags;
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        assertAcked(prepareCreate("idx")
+                .setSettings(Settings.builder()
+                        .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, between(1, 3))
+                        .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0))
+                .addMapping("type", "tag", "type=string,index=not_analyzed", "num", "type=long"));
+        numTags = between(5, 50);
+        int numSegments = between(2, 5);
+        int id = 0;
+        for (int i = 0; i < numSegments; i++) {
+            int numDocs = between(10, 100);
+            for (int j = 0; j < numDocs; j++) {
+                String[] tags = new String[randomIntBetween(0, 3)];
+                for (int k = 0; k < tags.length; k++) {
+                    tags[k] = "tag" + randomInt(numTags - 1);
+                }
+                client().prepareIndex("idx", "type", Integer.toString(id++)).setSource(jsonBuilder()
+                        .startObject()
+                        .array("tag", tags)
+                        .field("num", randomInt(MAX_NUM))
+                        .endObject()).get();
+            }
+            // every batch is flushed to new segments, whose ordinals differ from the global ones
+            refresh();
+        }
+        ensureSearchable();
+    }
+
+    private static TermsBuilder termsAgg(String executionHint) {
+        return terms("terms")
+                .field("tag")
+                .executionHint(executionHint)
+                .size(numTags)
+                .order(Terms.Order.term(true));
+    }
+
+    /** Runs the given aggregation once per execution hint and checks that both return the same buckets. */
+    private void assertSameBuckets(QueryBuilder query, TermsBuilder segmentOrdinals, TermsBuilder globalOrdinals) {
+        SearchResponse expected = client().prepareSearch("idx").setSize(0).setQuery(query).addAggregation(globalOrdinals).get();
+        assertSearchResponse(expected);
+        SearchResponse actual = client().prepareSearch("idx").setSize(0).setQuery(query).addAggregation(segmentOrdinals).get();
+        assertSearchResponse(actual);
+        Map<String, List<Object>> expectedBuckets = buckets(expected.getAggregations().get("terms"));
+        assertThat(buckets(actual.getAggregations().get("terms")), equalTo(expectedBuckets));
+    }
+
+    private static Map<String, List<Object>> buckets(Terms terms) {
+        Map<String, List<Object>> buckets = new LinkedHashMap<>();
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            List<Object> values = new ArrayList<>();
+            values.add(bucket.getDocCount());
+            Sum sum = bucket.getAggregations().get("sum");
+            if (sum != null) {
+                values.add(sum.getValue());
+            }
+            buckets.put(bucket.getKeyAsString(), values);
+        }
+        return buckets;
+    }
+
+    public void testLeaf() throws Exception {
+        assertSameBuckets(matchAllQuery(),
+                termsAgg(ExecutionMode.SEGMENT_ORDINALS.toString()),
+                termsAgg(ExecutionMode.GLOBAL_ORDINALS.toString()));
+    }
+
+    public void testSubAggregation() throws Exception {
+        SubAggCollectionMode collectMode = randomFrom(SubAggCollectionMode.values());
+        assertSameBuckets(matchAllQuery(),
+                termsAgg(ExecutionMode.SEGMENT_ORDINALS.toString()).collectMode(collectMode).subAggregation(sum("sum").field("num")),
+                termsAgg(ExecutionMode.GLOBAL_ORDINALS.toString()).collectMode(collectMode).subAggregation(sum("sum").field("num")));
+    }
+
+    public void testMinDocCountZero() throws Exception {
+        // only part of the documents match, so some of the terms get empty buckets
+        QueryBuilder query = rangeQuery("num").lte(randomInt(MAX_NUM / 2));
+        assertSameBuckets(query,
+                termsAgg(ExecutionMode.SEGMENT_ORDINALS.toString()).minDocCount(0),
+                termsAgg(ExecutionMode.GLOBAL_ORDINALS.toString()).minDocCount(0));
+        assertSameBuckets(query,
+                termsAgg(ExecutionMode.SEGMENT_ORDINALS.toString()).minDocCount(0).subAggregation(sum("sum").field("num")),
+                termsAgg(ExecutionMode.GLOBAL_ORDINALS.toString()).minDocCount(0).subAggregation(sum("sum").field("num")));
+    }
+
+    public void testOrderByCount() throws Exception {
+        // every term is returned, so ties in doc counts can't change which buckets are returned
+        assertSameBuckets(matchAllQuery(),
+                termsAgg(ExecutionMode.SEGMENT_ORDINALS.toString()).order(Terms.Order.count(false)),
+                termsAgg(ExecutionMode.GLOBAL_ORDINALS.toString()).order(Terms.Order.count(false)));
+    }
+}
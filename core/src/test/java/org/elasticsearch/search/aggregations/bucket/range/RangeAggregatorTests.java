@@ -0,0 +1,134 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.range;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.FieldType.NumericType;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.core.DoubleFieldMapper;
+import org.elasticsearch.index.mapper.core.IntegerFieldMapper;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class RangeAggregatorTests extends ESTestCase {
+
+    public void testLongRangeQuery() throws Exception {
+        assertRangeQueries(new LongFieldMapper.LongFieldType(), NumericType.LONG);
+    }
+
+    public void testIntRangeQuery() throws Exception {
+        assertRangeQueries(new IntegerFieldMapper.IntegerFieldType(), NumericType.INT);
+    }
+
+    public void testDoubleRangeQuery() throws Exception {
+        assertRangeQueries(new DoubleFieldMapper.DoubleFieldType(), NumericType.DOUBLE);
+    }
+
+    /**
+     * Checks that the query built for a range matches the documents that have a value in the range, as the
+     * value-by-value collection would.
+     */
+    private void assertRangeQueries(MappedFieldType fieldType, NumericType numericType) throws Exception {
+        final int precisionStep = randomFrom(4, 8, 16);
+        fieldType.setName("field");
+        fieldType.setNumericPrecisionStep(precisionStep);
+
+        final FieldType luceneType;
+        switch (numericType) {
+        case LONG:
+            luceneType = new FieldType(LongField.TYPE_NOT_STORED);
+            break;
+        case INT:
+            luceneType = new FieldType(IntField.TYPE_NOT_STORED);
+            break;
+        default:
+            luceneType = new FieldType(DoubleField.TYPE_NOT_STORED);
+            break;
+        }
+        luceneType.setNumericPrecisionStep(precisionStep);
+        luceneType.freeze();
+
+        final double[][] docValues = new double[randomIntBetween(1, 200)][];
+        Directory directory = newDirectory();
+        RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory);
+        for (int i = 0; i < docValues.length; i++) {
+            Document document = new Document();
+            docValues[i] = new double[randomIntBetween(0, 3)];
+            for (int j = 0; j < docValues[i].length; j++) {
+                switch (numericType) {
+                case LONG:
+                    long l = randomIntBetween(-1000, 1000);
+                    document.add(new LongField("field", l, luceneType));
+                    docValues[i][j] = l;
+                    break;
+                case INT:
+                    int v = randomIntBetween(-1000, 1000);
+                    document.add(new IntField("field", v, luceneType));
+                    docValues[i][j] = v;
+                    break;
+                default:
+                    double d = randomIntBetween(-1000, 1000) / 4d;
+                    document.add(new DoubleField("field", d, luceneType));
+                    docValues[i][j] = d;
+                    break;
+                }
+            }
+            indexWriter.addDocument(document);
+        }
+        DirectoryReader reader = indexWriter.getReader();
+        IndexSearcher searcher = newSearcher(reader);
+
+        for (int iter = 0; iter < 50; iter++) {
+            double from = randomBoolean() ? Double.NEGATIVE_INFINITY : randomIntBetween(-1100, 1100) / 4d;
+            double to = randomBoolean() ? Double.POSITIVE_INFINITY : randomIntBetween(-1100, 1100) / 4d;
+            if (rarely()) {
+                from = randomFrom(1e19, -1e19, (double) Long.MAX_VALUE, (double) Integer.MAX_VALUE + 1);
+            }
+            RangeAggregator.Range range = new RangeAggregator.Range(null, from, null, to, null);
+            int expected = 0;
+            for (double[] values : docValues) {
+                for (double value : values) {
+                    if (range.matches(value)) {
+                        expected++;
+                        break;
+                    }
+                }
+            }
+            Query query = RangeAggregator.rangeQuery(fieldType, range);
+            assertThat(range.toString(), searcher.count(query), equalTo(expected));
+        }
+
+        indexWriter.close();
+        reader.close();
+        directory.close();
+    }
+}
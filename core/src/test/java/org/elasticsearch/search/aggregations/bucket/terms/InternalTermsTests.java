@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+public class InternalTermsTests extends ESTestCase {
+
+    private static final int SHARD_SIZE = 3;
+
+    /** Builds the result of a shard that returned the given terms, with doc counts in descending order. */
+    private static StringTerms shardTerms(Object... termsAndCounts) {
+        List<InternalTerms.Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < termsAndCounts.length; i += 2) {
+            buckets.add(new StringTerms.Bucket(new BytesRef((String) termsAndCounts[i]), (Integer) termsAndCounts[i + 1],
+                    InternalAggregations.EMPTY, true, 0));
+        }
+        return new StringTerms("terms", Terms.Order.count(false), 10, SHARD_SIZE, 1, buckets, true, 0, 0,
+                Collections.emptyList(), null);
+    }
+
+    private static Terms reduce(boolean finalReduce, InternalAggregation... aggregations) {
+        ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, new SearchRequest(), finalReduce);
+        return (Terms) aggregations[0].reduce(Arrays.asList(aggregations), context);
+    }
+
+    public void testPartialReduceKeepsExactDocCountError() {
+        // no shard returned shard_size terms so all counts are exact, even though the partial result has more terms
+        Terms partial = reduce(false, shardTerms("a", 5, "b", 4), shardTerms("c", 3, "d", 2));
+        assertEquals(4, partial.getBuckets().size());
+        assertEquals(0, partial.getDocCountError());
+
+        Terms batched = reduce(true, (InternalAggregation) partial, shardTerms("a", 1));
+        Terms unbatched = reduce(true, shardTerms("a", 5, "b", 4), shardTerms("c", 3, "d", 2), shardTerms("a", 1));
+        assertEquals(0, unbatched.getDocCountError());
+        assertEquals(unbatched.getDocCountError(), batched.getDocCountError());
+        for (Terms.Bucket bucket : unbatched.getBuckets()) {
+            assertEquals(0, bucket.getDocCountError());
+            assertEquals(0, batched.getBucketByKey(bucket.getKeyAsString()).getDocCountError());
+        }
+    }
+
+    public void testPartialReduceKeepsDocCountError() {
+        // both shards returned shard_size terms, so terms they didn't return may have up to their smallest count
+        Terms partial = reduce(false, shardTerms("a", 9, "b", 8, "c", 2), shardTerms("a", 7, "d", 6, "e", 3));
+        assertEquals(5, partial.getDocCountError());
+
+        Terms batched = reduce(true, (InternalAggregation) partial, shardTerms("b", 1));
+        Terms unbatched = reduce(true, shardTerms("a", 9, "b", 8, "c", 2), shardTerms("a", 7, "d", 6, "e", 3),
+                shardTerms("b", 1));
+        assertEquals(unbatched.getDocCountError(), batched.getDocCountError());
+        for (Terms.Bucket bucket : unbatched.getBuckets()) {
+            assertEquals(bucket.getKeyAsString(), bucket.getDocCountError(),
+                    batched.getBucketByKey(bucket.getKeyAsString()).getDocCountError());
+        }
+    }
+
+    /**
+     * Builds the results of the given shards, the doc count of term <code>i</code> on shard <code>s</code> being
+     * <code>counts[s][i]</code>, terms with no docs are not returned. The results are built again for every reduce since
+     * reducing updates the doc count errors of their buckets.
+     */
+    private static InternalAggregation[] shardTerms(int[][] counts, int shardSize) {
+        InternalAggregation[] aggregations = new InternalAggregation[counts.length];
+        for (int s = 0; s < counts.length; s++) {
+            List<InternalTerms.Bucket> buckets = new ArrayList<>();
+            for (int i = 0; i < counts[s].length; i++) {
+                if (counts[s][i] > 0) {
+                    buckets.add(new StringTerms.Bucket(new BytesRef("term_" + i), counts[s][i], InternalAggregations.EMPTY, true, 0));
+                }
+            }
+            aggregations[s] = new StringTerms("terms", Terms.Order.count(false), shardSize, shardSize, 1, buckets, true, 0, 0,
+                    Collections.emptyList(), null);
+        }
+        return aggregations;
+    }
+
+    private static int[][] randomCounts(int numShards, int numTerms) {
+        int[][] counts = new int[numShards][numTerms];
+        for (int s = 0; s < numShards; s++) {
+            for (int i = 0; i < numTerms; i++) {
+                counts[s][i] = randomBoolean() ? 0 : randomIntBetween(1, 100);
+            }
+        }
+        // every term is returned by at least one shard, so that there are enough distinct terms to reduce them in parallel
+        for (int i = 0; i < numTerms; i++) {
+            int s = randomInt(numShards - 1);
+            counts[s][i] = Math.max(1, counts[s][i]);
+        }
+        return counts;
+    }
+
+    private static HierarchyCircuitBreakerService breakerService(long requestLimit) {
+        return new HierarchyCircuitBreakerService(
+                Settings.builder()
+                        .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), requestLimit,
+                                ByteSizeUnit.BYTES)
+                        .build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    public void testParallelReduce() throws Exception {
+        final int numShards = randomIntBetween(2, 5);
+        final int numTerms = randomIntBetween(InternalTerms.MIN_BUCKETS_FOR_PARALLEL_REDUCE,
+                2 * InternalTerms.MIN_BUCKETS_FOR_PARALLEL_REDUCE);
+        final int shardSize = randomIntBetween(1, numTerms);
+        final int[][] counts = randomCounts(numShards, numTerms);
+        final boolean finalReduce = randomBoolean();
+        final HierarchyCircuitBreakerService breakerService = breakerService(ByteSizeUnit.MB.toBytes(100));
+        final BigArrays bigArrays = new BigArrays(null, breakerService);
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+
+        InternalAggregation[] sequentialShards = shardTerms(counts, shardSize);
+        Terms sequential = (Terms) sequentialShards[0].reduce(Arrays.asList(sequentialShards),
+                new ReduceContext(bigArrays, null, new SearchRequest(), finalReduce));
+        assertEquals(0, breaker.getUsed());
+
+        ExecutorService executor = EsExecutors.newFixed("test", randomIntBetween(1, 4), -1, EsExecutors.daemonThreadFactory("test"));
+        try {
+            ReduceContext context = new ReduceContext(bigArrays, null, new SearchRequest(), finalReduce, executor, randomIntBetween(1, 8));
+            assertTrue(context.isParallel());
+            InternalAggregation[] parallelShards = shardTerms(counts, shardSize);
+            Terms parallel = (Terms) parallelShards[0].reduce(Arrays.asList(parallelShards), context);
+            assertEquals(0, breaker.getUsed());
+
+            assertEquals(sequential.getDocCountError(), parallel.getDocCountError());
+            assertEquals(sequential.getSumOfOtherDocCounts(), parallel.getSumOfOtherDocCounts());
+            assertEquals(sequential.getBuckets().size(), parallel.getBuckets().size());
+            for (int i = 0; i < sequential.getBuckets().size(); i++) {
+                Terms.Bucket expected = sequential.getBuckets().get(i);
+                Terms.Bucket actual = parallel.getBuckets().get(i);
+                assertEquals(expected.getKeyAsString(), actual.getKeyAsString());
+                assertEquals(expected.getDocCount(), actual.getDocCount());
+                assertEquals(expected.getDocCountError(), actual.getDocCountError());
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testParallelReduceReleasesBreakerWhenTripped() throws Exception {
+        final int numShards = randomIntBetween(2, 5);
+        final int numTerms = randomIntBetween(InternalTerms.MIN_BUCKETS_FOR_PARALLEL_REDUCE,
+                2 * InternalTerms.MIN_BUCKETS_FOR_PARALLEL_REDUCE);
+        final int[][] counts = randomCounts(numShards, numTerms);
+        // the map of buckets of the first shards already uses more than that
+        final HierarchyCircuitBreakerService breakerService = breakerService(randomIntBetween(1, 1024));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        ExecutorService executor = EsExecutors.newFixed("test", randomIntBetween(1, 4), -1, EsExecutors.daemonThreadFactory("test"));
+        try {
+            ReduceContext context = new ReduceContext(new BigArrays(null, breakerService), null, new SearchRequest(), randomBoolean(),
+                    executor, randomIntBetween(1, 8));
+            InternalAggregation[] shards = shardTerms(counts, numTerms);
+            try {
+                shards[0].reduce(Arrays.asList(shards), context);
+                fail("expected a CircuitBreakingException");
+            } catch (CircuitBreakingException e) {
+                assertEquals(0, breaker.getUsed());
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+}
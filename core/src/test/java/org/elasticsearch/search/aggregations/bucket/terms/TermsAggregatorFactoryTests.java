@@ -0,0 +1,43 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class TermsAggregatorFactoryTests extends ESTestCase {
+
+    public void testSubAggCollectionMode() {
+        final int shardSize = randomIntBetween(1, 1000);
+        // unknown cardinality
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(shardSize, -1), equalTo(SubAggCollectionMode.BREADTH_FIRST));
+        // more terms than returned buckets
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(shardSize, shardSize + randomIntBetween(1, 1000)),
+                equalTo(SubAggCollectionMode.BREADTH_FIRST));
+        // all terms are returned
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(shardSize, randomIntBetween(0, shardSize)),
+                equalTo(SubAggCollectionMode.DEPTH_FIRST));
+        assertThat(TermsAggregatorFactory.subAggCollectionMode(Integer.MAX_VALUE, randomFrom(-1L, (long) randomIntBetween(0, Integer.MAX_VALUE))),
+                equalTo(SubAggCollectionMode.DEPTH_FIRST));
+    }
+}
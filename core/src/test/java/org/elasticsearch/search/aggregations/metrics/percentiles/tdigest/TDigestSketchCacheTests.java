@@ -0,0 +1,166 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class TDigestSketchCacheTests extends ESTestCase {
+
+    private static final String FIELD = "number";
+
+    private static ValuesSource.Numeric valuesSource() {
+        return new ValuesSource.Numeric() {
+            @Override
+            public boolean isFloatingPoint() {
+                return false;
+            }
+
+            @Override
+            public SortedNumericDocValues longValues(LeafReaderContext context) throws IOException {
+                return DocValues.getSortedNumeric(context.reader(), FIELD);
+            }
+
+            @Override
+            public SortedNumericDoubleValues doubleValues(LeafReaderContext context) throws IOException {
+                return FieldData.castToDouble(longValues(context));
+            }
+
+            @Override
+            public SortedBinaryDocValues bytesValues(LeafReaderContext context) throws IOException {
+                return FieldData.toString(longValues(context));
+            }
+        };
+    }
+
+    private static int index(IndexWriter writer, int numDocs) throws IOException {
+        int numTypeA = 0;
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("_id", Integer.toString(i), Field.Store.NO));
+            doc.add(new SortedNumericDocValuesField(FIELD, randomIntBetween(-1000, 1000)));
+            if (randomBoolean()) {
+                doc.add(new StringField("type", "a", Field.Store.NO));
+                numTypeA++;
+            }
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.commit();
+            }
+        }
+        return numTypeA;
+    }
+
+    private static long sumSizes(TDigestSketchCache cache, IndexSearcher searcher, Query filterQuery) throws IOException {
+        final Weight filter = searcher.createNormalizedWeight(filterQuery, false);
+        long size = 0;
+        for (LeafReaderContext ctx : searcher.getIndexReader().leaves()) {
+            TDigestState sketch = cache.getOrLoad(ctx, FIELD, 100, filterQuery, filter, valuesSource());
+            assertNotNull(sketch);
+            assertSame(sketch, cache.getOrLoad(ctx, FIELD, 100, filterQuery, filter, valuesSource()));
+            size += sketch.size();
+        }
+        return size;
+    }
+
+    public void testLoadAndRelease() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        int numDocs = randomIntBetween(1, 500);
+        int numTypeA = index(writer, numDocs);
+        writer.close();
+
+        DirectoryReader reader = DirectoryReader.open(dir);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        TDigestSketchCache cache = new TDigestSketchCache(Settings.EMPTY);
+        assertEquals(numDocs, sumSizes(cache, searcher, new MatchAllDocsQuery()));
+        assertEquals(reader.leaves().size(), cache.count());
+        assertEquals(numTypeA, sumSizes(cache, searcher, new TermQuery(new Term("type", "a"))));
+        assertEquals(2 * reader.leaves().size(), cache.count());
+
+        // sketches are dropped with their segment
+        reader.close();
+        assertEquals(0, cache.count());
+        dir.close();
+    }
+
+    public void testSegmentsWithDeletionsAreNotCached() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        index(writer, randomIntBetween(10, 100));
+        writer.deleteDocuments(new Term("_id", "0"));
+        writer.commit();
+        writer.close();
+
+        DirectoryReader reader = DirectoryReader.open(dir);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query filterQuery = new MatchAllDocsQuery();
+        Weight filter = searcher.createNormalizedWeight(filterQuery, false);
+        TDigestSketchCache cache = new TDigestSketchCache(Settings.EMPTY);
+        for (LeafReaderContext ctx : reader.leaves()) {
+            TDigestState sketch = cache.getOrLoad(ctx, FIELD, 100, filterQuery, filter, valuesSource());
+            assertEquals(ctx.reader().hasDeletions(), sketch == null);
+        }
+        reader.close();
+        dir.close();
+    }
+
+    public void testDisabled() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        index(writer, randomIntBetween(1, 10));
+        writer.close();
+
+        DirectoryReader reader = DirectoryReader.open(dir);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query filterQuery = new MatchAllDocsQuery();
+        Weight filter = searcher.createNormalizedWeight(filterQuery, false);
+        TDigestSketchCache cache = new TDigestSketchCache(Settings.builder()
+                .put(TDigestSketchCache.SKETCH_CACHE_SIZE, "0b").build());
+        for (LeafReaderContext ctx : reader.leaves()) {
+            assertNull(cache.getOrLoad(ctx, FIELD, 100, filterQuery, filter, valuesSource()));
+        }
+        assertEquals(0, cache.count());
+        reader.close();
+        dir.close();
+    }
+}
@@ -589,6 +589,36 @@ public class MovAvgUnitTests extends ESTestCase {
 
     }
 
+    public void testIncrementalWindows() {
+        assertWindowMatchesModel(new SimpleModel());
+        assertWindowMatchesModel(new LinearModel());
+        assertWindowMatchesModel(new EwmaModel(randomDouble()));
+        assertWindowMatchesModel(new EwmaModel(randomFrom(0d, 1d)));
+        assertWindowMatchesModel(new HoltLinearModel(randomDouble(), randomDouble()));
+    }
+
+    /**
+     * Checks that the window of a model computes the same values as the model over an evicting queue
+     */
+    private void assertWindowMatchesModel(MovAvgModel model) {
+        int numValues = randomIntBetween(1, 1000);
+        int windowSize = randomIntBetween(1, 50);
+
+        EvictingQueue<Double> expectedWindow = new EvictingQueue<>(windowSize);
+        MovAvgModel.Window window = model.newWindow(windowSize);
+        for (int i = 0; i < numValues; i++) {
+            if (model.hasValue(expectedWindow.size())) {
+                double expected = model.next(expectedWindow);
+                assertEquals(expected, window.next(), 1e-9 * Math.max(1, Math.abs(expected)));
+            }
+            double value = randomDoubleBetween(-100, 100, true);
+            expectedWindow.offer(value);
+            window.offer(value);
+            assertThat(window.size(), equalTo(expectedWindow.size()));
+        }
+        assertThat(new ArrayList<>(window.values()), equalTo(new ArrayList<>(expectedWindow)));
+    }
+
     public void testNumericValidation() {
         List<MovAvgModel.AbstractModelParser> parsers = new ArrayList<>(5);
 
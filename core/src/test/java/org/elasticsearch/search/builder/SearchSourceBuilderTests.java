@@ -428,4 +428,43 @@ public class SearchSourceBuilderTests extends ESTestCase {
         String query = "{ \"post_filter\": {} }";
         assertParseSearchSource(builder, new BytesArray(query));
     }
+
+    public void testCacheKeyIgnoresKeyOrder() throws IOException {
+        String first = "{\"query\": {\"term\": {\"field\": \"value\"}}, \"sort\": [{\"a\": \"asc\", \"b\": \"desc\"}]," +
+                "\"aggs\": {\"terms\": {\"terms\": {\"field\": \"f\", \"size\": 5}, " +
+                "\"aggs\": {\"max\": {\"max\": {\"field\": \"g\"}}}}}}";
+        String second = "{\"aggs\": {\"terms\": {\"aggs\": {\"max\": {\"max\": {\"field\": \"g\"}}}, " +
+                "\"terms\": {\"size\": 5, \"field\": \"f\"}}}, \"sort\": [{\"a\": \"asc\", \"b\": \"desc\"}]," +
+                "\"query\": {\"term\": {\"field\": \"value\"}}}";
+        // the order of the fields of a sort is significant
+        String third = "{\"query\": {\"term\": {\"field\": \"value\"}}, \"sort\": [{\"b\": \"desc\", \"a\": \"asc\"}]," +
+                "\"aggs\": {\"terms\": {\"terms\": {\"field\": \"f\", \"size\": 5}, " +
+                "\"aggs\": {\"max\": {\"max\": {\"field\": \"g\"}}}}}}";
+        BytesReference firstKey = cacheKey(first);
+        assertEquals(firstKey, cacheKey(second));
+        assertNotEquals(firstKey, cacheKey(third));
+    }
+
+    public void testCacheKeyKeepsNestedSortOrder() throws IOException {
+        String first = "{\"aggs\": {\"top\": {\"top_hits\": {\"size\": 1, " +
+                "\"sort\": {\"a\": {\"order\": \"asc\"}, \"b\": {\"order\": \"desc\"}}}}}}";
+        String second = "{\"aggs\": {\"top\": {\"top_hits\": {" +
+                "\"sort\": {\"a\": {\"order\": \"asc\"}, \"b\": {\"order\": \"desc\"}}, \"size\": 1}}}}";
+        // sorting on b first is a different request
+        String third = "{\"aggs\": {\"top\": {\"top_hits\": {\"size\": 1, " +
+                "\"sort\": {\"b\": {\"order\": \"desc\"}, \"a\": {\"order\": \"asc\"}}}}}}";
+        BytesReference firstKey = cacheKey(first);
+        assertEquals(firstKey, cacheKey(second));
+        assertNotEquals(firstKey, cacheKey(third));
+    }
+
+    private static BytesReference cacheKey(String source) throws IOException {
+        try (XContentParser parser = XContentFactory.xContent(source).createParser(source)) {
+            SearchSourceBuilder searchSourceBuilder = SearchSourceBuilder.parseSearchSource(parser, createParseContext(parser));
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                searchSourceBuilder.writeCacheKeyTo(out);
+                return out.bytes().copyBytesArray();
+            }
+        }
+    }
 }
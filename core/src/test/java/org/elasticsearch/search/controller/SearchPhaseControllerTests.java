@@ -0,0 +1,221 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.controller;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchPhaseControllerTests extends ESTestCase {
+
+    private SearchPhaseController searchPhaseController() {
+        return new SearchPhaseController(Settings.EMPTY, BigArrays.NON_RECYCLING_INSTANCE, null);
+    }
+
+    private static QuerySearchResult queryResult(int shardId, double max) {
+        QuerySearchResult result = new QuerySearchResult(shardId, new SearchShardTarget("node", "test", shardId));
+        InternalAggregations aggregations = new InternalAggregations(Collections.<InternalAggregation>singletonList(
+                new InternalMax("test", max, null, Collections.emptyList(), Collections.emptyMap())));
+        result.aggregations(aggregations);
+        return result;
+    }
+
+    public void testConsumeAndReduce() {
+        SearchRequest request = new SearchRequest();
+        request.setBatchedReduceSize(randomIntBetween(2, 10));
+        int numShards = randomIntBetween(1, 100);
+        QueryPhaseResultConsumer consumer = searchPhaseController().newQueryPhaseResultConsumer(request, numShards);
+        double expectedMax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numShards; i++) {
+            double max = randomDouble();
+            expectedMax = Math.max(expectedMax, max);
+            QuerySearchResult result = queryResult(i, max);
+            consumer.consume(result);
+            assertNull(result.aggregations());
+        }
+        InternalAggregations reduced = consumer.reduce();
+        InternalMax max = (InternalMax) reduced.asList().get(0);
+        assertEquals(expectedMax, max.getValue(), 0.0d);
+        int expectedReducePhases = numShards <= request.getBatchedReduceSize() ? 1
+                : 1 + (numShards - 2) / (request.getBatchedReduceSize() - 1);
+        assertEquals(expectedReducePhases, consumer.getNumReducePhases());
+    }
+
+    public void testReduceWithoutAggregations() {
+        QueryPhaseResultConsumer consumer = searchPhaseController().newQueryPhaseResultConsumer(new SearchRequest(), 5);
+        for (int i = 0; i < 5; i++) {
+            consumer.consume(new QuerySearchResult(i, new SearchShardTarget("node", "test", i)));
+        }
+        assertNull(consumer.reduce());
+        assertEquals(0, consumer.getNumReducePhases());
+    }
+
+    public void testConcurrentConsume() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.setBatchedReduceSize(randomIntBetween(2, 10));
+        int numShards = randomIntBetween(10, 200);
+        QueryPhaseResultConsumer consumer = searchPhaseController().newQueryPhaseResultConsumer(request, numShards);
+        AtomicInteger shardIds = new AtomicInteger();
+        Thread[] threads = new Thread[randomIntBetween(2, 5)];
+        CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                int shardId;
+                while ((shardId = shardIds.getAndIncrement()) < numShards) {
+                    consumer.consume(queryResult(shardId, shardId));
+                }
+            });
+            threads[i].start();
+        }
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        InternalMax max = (InternalMax) consumer.reduce().asList().get(0);
+        assertEquals(numShards - 1, max.getValue(), 0.0d);
+    }
+
+    public void testParallelReduce() throws InterruptedException {
+        ThreadPool threadPool = new ThreadPool(getTestName());
+        try {
+            SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, BigArrays.NON_RECYCLING_INSTANCE, null,
+                    threadPool);
+            SearchRequest request = new SearchRequest();
+            request.setBatchedReduceSize(randomIntBetween(2, 10));
+            int numShards = randomIntBetween(1, 50);
+            int numAggs = randomIntBetween(2, 20);
+            double[] expectedMax = new double[numAggs];
+            Arrays.fill(expectedMax, Double.NEGATIVE_INFINITY);
+            QueryPhaseResultConsumer consumer = controller.newQueryPhaseResultConsumer(request, numShards);
+            for (int i = 0; i < numShards; i++) {
+                List<InternalAggregation> aggs = new ArrayList<>(numAggs);
+                for (int j = 0; j < numAggs; j++) {
+                    double max = randomDouble();
+                    expectedMax[j] = Math.max(expectedMax[j], max);
+                    aggs.add(new InternalMax("max" + j, max, null, Collections.emptyList(), Collections.emptyMap()));
+                }
+                QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", "test", i));
+                result.aggregations(new InternalAggregations(aggs));
+                consumer.consume(result);
+            }
+            InternalAggregations reduced = consumer.reduce();
+            assertEquals(numAggs, reduced.asList().size());
+            for (int j = 0; j < numAggs; j++) {
+                InternalMax max = reduced.get("max" + j);
+                assertEquals(expectedMax[j], max.getValue(), 0.0d);
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testReduceAll() throws InterruptedException {
+        ThreadPool threadPool = new ThreadPool(getTestName());
+        try {
+            ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, new SearchRequest(), true,
+                    threadPool.executor(ThreadPool.Names.SEARCH_WORKER), randomIntBetween(1, 4));
+            int count = randomIntBetween(0, 100);
+            List<Integer> results = context.reduceAll(count, (i, reduceContext) -> {
+                // nested reductions don't fork again
+                assertFalse(reduceContext.isParallel());
+                return i * 2;
+            });
+            assertEquals(count, results.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i * 2, (int) results.get(i));
+            }
+
+            int failing = randomIntBetween(0, 9);
+            try {
+                context.reduceAll(10, (i, reduceContext) -> {
+                    if (i == failing) {
+                        throw new IllegalStateException("failed to reduce [" + i + "]");
+                    }
+                    return i;
+                });
+                fail("expected an IllegalStateException");
+            } catch (IllegalStateException e) {
+                assertEquals("failed to reduce [" + failing + "]", e.getMessage());
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testReduceAllWaitsForStartedTasks() throws InterruptedException {
+        ThreadPool threadPool = new ThreadPool(getTestName());
+        try {
+            ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, new SearchRequest(), true,
+                    threadPool.executor(ThreadPool.Names.SEARCH_WORKER), randomIntBetween(1, 4));
+            for (int iter = 0; iter < 10; iter++) {
+                int count = randomIntBetween(2, 20);
+                AtomicInteger running = new AtomicInteger();
+                List<Integer> results = context.reduceAll(count, (i, reduceContext) -> {
+                    running.incrementAndGet();
+                    try {
+                        // slow reducers make the calling thread run out of work while tasks are still reducing
+                        Thread.sleep(randomIntBetween(0, 10));
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                    running.decrementAndGet();
+                    return i;
+                });
+                assertEquals(0, running.get());
+                assertEquals(count, results.size());
+                for (int i = 0; i < count; i++) {
+                    assertNotNull(results.get(i));
+                    assertEquals(i, (int) results.get(i));
+                }
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testInvalidBatchedReduceSize() {
+        try {
+            new SearchRequest().setBatchedReduceSize(1);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("batchedReduceSize must be >= 2", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    public void testSlices() throws Exception {
+        try (Directory dir = newDirectory();
+             IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            final int numSegments = randomIntBetween(1, 20);
+            for (int i = 0; i < numSegments; i++) {
+                final int numDocs = randomIntBetween(1, 50);
+                for (int j = 0; j < numDocs; j++) {
+                    w.addDocument(new Document());
+                }
+                w.commit();
+            }
+            try (DirectoryReader reader = DirectoryReader.open(w, false)) {
+                final List<LeafReaderContext> leaves = reader.leaves();
+                final int maxSlices = randomIntBetween(1, 10);
+                final int minDocsPerSlice = randomIntBetween(1, 200);
+                List<List<LeafReaderContext>> slices = ContextIndexSearcher.slices(leaves, maxSlices, minDocsPerSlice);
+                assertTrue(slices.size() >= 1);
+                assertTrue(slices.size() <= maxSlices);
+                List<LeafReaderContext> flattened = new ArrayList<>();
+                for (List<LeafReaderContext> slice : slices) {
+                    assertFalse(slice.isEmpty());
+                    flattened.addAll(slice);
+                }
+                // slices are made of consecutive segments
+                assertEquals(leaves, flattened);
+                if (slices.size() > 1) {
+                    for (List<LeafReaderContext> slice : slices) {
+                        int sliceDocs = 0;
+                        for (LeafReaderContext leaf : slice) {
+                            sliceDocs += leaf.reader().maxDoc();
+                        }
+                        assertTrue(sliceDocs >= minDocsPerSlice || slice == slices.get(slices.size() - 1));
+                    }
+                }
+                if (reader.maxDoc() < minDocsPerSlice) {
+                    assertEquals(1, slices.size());
+                }
+            }
+        }
+    }
+}
@@ -37,15 +37,23 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class QueryPhaseTests extends ESTestCase {
@@ -165,4 +173,56 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+
+    public void testConcurrentTopDocs() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(getRandom(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 500);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new StringField("foo", randomBoolean() ? "bar" : "baz", Store.NO));
+            if (randomBoolean()) {
+                doc.add(new StringField("foo", "bar", Store.NO));
+            }
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = newSearcher(reader, false);
+        final Query query = searcher.rewrite(new TermQuery(new Term("foo", "bar")));
+        final int size = randomIntBetween(1, numDocs);
+        final TopDocs expected = searcher.search(query, size);
+
+        ExecutorService executor = EsExecutors.newFixed("test", randomIntBetween(1, 4), -1, EsExecutors.daemonThreadFactory("test"));
+        try {
+            ContextIndexSearcher contextSearcher = new ContextIndexSearcher(new Engine.Searcher("test", searcher),
+                    searcher.getQueryCache(), searcher.getQueryCachingPolicy());
+            contextSearcher.setExecutor(executor, randomIntBetween(1, 8), randomIntBetween(1, numDocs));
+            assertTrue(contextSearcher.isConcurrent());
+
+            TestSearchContext context = new TestSearchContext();
+            context.parsedQuery(new ParsedQuery(query));
+            context.setSize(size);
+            QueryPhase.execute(context, contextSearcher);
+            TopDocs topDocs = context.queryResult().topDocs();
+            assertEquals(expected.totalHits, topDocs.totalHits);
+            assertEquals(expected.getMaxScore(), topDocs.getMaxScore(), 0f);
+            assertEquals(expected.scoreDocs.length, topDocs.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                ScoreDoc expectedDoc = expected.scoreDocs[i];
+                ScoreDoc doc = topDocs.scoreDocs[i];
+                assertEquals(expectedDoc.doc, doc.doc);
+                assertEquals(expectedDoc.score, doc.score, 0f);
+                assertEquals(-1, doc.shardIndex);
+            }
+        } finally {
+            ThreadPool.terminate(executor, 10, TimeUnit.SECONDS);
+            reader.close();
+            w.close();
+            dir.close();
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class TransportStatsTests extends ESTestCase {
+
+    private static TransportStats randomStats() {
+        return new TransportStats(randomIntBetween(0, 100), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE),
+                randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE),
+                randomIntBetween(0, Integer.MAX_VALUE));
+    }
+
+    private static TransportStats copy(TransportStats stats, Version version) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        stats.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        in.setVersion(version);
+        TransportStats copy = TransportStats.readTransportStats(in);
+        assertThat(in.available(), equalTo(0));
+        return copy;
+    }
+
+    private static void assertCommonStats(TransportStats expected, TransportStats actual) {
+        assertThat(actual.getServerOpen(), equalTo(expected.getServerOpen()));
+        assertThat(actual.getRxCount(), equalTo(expected.getRxCount()));
+        assertThat(actual.getRxSize(), equalTo(expected.getRxSize()));
+        assertThat(actual.getTxCount(), equalTo(expected.getTxCount()));
+        assertThat(actual.getTxSize(), equalTo(expected.getTxSize()));
+    }
+
+    public void testSerialization() throws IOException {
+        TransportStats stats = randomStats();
+        Version version = VersionUtils.randomVersionBetween(random(), Version.V_3_0_0, Version.CURRENT);
+        TransportStats copy = copy(stats, version);
+        assertCommonStats(stats, copy);
+        assertThat(copy.getTxUncompressedSize(), equalTo(stats.getTxUncompressedSize()));
+        assertThat(copy.getTxCompressedSize(), equalTo(stats.getTxCompressedSize()));
+    }
+
+    public void testSerializationBeforeCompressedSizes() throws IOException {
+        TransportStats stats = randomStats();
+        Version version = VersionUtils.randomVersionBetween(random(), Version.V_2_0_0,
+                VersionUtils.getPreviousVersion(Version.V_3_0_0));
+        TransportStats copy = copy(stats, version);
+        assertCommonStats(stats, copy);
+        // older nodes don't know about the compressed sizes
+        assertThat(copy.getTxUncompressedSize().bytes(), equalTo(0L));
+        assertThat(copy.getTxCompressedSize().bytes(), equalTo(0L));
+    }
+}
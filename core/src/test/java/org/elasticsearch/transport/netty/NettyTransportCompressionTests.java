@@ -0,0 +1,258 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.compress.deflate.DeflateCompressor;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.FutureTransportResponseHandler;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestHandler;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.transport.TransportStats;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Tests that requests are compressed according to <code>transport.tcp.compressor</code> and
+ * <code>transport.tcp.compress_types</code>, and that the compressed messages are accounted for in the transport stats.
+ */
+public class NettyTransportCompressionTests extends ESTestCase {
+
+    private static final String ACTION = "internal:test/echo";
+
+    private ThreadPool threadPool;
+    private Set<TransportRequestOptions.Type> compressTypes;
+    private NettyTransport transportA;
+    private TransportService serviceA;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new ThreadPool(getClass().getName());
+        List<TransportRequestOptions.Type> types = randomSubsetOf(randomIntBetween(1, TransportRequestOptions.Type.values().length - 1),
+                TransportRequestOptions.Type.values());
+        compressTypes = EnumSet.copyOf(types);
+        String[] typeNames = new String[types.size()];
+        for (int i = 0; i < typeNames.length; i++) {
+            typeNames[i] = types.get(i).name().toLowerCase(Locale.ROOT);
+        }
+        Settings settings = Settings.builder()
+                .put("name", "TS_A")
+                .put(NettyTransport.TCP_COMPRESSOR, "lz4")
+                .putArray(NettyTransport.TCP_COMPRESS_TYPES, typeNames)
+                .build();
+        transportA = buildTransport(settings, Version.CURRENT);
+        serviceA = start(transportA);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        serviceA.close();
+        terminate(threadPool);
+    }
+
+    private NettyTransport buildTransport(Settings settings, Version version) {
+        settings = Settings.builder().put(settings).put("transport.tcp.port", "0").build();
+        return new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE, version,
+                new NamedWriteableRegistry());
+    }
+
+    private TransportService start(NettyTransport transport) {
+        TransportService service = new TransportService(transport, threadPool);
+        service.start();
+        service.registerRequestHandler(ACTION, EchoRequest::new, ThreadPool.Names.GENERIC, new TransportRequestHandler<EchoRequest>() {
+            @Override
+            public void messageReceived(EchoRequest request, TransportChannel channel) throws Exception {
+                channel.sendResponse(new EchoResponse(request.message));
+            }
+        });
+        return service;
+    }
+
+    /**
+     * Sends a request of the given type from A to the given node and checks that it makes the round trip, returns the
+     * compressed sizes A recorded for it.
+     */
+    private long[] sendEcho(DiscoveryNode node, TransportRequestOptions.Type type) {
+        // compresses well
+        String message = randomAsciiOfLength(10) + new String(new char[1024 * randomIntBetween(1, 16)]).replace('\0', 'x');
+        TransportStats before = serviceA.stats();
+        EchoResponse response = serviceA.submitRequest(node, ACTION, new EchoRequest(message),
+                TransportRequestOptions.builder().withType(type).build(), new FutureTransportResponseHandler<EchoResponse>() {
+                    @Override
+                    public EchoResponse newInstance() {
+                        return new EchoResponse();
+                    }
+                }).txGet();
+        assertThat(response.message, equalTo(message));
+        TransportStats after = serviceA.stats();
+        return new long[] {
+                after.getTxUncompressedSize().bytes() - before.getTxUncompressedSize().bytes(),
+                after.getTxCompressedSize().bytes() - before.getTxCompressedSize().bytes()
+        };
+    }
+
+    public void testCompressConfiguredTypes() throws Exception {
+        NettyTransport transportB = buildTransport(Settings.builder().put("name", "TS_B").build(), Version.CURRENT);
+        TransportService serviceB = start(transportB);
+        try {
+            DiscoveryNode nodeB = new DiscoveryNode("TS_B", "TS_B", serviceB.boundAddress().publishAddress(), emptyMap(), Version.CURRENT);
+            serviceA.connectToNode(nodeB);
+            assertThat(transportA.compressor(nodeB.version()), instanceOf(LZ4Compressor.class));
+            TransportStats statsB = serviceB.stats();
+            for (TransportRequestOptions.Type type : TransportRequestOptions.Type.values()) {
+                long[] delta = sendEcho(nodeB, type);
+                if (compressTypes.contains(type)) {
+                    assertThat("request of type " + type + " should be compressed", delta[0], greaterThan(0L));
+                    assertThat("request of type " + type + " should be smaller once compressed", delta[1], lessThan(delta[0]));
+                    assertThat(delta[1], greaterThan(0L));
+                } else {
+                    assertThat("request of type " + type + " should not be compressed", delta[0], equalTo(0L));
+                    assertThat(delta[1], equalTo(0L));
+                }
+            }
+            // responses are only compressed with transport.tcp.compress
+            assertThat(serviceB.stats().getTxUncompressedSize(), equalTo(statsB.getTxUncompressedSize()));
+            assertThat(serviceB.stats().getTxCompressedSize(), equalTo(statsB.getTxCompressedSize()));
+        } finally {
+            serviceB.close();
+        }
+    }
+
+    public void testFallBackToDeflateForOlderNodes() throws Exception {
+        Version oldVersion = VersionUtils.randomVersionBetween(random(), Version.V_2_0_0, VersionUtils.getPreviousVersion(Version.V_3_0_0));
+        NettyTransport transportB = buildTransport(Settings.builder().put("name", "TS_B").build(), oldVersion);
+        TransportService serviceB = start(transportB);
+        try {
+            DiscoveryNode nodeB = new DiscoveryNode("TS_B", "TS_B", serviceB.boundAddress().publishAddress(), emptyMap(), oldVersion);
+            serviceA.connectToNode(nodeB);
+            // older nodes can't read lz4
+            assertThat(transportA.compressor(nodeB.version()), instanceOf(DeflateCompressor.class));
+            TransportRequestOptions.Type type = randomFrom(compressTypes.toArray(new TransportRequestOptions.Type[compressTypes.size()]));
+            long[] delta = sendEcho(nodeB, type);
+            assertThat(delta[0], greaterThan(0L));
+            assertThat(delta[1], lessThan(delta[0]));
+        } finally {
+            serviceB.close();
+        }
+    }
+
+    public void testCompressorForVersion() {
+        assertThat(transportA.compressor(Version.CURRENT), instanceOf(LZ4Compressor.class));
+        assertThat(transportA.compressor(Version.V_3_0_0), instanceOf(LZ4Compressor.class));
+        assertThat(transportA.compressor(VersionUtils.getPreviousVersion(Version.V_3_0_0)), instanceOf(DeflateCompressor.class));
+        NettyTransport deflate = buildTransport(Settings.EMPTY, Version.CURRENT);
+        assertThat(deflate.compressor(Version.CURRENT), instanceOf(DeflateCompressor.class));
+        assertThat(deflate.compressor(VersionUtils.getPreviousVersion(Version.V_3_0_0)), instanceOf(DeflateCompressor.class));
+    }
+
+    public void testUnknownCompressSettings() {
+        try {
+            buildTransport(Settings.builder().put(NettyTransport.TCP_COMPRESSOR, "snappy").build(), Version.CURRENT);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(),
+                    equalTo("unknown compressor [snappy] for [transport.tcp.compressor], expected one of [deflate, lz4]"));
+        }
+        try {
+            buildTransport(Settings.builder().putArray(NettyTransport.TCP_COMPRESS_TYPES, "bulk", "search").build(), Version.CURRENT);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("unknown request type [search] for [transport.tcp.compress_types], "
+                    + "expected one of [RECOVERY, BULK, REG, STATE, PING]"));
+        }
+    }
+
+    public static class EchoRequest extends TransportRequest {
+
+        private String message;
+
+        public EchoRequest() {
+        }
+
+        EchoRequest(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            message = in.readString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(message);
+        }
+    }
+
+    static class EchoResponse extends TransportResponse {
+
+        private String message;
+
+        EchoResponse() {
+        }
+
+        EchoResponse(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            message = in.readString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(message);
+        }
+    }
+}